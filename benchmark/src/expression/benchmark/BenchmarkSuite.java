@@ -0,0 +1,65 @@
+/**
+ * Benchmarks for the expression package.
+ */
+
+package expression.benchmark;
+
+/**
+ * Import IOException and JMH packages.
+ */
+import java.io.IOException;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * This class is the entry point of benchmarks.jar. It runs the JMH benchmarks selected by the
+ * usual JMH command line, all of them by default, always with the GC profiler so that every score
+ * comes with its allocation rate, and writes the results as JSON so that runs of different
+ * versions can be diffed. The results go to jmh-result.json unless -rff names another file.
+ */
+public final class BenchmarkSuite {
+
+  /**
+   * Private constructor since this class only has static methods.
+   */
+  private BenchmarkSuite() {
+  }
+
+  /**
+   * Runs the benchmarks.
+   *
+   * @param args the JMH command line options.
+   * @throws CommandLineOptionException if the options are invalid.
+   * @throws RunnerException if a benchmark fails.
+   * @throws IOException if the help or a listing cannot be printed.
+   */
+  public static void main(String[] args)
+          throws CommandLineOptionException, RunnerException, IOException {
+    CommandLineOptions command = new CommandLineOptions(args);
+    if (command.shouldHelp() || command.shouldList() || command.shouldListWithParams()
+            || command.shouldListProfilers() || command.shouldListResultFormats()) {
+      Main.main(args);
+      return;
+    }
+    OptionsBuilder builder = new OptionsBuilder();
+    builder.parent(command);
+    if (command.getIncludes().isEmpty()) {
+      builder.include("expression\\.benchmark\\..*Benchmark");
+    }
+    Options options = builder
+            .addProfiler(GCProfiler.class)
+            .resultFormat(ResultFormatType.JSON)
+            .result(command.getResult().orElse("jmh-result.json"))
+            .build();
+    new Runner(options).run();
+  }
+
+}
@@ -0,0 +1,65 @@
+/**
+ * Benchmarks for the expression package.
+ */
+
+package expression.benchmark;
+
+/**
+ * Import JMH and TimeUnit packages.
+ */
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This class measures the latency of evaluating an already parsed expression for every shape and
+ * size of Workload: the tree with a Map, the tree with slots, and the compiled expression with
+ * slots.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EvaluateBenchmark {
+
+  /**
+   * Evaluates the tree with the values of its variables in a Map.
+   *
+   * @param workload the generated expression.
+   * @return the value of the expression.
+   */
+  @Benchmark
+  public double evaluateMap(Workload workload) {
+    return workload.tree.evaluate(workload.variables);
+  }
+
+  /**
+   * Evaluates the tree with the values of its variables in slots.
+   *
+   * @param workload the generated expression.
+   * @return the value of the expression.
+   */
+  @Benchmark
+  public double evaluateSlots(Workload workload) {
+    return workload.tree.evaluate(workload.slots);
+  }
+
+  /**
+   * Evaluates the compiled expression with the values of its variables in slots.
+   *
+   * @param workload the generated expression.
+   * @return the value of the expression.
+   */
+  @Benchmark
+  public double evaluateCompiled(Workload workload) {
+    return workload.compiled.evaluate(workload.slots);
+  }
+
+}
@@ -0,0 +1,86 @@
+/**
+ * Benchmarks for the expression package.
+ */
+
+package expression.benchmark;
+
+/**
+ * Import GradientEvaluator, JMH, and TimeUnit packages.
+ */
+import java.util.concurrent.TimeUnit;
+
+import expression.GradientEvaluator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This class measures the cost of the gradient of every shape and size of Workload, computed by
+ * GradientEvaluator in one forward and one backward pass and by central differences, which
+ * evaluate the tree twice per variable.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GradientBenchmark {
+
+  private GradientEvaluator evaluator;
+  private double[] slots;
+  private double[] gradient;
+
+  /**
+   * Builds the GradientEvaluator of the workload and the arrays the benchmarks reuse.
+   *
+   * @param workload the generated expression.
+   */
+  @Setup(Level.Trial)
+  public void setUp(Workload workload) {
+    evaluator = new GradientEvaluator(workload.tree);
+    slots = workload.slots.clone();
+    gradient = new double[slots.length];
+  }
+
+  /**
+   * Computes the value and gradient by reverse-mode automatic differentiation.
+   *
+   * @return the gradient.
+   */
+  @Benchmark
+  public double[] reverseMode() {
+    evaluator.evaluate(slots, gradient);
+    return gradient;
+  }
+
+  /**
+   * Computes the gradient by central differences, with two evaluations per variable.
+   *
+   * @param workload the generated expression.
+   * @return the gradient.
+   */
+  @Benchmark
+  public double[] centralDifferences(Workload workload) {
+    for (int i = 0; i < slots.length; i++) {
+      double x = slots[i];
+      double h = 1e-6 * Math.max(1.0, Math.abs(x));
+      slots[i] = x + h;
+      double above = workload.tree.evaluate(slots);
+      slots[i] = x - h;
+      double below = workload.tree.evaluate(slots);
+      slots[i] = x;
+      gradient[i] = (above - below) / (2 * h);
+    }
+    return gradient;
+  }
+
+}
@@ -0,0 +1,125 @@
+/**
+ * Benchmarks for the expression package.
+ */
+
+package expression.benchmark;
+
+/**
+ * Import EvaluationSession, ExpressionTree, HashMap, Map, and Random packages.
+ */
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import expression.EvaluationSession;
+import expression.ExpressionTree;
+
+/**
+ * This class measures how much an EvaluationSession saves over evaluating the whole tree when only
+ * a fraction of the variables change between evaluations. For each fraction it changes that many
+ * randomly chosen variables, evaluates, and reports the time per evaluation of the plain tree, the
+ * session, and the speedup, together with the average number of operators the session recomputed.
+ * Run it with the main method; the optional arguments are the number of variables and the number
+ * of operators of the formula.
+ */
+public final class IncrementalEvaluationBenchmark {
+
+  private static final double[] FRACTIONS = {0.02, 0.05, 0.1, 0.25, 0.5, 1.0};
+
+  /**
+   * Private constructor since this class only has static methods.
+   */
+  private IncrementalEvaluationBenchmark() {
+  }
+
+  /**
+   * Runs the benchmark and prints one line per fraction of changed variables.
+   *
+   * @param args the optional number of variables, 50 by default, and operators, 2000 by default.
+   */
+  public static void main(String[] args) {
+    int variables = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+    int operators = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+    String[] names = Workloads.vocabulary(variables);
+    ExpressionTree tree = new ExpressionTree(Workloads.generate(operators, 7, names));
+    String[] slots = tree.getVariables();
+    Random random = new Random(11);
+    int rounds = 20_000;
+    double sink = 0;
+
+    System.out.println("variables: " + slots.length + ", operators: " + operators);
+    System.out.println("changed   tree ns/eval   session ns/eval   speedup   recomputed");
+    for (double fraction : FRACTIONS) {
+      int changed = Math.max(1, (int) Math.round(fraction * slots.length));
+      Map<String, Double> map = new HashMap<>();
+      double[] values = new double[slots.length];
+      for (int i = 0; i < slots.length; i++) {
+        values[i] = random.nextDouble() + 0.5;
+        map.put(slots[i], values[i]);
+      }
+      int[][] changes = new int[rounds][changed];
+      for (int[] round : changes) {
+        for (int i = 0; i < changed; i++) {
+          round[i] = random.nextInt(slots.length);
+        }
+      }
+      EvaluationSession session = new EvaluationSession(tree);
+      session.evaluate(map);
+
+      for (int warmup = 0; warmup < 3; warmup++) {
+        sink += runTree(tree, values, changes, random);
+        sink += runSession(session, values, changes, random);
+      }
+      long start = System.nanoTime();
+      sink += runTree(tree, values, changes, random);
+      long treeTime = System.nanoTime() - start;
+      long recomputed = 0;
+      start = System.nanoTime();
+      for (int[] round : changes) {
+        for (int slot : round) {
+          values[slot] = random.nextDouble() + 0.5;
+          session.set(slot, values[slot]);
+        }
+        sink += session.evaluate();
+        recomputed += session.getRecomputedCount();
+      }
+      long sessionTime = System.nanoTime() - start;
+      System.out.printf("%5.0f%%   %14.0f   %15.0f   %7.1fx   %10d%n", fraction * 100,
+              (double) treeTime / rounds, (double) sessionTime / rounds,
+              (double) treeTime / sessionTime, recomputed / rounds);
+    }
+    System.out.println("checksum: " + sink);
+  }
+
+  /**
+   * Applies every round of changes to the slot values and evaluates the whole tree after each.
+   */
+  private static double runTree(ExpressionTree tree, double[] values, int[][] changes,
+                                Random random) {
+    double sum = 0;
+    for (int[] round : changes) {
+      for (int slot : round) {
+        values[slot] = random.nextDouble() + 0.5;
+      }
+      sum += tree.evaluate(values);
+    }
+    return sum;
+  }
+
+  /**
+   * Applies every round of changes to the session and evaluates it after each.
+   */
+  private static double runSession(EvaluationSession session, double[] values, int[][] changes,
+                                   Random random) {
+    double sum = 0;
+    for (int[] round : changes) {
+      for (int slot : round) {
+        values[slot] = random.nextDouble() + 0.5;
+        session.set(slot, values[slot]);
+      }
+      sum += session.evaluate();
+    }
+    return sum;
+  }
+
+}
@@ -0,0 +1,105 @@
+/**
+ * Benchmarks for the expression package.
+ */
+
+package expression.benchmark;
+
+/**
+ * Import IntervalEvaluator, JMH, and TimeUnit packages.
+ */
+import java.util.concurrent.TimeUnit;
+
+import expression.IntervalEvaluator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This class measures the cost of bounding every shape and size of Workload by interval
+ * arithmetic, for one set of variable intervals and for a batch of them, against one exact
+ * evaluation of the same tree.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class IntervalBenchmark {
+
+  private static final int ROWS = 64;
+
+  private IntervalEvaluator evaluator;
+  private double[] lower;
+  private double[] upper;
+  private double[][] lowerColumns;
+  private double[][] upperColumns;
+  private double[] outLower;
+  private double[] outUpper;
+
+  /**
+   * Builds the IntervalEvaluator of the workload and intervals of width one around its slots.
+   *
+   * @param workload the generated expression.
+   */
+  @Setup(Level.Trial)
+  public void setUp(Workload workload) {
+    evaluator = new IntervalEvaluator(workload.tree);
+    int n = workload.slots.length;
+    lower = new double[n];
+    upper = new double[n];
+    lowerColumns = new double[n][ROWS];
+    upperColumns = new double[n][ROWS];
+    for (int slot = 0; slot < n; slot++) {
+      lower[slot] = workload.slots[slot] - 0.5;
+      upper[slot] = workload.slots[slot] + 0.5;
+      for (int r = 0; r < ROWS; r++) {
+        lowerColumns[slot][r] = lower[slot] + r;
+        upperColumns[slot][r] = upper[slot] + r;
+      }
+    }
+    outLower = new double[ROWS];
+    outUpper = new double[ROWS];
+  }
+
+  /**
+   * Evaluates the tree exactly once, for comparison.
+   *
+   * @param workload the generated expression.
+   * @return the value of the tree.
+   */
+  @Benchmark
+  public double exact(Workload workload) {
+    return workload.tree.evaluate(workload.slots);
+  }
+
+  /**
+   * Bounds the tree for one set of variable intervals.
+   *
+   * @return the upper bound of the tree.
+   */
+  @Benchmark
+  public double interval() {
+    return evaluator.evaluate(lower, upper).getUpper();
+  }
+
+  /**
+   * Bounds the tree for a batch of ROWS sets of variable intervals.
+   *
+   * @return the upper bounds of the tree.
+   */
+  @Benchmark
+  public double[] intervalBatch() {
+    evaluator.evaluate(lowerColumns, upperColumns, 0, ROWS, outLower, outUpper, 0);
+    return outUpper;
+  }
+
+}
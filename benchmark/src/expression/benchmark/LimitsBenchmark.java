@@ -0,0 +1,78 @@
+/**
+ * Benchmarks for the expression package.
+ */
+
+package expression.benchmark;
+
+/**
+ * Import ExpressionTree, JMH, and TimeUnit packages.
+ */
+import java.util.concurrent.TimeUnit;
+
+import expression.ExpressionTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This class measures the overhead of ExpressionLimits by parsing and evaluating every shape and
+ * size of Workload with and without limits. The limits are generous enough never to be exceeded,
+ * so every check runs and none fails, and the limited score should stay within 2% of the plain
+ * one.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LimitsBenchmark {
+
+  /**
+   * Parses the expression without limits.
+   *
+   * @param workload the generated expression.
+   * @return the parsed tree.
+   */
+  @Benchmark
+  public ExpressionTree parse(Workload workload) {
+    return new ExpressionTree(workload.input);
+  }
+
+  /**
+   * Parses the expression under the limits of the workload.
+   *
+   * @param workload the generated expression.
+   * @return the parsed tree.
+   */
+  @Benchmark
+  public ExpressionTree parseLimited(Workload workload) {
+    return new ExpressionTree(workload.input, workload.limits);
+  }
+
+  /**
+   * Evaluates the tree parsed without limits with the values of its variables in slots.
+   *
+   * @param workload the generated expression.
+   * @return the value of the expression.
+   */
+  @Benchmark
+  public double evaluate(Workload workload) {
+    return workload.tree.evaluate(workload.slots);
+  }
+
+  /**
+   * Evaluates the tree parsed under limits with the values of its variables in slots.
+   *
+   * @param workload the generated expression.
+   * @return the value of the expression.
+   */
+  @Benchmark
+  public double evaluateLimited(Workload workload) {
+    return workload.limitedTree.evaluate(workload.slots);
+  }
+
+}
@@ -0,0 +1,160 @@
+/**
+ * Benchmarks for the expression package.
+ */
+
+package expression.benchmark;
+
+/**
+ * Import expression, ArrayList, HashMap, InetAddress, InetSocketAddress, IOException, List, Map,
+ * SocketAddress, and SplittableRandom packages.
+ */
+import expression.EvaluationClient;
+import expression.EvaluationServer;
+import expression.LatencyHistogram;
+import expression.TenantLimits;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * This class drives an EvaluationServer with a closed-loop load over local sockets and reports the
+ * throughput and latency percentiles it sees, together with the average size of the batches the
+ * server evaluated. Every connection keeps a fixed number of requests in flight, each drawing a
+ * random formula and tenant from a small set, so that concurrent requests for the same formula
+ * exercise the batching of the server. Run it with the main method; the optional arguments are the
+ * number of connections, the requests in flight per connection, the measured seconds, the number
+ * of formulas, the number of tenants, and the port of a server already listening on the loopback
+ * address. Without a port, a server is started in the same process.
+ */
+public final class LoadGenerator {
+
+  private static final String[] VARIABLES = {"a", "b", "price", "qty"};
+
+  /**
+   * Histogram the requests record their latency in, replaced when the warmup ends.
+   */
+  private static volatile LatencyHistogram latencies = new LatencyHistogram();
+  private static volatile boolean running = true;
+
+  /**
+   * Private constructor since this class only has static methods.
+   */
+  private LoadGenerator() {
+  }
+
+  /**
+   * Runs the load and prints its results.
+   *
+   * @param args the optional number of connections, 16 by default, requests in flight per
+   *        connection, 32 by default, measured seconds, 10 by default, formulas, 64 by default,
+   *        tenants, 8 by default, and port of an external server.
+   * @throws IOException if a connection cannot be opened.
+   * @throws InterruptedException if interrupted while the load runs.
+   */
+  public static void main(String[] args) throws IOException, InterruptedException {
+    int connections = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+    int inFlight = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+    int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+    int formulaCount = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+    int tenants = args.length > 4 ? Integer.parseInt(args[4]) : 8;
+    String[] formulas = new String[formulaCount];
+    for (int i = 0; i < formulaCount; i++) {
+      formulas[i] = Workloads.generate(15, i);
+    }
+
+    EvaluationServer server = null;
+    SocketAddress address;
+    if (args.length > 5) {
+      address = new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(args[5]));
+    }
+    else {
+      server = new EvaluationServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+              TenantLimits.UNLIMITED);
+      address = server.getAddress();
+    }
+
+    List<EvaluationClient> clients = new ArrayList<>();
+    List<Thread> threads = new ArrayList<>();
+    for (int c = 0; c < connections; c++) {
+      EvaluationClient client = new EvaluationClient(address);
+      clients.add(client);
+      for (int t = 0; t < inFlight; t++) {
+        long seed = (long) c * inFlight + t;
+        Thread thread = new Thread(() -> drive(client, formulas, tenants, seed));
+        thread.setDaemon(true);
+        threads.add(thread);
+      }
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+
+    Thread.sleep(Math.max(1, seconds / 5) * 1000L);
+    long requests = server == null ? 0 : server.getRequestCount();
+    long batches = server == null ? 0 : server.getBatchCount();
+    LatencyHistogram measured = new LatencyHistogram();
+    latencies = measured;
+    long start = System.nanoTime();
+    Thread.sleep(seconds * 1000L);
+    running = false;
+    long elapsed = System.nanoTime() - start;
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    System.out.println("virtual threads:     " + EvaluationServer.isVirtual());
+    System.out.println("connections:         " + connections);
+    System.out.println("in flight:           " + connections * inFlight);
+    System.out.println("requests:            " + measured.getCount());
+    System.out.printf("throughput (req/s):  %.0f%n", measured.getCount() * 1e9 / elapsed);
+    System.out.printf("mean (us):           %.1f%n", measured.getMean() / 1e3);
+    System.out.printf("p50 (us):            %.1f%n", measured.getValueAtPercentile(50.0) / 1e3);
+    System.out.printf("p99 (us):            %.1f%n", measured.getValueAtPercentile(99.0) / 1e3);
+    System.out.printf("p99.9 (us):          %.1f%n", measured.getValueAtPercentile(99.9) / 1e3);
+    System.out.printf("max (us):            %.1f%n", measured.getMax() / 1e3);
+    if (server != null) {
+      requests = server.getRequestCount() - requests;
+      batches = server.getBatchCount() - batches;
+      System.out.printf("rows per batch:      %.2f%n", batches == 0 ? 0.0 : (double) requests
+              / batches);
+    }
+
+    for (EvaluationClient client : clients) {
+      client.close();
+    }
+    if (server != null) {
+      server.close();
+    }
+  }
+
+  /**
+   * Sends requests on a connection one after the other until the load stops, recording the
+   * latency of each.
+   *
+   * @param client the connection to send the requests on.
+   * @param formulas the formulas the requests draw from.
+   * @param tenants the number of tenants the requests draw from.
+   * @param seed the seed of the choices of formula, tenant, and values.
+   */
+  private static void drive(EvaluationClient client, String[] formulas, int tenants, long seed) {
+    SplittableRandom random = new SplittableRandom(seed);
+    Map<String,Double> variables = new HashMap<>();
+    while (running) {
+      for (String variable : VARIABLES) {
+        variables.put(variable, random.nextDouble(1.0, 100.0));
+      }
+      String tenant = "tenant" + random.nextInt(tenants);
+      String formula = formulas[random.nextInt(formulas.length)];
+      long start = System.nanoTime();
+      client.evaluate(tenant, formula, variables);
+      latencies.record(System.nanoTime() - start);
+    }
+  }
+
+}
@@ -0,0 +1,86 @@
+/**
+ * Benchmarks for the expression package.
+ */
+
+package expression.benchmark;
+
+/**
+ * Import expression packages.
+ */
+import expression.CompactExpression;
+import expression.Expression;
+import expression.ExpressionTree;
+import expression.SymbolTable;
+
+/**
+ * This class measures the heap retained per resident expression by ExpressionTree and by
+ * CompactExpression, by building the same set of formulas both ways and comparing the live heap
+ * after full garbage collections. Run it with the main method; the optional arguments are the
+ * number of formulas and the number of operators per formula.
+ */
+public final class MemoryFootprintBenchmark {
+
+  /**
+   * Private constructor since this class only has static methods.
+   */
+  private MemoryFootprintBenchmark() {
+  }
+
+  /**
+   * Returns the heap in use after repeated full garbage collections.
+   *
+   * @return the used heap in bytes.
+   * @throws InterruptedException if interrupted while waiting for the collector.
+   */
+  private static long usedHeap() throws InterruptedException {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 5; i++) {
+      System.gc();
+      Thread.sleep(50);
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  /**
+   * Runs the benchmark and prints the bytes retained per expression and per node.
+   *
+   * @param args the optional number of formulas, 200000 by default, and operators per formula,
+   *        15 by default.
+   * @throws InterruptedException if interrupted while waiting for the collector.
+   */
+  public static void main(String[] args) throws InterruptedException {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+    int operators = args.length > 1 ? Integer.parseInt(args[1]) : 15;
+    String[] vocabulary = Workloads.vocabulary(1000);
+    String[] inputs = new String[count];
+    for (int i = 0; i < count; i++) {
+      inputs[i] = Workloads.generate(operators, i, vocabulary);
+    }
+    int nodes = 2 * operators + 1;
+
+    Expression[] resident = new Expression[count];
+    long base = usedHeap();
+    for (int i = 0; i < count; i++) {
+      resident[i] = new ExpressionTree(inputs[i]);
+    }
+    long trees = usedHeap() - base;
+
+    resident = new Expression[count];
+    SymbolTable symbols = new SymbolTable();
+    base = usedHeap();
+    for (int i = 0; i < count; i++) {
+      resident[i] = new CompactExpression(inputs[i], symbols);
+    }
+    long compact = usedHeap() - base;
+
+    System.out.println("expressions:                 " + count);
+    System.out.println("nodes per expression:        " + nodes);
+    System.out.println("ExpressionTree (B/expr):     " + trees / count);
+    System.out.println("ExpressionTree (B/node):     " + trees / count / nodes);
+    System.out.println("CompactExpression (B/expr):  " + compact / count);
+    System.out.println("CompactExpression (B/node):  " + compact / count / nodes);
+    System.out.println("interned symbols:            " + symbols.size());
+    System.out.println("resident:                    " + resident.length);
+  }
+
+}
@@ -0,0 +1,118 @@
+/**
+ * Benchmarks for the expression package.
+ */
+
+package expression.benchmark;
+
+/**
+ * Import ManagementFactory, EmptyStackException, Stack, and expression packages.
+ */
+import java.lang.management.ManagementFactory;
+import java.util.EmptyStackException;
+import java.util.Stack;
+
+import expression.ExpressionNode;
+import expression.ExpressionTree;
+import expression.OperandNode;
+import expression.OperatorNode;
+
+/**
+ * This class measures the bytes allocated per parse of a postfix expression by the ExpressionTree
+ * constructor and by a copy of the original regex, split and java.util.Stack based parser, using
+ * the per-thread allocation counter of the HotSpot ThreadMXBean. Run it with the main method; the
+ * optional argument is the number of operators in the generated expression.
+ */
+public final class ParseAllocationBenchmark {
+
+  private static final int WARMUP = 20_000;
+  private static final int MEASURED = 20_000;
+
+  /**
+   * Private constructor since this class only has static methods.
+   */
+  private ParseAllocationBenchmark() {
+  }
+
+  /**
+   * Parses the input the way the ExpressionTree constructor did before it had its own scanner,
+   * building the same node types through the public OperatorNode and OperandNode API.
+   *
+   * @param input the postfix expression.
+   * @return the root of the parsed tree.
+   */
+  static ExpressionNode legacyParse(String input) {
+    String equation = input.trim().replaceAll(" +", " ");
+    if (equation.equals("")) {
+      throw new IllegalArgumentException("Expression is invalid.");
+    }
+    Stack<ExpressionNode> stack = new Stack<>();
+    for (String s : equation.split(" ")) {
+      if (s.equals("+") || s.equals("-") || s.equals("*") || s.equals("/")) {
+        ExpressionNode node2;
+        ExpressionNode node1;
+        try {
+          node2 = stack.pop();
+          node1 = stack.pop();
+        } catch (EmptyStackException a) {
+          throw new IllegalArgumentException("Expression is invalid.");
+        }
+        ExpressionNode operator = new OperatorNode(s);
+        operator.addTerm(s, node1);
+        operator.addTerm(s, node2);
+        stack.push(operator);
+      }
+      else {
+        stack.push(new OperandNode(s));
+      }
+    }
+    ExpressionNode root = stack.pop();
+    if (!stack.empty()) {
+      throw new IllegalArgumentException("Expression is invalid.");
+    }
+    return root;
+  }
+
+  /**
+   * Returns the bytes allocated so far by the current thread.
+   *
+   * @return the allocated bytes of the current thread.
+   */
+  private static long allocatedBytes() {
+    return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+            .getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  /**
+   * Runs the benchmark and prints the bytes allocated per parse before and after.
+   *
+   * @param args the optional number of operators in the expression, 50 by default.
+   */
+  public static void main(String[] args) {
+    int operators = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+    String input = Workloads.generate(operators, 42);
+    long sink = 0;
+    for (int i = 0; i < WARMUP; i++) {
+      sink += legacyParse(input).hashCode();
+      sink += new ExpressionTree(input).hashCode();
+    }
+
+    long before = allocatedBytes();
+    for (int i = 0; i < MEASURED; i++) {
+      sink += legacyParse(input).hashCode();
+    }
+    long legacy = (allocatedBytes() - before) / MEASURED;
+
+    before = allocatedBytes();
+    for (int i = 0; i < MEASURED; i++) {
+      sink += new ExpressionTree(input).hashCode();
+    }
+    long scanner = (allocatedBytes() - before) / MEASURED;
+
+    System.out.println("operators:                  " + operators);
+    System.out.println("input length:               " + input.length());
+    System.out.println("regex/split parser (B/op):  " + legacy);
+    System.out.println("single-pass scanner (B/op): " + scanner);
+    System.out.println("checksum:                   " + sink);
+  }
+
+}
@@ -0,0 +1,73 @@
+/**
+ * Benchmarks for the expression package.
+ */
+
+package expression.benchmark;
+
+/**
+ * Import ByteBuffer, ExpressionCodec, ExpressionTree, IOException, JMH, StringReader, and TimeUnit
+ * packages.
+ */
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import expression.ExpressionCodec;
+import expression.ExpressionTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This class measures the parse throughput of ExpressionTree, from a String and from a Reader, and
+ * the throughput of decoding the same tree from its binary encoding, for every shape and size of
+ * Workload. Divide the score by the number of tokens for the cost per
+ * token, and run with the GC profiler for the bytes allocated per parse.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+
+  /**
+   * Parses the expression from its String.
+   *
+   * @param workload the generated expression.
+   * @return the parsed tree.
+   */
+  @Benchmark
+  public ExpressionTree parseString(Workload workload) {
+    return new ExpressionTree(workload.input);
+  }
+
+  /**
+   * Parses the expression incrementally from a Reader over its String.
+   *
+   * @param workload the generated expression.
+   * @return the parsed tree.
+   * @throws IOException never, since the Reader reads from memory.
+   */
+  @Benchmark
+  public ExpressionTree parseReader(Workload workload) throws IOException {
+    return ExpressionTree.parse(new StringReader(workload.input));
+  }
+
+  /**
+   * Decodes the expression from its binary encoding, without parsing any text.
+   *
+   * @param workload the generated expression.
+   * @return the decoded tree.
+   */
+  @Benchmark
+  public ExpressionTree decodeBinary(Workload workload) {
+    return ExpressionCodec.decode(ByteBuffer.wrap(workload.encoded));
+  }
+
+}
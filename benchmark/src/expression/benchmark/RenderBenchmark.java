@@ -0,0 +1,53 @@
+/**
+ * Benchmarks for the expression package.
+ */
+
+package expression.benchmark;
+
+/**
+ * Import JMH and TimeUnit packages.
+ */
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This class measures the time to render an already parsed expression in infix and scheme form
+ * for every shape and size of Workload.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+
+  /**
+   * Renders the tree in infix form.
+   *
+   * @param workload the generated expression.
+   * @return the infix form.
+   */
+  @Benchmark
+  public String infix(Workload workload) {
+    return workload.tree.infix();
+  }
+
+  /**
+   * Renders the tree in scheme form.
+   *
+   * @param workload the generated expression.
+   * @return the scheme form.
+   */
+  @Benchmark
+  public String schemeExpression(Workload workload) {
+    return workload.tree.schemeExpression();
+  }
+
+}
@@ -0,0 +1,79 @@
+/**
+ * Benchmarks for the expression package.
+ */
+
+package expression.benchmark;
+
+/**
+ * Import CompiledExpression, Duration, ExpressionCodec, ExpressionLimits, ExpressionTree, HashMap,
+ * JMH, and Map packages.
+ */
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import expression.CompiledExpression;
+import expression.ExpressionCodec;
+import expression.ExpressionLimits;
+import expression.ExpressionTree;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * This class is the JMH state shared by the benchmarks: one generated expression for every
+ * combination of shape and size, from a single operand to a million tokens, with its binary
+ * encoding, its parsed tree, its compiled form, and values for its variables, and the same tree
+ * parsed under limits generous enough never to be exceeded.
+ */
+@State(Scope.Benchmark)
+public class Workload {
+
+  /**
+   * Shape of the expression, as understood by Workloads.shape.
+   */
+  @Param({"random", "deep", "wide"})
+  public String shape;
+
+  /**
+   * Number of operators and operands of the expression.
+   */
+  @Param({"3", "101", "10001", "1000001"})
+  public int tokens;
+
+  public String input;
+  public byte[] encoded;
+  public ExpressionTree tree;
+  public ExpressionLimits limits;
+  public ExpressionTree limitedTree;
+  public CompiledExpression compiled;
+  public Map<String, Double> variables;
+  public double[] slots;
+
+  /**
+   * Generates the expression and prepares everything the benchmarks need to evaluate it.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    input = Workloads.shape(shape, tokens, 42);
+    tree = new ExpressionTree(input);
+    limits = ExpressionLimits.UNLIMITED.withMaxTokens(2L * tokens).withMaxDepth(2 * tokens)
+            .withMaxVariables(1000).withMaxSteps(2L * tokens).withTimeout(Duration.ofMinutes(1));
+    limitedTree = new ExpressionTree(input, limits);
+    encoded = ExpressionCodec.encode(tree);
+    compiled = tree.compile();
+    variables = new HashMap<>();
+    variables.put("a", 1.25);
+    variables.put("b", -3.5);
+    variables.put("price", 99.99);
+    variables.put("qty", 12.0);
+    String[] names = tree.getVariables();
+    slots = new double[names.length];
+    for (int i = 0; i < names.length; i++) {
+      slots[i] = variables.get(names[i]);
+    }
+  }
+
+}
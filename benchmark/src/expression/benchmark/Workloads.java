@@ -0,0 +1,142 @@
+/**
+ * Benchmarks for the expression package.
+ */
+
+package expression.benchmark;
+
+/**
+ * Import Random package.
+ */
+import java.util.Random;
+
+/**
+ * This class generates the postfix expressions used as workloads by the benchmarks. Every
+ * generator is deterministic for a given seed so that runs can be compared.
+ */
+public final class Workloads {
+
+  private static final String[] OPERANDS = {"a", "b", "price", "qty", "10.3", "-4.5", "22",
+      "0.001"};
+  private static final String[] OPERATORS = {"+", "-", "*", "/"};
+
+  /**
+   * Private constructor since this class only has static methods.
+   */
+  private Workloads() {
+  }
+
+  /**
+   * Generates a random postfix expression with the given number of operators over a handful of
+   * variables and literals, with irregular spacing.
+   *
+   * @param operators the number of operators.
+   * @param seed the seed of the random generator.
+   * @return the postfix expression.
+   */
+  public static String generate(int operators, long seed) {
+    return generate(operators, seed, OPERANDS);
+  }
+
+  /**
+   * Generates a random postfix expression with the given number of operators whose operands are
+   * drawn from the given terms, with irregular spacing.
+   *
+   * @param operators the number of operators.
+   * @param seed the seed of the random generator.
+   * @param operands the terms the operands are drawn from.
+   * @return the postfix expression.
+   */
+  public static String generate(int operators, long seed, String[] operands) {
+    Random random = new Random(seed);
+    StringBuilder builder = new StringBuilder(" ");
+    builder.append(operands[random.nextInt(operands.length)]);
+    int pending = 1;
+    int remaining = operators;
+    while (remaining > 0) {
+      builder.append(random.nextInt(4) == 0 ? "   " : " ");
+      if (pending >= 2 && (random.nextBoolean() || pending > remaining)) {
+        builder.append(OPERATORS[random.nextInt(OPERATORS.length)]);
+        pending--;
+        remaining--;
+      }
+      else {
+        builder.append(operands[random.nextInt(operands.length)]);
+        pending++;
+      }
+    }
+    return builder.append("  ").toString();
+  }
+
+  /**
+   * Returns the names v0 to v(count - 1) followed by a few literals, for workloads drawing on a
+   * larger vocabulary of variables.
+   *
+   * @param count the number of variable names.
+   * @return the operand terms.
+   */
+  public static String[] vocabulary(int count) {
+    String[] terms = new String[count + 4];
+    for (int i = 0; i < count; i++) {
+      terms[i] = "v" + i;
+    }
+    terms[count] = "1.5";
+    terms[count + 1] = "-2";
+    terms[count + 2] = "100";
+    terms[count + 3] = "0.25";
+    return terms;
+  }
+
+  /**
+   * Generates a postfix expression of the given shape with about the given number of tokens. The
+   * shapes are random, as generated by generate; deep, a left-deep chain where every operator has
+   * the previous one as its left operand; and wide, a balanced tree. The number of tokens is
+   * rounded down to the nearest odd number, and is at least 1.
+   *
+   * @param shape one of random, deep, or wide.
+   * @param tokens the number of operators and operands.
+   * @param seed the seed of the random generator.
+   * @return the postfix expression.
+   * @throws IllegalArgumentException if the shape is unknown.
+   */
+  public static String shape(String shape, int tokens, long seed) throws IllegalArgumentException {
+    int operators = Math.max(0, (tokens - 1) / 2);
+    Random random = new Random(seed);
+    StringBuilder builder = new StringBuilder(tokens * 4);
+    switch (shape) {
+      case "random":
+        return generate(operators, seed);
+      case "deep":
+        builder.append(OPERANDS[random.nextInt(OPERANDS.length)]);
+        for (int i = 0; i < operators; i++) {
+          builder.append(' ').append(OPERANDS[random.nextInt(OPERANDS.length)]);
+          builder.append(' ').append(OPERATORS[random.nextInt(OPERATORS.length)]);
+        }
+        return builder.toString();
+      case "wide":
+        balanced(builder, operators + 1, random);
+        return builder.toString();
+      default:
+        throw new IllegalArgumentException("Unknown shape " + shape + ".");
+    }
+  }
+
+  /**
+   * Appends a balanced postfix expression with the given number of operands. The recursion depth
+   * is the logarithm of the number of operands.
+   *
+   * @param builder the StringBuilder receiving the expression.
+   * @param operands the number of operands.
+   * @param random the random generator choosing the terms.
+   */
+  private static void balanced(StringBuilder builder, int operands, Random random) {
+    if (operands == 1) {
+      builder.append(OPERANDS[random.nextInt(OPERANDS.length)]);
+      return;
+    }
+    balanced(builder, operands / 2, random);
+    builder.append(' ');
+    balanced(builder, operands - operands / 2, random);
+    builder.append(' ').append(OPERATORS[random.nextInt(OPERATORS.length)]);
+  }
+
+}
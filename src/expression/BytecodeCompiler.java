@@ -0,0 +1,380 @@
+/**
+ * All source code has been added into the expression package.
+ */
+
+package expression;
+
+/**
+ * Import ByteArrayOutputStream, DataOutputStream, HashMap, IOException, Map, and MethodHandles
+ * packages.
+ */
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class turns an ExpressionTree into a class generated at runtime whose apply method computes
+ * the expression with straight-line JVM bytecode, so the JIT can compile and inline the whole
+ * expression like hand-written Java. The class is defined with Lookup.defineHiddenClass without the
+ * STRONG option, so it is unloaded as soon as the SlotFunction instance is no longer reachable and
+ * compiling many short-lived formulas does not leak metaspace. When the class cannot be generated,
+ * for example because the expression is too large for a JIT-compiled method, the returned function
+ * falls back to evaluating the ExpressionTree itself. The same fallback is used for expressions
+ * with operators created by Operator.unary or Operator.binary, whose functions are not inlined,
+ * and for trees parsed with ExpressionLimits, whose step budget and timeout straight-line code
+ * could not check.
+ */
+public final class BytecodeCompiler {
+
+  /**
+   * Largest bytecode size of the apply method. Larger methods are never compiled by the JIT, so
+   * they would only be slower than the interpreters.
+   */
+  static final int MAX_CODE_LENGTH = 8000;
+
+  /**
+   * Binary name of the generated class; the JVM appends a unique suffix to every hidden class.
+   */
+  private static final String CLASS_NAME = "expression/GeneratedSlotFunction";
+
+  /**
+   * Private constructor since this class only has static methods.
+   */
+  private BytecodeCompiler() {
+  }
+
+  /**
+   * This method takes in an ExpressionTree and returns a SlotFunction computing it. The function is
+   * an instance of a generated hidden class when generation succeeds and a method reference to the
+   * evaluate(double[]) method of the tree otherwise, which is always the case for a tree with
+   * ExpressionLimits so that its limits keep applying. Both return the same results.
+   *
+   * @param tree the ExpressionTree to compile.
+   * @return the SlotFunction computing the expression from its variable slots.
+   */
+  public static SlotFunction compile(ExpressionTree tree) {
+    if (tree.getLimits() != null) {
+      return tree::evaluate;
+    }
+    try {
+      return generate(tree.program());
+    } catch (UnsupportedOperationException | ReflectiveOperationException | LinkageError e) {
+      return tree::evaluate;
+    }
+  }
+
+  /**
+   * Generates and instantiates the hidden class computing the given Program.
+   *
+   * @param program the Program to translate into bytecode.
+   * @return an instance of the generated class.
+   * @throws UnsupportedOperationException if the Program cannot be translated.
+   * @throws ReflectiveOperationException if the generated class cannot be instantiated.
+   * @throws LinkageError if the JVM rejects the generated class.
+   */
+  static SlotFunction generate(Program program)
+          throws UnsupportedOperationException, ReflectiveOperationException, LinkageError {
+    byte[] bytes = new ClassWriter(program).toByteArray();
+    MethodHandles.Lookup hidden = MethodHandles.lookup().defineHiddenClass(bytes, true);
+    return hidden.lookupClass().asSubclass(SlotFunction.class)
+            .getDeclaredConstructor().newInstance();
+  }
+
+  /**
+   * This class writes the class file of a SlotFunction implementation. It only needs a handful of
+   * constant pool entries and two branch-free methods, so it is written by hand rather than with a
+   * bytecode library.
+   */
+  private static final class ClassWriter {
+
+    private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+    private final DataOutputStream poolOut = new DataOutputStream(pool);
+    private final Map<Long,Integer> doubles = new HashMap<>();
+    private final Map<String,Integer> methods = new HashMap<>();
+    private int mathClass;
+    private int poolCount = 1;
+
+    private final int thisClass;
+    private final int superClass;
+    private final int interfaceClass;
+    private final int objectInit;
+    private final int initName;
+    private final int initType;
+    private final int applyName;
+    private final int applyType;
+    private final int codeName;
+    private final byte[] applyCode;
+    private final int applyMaxStack;
+    private final int applyMaxLocals;
+
+    /**
+     * Builds the constant pool and the code of the apply method for the given Program.
+     *
+     * @param program the Program to translate.
+     * @throws UnsupportedOperationException if the Program is too large for one method.
+     */
+    ClassWriter(Program program) throws UnsupportedOperationException {
+      try {
+        thisClass = classEntry(CLASS_NAME);
+        superClass = classEntry("java/lang/Object");
+        interfaceClass = classEntry("expression/SlotFunction");
+        initName = utf8("<init>");
+        initType = utf8("()V");
+        int nameAndType = entry(12);
+        poolOut.writeShort(initName);
+        poolOut.writeShort(initType);
+        objectInit = entry(10);
+        poolOut.writeShort(superClass);
+        poolOut.writeShort(nameAndType);
+        applyName = utf8("apply");
+        applyType = utf8("([D)D");
+        codeName = utf8("Code");
+        applyCode = code(program);
+      } catch (IOException e) {
+        throw new UnsupportedOperationException(e);
+      }
+      applyMaxStack = 2 * program.maxDepth + 2;
+      applyMaxLocals = 2 + 2 * (program.frameSize - program.maxDepth);
+      if (applyCode.length > MAX_CODE_LENGTH || applyMaxStack > 0xFFFF || applyMaxLocals > 0xFFFF
+              || poolCount > 0xFFFF) {
+        throw new UnsupportedOperationException("Expression is too large to generate.");
+      }
+    }
+
+    /**
+     * Translates the Program into the code of the apply method. Slot values are read from the
+     * array in local 1 and every opcode maps to a single double instruction or a call to Math,
+     * except that the temporaries of shared subexpressions are kept in the double locals from
+     * local 2 on.
+     *
+     * @param program the Program to translate.
+     * @return the bytecode of the apply method.
+     * @throws IOException never, since the code is written to memory.
+     */
+    private byte[] code(Program program) throws IOException {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream code = new DataOutputStream(bytes);
+      for (int pc = 0; pc < program.ops.length; pc++) {
+        int arg = program.args[pc];
+        switch (program.ops[pc]) {
+          case Program.CONST:
+            long bits = Double.doubleToRawLongBits(program.constants[arg]);
+            if (bits == 0L) {
+              code.writeByte(0x0e); // dconst_0
+            }
+            else if (bits == Double.doubleToRawLongBits(1.0)) {
+              code.writeByte(0x0f); // dconst_1
+            }
+            else {
+              code.writeByte(0x14); // ldc2_w
+              code.writeShort(doubleEntry(bits));
+            }
+            break;
+          case Program.VAR:
+            code.writeByte(0x2b); // aload_1
+            if (arg <= 5) {
+              code.writeByte(0x03 + arg); // iconst_<n>
+            }
+            else if (arg <= Byte.MAX_VALUE) {
+              code.writeByte(0x10); // bipush
+              code.writeByte(arg);
+            }
+            else if (arg <= Short.MAX_VALUE) {
+              code.writeByte(0x11); // sipush
+              code.writeShort(arg);
+            }
+            else {
+              throw new UnsupportedOperationException("Too many variables to generate.");
+            }
+            code.writeByte(0x31); // daload
+            break;
+          case Program.ADD:
+            code.writeByte(0x63); // dadd
+            break;
+          case Program.SUB:
+            code.writeByte(0x67); // dsub
+            break;
+          case Program.MUL:
+            code.writeByte(0x6b); // dmul
+            break;
+          case Program.STORE:
+            code.writeByte(0x5c); // dup2
+            local(code, 0x39, 2 + 2 * (arg - program.maxDepth)); // dstore
+            break;
+          case Program.LOAD:
+            local(code, 0x18, 2 + 2 * (arg - program.maxDepth)); // dload
+            break;
+          case Program.DIV:
+            code.writeByte(0x6f); // ddiv
+            break;
+          case Program.NEG:
+            code.writeByte(0x77); // dneg
+            break;
+          case Program.POW:
+            code.writeByte(0xb8); // invokestatic
+            code.writeShort(mathEntry("pow"));
+            break;
+          case Program.MIN:
+            code.writeByte(0xb8); // invokestatic
+            code.writeShort(mathEntry("min"));
+            break;
+          case Program.MAX:
+            code.writeByte(0xb8); // invokestatic
+            code.writeShort(mathEntry("max"));
+            break;
+          default:
+            throw new UnsupportedOperationException("Opcode " + program.ops[pc]
+                    + " cannot be generated.");
+        }
+        if (bytes.size() > MAX_CODE_LENGTH) {
+          throw new UnsupportedOperationException("Expression is too large to generate.");
+        }
+      }
+      code.writeByte(0xaf); // dreturn
+      return bytes.toByteArray();
+    }
+
+    /**
+     * Writes an instruction that takes a local variable index, widening it when the index does not
+     * fit in a byte.
+     *
+     * @param code the code being written.
+     * @param opcode the opcode of the instruction.
+     * @param local the index of the local variable.
+     * @throws IOException never, since the code is written to memory.
+     */
+    private void local(DataOutputStream code, int opcode, int local) throws IOException {
+      if (local <= 0xFF) {
+        code.writeByte(opcode);
+        code.writeByte(local);
+      }
+      else {
+        code.writeByte(0xc4); // wide
+        code.writeByte(opcode);
+        code.writeShort(local);
+      }
+    }
+
+    /**
+     * Returns the complete class file.
+     *
+     * @return the bytes of the class file.
+     * @throws UnsupportedOperationException never, since the class file is written to memory.
+     */
+    byte[] toByteArray() throws UnsupportedOperationException {
+      try {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0xCAFEBABE);
+        out.writeShort(0);
+        out.writeShort(52);
+        out.writeShort(poolCount);
+        pool.writeTo(out);
+        out.writeShort(0x0031); // public final super
+        out.writeShort(thisClass);
+        out.writeShort(superClass);
+        out.writeShort(1);
+        out.writeShort(interfaceClass);
+        out.writeShort(0);
+        out.writeShort(2);
+        method(out, initName, initType, 1, 1,
+                new byte[] {0x2a, (byte) 0xb7, (byte) (objectInit >> 8), (byte) objectInit,
+                    (byte) 0xb1}); // aload_0, invokespecial Object.<init>, return
+        method(out, applyName, applyType, applyMaxStack, applyMaxLocals, applyCode);
+        out.writeShort(0);
+        return bytes.toByteArray();
+      } catch (IOException e) {
+        throw new UnsupportedOperationException(e);
+      }
+    }
+
+    /**
+     * Writes a public method with a Code attribute and no exception handlers.
+     */
+    private void method(DataOutputStream out, int name, int type, int maxStack, int maxLocals,
+                        byte[] code) throws IOException {
+      out.writeShort(0x0001);
+      out.writeShort(name);
+      out.writeShort(type);
+      out.writeShort(1);
+      out.writeShort(codeName);
+      out.writeInt(12 + code.length);
+      out.writeShort(maxStack);
+      out.writeShort(maxLocals);
+      out.writeInt(code.length);
+      out.write(code);
+      out.writeShort(0);
+      out.writeShort(0);
+    }
+
+    /**
+     * Starts a constant pool entry with the given tag and returns its index.
+     */
+    private int entry(int tag) throws IOException {
+      poolOut.writeByte(tag);
+      return poolCount++;
+    }
+
+    /**
+     * Adds a CONSTANT_Utf8 entry and returns its index.
+     */
+    private int utf8(String value) throws IOException {
+      int index = entry(1);
+      poolOut.writeUTF(value);
+      return index;
+    }
+
+    /**
+     * Adds a CONSTANT_Class entry with its name and returns its index.
+     */
+    private int classEntry(String name) throws IOException {
+      int nameIndex = utf8(name);
+      int index = entry(7);
+      poolOut.writeShort(nameIndex);
+      return index;
+    }
+
+    /**
+     * Returns the index of the CONSTANT_Double entry with the given bits, adding it if needed. A
+     * double takes two constant pool indexes.
+     */
+    private int doubleEntry(long bits) throws IOException {
+      Integer index = doubles.get(bits);
+      if (index == null) {
+        index = entry(6);
+        poolOut.writeLong(bits);
+        poolCount++;
+        doubles.put(bits, index);
+      }
+      return index;
+    }
+
+    /**
+     * Returns the index of the CONSTANT_Methodref entry of the static method of java.lang.Math with
+     * the given name that takes two doubles and returns a double, adding it if needed.
+     */
+    private int mathEntry(String name) throws IOException {
+      Integer index = methods.get(name);
+      if (index == null) {
+        if (mathClass == 0) {
+          mathClass = classEntry("java/lang/Math");
+        }
+        int nameIndex = utf8(name);
+        int typeIndex = utf8("(DD)D");
+        int nameAndType = entry(12);
+        poolOut.writeShort(nameIndex);
+        poolOut.writeShort(typeIndex);
+        index = entry(10);
+        poolOut.writeShort(mathClass);
+        poolOut.writeShort(nameAndType);
+        methods.put(name, index);
+      }
+      return index;
+    }
+
+  }
+
+}
@@ -0,0 +1,64 @@
+/**
+ * All source code has been added into the expression package.
+ */
+
+package expression;
+
+/**
+ * This interface is the element-wise core of batch evaluation: it applies one binary operator to a
+ * chunk of rows at a time. Program.runBatch uses the scalar loops of Program unless a faster
+ * implementation is found when the class is loaded. The expression-tree-vector module provides
+ * VectorKernel, which uses the incubating JDK Vector API; it is only used when its classes are on
+ * the class path and the jdk.incubator.vector module is resolved, for example with
+ * --add-modules jdk.incubator.vector, and it can be turned off with -Dexpression.vector=false.
+ *
+ * <p>An implementation must produce exactly the results of Program.apply for every element,
+ * including infinities from division by zero and NaN propagation. It is only given the four
+ * arithmetic operators ADD, SUB, MUL, and DIV; Program computes the others itself.
+ */
+interface ColumnKernel {
+
+  /**
+   * Applies a binary operator element-wise with a as the left operand and the values of b from
+   * index start as the right operand, storing the results in a.
+   *
+   * @param op the opcode of the operator.
+   * @param a the left operands and the destination.
+   * @param b the array holding the right operands.
+   * @param start the index in b of the right operand of a[0].
+   * @param n the number of elements.
+   */
+  void applyColumn(byte op, double[] a, double[] b, int start, int n);
+
+  /**
+   * Applies a binary operator element-wise with a as the left operand and the constant c as the
+   * right operand, storing the results in a.
+   *
+   * @param op the opcode of the operator.
+   * @param a the left operands and the destination.
+   * @param c the right operand.
+   * @param n the number of elements.
+   */
+  void applyConstant(byte op, double[] a, double c, int n);
+
+  /**
+   * Returns the VectorKernel if it is on the class path, the jdk.incubator.vector module is
+   * resolved, the machine has at least two double lanes, and it was not turned off, or null so
+   * that the scalar loops are used.
+   *
+   * @return the vectorized ColumnKernel, or null.
+   */
+  static ColumnKernel load() {
+    if ("false".equals(System.getProperty("expression.vector"))
+            || ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+      return null;
+    }
+    try {
+      return (ColumnKernel) Class.forName("expression.VectorKernel")
+              .getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+      return null;
+    }
+  }
+
+}
@@ -0,0 +1,419 @@
+/**
+ * All source code has been added into the expression package.
+ */
+
+package expression;
+
+/**
+ * Import Arrays, IOException, and Map packages.
+ */
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * This class represents an expression stored as a few primitive arrays instead of a graph of node
+ * objects, for keeping millions of expressions resident at once. Node i is described by kinds[i],
+ * left[i], and right[i], and the nodes are laid out in postfix order so the root is the last node
+ * and the arrays double as a program for the interpreter of CompiledExpression:
+ *
+ * <ul>
+ *   <li>an operator has its opcode in kinds and the indexes of its operands in left and right, or
+ *   its only operand in left and -1 in right for a unary operator;</li>
+ *   <li>a literal has Program.CONST in kinds, the index of its value in the constant pool in left,
+ *   and -1 in right;</li>
+ *   <li>a variable has Program.VAR in kinds, its slot in left, and -1 in right.</li>
+ * </ul>
+ *
+ * <p>Variable names are interned in a SymbolTable, which costs a few bytes per slot when the table
+ * is shared by all the expressions of one owner, like a cache or a library, and lives as long as
+ * that owner does. Literals are stored by value, and a literal is only given its own String if
+ * rendering its value would not give back its original spelling, as for 0.50 or 1e3, so a stream
+ * of distinct formulas does not grow any table with its numbers. A CompactExpression renders and
+ * evaluates exactly like the ExpressionTree it was built from, and is immutable. The built-in
+ * operators of OperatorRegistry.extended are supported, but operators created with Operator.unary
+ * or Operator.binary are not, since a CompactExpression holds no objects per node.
+ */
+public final class CompactExpression implements Expression {
+
+  private final byte[] kinds;
+  private final int[] left;
+  private final int[] right;
+  private final double[] constants;
+
+  /**
+   * Original spelling of each literal in the constant pool, or null where it is the spelling of
+   * its value.
+   */
+  private final String[] spellings;
+
+  /**
+   * SymbolTable id of the name of the variable in each slot, or -1 for a slot of a
+   * SubexpressionPool that the expression does not use.
+   */
+  private final int[] slotSymbols;
+
+  private final SymbolTable symbols;
+  private final int maxDepth;
+
+  /**
+   * Constructs the CompactExpression of a postfix expression, interning its names in a SymbolTable
+   * of its own. Expressions that are kept together should share a table with the constructor
+   * taking one, so each name is kept once for all of them. Throws an IllegalArgumentException if
+   * the expression is not valid.
+   *
+   * @param input the string input of the postfix expression.
+   * @throws IllegalArgumentException if the input is an invalid postfix expression.
+   */
+  public CompactExpression(String input) throws IllegalArgumentException {
+    this(new ExpressionTree(input), new SymbolTable());
+  }
+
+  /**
+   * Constructs the CompactExpression of a postfix expression, interning its names in the given
+   * SymbolTable. Throws an IllegalArgumentException if the expression is not valid.
+   *
+   * @param input the string input of the postfix expression.
+   * @param symbols the SymbolTable the variable names are interned in.
+   * @throws IllegalArgumentException if the input is an invalid postfix expression.
+   */
+  public CompactExpression(String input, SymbolTable symbols) throws IllegalArgumentException {
+    this(new ExpressionTree(input), symbols);
+  }
+
+  /**
+   * Constructs the CompactExpression of an ExpressionTree, interning its names in the given
+   * SymbolTable. Variables keep the slots they have in the tree.
+   *
+   * @param tree the ExpressionTree to store compactly.
+   * @param symbols the SymbolTable the variable names are interned in.
+   * @throws IllegalArgumentException if the tree uses an operator created with Operator.unary or
+   *         Operator.binary.
+   */
+  public CompactExpression(ExpressionTree tree, SymbolTable symbols)
+          throws IllegalArgumentException {
+    this.symbols = symbols;
+    String[] variables = tree.getVariables();
+    slotSymbols = new int[variables.length];
+    for (int i = 0; i < variables.length; i++) {
+      slotSymbols[i] = variables[i] == null ? -1 : symbols.intern(variables[i]);
+    }
+
+    byte[] kinds = new byte[16];
+    int[] left = new int[16];
+    int[] right = new int[16];
+    double[] constants = new double[8];
+    String[] spellings = new String[8];
+    int constantCount = 0;
+    int[] operands = new int[16];
+    int sp = 0;
+    int maxDepth = 0;
+    int index = 0;
+    ExpressionNode[] pending = new ExpressionNode[16];
+    int[] visited = new int[16];
+    int top = 0;
+    pending[top++] = tree.root();
+    while (top > 0) {
+      ExpressionNode node = pending[top - 1];
+      int next = visited[top - 1];
+      if (next < node.arity()) {
+        visited[top - 1] = next + 1;
+        if (top == pending.length) {
+          pending = Arrays.copyOf(pending, top * 2);
+          visited = Arrays.copyOf(visited, top * 2);
+        }
+        pending[top] = node.getChild(next);
+        visited[top++] = 0;
+        continue;
+      }
+      top--;
+      if (index == kinds.length) {
+        kinds = Arrays.copyOf(kinds, index * 2);
+        left = Arrays.copyOf(left, index * 2);
+        right = Arrays.copyOf(right, index * 2);
+      }
+      if (node.arity() == 0) {
+        if (node instanceof VariableNode) {
+          kinds[index] = Program.VAR;
+          left[index] = ((VariableNode) node).getSlot();
+        }
+        else {
+          if (constantCount == constants.length) {
+            constants = Arrays.copyOf(constants, constantCount * 2);
+            spellings = Arrays.copyOf(spellings, constantCount * 2);
+          }
+          double value = node instanceof ConstantNode
+                  ? ((ConstantNode) node).getValue() : Double.parseDouble(node.getTerm());
+          constants[constantCount] = value;
+          if (!node.getTerm().equals(spell(value))) {
+            spellings[constantCount] = node.getTerm();
+          }
+          kinds[index] = Program.CONST;
+          left[index] = constantCount++;
+        }
+        right[index] = -1;
+        if (sp == operands.length) {
+          operands = Arrays.copyOf(operands, sp * 2);
+        }
+        operands[sp++] = index;
+        maxDepth = Math.max(maxDepth, sp);
+      }
+      else {
+        byte kind = node instanceof OperatorNode
+                ? ((OperatorNode) node).opcode() : Program.opcode(node.getTerm());
+        if (kind == Program.CALL1 || kind == Program.CALL2) {
+          throw new IllegalArgumentException("Operator " + node.getTerm()
+                  + " cannot be stored compactly.");
+        }
+        kinds[index] = kind;
+        if (Program.arity(kind) == 1) {
+          left[index] = operands[sp - 1];
+          right[index] = -1;
+        }
+        else {
+          sp--;
+          left[index] = operands[sp - 1];
+          right[index] = operands[sp];
+        }
+        operands[sp - 1] = index;
+      }
+      index++;
+    }
+    this.kinds = Arrays.copyOf(kinds, index);
+    this.left = Arrays.copyOf(left, index);
+    this.right = Arrays.copyOf(right, index);
+    this.constants = Arrays.copyOf(constants, constantCount);
+    this.spellings = Arrays.copyOf(spellings, constantCount);
+    this.maxDepth = maxDepth;
+  }
+
+  /**
+   * This method takes in no arguments and returns the SymbolTable the variable names of this
+   * expression are interned in.
+   *
+   * @return the SymbolTable of this expression.
+   */
+  public SymbolTable getSymbols() {
+    return symbols;
+  }
+
+  /**
+   * This method takes in no arguments and returns the number of nodes of this expression.
+   *
+   * @return the number of operators and operands in the expression.
+   */
+  public int size() {
+    return kinds.length;
+  }
+
+  /**
+   * This method takes in no arguments and returns this expression as a string in infix form, the
+   * same as the ExpressionTree it was built from.
+   *
+   * @return the expression in infix form as a string data type.
+   */
+  public String infix() {
+    return render(true);
+  }
+
+  /**
+   * This method appends the infix form of this expression to the given Appendable.
+   *
+   * @param out the Appendable receiving the infix form.
+   * @throws IOException if appending to out fails.
+   */
+  public void infix(Appendable out) throws IOException {
+    render(out, true);
+  }
+
+  /**
+   * This method takes in a Map of String to Double variables and returns the result of the
+   * evaluation of this expression as a double data type. Each variable is looked up once. Throws an
+   * ArithmeticException if a variable has no value in the Map.
+   *
+   * @param variables the Map with the numerical values of variables in the expression.
+   * @return the evaluation of this expression as a double data type.
+   * @throws ArithmeticException if the value of a variable cannot be determined.
+   */
+  public double evaluate(Map<String,Double> variables) throws ArithmeticException {
+    double[] slots = new double[slotSymbols.length];
+    for (int i = 0; i < slots.length; i++) {
+      if (slotSymbols[i] < 0) {
+        continue;
+      }
+      Double value = variables.get(symbols.name(slotSymbols[i]));
+      if (value == null) {
+        throw new ArithmeticException("Cannot evaluate variables in expression.");
+      }
+      slots[i] = value;
+    }
+    return evaluate(slots);
+  }
+
+  /**
+   * This method takes in the variable values indexed by slot and returns the result of the
+   * evaluation of this expression as a double data type.
+   *
+   * @param slots the variable values, where slots[i] is the value of getVariables()[i].
+   * @return the evaluation of this expression as a double data type.
+   */
+  public double evaluate(double[] slots) {
+    return Program.run(kinds, left, constants, null, slots, new double[maxDepth]);
+  }
+
+  /**
+   * This method evaluates this expression for the rows from (inclusive) to to (exclusive) of the
+   * given columns and writes the result of row r into out[offset + r - from], in chunks of rows
+   * one operator at a time like CompiledExpression.
+   *
+   * @param columns the variable values, one column per slot.
+   * @param from the first row to evaluate.
+   * @param to one past the last row to evaluate.
+   * @param out the array the results are written to.
+   * @param offset the index in out of the result of row from.
+   * @throws ArithmeticException if the column of a variable in the expression is missing.
+   * @throws IndexOutOfBoundsException if the rows or the output range are out of bounds.
+   */
+  public void evaluate(double[][] columns, int from, int to, double[] out, int offset)
+          throws ArithmeticException, IndexOutOfBoundsException {
+    Program.runBatch(kinds, left, constants, null, maxDepth, columns, from, to, out, offset);
+  }
+
+  /**
+   * This method takes in the name of a variable and returns its slot in this expression, or -1 if
+   * the variable does not appear in it.
+   *
+   * @param variable the name of the variable.
+   * @return the slot of the variable, or -1 if it is not in the expression.
+   */
+  public int slotOf(String variable) {
+    int id = symbols.lookup(variable);
+    for (int i = 0; id >= 0 && i < slotSymbols.length; i++) {
+      if (slotSymbols[i] == id) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * This method takes in no arguments and returns the names of the variables of this expression,
+   * where the name at index i is bound to slot i.
+   *
+   * @return the variable names indexed by slot.
+   */
+  public String[] getVariables() {
+    String[] variables = new String[slotSymbols.length];
+    for (int i = 0; i < variables.length; i++) {
+      variables[i] = slotSymbols[i] < 0 ? null : symbols.name(slotSymbols[i]);
+    }
+    return variables;
+  }
+
+  /**
+   * This method takes in no arguments and returns this expression as a string in scheme form, the
+   * same as the ExpressionTree it was built from.
+   *
+   * @return the expression in scheme form as a string data type.
+   */
+  public String schemeExpression() {
+    return render(false);
+  }
+
+  /**
+   * This method appends the scheme form of this expression to the given Appendable.
+   *
+   * @param out the Appendable receiving the scheme form.
+   * @throws IOException if appending to out fails.
+   */
+  public void schemeExpression(Appendable out) throws IOException {
+    render(out, false);
+  }
+
+  /**
+   * Returns the spelling of a literal value, without a fraction for a whole number that a long
+   * holds exactly, so that literals like 3 and -6 need no String of their own.
+   *
+   * @param value the value of the literal.
+   * @return the spelling of the value.
+   */
+  private static String spell(double value) {
+    if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+      return Long.toString((long) value);
+    }
+    return Double.toString(value);
+  }
+
+  /**
+   * Renders the expression in infix or scheme form into a new String.
+   *
+   * @param infix true for infix form and false for scheme form.
+   * @return the rendered expression.
+   */
+  private String render(boolean infix) {
+    StringBuilder builder = new StringBuilder();
+    try {
+      render(builder, infix);
+    } catch (IOException e) {
+      throw new AssertionError("StringBuilder does not throw IOException.", e);
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Renders the expression in infix or scheme form, walking the nodes from the root with an
+   * explicit stack of node indexes.
+   *
+   * @param out the Appendable receiving the rendered expression.
+   * @param infix true for infix form and false for scheme form.
+   * @throws IOException if appending to out fails.
+   */
+  private void render(Appendable out, boolean infix) throws IOException {
+    int[] nodes = new int[16];
+    int[] states = new int[16];
+    int top = 0;
+    nodes[top] = kinds.length - 1;
+    states[top++] = 0;
+    while (top > 0) {
+      int node = nodes[top - 1];
+      if (kinds[node] == Program.CONST) {
+        String spelling = spellings[left[node]];
+        out.append(spelling != null ? spelling : spell(constants[left[node]]));
+        top--;
+        continue;
+      }
+      if (kinds[node] == Program.VAR) {
+        out.append(symbols.name(slotSymbols[left[node]]));
+        top--;
+        continue;
+      }
+      String term = Operator.builtIn(kinds[node]).getSymbol();
+      int arity = Program.arity(kinds[node]);
+      int state = states[top - 1]++;
+      if (state == arity) {
+        out.append(infix ? " )" : ")");
+        top--;
+        continue;
+      }
+      if (state == 0) {
+        out.append(infix ? "( " : "(");
+        if (!infix || arity == 1) {
+          out.append(term).append(' ');
+        }
+      }
+      else if (infix) {
+        out.append(' ').append(term).append(' ');
+      }
+      else {
+        out.append(' ');
+      }
+      if (top == nodes.length) {
+        nodes = Arrays.copyOf(nodes, top * 2);
+        states = Arrays.copyOf(states, top * 2);
+      }
+      nodes[top] = state == 0 ? left[node] : right[node];
+      states[top++] = 0;
+    }
+  }
+
+}
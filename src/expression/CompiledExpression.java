@@ -0,0 +1,205 @@
+/**
+ * All source code has been added into the expression package.
+ */
+
+package expression;
+
+/**
+ * Import Map package.
+ */
+import java.util.Map;
+
+/**
+ * This class represents an ExpressionTree compiled into a flat postfix program made of an opcode
+ * array, a constant pool, and a variable slot table. Evaluating it runs a single loop over the
+ * opcodes on a primitive double stack, so it returns the same results as the ExpressionTree it was
+ * compiled from without walking nodes, comparing strings, or re-parsing literals. Instances are
+ * immutable and may be shared between threads as long as each thread uses its own stack.
+ *
+ * <p>If the source tree was parsed with ExpressionLimits, every evaluation is charged the steps of
+ * all the nodes it runs before it starts, and is rejected with a LimitExceededException if they
+ * exceed the step budget, the way batch evaluation of the tree is.
+ */
+public final class CompiledExpression implements Expression {
+
+  /**
+   * ExpressionTree this CompiledExpression was compiled from, used for rendering.
+   */
+  private final ExpressionTree source;
+
+  /**
+   * Flat program computing the value of the source tree.
+   */
+  private final Program program;
+
+  /**
+   * Limits of the source tree, or null if it has none.
+   */
+  private final ExpressionLimits limits;
+
+  /**
+   * Constructs the CompiledExpression of the given ExpressionTree from the Program it was
+   * flattened into.
+   *
+   * @param source the ExpressionTree being compiled.
+   * @param program the Program of the source tree.
+   */
+  CompiledExpression(ExpressionTree source, Program program) {
+    this.source = source;
+    this.program = program;
+    limits = source.getLimits();
+  }
+
+  /**
+   * This method takes in no arguments and returns the expression as a string in infix form, exactly
+   * as the ExpressionTree it was compiled from renders it.
+   *
+   * @return the expression in infix form as a string data type.
+   */
+  public String infix() {
+    return source.infix();
+  }
+
+  /**
+   * This method takes in a Map of String to Double variables and returns the result of running the
+   * compiled program with those values. Each variable is looked up once regardless of how often it
+   * appears in the expression. Throws an ArithmeticException if a variable has no value in the Map.
+   *
+   * @param variables the Map with the numerical values of variables in the expression.
+   * @return the evaluation of the expression as a double data type.
+   * @throws ArithmeticException if the value of a variable cannot be determined.
+   * @throws LimitExceededException if the source tree has ExpressionLimits and the evaluation
+   *         exceeds its step budget.
+   */
+  public double evaluate(Map<String,Double> variables)
+          throws ArithmeticException, LimitExceededException {
+    charge(1);
+    return program.run(program.resolve(variables), newStack());
+  }
+
+  /**
+   * This method takes in the variable values indexed by slot and returns the result of running the
+   * compiled program on a new scratch stack.
+   *
+   * @param slots the variable values, where slots[i] is the value of getVariables()[i].
+   * @return the evaluation of the expression as a double data type.
+   * @throws LimitExceededException if the source tree has ExpressionLimits and the evaluation
+   *         exceeds its step budget.
+   */
+  public double evaluate(double[] slots) throws LimitExceededException {
+    charge(1);
+    return program.run(slots, newStack());
+  }
+
+  /**
+   * This method takes in the variable values indexed by slot and a scratch stack created by
+   * newStack and returns the result of running the compiled program. It does not allocate, so a
+   * caller evaluating the same expression many times should keep one stack per thread and reuse it.
+   *
+   * @param slots the variable values, where slots[i] is the value of getVariables()[i].
+   * @param stack the scratch stack with room for at least getStackSize() values.
+   * @return the evaluation of the expression as a double data type.
+   * @throws LimitExceededException if the source tree has ExpressionLimits and the evaluation
+   *         exceeds its step budget.
+   */
+  public double evaluate(double[] slots, double[] stack) throws LimitExceededException {
+    charge(1);
+    return program.run(slots, stack);
+  }
+
+  /**
+   * This method evaluates the compiled program for the rows from (inclusive) to to (exclusive) of
+   * the given columns and writes the result of row r into out[offset + r - from]. The rows are
+   * evaluated in chunks, one instruction at a time over each chunk, so the work is done in tight
+   * primitive loops. Each result is identical to evaluating the row on its own.
+   *
+   * @param columns the variable values, one column per slot.
+   * @param from the first row to evaluate.
+   * @param to one past the last row to evaluate.
+   * @param out the array the results are written to.
+   * @param offset the index in out of the result of row from.
+   * @throws ArithmeticException if the column of a variable in the expression is missing.
+   * @throws IndexOutOfBoundsException if the rows or the output range are out of bounds.
+   * @throws LimitExceededException if the source tree has ExpressionLimits and the rows together
+   *         exceed its step budget.
+   */
+  public void evaluate(double[][] columns, int from, int to, double[] out, int offset)
+          throws ArithmeticException, IndexOutOfBoundsException, LimitExceededException {
+    charge(to - from);
+    program.runBatch(columns, from, to, out, offset);
+  }
+
+  /**
+   * This method takes in no arguments and returns a new scratch stack large enough to evaluate this
+   * expression.
+   *
+   * @return a new double array of getStackSize() elements.
+   */
+  public double[] newStack() {
+    return new double[program.frameSize];
+  }
+
+  /**
+   * This method takes in no arguments and returns the number of values the scratch stack must hold
+   * to evaluate this expression.
+   *
+   * @return the operand stack depth plus the temporaries of the compiled program.
+   */
+  public int getStackSize() {
+    return program.frameSize;
+  }
+
+  /**
+   * This method takes in the name of a variable and returns its slot, which is the same as in the
+   * ExpressionTree this CompiledExpression was compiled from.
+   *
+   * @param variable the name of the variable.
+   * @return the slot of the variable, or -1 if it is not in the expression.
+   */
+  public int slotOf(String variable) {
+    return source.slotOf(variable);
+  }
+
+  /**
+   * This method takes in no arguments and returns the names of the variables of the expression,
+   * where the name at index i is bound to slot i.
+   *
+   * @return a copy of the variable slot table.
+   */
+  public String[] getVariables() {
+    return program.variables.clone();
+  }
+
+  /**
+   * This method takes in no arguments and returns the expression as a string in scheme form,
+   * exactly as the ExpressionTree it was compiled from renders it.
+   *
+   * @return the expression in scheme form as a string data type.
+   */
+  public String schemeExpression() {
+    return source.schemeExpression();
+  }
+
+  /**
+   * Charges the steps of the given number of evaluations to the limits of the source tree, if it
+   * has any.
+   *
+   * @param rows the number of evaluations about to run.
+   * @throws LimitExceededException if the evaluations exceed the step budget.
+   */
+  private void charge(long rows) throws LimitExceededException {
+    if (limits != null) {
+      limits.charge(source.size(), rows);
+    }
+  }
+
+  /**
+   * Returns the ExpressionTree this CompiledExpression was compiled from.
+   *
+   * @return the source tree.
+   */
+  ExpressionTree source() {
+    return source;
+  }
+
+}
@@ -0,0 +1,97 @@
+/**
+ * All source code has been added into the expression package.
+ */
+
+package expression;
+
+/**
+ * Import Map package.
+ */
+import java.util.Map;
+
+/**
+ * This class represents an OperandNode whose term is a numerical literal. The literal is parsed
+ * once when the node is constructed and its original spelling is kept for infix and scheme form.
+ */
+public class ConstantNode extends OperandNode {
+
+  private final double value;
+
+  /**
+   * Constructs the ConstantNode object from the spelling of a numerical literal. Throws a
+   * NumberFormatException if the input is not a number.
+   *
+   * @param input String that contains the numerical literal.
+   * @throws NumberFormatException if the input cannot be parsed as a double.
+   */
+  public ConstantNode(String input) throws NumberFormatException {
+    super(input);
+    value = Double.parseDouble(input);
+  }
+
+  /**
+   * Constructs the ConstantNode object from the spelling of a numerical literal and its value,
+   * which has already been parsed, for example by the ExpressionTree the literal was decoded from.
+   *
+   * @param input String that contains the numerical literal.
+   * @param value the value of the literal.
+   */
+  ConstantNode(String input, double value) {
+    super(input);
+    this.value = value;
+  }
+
+  /**
+   * Public method that takes in no arguments as parameters and returns the parsed value of this
+   * ConstantNode.
+   *
+   * @return the value of the literal as a double data type.
+   */
+  public double getValue() {
+    return value;
+  }
+
+  /**
+   * Public method takes in a Map of String to Double variables and returns the parsed value of this
+   * ConstantNode, which does not depend on the Map.
+   *
+   * @param variables the Map with the numerical values of the variables.
+   * @return the value of the literal as a double data type.
+   */
+  @Override
+  public double evaluate(Map<String,Double> variables) {
+    return value;
+  }
+
+  /**
+   * Public method takes in the variable values indexed by slot and returns the parsed value of
+   * this ConstantNode, which does not depend on the slots.
+   *
+   * @param slots the variable values indexed by slot.
+   * @return the value of the literal as a double data type.
+   */
+  @Override
+  public double evaluate(double[] slots) {
+    return value;
+  }
+
+  /**
+   * Returns true if the given term could be a numerical literal, based on its first character that
+   * is not whitespace. Terms starting with a letter other than those of NaN and Infinity cannot be
+   * parsed by Double.parseDouble, which lets callers skip the cost of a NumberFormatException for
+   * ordinary variable names.
+   *
+   * @param term the term to check.
+   * @return true if the term may be a number, false if it certainly is not.
+   */
+  static boolean mayBeNumber(String term) {
+    for (int i = 0; i < term.length(); i++) {
+      char c = term.charAt(i);
+      if (c > ' ') {
+        return (c >= '0' && c <= '9') || c == '.' || c == '-' || c == '+' || c == 'N' || c == 'I';
+      }
+    }
+    return false;
+  }
+
+}
@@ -0,0 +1,301 @@
+/**
+ * All source code has been added into the expression package.
+ */
+
+package expression;
+
+/**
+ * Import Arrays, IdentityHashMap, and Map packages.
+ */
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * This class builds the symbolic derivative of an ExpressionTree with respect to one variable. The
+ * tree is walked in postfix order with an explicit stack, and the derivative of every node is
+ * built from the derivatives of its operands by the usual rules, sharing the subtrees of the
+ * original tree and the derivative of every shared node instead of copying them. Terms known to be
+ * zero or one are dropped while the derivative is built, the way GradientEvaluator never passes
+ * a derivative through an operand that does not depend on the variable, and the result is then
+ * simplified by the exact ExpressionOptimizer, which folds the remaining literals. Fast-math
+ * rewrites are not used, since they would change the value of the derivative at NaN, the
+ * infinities, and zero.
+ *
+ * <p>Every rule multiplies the same factors GradientEvaluator does for its node: the quotient
+ * rule is written du / v - u / v / v * dv rather than over v * v, and the partial derivative of ^
+ * with respect to the base is 0 where the exponent is 0, and the one with respect to the exponent
+ * is 0 where the base is 0. Rules that need operators the expression may not have are written
+ * with these functions: ln for the natural logarithm; a b &lt;= and a b &gt;= , which are 1 when
+ * the comparison holds and 0 otherwise, to select the operand min and max pass their derivative
+ * to; and u v ^'1 and u v ^'2 for the partial derivatives of u ^ v when the exponent,
+ * respectively the base, is not a literal. The derivative of a function f created with
+ * Operator.unary is written f', and the partial derivatives of a binary function f are written
+ * f'1 and f'2; they are computed by central differences, like the gradients of GradientEvaluator.
+ */
+final class Differentiator {
+
+  /**
+   * The natural logarithm, used by the derivative of ^.
+   */
+  private static final Operator LOG = Operator.unary("ln", Math::log);
+
+  /**
+   * 1 if the left operand is at most the right one and 0 otherwise, used by the derivative of min.
+   */
+  private static final Operator AT_MOST = Operator.binary("<=", (a, b) -> a <= b ? 1.0 : 0.0);
+
+  /**
+   * 1 if the left operand is at least the right one and 0 otherwise, used by the derivative of
+   * max.
+   */
+  private static final Operator AT_LEAST = Operator.binary(">=", (a, b) -> a >= b ? 1.0 : 0.0);
+
+  /**
+   * The partial derivative of u ^ v with respect to u, which is 0 where v is 0.
+   */
+  private static final Operator POWER_BASE = Operator.binary("^'1",
+          (u, v) -> v == 0.0 ? 0.0 : v * Math.pow(u, v - 1.0));
+
+  /**
+   * The partial derivative of u ^ v with respect to v, which is 0 where u is 0.
+   */
+  private static final Operator POWER_EXPONENT = Operator.binary("^'2",
+          (u, v) -> u == 0.0 ? 0.0 : Math.pow(u, v) * Math.log(u));
+
+  private static final ExpressionNode ZERO = new ConstantNode("0");
+  private static final ExpressionNode ONE = new ConstantNode("1");
+
+  /**
+   * Private constructor since this class only has static methods.
+   */
+  private Differentiator() {
+  }
+
+  /**
+   * Returns the simplified derivative of the given tree with respect to the given variable, with
+   * the slots of the original tree.
+   *
+   * @param tree the ExpressionTree to differentiate.
+   * @param variable the name of the variable.
+   * @return the ExpressionTree of the derivative.
+   */
+  static ExpressionTree derivative(ExpressionTree tree, String variable) {
+    ExpressionNode root = derivative(tree.root(), variable);
+    return new ExpressionOptimizer().optimize(new ExpressionTree(root, tree.slots()));
+  }
+
+  /**
+   * Builds the derivative of the tree under the given root in postfix order, so that the
+   * derivative of every operator is built after those of its operands.
+   *
+   * @param root the root ExpressionNode of the tree.
+   * @param variable the name of the variable.
+   * @return the root of the derivative.
+   */
+  private static ExpressionNode derivative(ExpressionNode root, String variable) {
+    Map<ExpressionNode,ExpressionNode> done = new IdentityHashMap<>();
+    ExpressionNode[] pending = new ExpressionNode[16];
+    int[] visited = new int[16];
+    ExpressionNode[] results = new ExpressionNode[16];
+    int top = 0;
+    int sp = 0;
+    pending[top++] = root;
+    while (top > 0) {
+      ExpressionNode node = pending[top - 1];
+      int next = visited[top - 1];
+      ExpressionNode result = done.get(node);
+      if (result == null && next < node.arity()) {
+        visited[top - 1] = next + 1;
+        if (top == pending.length) {
+          pending = Arrays.copyOf(pending, top * 2);
+          visited = Arrays.copyOf(visited, top * 2);
+        }
+        pending[top] = node.getChild(next);
+        visited[top++] = 0;
+        continue;
+      }
+      top--;
+      if (result == null) {
+        if (node.arity() == 0) {
+          result = node instanceof ConstantNode || !node.getTerm().equals(variable) ? ZERO : ONE;
+        }
+        else if (node.arity() == 1) {
+          result = unary((OperatorNode) node, results[--sp]);
+        }
+        else {
+          sp -= 2;
+          result = binary((OperatorNode) node, results[sp], results[sp + 1]);
+        }
+        done.put(node, result);
+      }
+      if (sp == results.length) {
+        results = Arrays.copyOf(results, sp * 2);
+      }
+      results[sp++] = result;
+    }
+    return results[0];
+  }
+
+  /**
+   * Returns the derivative of a unary operator node.
+   *
+   * @param node the OperatorNode.
+   * @param du the derivative of its operand.
+   * @return the derivative of the node.
+   */
+  private static ExpressionNode unary(OperatorNode node, ExpressionNode du) {
+    if (du == ZERO) {
+      return ZERO;
+    }
+    if (node.opcode() == Program.NEG) {
+      return new OperatorNode(Operator.NEGATE, du);
+    }
+    return times(new OperatorNode(node.operator().derivative(0), node.getChild(0)), du);
+  }
+
+  /**
+   * Returns the derivative of a binary operator node.
+   *
+   * @param node the OperatorNode.
+   * @param du the derivative of its left operand.
+   * @param dv the derivative of its right operand.
+   * @return the derivative of the node.
+   */
+  private static ExpressionNode binary(OperatorNode node, ExpressionNode du, ExpressionNode dv) {
+    if (du == ZERO && dv == ZERO) {
+      return ZERO;
+    }
+    ExpressionNode u = node.getChild(0);
+    ExpressionNode v = node.getChild(1);
+    switch (node.opcode()) {
+      case Program.ADD:
+        return plus(du, dv);
+      case Program.SUB:
+        return minus(du, dv);
+      case Program.MUL:
+        return plus(times(du, v), times(u, dv));
+      case Program.DIV:
+        return minus(du == ZERO ? ZERO : new OperatorNode("/", du, v),
+                times(new OperatorNode("/", node, v), dv));
+      case Program.POW:
+        return plus(times(powerBase(u, v), du), times(powerExponent(node, u, v), dv));
+      case Program.MIN:
+        return select(new OperatorNode(AT_MOST, u, v), du, dv);
+      case Program.MAX:
+        return select(new OperatorNode(AT_LEAST, u, v), du, dv);
+      default:
+        Operator function = node.operator();
+        return plus(times(new OperatorNode(function.derivative(0), u, v), du),
+                times(new OperatorNode(function.derivative(1), u, v), dv));
+    }
+  }
+
+  /**
+   * Returns the derivative of min or max, which is du where the condition is 1 and dv where it is
+   * 0.
+   *
+   * @param condition the node that is 1 when the left operand is selected and 0 otherwise.
+   * @param du the derivative of the left operand.
+   * @param dv the derivative of the right operand.
+   * @return the derivative of the node.
+   */
+  private static ExpressionNode select(ExpressionNode condition, ExpressionNode du,
+                                       ExpressionNode dv) {
+    return plus(times(du, condition), times(dv, minus(ONE, condition)));
+  }
+
+  /**
+   * Returns the partial derivative of u ^ v with respect to u, written v * u ^ (v - 1) if v is a
+   * literal, which is dropped if it is 0, and with ^'1 otherwise.
+   *
+   * @param u the base.
+   * @param v the exponent.
+   * @return the partial derivative.
+   */
+  private static ExpressionNode powerBase(ExpressionNode u, ExpressionNode v) {
+    if (!(v instanceof ConstantNode)) {
+      return new OperatorNode(POWER_BASE, u, v);
+    }
+    if (((ConstantNode) v).getValue() == 0.0) {
+      return ZERO;
+    }
+    return times(v, new OperatorNode(Operator.POWER, u, minus(v, ONE)));
+  }
+
+  /**
+   * Returns the partial derivative of u ^ v with respect to v, written u ^ v * ln u if u is a
+   * literal, which is dropped if it is 0, and with ^'2 otherwise.
+   *
+   * @param node the power node.
+   * @param u the base.
+   * @param v the exponent.
+   * @return the partial derivative.
+   */
+  private static ExpressionNode powerExponent(ExpressionNode node, ExpressionNode u,
+                                              ExpressionNode v) {
+    if (!(u instanceof ConstantNode)) {
+      return new OperatorNode(POWER_EXPONENT, u, v);
+    }
+    if (((ConstantNode) u).getValue() == 0.0) {
+      return ZERO;
+    }
+    return times(node, new OperatorNode(LOG, u));
+  }
+
+  /**
+   * Returns the sum of two derivatives, dropping a term that is zero.
+   *
+   * @param a the left term.
+   * @param b the right term.
+   * @return the sum.
+   */
+  private static ExpressionNode plus(ExpressionNode a, ExpressionNode b) {
+    if (a == ZERO) {
+      return b;
+    }
+    if (b == ZERO) {
+      return a;
+    }
+    return new OperatorNode("+", a, b);
+  }
+
+  /**
+   * Returns the difference of two terms, dropping a term that is zero.
+   *
+   * @param a the left term.
+   * @param b the right term.
+   * @return the difference.
+   */
+  private static ExpressionNode minus(ExpressionNode a, ExpressionNode b) {
+    if (b == ZERO) {
+      return a;
+    }
+    if (a == ZERO) {
+      return new OperatorNode(Operator.NEGATE, b);
+    }
+    return new OperatorNode("-", a, b);
+  }
+
+  /**
+   * Returns the product of two terms, which is zero if either is zero and the other if either is
+   * one.
+   *
+   * @param a the left factor.
+   * @param b the right factor.
+   * @return the product.
+   */
+  private static ExpressionNode times(ExpressionNode a, ExpressionNode b) {
+    if (a == ZERO || b == ZERO) {
+      return ZERO;
+    }
+    if (a == ONE) {
+      return b;
+    }
+    if (b == ONE) {
+      return a;
+    }
+    return new OperatorNode("*", a, b);
+  }
+
+}
@@ -0,0 +1,211 @@
+/**
+ * All source code has been added into the expression package.
+ */
+
+package expression;
+
+/**
+ * Import Arrays, AtomicLong, BufferUnderflowException, ByteBuffer, CompletableFuture,
+ * CompletionException, ConcurrentHashMap, IOException, Map, ReentrantLock, SocketAddress,
+ * SocketChannel, StandardSocketOptions, UncheckedIOException, and UnixDomainSocketAddress
+ * packages.
+ */
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This class represents a connection to an EvaluationServer. Requests can be sent from any number
+ * of threads at once and without waiting for earlier ones: submit returns a CompletableFuture that
+ * is completed when the response arrives, and evaluate waits for it. Every request and response is
+ * a frame of an int byte length followed by its bytes, with all numbers big endian and strings
+ * written as an int byte length followed by UTF-8 bytes:
+ *
+ * <pre>
+ *   request:  long id, string tenant, string expression,
+ *             int number of variables, then for each: string name, double value
+ *   response: long id, byte status, then a double value if status is 0 or a string message
+ * </pre>
+ *
+ * <p>A failed request completes its future with the exception the server would have thrown if it
+ * had been called directly: an IllegalArgumentException for an invalid expression or one exceeding
+ * the limits of the tenant, and an ArithmeticException for a missing variable. If the connection
+ * fails or is closed, every pending request fails with an UncheckedIOException.
+ */
+public final class EvaluationClient implements AutoCloseable {
+
+  private final SocketChannel channel;
+  private final ReentrantLock writeLock = new ReentrantLock();
+  private final Map<Long,CompletableFuture<Double>> pending = new ConcurrentHashMap<>();
+  private final AtomicLong ids = new AtomicLong();
+  private volatile boolean closed;
+
+  /**
+   * Constructs an EvaluationClient connected to the server at the given address, which is either
+   * an InetSocketAddress or a UnixDomainSocketAddress.
+   *
+   * @param address the address of the EvaluationServer.
+   * @throws IOException if the connection cannot be opened.
+   */
+  public EvaluationClient(SocketAddress address) throws IOException {
+    channel = SocketChannel.open(address);
+    if (!(address instanceof UnixDomainSocketAddress)) {
+      channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+    }
+    VirtualThreads.daemonFactory("expression-client").newThread(this::read).start();
+  }
+
+  /**
+   * This method sends a request to evaluate an expression for a tenant and returns a
+   * CompletableFuture of its value, without waiting for the response.
+   *
+   * @param tenant the name of the tenant.
+   * @param expression the postfix expression.
+   * @param variables the Map with the numerical values of the variables.
+   * @return the CompletableFuture completed with the value of the expression.
+   * @throws IllegalArgumentException if an argument is null or the request is too large.
+   */
+  public CompletableFuture<Double> submit(String tenant, String expression,
+                                          Map<String,Double> variables)
+          throws IllegalArgumentException {
+    if (tenant == null || expression == null || variables == null) {
+      throw new IllegalArgumentException("Tenant, expression and variables must not be null.");
+    }
+    String[] names = new String[variables.size()];
+    double[] values = new double[names.length];
+    int count = 0;
+    for (Map.Entry<String,Double> variable : variables.entrySet()) {
+      if (variable.getKey() != null && variable.getValue() != null) {
+        names[count] = variable.getKey();
+        values[count++] = variable.getValue();
+      }
+    }
+    long id = ids.incrementAndGet();
+    ByteBuffer frame = EvaluationProtocol.request(id, tenant, expression,
+            Arrays.copyOf(names, count), values);
+    CompletableFuture<Double> future = new CompletableFuture<>();
+    pending.put(id, future);
+    if (closed) {
+      fail(id, new IOException("Connection is closed."));
+      return future;
+    }
+    writeLock.lock();
+    try {
+      EvaluationProtocol.writeFrame(channel, frame);
+    } catch (IOException e) {
+      fail(id, e);
+    } finally {
+      writeLock.unlock();
+    }
+    return future;
+  }
+
+  /**
+   * This method evaluates an expression for a tenant on the server and waits for its value.
+   *
+   * @param tenant the name of the tenant.
+   * @param expression the postfix expression.
+   * @param variables the Map with the numerical values of the variables.
+   * @return the value of the expression.
+   * @throws IllegalArgumentException if the expression is invalid or exceeds the limits of the
+   *         tenant.
+   * @throws ArithmeticException if the value of a variable cannot be determined.
+   * @throws UncheckedIOException if the connection fails.
+   */
+  public double evaluate(String tenant, String expression, Map<String,Double> variables)
+          throws IllegalArgumentException, ArithmeticException, UncheckedIOException {
+    try {
+      return submit(tenant, expression, variables).join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * This method closes the connection. Requests still waiting for their responses fail with an
+   * UncheckedIOException.
+   *
+   * @throws IOException if the channel cannot be closed.
+   */
+  @Override
+  public void close() throws IOException {
+    closed = true;
+    channel.close();
+  }
+
+  /**
+   * Reads responses until the connection is closed, completing the future of each, and then fails
+   * the requests still pending.
+   */
+  private void read() {
+    ByteBuffer length = ByteBuffer.allocate(4);
+    IOException failure = new IOException("Connection is closed.");
+    try {
+      ByteBuffer frame;
+      while ((frame = EvaluationProtocol.readFrame(channel, length)) != null) {
+        CompletableFuture<Double> future = pending.remove(frame.getLong());
+        if (future == null) {
+          continue;
+        }
+        byte status = frame.get();
+        if (status == EvaluationProtocol.OK) {
+          future.complete(frame.getDouble());
+          continue;
+        }
+        String message = EvaluationProtocol.getString(frame);
+        if (status == EvaluationProtocol.INVALID) {
+          future.completeExceptionally(new IllegalArgumentException(message));
+        }
+        else if (status == EvaluationProtocol.ARITHMETIC) {
+          future.completeExceptionally(new ArithmeticException(message));
+        }
+        else {
+          future.completeExceptionally(new IllegalStateException(message));
+        }
+      }
+    } catch (IOException e) {
+      failure = e;
+    } catch (BufferUnderflowException e) {
+      failure = new IOException("Response is invalid.", e);
+    } finally {
+      closed = true;
+      try {
+        channel.close();
+      } catch (IOException e) {
+        // the requests are failed below either way
+      }
+      for (Long id : pending.keySet()) {
+        fail(id, failure);
+      }
+    }
+  }
+
+  /**
+   * Fails the pending request with the given id, if it is still pending.
+   *
+   * @param id the id of the request.
+   * @param cause the IOException that made it fail.
+   */
+  private void fail(long id, IOException cause) {
+    CompletableFuture<Double> future = pending.remove(id);
+    if (future != null) {
+      future.completeExceptionally(new UncheckedIOException(cause));
+    }
+  }
+
+}
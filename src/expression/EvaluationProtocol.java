@@ -0,0 +1,197 @@
+/**
+ * All source code has been added into the expression package.
+ */
+
+package expression;
+
+/**
+ * Import BufferUnderflowException, ByteBuffer, EOFException, IOException, ReadableByteChannel,
+ * StandardCharsets, and WritableByteChannel packages.
+ */
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This class reads and writes the frames exchanged by EvaluationClient and EvaluationServer. Every
+ * frame is an int byte length followed by that many bytes, and all numbers are big endian:
+ *
+ * <pre>
+ *   request:  long id, string tenant, string expression,
+ *             int number of variables, then for each: string name, double value
+ *   response: long id, byte status, then a double value for OK or a string message otherwise
+ *   string:   int byte length, UTF-8 bytes
+ * </pre>
+ *
+ * <p>A client may send any number of requests without waiting for their responses, which come back
+ * in the order the requests finish and are matched to them by id.
+ */
+final class EvaluationProtocol {
+
+  /**
+   * Status of a response holding the value of the expression.
+   */
+  static final byte OK = 0;
+
+  /**
+   * Status of a response to an invalid expression, or one exceeding the limits of its tenant,
+   * which the client rethrows as an IllegalArgumentException.
+   */
+  static final byte INVALID = 1;
+
+  /**
+   * Status of a response to an expression that could not be evaluated, which the client rethrows
+   * as an ArithmeticException.
+   */
+  static final byte ARITHMETIC = 2;
+
+  /**
+   * Status of a response to a request that failed for any other reason, which the client rethrows
+   * as an IllegalStateException.
+   */
+  static final byte ERROR = 3;
+
+  /**
+   * Largest frame either side accepts, which bounds the text a request makes the server parse.
+   */
+  static final int MAX_FRAME = 1 << 24;
+
+  /**
+   * Private constructor since this class only has static methods.
+   */
+  private EvaluationProtocol() {
+  }
+
+  /**
+   * Reads the next frame from a blocking channel into a buffer positioned at its first byte.
+   *
+   * @param channel the channel to read from.
+   * @param length a reusable four-byte buffer for the length of the frame.
+   * @return the body of the frame, or null if the channel was closed between two frames.
+   * @throws IOException if reading fails, the channel is closed within a frame, or the frame is
+   *         longer than MAX_FRAME.
+   */
+  static ByteBuffer readFrame(ReadableByteChannel channel, ByteBuffer length) throws IOException {
+    length.clear();
+    while (length.hasRemaining()) {
+      if (channel.read(length) < 0) {
+        if (length.position() == 0) {
+          return null;
+        }
+        throw new EOFException("Channel closed within a frame.");
+      }
+    }
+    int size = length.getInt(0);
+    if (size < 0 || size > MAX_FRAME) {
+      throw new IOException("Frame of " + size + " bytes is too large.");
+    }
+    ByteBuffer frame = ByteBuffer.allocate(size);
+    while (frame.hasRemaining()) {
+      if (channel.read(frame) < 0) {
+        throw new EOFException("Channel closed within a frame.");
+      }
+    }
+    frame.flip();
+    return frame;
+  }
+
+  /**
+   * Writes a whole buffer to a blocking channel, from its position to its limit.
+   *
+   * @param channel the channel to write to.
+   * @param frame the frame, including its length.
+   * @throws IOException if writing fails.
+   */
+  static void writeFrame(WritableByteChannel channel, ByteBuffer frame) throws IOException {
+    while (frame.hasRemaining()) {
+      channel.write(frame);
+    }
+  }
+
+  /**
+   * Encodes a request as a frame ready to be written.
+   *
+   * @param id the id of the request.
+   * @param tenant the tenant the request is made for.
+   * @param expression the postfix expression.
+   * @param names the names of the variables.
+   * @param values the values of the variables.
+   * @return the frame positioned at its first byte.
+   * @throws IllegalArgumentException if the request is longer than MAX_FRAME.
+   */
+  static ByteBuffer request(long id, String tenant, String expression, String[] names,
+                            double[] values) throws IllegalArgumentException {
+    byte[] tenantBytes = tenant.getBytes(StandardCharsets.UTF_8);
+    byte[] expressionBytes = expression.getBytes(StandardCharsets.UTF_8);
+    byte[][] nameBytes = new byte[names.length][];
+    long size = 8 + 4 + tenantBytes.length + 4 + expressionBytes.length + 4;
+    for (int i = 0; i < names.length; i++) {
+      nameBytes[i] = names[i].getBytes(StandardCharsets.UTF_8);
+      size += 4 + nameBytes[i].length + 8;
+    }
+    if (size > MAX_FRAME) {
+      throw new IllegalArgumentException("Request is too large.");
+    }
+    ByteBuffer frame = ByteBuffer.allocate(4 + (int) size);
+    frame.putInt((int) size).putLong(id);
+    frame.putInt(tenantBytes.length).put(tenantBytes);
+    frame.putInt(expressionBytes.length).put(expressionBytes);
+    frame.putInt(names.length);
+    for (int i = 0; i < names.length; i++) {
+      frame.putInt(nameBytes[i].length).put(nameBytes[i]).putDouble(values[i]);
+    }
+    return frame.flip();
+  }
+
+  /**
+   * Encodes the response holding the value of an expression as a frame ready to be written.
+   *
+   * @param id the id of the request.
+   * @param value the value of the expression.
+   * @return the frame positioned at its first byte.
+   */
+  static ByteBuffer response(long id, double value) {
+    ByteBuffer frame = ByteBuffer.allocate(4 + 8 + 1 + 8);
+    frame.putInt(8 + 1 + 8).putLong(id).put(OK).putDouble(value);
+    return frame.flip();
+  }
+
+  /**
+   * Encodes the response to a failed request as a frame ready to be written.
+   *
+   * @param id the id of the request.
+   * @param status the status of the failure.
+   * @param message the message of the failure.
+   * @return the frame positioned at its first byte.
+   */
+  static ByteBuffer response(long id, byte status, String message) {
+    byte[] bytes = String.valueOf(message).getBytes(StandardCharsets.UTF_8);
+    ByteBuffer frame = ByteBuffer.allocate(4 + 8 + 1 + 4 + bytes.length);
+    frame.putInt(8 + 1 + 4 + bytes.length).putLong(id).put(status);
+    frame.putInt(bytes.length).put(bytes);
+    return frame.flip();
+  }
+
+  /**
+   * Reads a string from a frame.
+   *
+   * @param frame the frame positioned at the length of the string.
+   * @return the string.
+   * @throws BufferUnderflowException if the frame ends within the string.
+   */
+  static String getString(ByteBuffer frame) throws BufferUnderflowException {
+    int length = frame.getInt();
+    if (length < 0 || length > frame.remaining()) {
+      throw new BufferUnderflowException();
+    }
+    String string = new String(frame.array(), frame.arrayOffset() + frame.position(), length,
+            StandardCharsets.UTF_8);
+    frame.position(frame.position() + length);
+    return string;
+  }
+
+}
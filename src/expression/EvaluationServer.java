@@ -0,0 +1,607 @@
+/**
+ * All source code has been added into the expression package.
+ */
+
+package expression;
+
+/**
+ * Import Arrays, AtomicInteger, BufferUnderflowException, ByteBuffer, ConcurrentHashMap, Condition,
+ * CountDownLatch, ExecutorService, HashMap, InetAddress, InetSocketAddress, IOException, LongAdder,
+ * Map, ReentrantLock, RejectedExecutionException, Semaphore, ServerSocketChannel, Set,
+ * SocketAddress, SocketChannel, StandardProtocolFamily, StandardSocketOptions, and
+ * UnixDomainSocketAddress packages.
+ */
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This class represents an in-process evaluation service: it accepts requests to parse and
+ * evaluate a postfix expression for a tenant over a local TCP or Unix domain socket, in the frames
+ * described by EvaluationClient, and can also be called directly with evaluate. Every connection
+ * and every request runs on its own virtual thread when the JDK has virtual threads, and on a
+ * cached pool of daemon threads otherwise, so a client may pipeline requests on one connection. At
+ * most MAX_IN_FLIGHT requests of one connection are evaluated at once; the server stops reading
+ * the connection until one of them is answered, so a single client cannot start threads without
+ * bound.
+ *
+ * <p>Parsed expressions are kept in an ExpressionCache, and concurrent requests for the same
+ * formula are batched into one columnar evaluation: while a batch of a formula is being evaluated,
+ * the requests that arrive for it queue up in the next batch, which is evaluated as soon as the
+ * running one is done. An idle formula is therefore evaluated right away with no added latency,
+ * and a busy one in batches whose size grows with the load. Every row of a batch gives exactly the
+ * result of evaluating the expression alone.
+ *
+ * <p>The expression of a request must be within the TenantLimits of its tenant, or within the
+ * default limits for tenants without their own. It is parsed under those limits before it reaches
+ * the cache, so input over them is rejected at its first term over budget and is never cached,
+ * and a cached expression is checked against the limits of every tenant that uses it. An
+ * EvaluationServer is thread-safe.
+ */
+public final class EvaluationServer implements AutoCloseable {
+
+  /**
+   * Largest number of requests evaluated in one batch.
+   */
+  public static final int MAX_BATCH = 4096;
+
+  /**
+   * Largest number of requests of one connection evaluated at once.
+   */
+  public static final int MAX_IN_FLIGHT = 256;
+
+  /**
+   * Number of distinct normalized expressions kept parsed.
+   */
+  private static final int CACHE_SIZE = 1024;
+
+  private final ServerSocketChannel server;
+  private final ExecutorService executor;
+  private final ExpressionCache cache = new ExpressionCache(CACHE_SIZE);
+  private final TenantLimits defaultLimits;
+  private final Map<String,TenantLimits> limits = new ConcurrentHashMap<>();
+
+  /**
+   * Lane of every formula with a batch pending or running, by tree identity.
+   */
+  private final Map<ExpressionTree,Lane> lanes = new ConcurrentHashMap<>();
+
+  private final Set<SocketChannel> connections = ConcurrentHashMap.newKeySet();
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder batches = new LongAdder();
+  private volatile boolean closed;
+
+  /**
+   * Constructs an EvaluationServer listening on an ephemeral port of the loopback address, with no
+   * limits for any tenant.
+   *
+   * @throws IOException if the socket cannot be bound.
+   */
+  public EvaluationServer() throws IOException {
+    this(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), TenantLimits.UNLIMITED);
+  }
+
+  /**
+   * Constructs an EvaluationServer listening on the given address, which is either an
+   * InetSocketAddress or a UnixDomainSocketAddress, with the given limits for every tenant that
+   * has no limits of its own.
+   *
+   * @param address the address to listen on.
+   * @param defaultLimits the limits of tenants without their own.
+   * @throws IOException if the socket cannot be bound.
+   * @throws IllegalArgumentException if an argument is null.
+   */
+  public EvaluationServer(SocketAddress address, TenantLimits defaultLimits)
+          throws IOException, IllegalArgumentException {
+    if (address == null || defaultLimits == null) {
+      throw new IllegalArgumentException("Address and limits must not be null.");
+    }
+    this.defaultLimits = defaultLimits;
+    server = address instanceof UnixDomainSocketAddress
+            ? ServerSocketChannel.open(StandardProtocolFamily.UNIX) : ServerSocketChannel.open();
+    try {
+      server.bind(address);
+    } catch (IOException e) {
+      server.close();
+      throw e;
+    }
+    executor = VirtualThreads.newExecutor("expression-server");
+    executor.execute(this::accept);
+  }
+
+  /**
+   * This method takes in no arguments and returns the address the server listens on, with the
+   * actual port if it was bound to an ephemeral one.
+   *
+   * @return the local address of the server.
+   * @throws IOException if the server is closed.
+   */
+  public SocketAddress getAddress() throws IOException {
+    return server.getLocalAddress();
+  }
+
+  /**
+   * This method sets the limits of a tenant, replacing any it had, or restores the default limits
+   * of the tenant if limits is null. Requests already being evaluated are not affected.
+   *
+   * @param tenant the name of the tenant.
+   * @param limits the TenantLimits of the tenant, or null for the default limits.
+   */
+  public void setLimits(String tenant, TenantLimits limits) {
+    if (limits == null) {
+      this.limits.remove(tenant);
+    }
+    else {
+      this.limits.put(tenant, limits);
+    }
+  }
+
+  /**
+   * This method takes in the name of a tenant and returns the limits its requests are checked
+   * against.
+   *
+   * @param tenant the name of the tenant.
+   * @return the TenantLimits of the tenant.
+   */
+  public TenantLimits getLimits(String tenant) {
+    return limits.getOrDefault(tenant, defaultLimits);
+  }
+
+  /**
+   * This method takes in no arguments and returns the number of requests evaluated or rejected
+   * since the server started.
+   *
+   * @return the number of requests.
+   */
+  public long getRequestCount() {
+    return requests.sum();
+  }
+
+  /**
+   * This method takes in no arguments and returns the number of batches evaluated since the
+   * server started. The average batch size is the number of evaluated requests divided by this.
+   *
+   * @return the number of batches.
+   */
+  public long getBatchCount() {
+    return batches.sum();
+  }
+
+  /**
+   * This method takes in no arguments and returns true if requests run on virtual threads.
+   *
+   * @return true if the JDK supports virtual threads.
+   */
+  public static boolean isVirtual() {
+    return VirtualThreads.available();
+  }
+
+  /**
+   * This method evaluates an expression for a tenant exactly as a request received by the server
+   * is evaluated: the expression is taken from the cache and checked against the limits of the
+   * tenant, or parsed under those limits and cached if it is within them, and evaluated in a
+   * batch with the concurrent requests for the same expression.
+   *
+   * @param tenant the name of the tenant.
+   * @param expression the postfix expression.
+   * @param variables the Map with the numerical values of the variables.
+   * @return the value of the expression.
+   * @throws LimitExceededException if the expression exceeds the limits of the tenant.
+   * @throws IllegalArgumentException if the expression is invalid.
+   * @throws ArithmeticException if the value of a variable cannot be determined.
+   */
+  public double evaluate(String tenant, String expression, Map<String,Double> variables)
+          throws LimitExceededException, IllegalArgumentException, ArithmeticException {
+    requests.increment();
+    if (tenant == null || variables == null) {
+      throw new IllegalArgumentException("Tenant and variables must not be null.");
+    }
+    ExpressionTree tree;
+    try {
+      tree = cache.get(expression, getLimits(tenant).getExpressionLimits());
+    } catch (LimitExceededException e) {
+      throw new LimitExceededException(e.getLimit(),
+              "Expression exceeds the limits of tenant " + tenant + ".");
+    }
+    String[] names = tree.getVariables();
+    double[] slots = new double[names.length];
+    for (int slot = 0; slot < names.length; slot++) {
+      if (names[slot] == null) {
+        continue;
+      }
+      Double value = variables.get(names[slot]);
+      if (value == null) {
+        throw new ArithmeticException("Cannot evaluate variables in expression.");
+      }
+      slots[slot] = value;
+    }
+    return evaluate(tree, slots);
+  }
+
+  /**
+   * This method stops accepting connections, closes every open connection, and stops the threads
+   * of the server. Requests being evaluated directly with evaluate are not affected.
+   *
+   * @throws IOException if the server socket cannot be closed.
+   */
+  @Override
+  public void close() throws IOException {
+    closed = true;
+    try {
+      server.close();
+    } finally {
+      for (SocketChannel connection : connections) {
+        try {
+          connection.close();
+        } catch (IOException e) {
+          // the connection is being closed anyway
+        }
+      }
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Adds the given slots to the pending batch of the tree and returns the value of its row once
+   * the batch has been evaluated. The request that opens a batch evaluates it once the previous
+   * batch of the same tree is done.
+   *
+   * @param tree the ExpressionTree to evaluate.
+   * @param slots the variable values indexed by slot.
+   * @return the value of the tree.
+   */
+  private double evaluate(ExpressionTree tree, double[] slots) {
+    Lane lane = lanes.computeIfAbsent(tree, key -> new Lane());
+    Batch batch;
+    int row;
+    lane.lock.lock();
+    try {
+      batch = lane.pending;
+      if (batch == null) {
+        batch = new Batch(tree.compile(), slots.length);
+        lane.pending = batch;
+      }
+      row = batch.add(slots);
+      if (row + 1 == MAX_BATCH) {
+        lane.pending = null;
+      }
+    } finally {
+      lane.lock.unlock();
+    }
+    if (row == 0) {
+      run(tree, lane, batch);
+    }
+    return batch.result(row);
+  }
+
+  /**
+   * Waits until no batch of the lane is running, closes the given batch to new rows, and
+   * evaluates it.
+   *
+   * @param tree the ExpressionTree of the lane.
+   * @param lane the Lane of the tree.
+   * @param batch the Batch to evaluate.
+   */
+  private void run(ExpressionTree tree, Lane lane, Batch batch) {
+    lane.lock.lock();
+    try {
+      while (lane.running) {
+        lane.idle.awaitUninterruptibly();
+      }
+      lane.running = true;
+      if (lane.pending == batch) {
+        lane.pending = null;
+      }
+    } finally {
+      lane.lock.unlock();
+    }
+    try {
+      batch.run();
+      batches.increment();
+    } finally {
+      lane.lock.lock();
+      try {
+        lane.running = false;
+        lane.idle.signalAll();
+        if (lane.pending == null) {
+          lanes.remove(tree, lane);
+        }
+      } finally {
+        lane.lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Accepts connections until the server is closed, serving each on its own thread.
+   */
+  private void accept() {
+    while (!closed) {
+      SocketChannel channel;
+      try {
+        channel = server.accept();
+      } catch (IOException e) {
+        return;
+      }
+      try {
+        if (!(server.getLocalAddress() instanceof UnixDomainSocketAddress)) {
+          channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        }
+      } catch (IOException e) {
+        // the connection still works, only with more latency
+      }
+      connections.add(channel);
+      Connection connection = new Connection(channel);
+      try {
+        executor.execute(connection::read);
+      } catch (RejectedExecutionException e) {
+        connection.release();
+      }
+    }
+  }
+
+  /**
+   * Evaluates one request frame and writes its response to the connection.
+   *
+   * @param connection the Connection the request came from.
+   * @param frame the request frame.
+   */
+  private void respond(Connection connection, ByteBuffer frame) {
+    long id = -1;
+    ByteBuffer response;
+    try {
+      id = frame.getLong();
+      String tenant = EvaluationProtocol.getString(frame);
+      String expression = EvaluationProtocol.getString(frame);
+      int count = frame.getInt();
+      if (count < 0 || count > frame.remaining() / 12) {
+        throw new BufferUnderflowException();
+      }
+      Map<String,Double> variables = new HashMap<>();
+      for (int i = 0; i < count; i++) {
+        variables.put(EvaluationProtocol.getString(frame), frame.getDouble());
+      }
+      response = EvaluationProtocol.response(id, evaluate(tenant, expression, variables));
+    } catch (BufferUnderflowException e) {
+      response = EvaluationProtocol.response(id, EvaluationProtocol.INVALID,
+              "Request is invalid.");
+    } catch (IllegalArgumentException e) {
+      response = EvaluationProtocol.response(id, EvaluationProtocol.INVALID, e.getMessage());
+    } catch (ArithmeticException e) {
+      response = EvaluationProtocol.response(id, EvaluationProtocol.ARITHMETIC, e.getMessage());
+    } catch (RuntimeException e) {
+      response = EvaluationProtocol.response(id, EvaluationProtocol.ERROR, e.toString());
+    }
+    connection.write(response);
+  }
+
+  /**
+   * This class represents one client connection. Requests are read on one thread and each is
+   * evaluated on a thread of its own, at most MAX_IN_FLIGHT at once, so responses are written
+   * under a lock. The channel is closed
+   * once the client has closed its side and every request read from it has been answered.
+   */
+  private final class Connection {
+
+    private final SocketChannel channel;
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    /**
+     * Permits for the requests being evaluated; the reader waits for one before starting another.
+     */
+    private final Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+
+    /**
+     * Number of requests being evaluated, plus one while requests are still being read.
+     */
+    private final AtomicInteger users = new AtomicInteger(1);
+
+    /**
+     * Constructs the Connection of an accepted channel.
+     *
+     * @param channel the SocketChannel of the connection.
+     */
+    Connection(SocketChannel channel) {
+      this.channel = channel;
+    }
+
+    /**
+     * Reads request frames until the client closes its side, starting the evaluation of each.
+     */
+    void read() {
+      ByteBuffer length = ByteBuffer.allocate(4);
+      try {
+        ByteBuffer frame;
+        while ((frame = EvaluationProtocol.readFrame(channel, length)) != null) {
+          ByteBuffer request = frame;
+          inFlight.acquireUninterruptibly();
+          users.incrementAndGet();
+          try {
+            executor.execute(() -> {
+              try {
+                respond(this, request);
+              } finally {
+                inFlight.release();
+                release();
+              }
+            });
+          } catch (RejectedExecutionException e) {
+            inFlight.release();
+            release();
+            return;
+          }
+        }
+      } catch (IOException e) {
+        close();
+      } finally {
+        release();
+      }
+    }
+
+    /**
+     * Writes a response frame, closing the connection if writing fails.
+     *
+     * @param frame the response frame.
+     */
+    void write(ByteBuffer frame) {
+      writeLock.lock();
+      try {
+        EvaluationProtocol.writeFrame(channel, frame);
+      } catch (IOException e) {
+        close();
+      } finally {
+        writeLock.unlock();
+      }
+    }
+
+    /**
+     * Releases the reader or a finished request, closing the connection after the last one.
+     */
+    void release() {
+      if (users.decrementAndGet() == 0) {
+        close();
+      }
+    }
+
+    /**
+     * Closes the channel of the connection.
+     */
+    private void close() {
+      connections.remove(channel);
+      try {
+        channel.close();
+      } catch (IOException e) {
+        // nothing more can be done with the connection
+      }
+    }
+
+  }
+
+  /**
+   * This class holds the batching state of one formula: the batch requests are being added to and
+   * whether a batch is being evaluated. It uses a ReentrantLock rather than synchronized so that
+   * virtual threads waiting for it do not pin their carrier threads.
+   */
+  private static final class Lane {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition idle = lock.newCondition();
+    private Batch pending;
+    private boolean running;
+
+  }
+
+  /**
+   * This class represents a batch of rows of one CompiledExpression, stored by column, and their
+   * results once the batch has been evaluated.
+   */
+  private static final class Batch {
+
+    private final CompiledExpression expression;
+    private double[][] columns;
+    private int size;
+    private double[] results;
+    private RuntimeException failure;
+    private final CountDownLatch done = new CountDownLatch(1);
+
+    /**
+     * Constructs an empty Batch of the given expression.
+     *
+     * @param expression the CompiledExpression of the batch.
+     * @param slots the number of variable slots of the expression.
+     */
+    Batch(CompiledExpression expression, int slots) {
+      this.expression = expression;
+      columns = new double[slots][8];
+    }
+
+    /**
+     * Adds a row to the batch and returns its index. Called with the lock of the lane held.
+     *
+     * @param slots the variable values of the row, indexed by slot.
+     * @return the index of the row.
+     */
+    int add(double[] slots) {
+      for (int slot = 0; slot < columns.length; slot++) {
+        if (size == columns[slot].length) {
+          columns[slot] = Arrays.copyOf(columns[slot], size * 2);
+        }
+        columns[slot][size] = slots[slot];
+      }
+      return size++;
+    }
+
+    /**
+     * Evaluates every row of the batch, which no longer accepts rows, and wakes up the requests
+     * waiting for their results.
+     */
+    void run() {
+      try {
+        double[] out = new double[size];
+        if (size == 1) {
+          double[] slots = new double[columns.length];
+          for (int slot = 0; slot < slots.length; slot++) {
+            slots[slot] = columns[slot][0];
+          }
+          out[0] = expression.evaluate(slots);
+        }
+        else {
+          expression.evaluate(columns, 0, size, out, 0);
+        }
+        results = out;
+      } catch (RuntimeException e) {
+        failure = e;
+      } finally {
+        done.countDown();
+      }
+    }
+
+    /**
+     * Waits until the batch has been evaluated and returns the result of the given row.
+     *
+     * @param row the index of the row.
+     * @return the value of the expression for the row.
+     */
+    double result(int row) {
+      boolean interrupted = false;
+      while (true) {
+        try {
+          done.await();
+          break;
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+      if (failure != null) {
+        throw failure;
+      }
+      return results[row];
+    }
+
+  }
+
+}
@@ -0,0 +1,381 @@
+/**
+ * All source code has been added into the expression package.
+ */
+
+package expression;
+
+/**
+ * Import Arrays and Map packages.
+ */
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * This class represents a stateful evaluation of one ExpressionTree for callers that evaluate it
+ * over and over while only a few variables change between calls. The session keeps the last value
+ * of every node. Setting a variable to a new value marks the nodes on the paths from its
+ * occurrences to the root as dirty, and the next evaluation recomputes only the dirty nodes, so its
+ * cost depends on how many nodes are affected by the change rather than on the size of the tree.
+ *
+ * <p>Nodes are stored in postfix order in flat arrays, where every operator comes after both of its
+ * operands and has a link to its parent, and the dirty nodes are kept in a bitset. Recomputing the
+ * dirty nodes in increasing index order therefore always sees up-to-date operands, and it applies
+ * the same operations as the tree, so the results are identical to ExpressionTree.evaluate. A
+ * session is not thread-safe; use one session per thread.
+ */
+public final class EvaluationSession {
+
+  private final ExpressionTree tree;
+  private final String[] variables;
+
+  /**
+   * Opcode of each operator node, or Program.CONST and Program.VAR for leaves.
+   */
+  private final byte[] kinds;
+
+  /**
+   * Index of the left operand of each operator node, or the slot of each variable.
+   */
+  private final int[] left;
+
+  /**
+   * Index of the right operand of each operator node, or -1 for a unary operator.
+   */
+  private final int[] right;
+
+  /**
+   * Operator of each CALL1 and CALL2 node, whose function computes its value, or null for the
+   * other nodes.
+   */
+  private final Operator[] functions;
+
+  /**
+   * Index of the parent of each node, or -1 for the root.
+   */
+  private final int[] parents;
+
+  /**
+   * Indexes of the nodes of every occurrence of each variable, indexed by slot.
+   */
+  private final int[][] occurrences;
+
+  /**
+   * Last value of each node.
+   */
+  private final double[] values;
+
+  /**
+   * Current value of each variable, indexed by slot.
+   */
+  private final double[] slots;
+
+  private final boolean[] assigned;
+  private int unassigned;
+
+  /**
+   * Bitset of the operator nodes that must be recomputed, with the range of words that may have
+   * bits set.
+   */
+  private final long[] dirty;
+  private int firstDirty;
+  private int lastDirty;
+
+  private int recomputed;
+
+  /**
+   * Constructs an EvaluationSession over the given ExpressionTree. No variable has a value yet, so
+   * every variable of the tree must be set before the first evaluation.
+   *
+   * @param tree the ExpressionTree to evaluate.
+   */
+  public EvaluationSession(ExpressionTree tree) {
+    this.tree = tree;
+    variables = tree.getVariables();
+    slots = new double[variables.length];
+    assigned = new boolean[variables.length];
+    for (String variable : variables) {
+      if (variable != null) {
+        unassigned++;
+      }
+    }
+
+    byte[] kinds = new byte[16];
+    int[] left = new int[16];
+    int[] right = new int[16];
+    Operator[] functions = new Operator[16];
+    double[] values = new double[16];
+    int[] counts = new int[variables.length];
+    int[] operands = new int[16];
+    int sp = 0;
+    int index = 0;
+    ExpressionNode[] pending = new ExpressionNode[16];
+    int[] visited = new int[16];
+    int top = 0;
+    pending[top++] = tree.root();
+    while (top > 0) {
+      ExpressionNode node = pending[top - 1];
+      int next = visited[top - 1];
+      if (next < node.arity()) {
+        visited[top - 1] = next + 1;
+        if (top == pending.length) {
+          pending = Arrays.copyOf(pending, top * 2);
+          visited = Arrays.copyOf(visited, top * 2);
+        }
+        pending[top] = node.getChild(next);
+        visited[top++] = 0;
+        continue;
+      }
+      top--;
+      if (index == kinds.length) {
+        kinds = Arrays.copyOf(kinds, index * 2);
+        left = Arrays.copyOf(left, index * 2);
+        right = Arrays.copyOf(right, index * 2);
+        functions = Arrays.copyOf(functions, index * 2);
+        values = Arrays.copyOf(values, index * 2);
+      }
+      if (node instanceof VariableNode) {
+        kinds[index] = Program.VAR;
+        left[index] = ((VariableNode) node).getSlot();
+        counts[left[index]]++;
+      }
+      else if (node.arity() == 0) {
+        kinds[index] = Program.CONST;
+        values[index] = node.evaluate(slots);
+      }
+      else {
+        kinds[index] = node instanceof OperatorNode
+                ? ((OperatorNode) node).opcode() : Program.opcode(node.getTerm());
+        if (kinds[index] == Program.CALL1 || kinds[index] == Program.CALL2) {
+          functions[index] = ((OperatorNode) node).operator();
+        }
+        if (Program.arity(kinds[index]) == 1) {
+          left[index] = operands[sp - 1];
+          right[index] = -1;
+        }
+        else {
+          sp--;
+          left[index] = operands[sp - 1];
+          right[index] = operands[sp];
+        }
+        sp--;
+      }
+      if (sp == operands.length) {
+        operands = Arrays.copyOf(operands, sp * 2);
+      }
+      operands[sp++] = index;
+      index++;
+    }
+    this.kinds = Arrays.copyOf(kinds, index);
+    this.left = Arrays.copyOf(left, index);
+    this.right = Arrays.copyOf(right, index);
+    this.functions = Arrays.copyOf(functions, index);
+    this.values = Arrays.copyOf(values, index);
+
+    parents = new int[index];
+    parents[index - 1] = -1;
+    occurrences = new int[variables.length][];
+    for (int slot = 0; slot < variables.length; slot++) {
+      occurrences[slot] = new int[counts[slot]];
+      counts[slot] = 0;
+    }
+    dirty = new long[(index + 63) >>> 6];
+    firstDirty = dirty.length;
+    lastDirty = -1;
+    for (int i = 0; i < index; i++) {
+      if (kinds[i] == Program.VAR) {
+        int slot = left[i];
+        occurrences[slot][counts[slot]++] = i;
+      }
+      else if (kinds[i] != Program.CONST) {
+        parents[left[i]] = i;
+        if (right[i] >= 0) {
+          parents[right[i]] = i;
+        }
+        markDirty(i);
+      }
+    }
+  }
+
+  /**
+   * This method takes in no arguments and returns the ExpressionTree this session evaluates.
+   *
+   * @return the ExpressionTree of this session.
+   */
+  public ExpressionTree getTree() {
+    return tree;
+  }
+
+  /**
+   * This method sets the value of the variable in the given slot. If the value differs from the
+   * current one, every node that depends on the variable is marked to be recomputed by the next
+   * evaluation.
+   *
+   * @param slot the slot of the variable, as given by the slotOf method of the tree.
+   * @param value the new value of the variable.
+   * @throws IndexOutOfBoundsException if the slot is not a slot of the tree.
+   */
+  public void set(int slot, double value) throws IndexOutOfBoundsException {
+    if (slot < 0 || slot >= slots.length) {
+      throw new IndexOutOfBoundsException("Slot " + slot + " is out of bounds.");
+    }
+    if (assigned[slot]) {
+      if (Double.doubleToRawLongBits(slots[slot]) == Double.doubleToRawLongBits(value)) {
+        return;
+      }
+    }
+    else {
+      assigned[slot] = true;
+      if (variables[slot] != null) {
+        unassigned--;
+      }
+    }
+    slots[slot] = value;
+    for (int node : occurrences[slot]) {
+      values[node] = value;
+      int parent = parents[node];
+      while (parent >= 0 && (dirty[parent >>> 6] & (1L << parent)) == 0) {
+        markDirty(parent);
+        parent = parents[parent];
+      }
+    }
+  }
+
+  /**
+   * This method sets the value of the named variable, as set(int, double) does. Names that are not
+   * variables of the tree are ignored, like the extra entries of the Map given to evaluate.
+   *
+   * @param variable the name of the variable.
+   * @param value the new value of the variable.
+   */
+  public void set(String variable, double value) {
+    int slot = tree.slotOf(variable);
+    if (slot >= 0) {
+      set(slot, value);
+    }
+  }
+
+  /**
+   * This method sets the value of every variable of the tree that has an entry in the given Map,
+   * leaving the other variables unchanged.
+   *
+   * @param changes the Map with the new values of some of the variables.
+   */
+  public void update(Map<String,Double> changes) {
+    for (Map.Entry<String,Double> change : changes.entrySet()) {
+      if (change.getValue() != null) {
+        set(change.getKey(), change.getValue());
+      }
+    }
+  }
+
+  /**
+   * This method takes in no arguments and returns the value of the tree for the current values of
+   * its variables, recomputing only the nodes whose operands changed since the last evaluation.
+   * Throws an ArithmeticException if a variable of the tree has never been set.
+   *
+   * @return the evaluation of the expression tree as a double data type.
+   * @throws ArithmeticException if the value of a variable cannot be determined.
+   */
+  public double evaluate() throws ArithmeticException {
+    if (unassigned > 0) {
+      throw new ArithmeticException("Cannot evaluate variables in expression.");
+    }
+    int count = 0;
+    for (int word = firstDirty; word <= lastDirty; word++) {
+      long bits = dirty[word];
+      while (bits != 0) {
+        int node = (word << 6) + Long.numberOfTrailingZeros(bits);
+        values[node] = compute(node);
+        count++;
+        bits &= bits - 1;
+      }
+      dirty[word] = 0;
+    }
+    firstDirty = dirty.length;
+    lastDirty = -1;
+    recomputed = count;
+    return values[values.length - 1];
+  }
+
+  /**
+   * Returns the value of an operator node from the current values of its operands.
+   *
+   * @param node the index of the operator node.
+   * @return the value of the node.
+   */
+  private double compute(int node) {
+    byte kind = kinds[node];
+    if (right[node] < 0) {
+      return kind == Program.CALL1 ? functions[node].apply(values[left[node]])
+              : Program.apply(kind, values[left[node]]);
+    }
+    return kind == Program.CALL2 ? functions[node].apply(values[left[node]], values[right[node]])
+            : Program.apply(kind, values[left[node]], values[right[node]]);
+  }
+
+  /**
+   * This method takes in a Map of String to Double variables, sets every variable of the tree to
+   * its value in the Map, and returns the value of the tree, recomputing only the nodes affected by
+   * the variables whose values changed since the last evaluation. Throws an ArithmeticException if
+   * a variable of the tree has no value in the Map.
+   *
+   * @param variables the Map with the numerical values of variables in the expression tree.
+   * @return the evaluation of the expression tree as a double data type.
+   * @throws ArithmeticException if the value of a variable cannot be determined.
+   */
+  public double evaluate(Map<String,Double> variables) throws ArithmeticException {
+    for (int slot = 0; slot < this.variables.length; slot++) {
+      if (this.variables[slot] == null) {
+        continue;
+      }
+      Double value = variables.get(this.variables[slot]);
+      if (value == null) {
+        throw new ArithmeticException("Cannot evaluate variables in expression.");
+      }
+      set(slot, value);
+    }
+    return evaluate();
+  }
+
+  /**
+   * This method takes in no arguments and returns whether every variable of the tree has been set,
+   * which is when evaluate stops throwing an ArithmeticException.
+   *
+   * @return true if every variable has a value.
+   */
+  public boolean isReady() {
+    return unassigned == 0;
+  }
+
+  /**
+   * This method takes in no arguments and returns the number of operators recomputed by the last
+   * evaluation.
+   *
+   * @return the number of recomputed operator nodes.
+   */
+  public int getRecomputedCount() {
+    return recomputed;
+  }
+
+  /**
+   * This method takes in no arguments and returns the number of nodes of the tree.
+   *
+   * @return the number of operators and operands in the tree.
+   */
+  public int size() {
+    return values.length;
+  }
+
+  /**
+   * Marks the given operator node to be recomputed.
+   *
+   * @param node the index of the node.
+   */
+  private void markDirty(int node) {
+    int word = node >>> 6;
+    dirty[word] |= 1L << node;
+    firstDirty = Math.min(firstDirty, word);
+    lastDirty = Math.max(lastDirty, word);
+  }
+
+}
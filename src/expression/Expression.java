@@ -11,8 +11,8 @@ import java.util.Map;
 
 /**
  * This interface contains all operations that all Expression classes should contain. It should
- * contain these methods: infix, evaluate, and schemeExpression. It is implemented in the class
- * ExpressionTree.
+ * contain these methods: infix, evaluate, slotOf, getVariables, and schemeExpression. It is
+ * implemented in the classes ExpressionTree and CompiledExpression.
  */
 public interface Expression {
 
@@ -37,6 +37,51 @@ public interface Expression {
    */
   double evaluate(Map<String,Double> variables) throws ArithmeticException;
 
+  /**
+   * This method takes in the values of the variables indexed by slot and returns the result of the
+   * evaluation of this expression as a double data type. The value of a variable goes in the slot
+   * returned by slotOf for its name, so no lookup by name is done during evaluation.
+   *
+   * @param slots the variable values, where slots[i] is the value of getVariables()[i].
+   * @return the evaluation of this expression as a double data type.
+   */
+  double evaluate(double[] slots);
+
+  /**
+   * This method evaluates this expression for every row from (inclusive) to to (exclusive) of a
+   * table given as one column per variable and writes the result of row r into
+   * out[offset + r - from]. The columns are indexed by slot, so columns[slotOf(name)][r] is the
+   * value of that variable in row r. Each result is identical to the one evaluate(double[]) returns
+   * for the same row, and callers can evaluate a large table in slices without copying it.
+   *
+   * @param columns the variable values, one column per slot.
+   * @param from the first row to evaluate.
+   * @param to one past the last row to evaluate.
+   * @param out the array the results are written to.
+   * @param offset the index in out of the result of row from.
+   * @throws ArithmeticException if the column of a variable in the expression is missing.
+   * @throws IndexOutOfBoundsException if the rows or the output range are out of bounds.
+   */
+  void evaluate(double[][] columns, int from, int to, double[] out, int offset)
+          throws ArithmeticException, IndexOutOfBoundsException;
+
+  /**
+   * This method takes in the name of a variable and returns the slot its value is read from by
+   * evaluate(double[]), or -1 if the variable does not appear in this expression.
+   *
+   * @param variable the name of the variable.
+   * @return the slot of the variable, or -1 if it is not in this expression.
+   */
+  int slotOf(String variable);
+
+  /**
+   * This method takes in no arguments and returns the names of the variables of this expression,
+   * where the name at index i is bound to slot i.
+   *
+   * @return the variable names indexed by slot.
+   */
+  String[] getVariables();
+
   /**
    * This method takes in no arguments and returns this expression as a string in scheme form. The
    * string format starts with the operator and then the operands in that order like (+ a b). There
@@ -0,0 +1,298 @@
+/**
+ * All source code has been added into the expression package.
+ */
+
+package expression;
+
+/**
+ * Import LinkedHashMap, LongAdder, and Map packages.
+ */
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class represents a thread-safe cache of parsed ExpressionTrees keyed by their normalized
+ * postfix text, which is the input with leading and trailing whitespace removed and runs of spaces
+ * collapsed, exactly as the ExpressionTree constructor reads it. Inputs that only differ in spacing
+ * therefore share one tree, and the Program compiled from that tree is shared as well.
+ *
+ * <p>The cache is split into independently locked stripes, each evicting its least recently used
+ * entry once it is full, so threads looking up different formulas rarely contend. Invalid inputs
+ * are cached too: a hit on one rethrows a new IllegalArgumentException with the original message
+ * without parsing the input again. Hits, misses, and evictions are counted.
+ */
+public final class ExpressionCache {
+
+  /**
+   * Largest number of stripes the cache is split into.
+   */
+  private static final int MAX_STRIPES = 16;
+
+  private final Stripe[] stripes;
+  private final int maximumSize;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * Constructs an empty ExpressionCache holding at most maximumSize entries.
+   *
+   * @param maximumSize the largest number of entries kept in the cache.
+   * @throws IllegalArgumentException if the maximum size is not positive.
+   */
+  public ExpressionCache(int maximumSize) throws IllegalArgumentException {
+    if (maximumSize < 1) {
+      throw new IllegalArgumentException("Maximum size must be positive.");
+    }
+    int count = Integer.highestOneBit(Math.min(MAX_STRIPES, maximumSize));
+    this.stripes = new Stripe[count];
+    for (int i = 0; i < count; i++) {
+      stripes[i] = new Stripe(maximumSize / count);
+    }
+    this.maximumSize = maximumSize / count * count;
+  }
+
+  /**
+   * This method takes in a postfix expression and returns the cached ExpressionTree for it,
+   * parsing and caching it first if it is not in the cache. Throws an IllegalArgumentException if
+   * the input is an invalid postfix expression, whether it was just parsed or was cached as
+   * invalid.
+   *
+   * @param input the string input of the postfix expression.
+   * @return the ExpressionTree of the input.
+   * @throws IllegalArgumentException if the input is an invalid postfix expression.
+   */
+  public ExpressionTree get(String input) throws IllegalArgumentException {
+    if (input == null) {
+      throw new IllegalArgumentException("Expression is invalid.");
+    }
+    String key = normalize(input);
+    Stripe stripe = stripes[spread(key.hashCode()) & (stripes.length - 1)];
+    Object cached;
+    synchronized (stripe) {
+      cached = stripe.get(key);
+    }
+    if (cached == null) {
+      misses.increment();
+      try {
+        cached = new ExpressionTree(key);
+      } catch (IllegalArgumentException e) {
+        cached = e.getMessage();
+      }
+      synchronized (stripe) {
+        Object raced = stripe.putIfAbsent(key, cached);
+        if (raced != null) {
+          cached = raced;
+        }
+      }
+    }
+    else {
+      hits.increment();
+    }
+    if (cached instanceof ExpressionTree) {
+      return (ExpressionTree) cached;
+    }
+    throw new IllegalArgumentException((String) cached);
+  }
+
+  /**
+   * This method takes in a postfix expression and the ExpressionLimits it must be within, and
+   * returns the cached ExpressionTree for it. A cached tree is checked against the token, depth,
+   * and variable limits; an input that is not cached is parsed under the limits, so input over
+   * budget is rejected at its first term over a limit, and is only cached once it is within them.
+   * Cached trees are shared by callers with different limits, so they carry no limits of their
+   * own: the step budget and timeout of the limits only apply to the parse.
+   *
+   * @param input the string input of the postfix expression.
+   * @param limits the ExpressionLimits the expression must be within.
+   * @return the ExpressionTree of the input.
+   * @throws LimitExceededException if the expression exceeds a limit.
+   * @throws IllegalArgumentException if the input is an invalid postfix expression.
+   */
+  public ExpressionTree get(String input, ExpressionLimits limits)
+          throws LimitExceededException, IllegalArgumentException {
+    if (input == null || limits == null) {
+      throw new IllegalArgumentException("Expression is invalid.");
+    }
+    String key = normalize(input);
+    Stripe stripe = stripes[spread(key.hashCode()) & (stripes.length - 1)];
+    Object cached;
+    synchronized (stripe) {
+      cached = stripe.get(key);
+    }
+    if (cached == null) {
+      misses.increment();
+      try {
+        ExpressionTree parsed = new ExpressionTree(key, limits);
+        cached = new ExpressionTree(parsed.root(), parsed.slots());
+      } catch (LimitExceededException e) {
+        throw e;
+      } catch (IllegalArgumentException e) {
+        cached = e.getMessage();
+      }
+      synchronized (stripe) {
+        Object raced = stripe.putIfAbsent(key, cached);
+        if (raced != null) {
+          cached = raced;
+        }
+      }
+    }
+    else {
+      hits.increment();
+    }
+    if (cached instanceof ExpressionTree) {
+      limits.admit((ExpressionTree) cached);
+      return (ExpressionTree) cached;
+    }
+    throw new IllegalArgumentException((String) cached);
+  }
+
+  /**
+   * This method takes in a postfix expression and returns the CompiledExpression of the cached
+   * ExpressionTree for it. The compiled program is kept by the cached tree, so it is only built
+   * once per normalized input. Cached trees have no ExpressionLimits, so neither does the compiled
+   * expression; an expression whose evaluations must stay within limits should be parsed with them
+   * by the ExpressionTree constructor and compiled from that tree.
+   *
+   * @param input the string input of the postfix expression.
+   * @return the CompiledExpression of the input.
+   * @throws IllegalArgumentException if the input is an invalid postfix expression.
+   */
+  public CompiledExpression getCompiled(String input) throws IllegalArgumentException {
+    return get(input).compile();
+  }
+
+  /**
+   * This method takes in no arguments and returns the number of lookups that found their input in
+   * the cache, including inputs cached as invalid.
+   *
+   * @return the number of cache hits.
+   */
+  public long hitCount() {
+    return hits.sum();
+  }
+
+  /**
+   * This method takes in no arguments and returns the number of lookups that had to parse their
+   * input.
+   *
+   * @return the number of cache misses.
+   */
+  public long missCount() {
+    return misses.sum();
+  }
+
+  /**
+   * This method takes in no arguments and returns the number of entries removed to make room for
+   * new ones.
+   *
+   * @return the number of evictions.
+   */
+  public long evictionCount() {
+    return evictions.sum();
+  }
+
+  /**
+   * This method takes in no arguments and returns the number of entries currently in the cache.
+   *
+   * @return the number of cached inputs, valid or invalid.
+   */
+  public int size() {
+    int size = 0;
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        size += stripe.size();
+      }
+    }
+    return size;
+  }
+
+  /**
+   * This method takes in no arguments and returns the largest number of entries the cache keeps,
+   * which is the requested maximum size rounded down to a multiple of the number of stripes.
+   *
+   * @return the capacity of the cache.
+   */
+  public int maximumSize() {
+    return maximumSize;
+  }
+
+  /**
+   * Returns the input with leading and trailing whitespace removed and runs of spaces collapsed to
+   * one space, which is how the ExpressionTree constructor splits it into terms. The input itself
+   * is returned when it is already normalized.
+   *
+   * @param input the postfix expression.
+   * @return the normalized postfix expression.
+   */
+  static String normalize(String input) {
+    int start = 0;
+    int end = input.length();
+    while (start < end && input.charAt(start) <= ' ') {
+      start++;
+    }
+    while (end > start && input.charAt(end - 1) <= ' ') {
+      end--;
+    }
+    boolean normalized = start == 0 && end == input.length();
+    for (int i = start + 1; normalized && i < end; i++) {
+      normalized = input.charAt(i) != ' ' || input.charAt(i - 1) != ' ';
+    }
+    if (normalized) {
+      return input;
+    }
+    StringBuilder builder = new StringBuilder(end - start);
+    for (int i = start; i < end; i++) {
+      char c = input.charAt(i);
+      if (c != ' ' || input.charAt(i - 1) != ' ') {
+        builder.append(c);
+      }
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Spreads the higher bits of a hash code into the lower bits used to pick a stripe.
+   *
+   * @param hash the hash code of a key.
+   * @return the spread hash code.
+   */
+  private static int spread(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+
+  /**
+   * This class represents one stripe of the cache: an access-ordered LinkedHashMap that evicts its
+   * least recently used entry once it holds more than its capacity. All access is synchronized on
+   * the stripe itself.
+   */
+  private final class Stripe extends LinkedHashMap<String,Object> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int capacity;
+
+    /**
+     * Constructs an empty Stripe holding at most capacity entries.
+     *
+     * @param capacity the largest number of entries in the stripe.
+     */
+    Stripe(int capacity) {
+      super(16, 0.75f, true);
+      this.capacity = capacity;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String,Object> eldest) {
+      if (size() > capacity) {
+        evictions.increment();
+        return true;
+      }
+      return false;
+    }
+
+  }
+
+}
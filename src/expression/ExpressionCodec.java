@@ -0,0 +1,329 @@
+/**
+ * All source code has been added into the expression package.
+ */
+
+package expression;
+
+/**
+ * Import ArrayList, Arrays, BufferUnderflowException, ByteBuffer, ByteOrder, LinkedHashMap, List,
+ * Map, and StandardCharsets packages.
+ */
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class converts an ExpressionTree to and from a compact, versioned binary encoding, so that
+ * expressions can be stored once and loaded later without being parsed again. All numbers are big
+ * endian. An encoded expression is laid out as follows:
+ *
+ * <pre>
+ *   int    MAGIC, the bytes "EXPR"
+ *   short  VERSION
+ *   int    number of strings, then for each: int byte length, UTF-8 bytes
+ *   int    number of variables, then for each: int string index of the name, int slot
+ *   int    number of instructions, then for each in postfix order:
+ *            byte  opcode, the opcodes of Program
+ *            CONST: double value as its raw 8 bytes, int string index of the spelling
+ *            VAR:   int variable index
+ *            CALL1 and CALL2: int string index of the symbol of the operator
+ * </pre>
+ *
+ * <p>The string table holds every variable name and the original spelling of every literal, so a
+ * decoded tree renders exactly like the parsed one, including spellings such as -6 versus -6.0,
+ * while its values are read from their raw bits instead of being parsed. Variables are numbered
+ * in order of first appearance and their slot is their number, so a decoded tree has the slots
+ * of the parsed one, and the decoder only accepts slots 0 to n - 1 for n variables. A tree whose
+ * nodes are shared through a SubexpressionPool is encoded and decoded as the plain tree it
+ * renders as, with the slots a plain parse of it would have instead of those of the pool.
+ *
+ * <p>Version 1 only has the four arithmetic operators, and trees that use no others are still
+ * written as version 1. Version 2 adds the other built-in operators by opcode and the operators
+ * created with Operator.unary or Operator.binary by symbol, which the decoder looks up in an
+ * OperatorRegistry since functions cannot be encoded.
+ */
+public final class ExpressionCodec {
+
+  /**
+   * The first four bytes of every encoded expression, "EXPR" in ASCII.
+   */
+  public static final int MAGIC = 0x45585052;
+
+  /**
+   * The newest version of the encoding, written by encode for trees that need it. Decode reads it
+   * and every earlier version.
+   */
+  public static final short VERSION = 2;
+
+  private ExpressionCodec() {
+  }
+
+  /**
+   * This method takes in an ExpressionTree and returns its binary encoding.
+   *
+   * @param tree the ExpressionTree to encode.
+   * @return the encoded expression.
+   * @throws IllegalArgumentException if the tree is null.
+   */
+  public static byte[] encode(ExpressionTree tree) throws IllegalArgumentException {
+    if (tree == null) {
+      throw new IllegalArgumentException("Expression is invalid.");
+    }
+    List<ExpressionNode> nodes = postfix(tree.root());
+    Map<String,Integer> variables = new LinkedHashMap<>();
+    for (ExpressionNode node : nodes) {
+      if (node instanceof VariableNode) {
+        variables.putIfAbsent(node.getTerm(), variables.size());
+      }
+    }
+    Map<String,Integer> strings = new LinkedHashMap<>();
+    for (String name : variables.keySet()) {
+      strings.putIfAbsent(name, strings.size());
+    }
+    int size = 4 + 2 + 4 + 4 + 8 * variables.size() + 4;
+    short version = 1;
+    for (ExpressionNode node : nodes) {
+      size += node instanceof ConstantNode ? 13 : node instanceof VariableNode ? 5 : 1;
+      if (node instanceof ConstantNode) {
+        strings.putIfAbsent(node.getTerm(), strings.size());
+      }
+      else if (node instanceof OperatorNode && ((OperatorNode) node).opcode() > Program.DIV) {
+        version = VERSION;
+        if (((OperatorNode) node).operator().isFunction()) {
+          strings.putIfAbsent(node.getTerm(), strings.size());
+          size += 4;
+        }
+      }
+    }
+    byte[][] encoded = new byte[strings.size()][];
+    int index = 0;
+    for (String string : strings.keySet()) {
+      encoded[index] = string.getBytes(StandardCharsets.UTF_8);
+      size += 4 + encoded[index++].length;
+    }
+
+    ByteBuffer out = ByteBuffer.allocate(size);
+    out.putInt(MAGIC).putShort(version);
+    out.putInt(encoded.length);
+    for (byte[] string : encoded) {
+      out.putInt(string.length).put(string);
+    }
+    out.putInt(variables.size());
+    for (Map.Entry<String,Integer> entry : variables.entrySet()) {
+      out.putInt(strings.get(entry.getKey())).putInt(entry.getValue());
+    }
+    out.putInt(nodes.size());
+    for (ExpressionNode node : nodes) {
+      if (node instanceof ConstantNode) {
+        out.put(Program.CONST).putDouble(((ConstantNode) node).getValue());
+        out.putInt(strings.get(node.getTerm()));
+      }
+      else if (node instanceof VariableNode) {
+        out.put(Program.VAR).putInt(variables.get(node.getTerm()));
+      }
+      else {
+        OperatorNode operator = (OperatorNode) node;
+        out.put(operator.opcode());
+        if (operator.operator().isFunction()) {
+          out.putInt(strings.get(node.getTerm()));
+        }
+      }
+    }
+    return out.array();
+  }
+
+  /**
+   * This method takes in a ByteBuffer positioned at an encoded expression, decodes the expression
+   * straight from the buffer, and advances the position of the buffer past it. The byte order of
+   * the buffer is ignored and left unchanged. Throws an IllegalArgumentException if the bytes are
+   * not a valid encoding of a supported version, or use an operator that is not built in.
+   *
+   * @param buffer the ByteBuffer holding the encoded expression.
+   * @return the decoded ExpressionTree.
+   * @throws IllegalArgumentException if the encoding is invalid or of another version.
+   */
+  public static ExpressionTree decode(ByteBuffer buffer) throws IllegalArgumentException {
+    return decode(buffer, OperatorRegistry.extended());
+  }
+
+  /**
+   * This method decodes an expression from a ByteBuffer as described above, binding the operators
+   * created with Operator.unary or Operator.binary to the operators of the same symbol and arity in
+   * the given OperatorRegistry. Throws an IllegalArgumentException if such an operator is not in
+   * the registry.
+   *
+   * @param buffer the ByteBuffer holding the encoded expression.
+   * @param registry the OperatorRegistry of the operators of the expression.
+   * @return the decoded ExpressionTree.
+   * @throws IllegalArgumentException if the encoding is invalid or of another version.
+   */
+  public static ExpressionTree decode(ByteBuffer buffer, OperatorRegistry registry)
+          throws IllegalArgumentException {
+    ByteBuffer in = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+    ExpressionTree tree;
+    try {
+      tree = read(in, registry);
+    } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+      throw new IllegalArgumentException("Encoded expression is invalid.", e);
+    }
+    buffer.position(in.position());
+    return tree;
+  }
+
+  /**
+   * This method takes in an encoded expression and returns the decoded ExpressionTree.
+   *
+   * @param bytes the encoded expression.
+   * @return the decoded ExpressionTree.
+   * @throws IllegalArgumentException if the encoding is invalid or of another version.
+   */
+  public static ExpressionTree decode(byte[] bytes) throws IllegalArgumentException {
+    return decode(ByteBuffer.wrap(bytes));
+  }
+
+  /**
+   * Reads one encoded expression from a big endian buffer.
+   *
+   * @param in the buffer positioned at the magic number.
+   * @param registry the OperatorRegistry the functions are looked up in.
+   * @return the decoded ExpressionTree.
+   * @throws IllegalArgumentException if the encoding is invalid or of another version.
+   */
+  private static ExpressionTree read(ByteBuffer in, OperatorRegistry registry)
+          throws IllegalArgumentException {
+    if (in.getInt() != MAGIC) {
+      throw new IllegalArgumentException("Encoded expression is invalid.");
+    }
+    short version = in.getShort();
+    if (version < 1 || version > VERSION) {
+      throw new IllegalArgumentException("Unsupported encoding version " + version + ".");
+    }
+    String[] strings = new String[count(in, 4)];
+    byte[] scratch = null;
+    for (int i = 0; i < strings.length; i++) {
+      int length = count(in, 1);
+      if (in.hasArray()) {
+        strings[i] = new String(in.array(), in.arrayOffset() + in.position(), length,
+                StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+      }
+      else {
+        if (scratch == null || scratch.length < length) {
+          scratch = new byte[Math.max(length, 64)];
+        }
+        in.get(scratch, 0, length);
+        strings[i] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+      }
+    }
+
+    String[] names = new String[count(in, 8)];
+    int[] slotOf = new int[names.length];
+    boolean[] taken = new boolean[names.length];
+    Map<String,Integer> slots = new LinkedHashMap<>();
+    for (int i = 0; i < names.length; i++) {
+      names[i] = strings[in.getInt()];
+      slotOf[i] = in.getInt();
+      if (slotOf[i] < 0 || slotOf[i] >= names.length || taken[slotOf[i]]
+          || slots.put(names[i], slotOf[i]) != null) {
+        throw new IllegalArgumentException("Encoded expression is invalid.");
+      }
+      taken[slotOf[i]] = true;
+    }
+
+    int instructions = count(in, 1);
+    ExpressionNode[] stack = new ExpressionNode[16];
+    int size = 0;
+    for (int pc = 0; pc < instructions; pc++) {
+      byte op = in.get();
+      ExpressionNode node;
+      if (op == Program.CONST) {
+        double value = in.getDouble();
+        node = new ConstantNode(strings[in.getInt()], value);
+      }
+      else if (op == Program.VAR) {
+        int variable = in.getInt();
+        node = new VariableNode(names[variable], slotOf[variable]);
+      }
+      else {
+        Operator operator = op <= Program.DIV || version > 1 ? Operator.builtIn(op) : null;
+        if (version > 1 && (op == Program.CALL1 || op == Program.CALL2)) {
+          String symbol = strings[in.getInt()];
+          operator = registry.get(symbol);
+          if (operator == null || operator.opcode() != op) {
+            throw new IllegalArgumentException("Operator " + symbol + " is not registered.");
+          }
+        }
+        if (operator == null || size < operator.getArity()) {
+          throw new IllegalArgumentException("Encoded expression is invalid.");
+        }
+        if (operator.getArity() == 1) {
+          node = new OperatorNode(operator, stack[--size]);
+        }
+        else {
+          ExpressionNode right = stack[--size];
+          ExpressionNode left = stack[--size];
+          node = op <= Program.DIV
+                  ? new OperatorNode(operator.getSymbol(), left, right)
+                  : new OperatorNode(operator, left, right);
+        }
+      }
+      if (size == stack.length) {
+        stack = Arrays.copyOf(stack, size * 2);
+      }
+      stack[size++] = node;
+    }
+    if (size != 1) {
+      throw new IllegalArgumentException("Encoded expression is invalid.");
+    }
+    return new ExpressionTree(stack[0], slots);
+  }
+
+  /**
+   * Reads a count of entries and checks that the buffer can hold that many entries of at least
+   * the given size, so that a corrupt count cannot cause a huge allocation.
+   *
+   * @param in the buffer positioned at the count.
+   * @param entrySize the smallest number of bytes of one entry.
+   * @return the count.
+   * @throws IllegalArgumentException if the count is negative or too large.
+   */
+  private static int count(ByteBuffer in, int entrySize) throws IllegalArgumentException {
+    int count = in.getInt();
+    if (count < 0 || count > in.remaining() / entrySize) {
+      throw new IllegalArgumentException("Encoded expression is invalid.");
+    }
+    return count;
+  }
+
+  /**
+   * Returns the nodes of the tree under the given root in postfix order, visiting a shared node
+   * once for every parent it has.
+   *
+   * @param root the root ExpressionNode of the tree.
+   * @return the nodes in postfix order.
+   */
+  private static List<ExpressionNode> postfix(ExpressionNode root) {
+    List<ExpressionNode> reversed = new ArrayList<>();
+    List<ExpressionNode> pending = new ArrayList<>();
+    pending.add(root);
+    while (!pending.isEmpty()) {
+      ExpressionNode node = pending.remove(pending.size() - 1);
+      reversed.add(node);
+      for (int i = 0; i < node.arity(); i++) {
+        pending.add(node.getChild(i));
+      }
+    }
+    List<ExpressionNode> nodes = new ArrayList<>(reversed.size());
+    for (int i = reversed.size() - 1; i >= 0; i--) {
+      nodes.add(reversed.get(i));
+    }
+    return nodes;
+  }
+
+}
@@ -0,0 +1,210 @@
+/**
+ * All source code has been added into the expression package.
+ */
+
+package expression;
+
+/**
+ * Import BufferUnderflowException, ByteBuffer, ByteOrder, FileChannel, Files, IOException, List,
+ * Path, and StandardOpenOption packages.
+ */
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * This class represents a library of encoded expressions that are decoded on demand, straight from
+ * a ByteBuffer or a memory-mapped file. Opening a library only reads its header and offset table,
+ * so a library of tens of thousands of formulas is ready in the time it takes to map the file, and
+ * each expression is decoded by get without parsing any text. All numbers are big endian, and a
+ * library is laid out as follows:
+ *
+ * <pre>
+ *   int    MAGIC, the bytes "EXPL"
+ *   short  VERSION
+ *   int    number of expressions n
+ *   int    n + 1 offsets from the start of the library, the last one being its end
+ *   the expressions, each encoded by ExpressionCodec
+ * </pre>
+ *
+ * <p>An ExpressionLibrary never modifies its buffer and can be used from several threads at once.
+ */
+public final class ExpressionLibrary {
+
+  /**
+   * The first four bytes of every library, "EXPL" in ASCII.
+   */
+  public static final int MAGIC = 0x4558504C;
+
+  /**
+   * The version of the layout written by encode and the only version a library is read with.
+   */
+  public static final short VERSION = 1;
+
+  private static final int HEADER = 4 + 2 + 4;
+
+  private final ByteBuffer buffer;
+  private final int size;
+
+  /**
+   * Constructs an ExpressionLibrary over a big endian buffer whose header has been checked.
+   *
+   * @param buffer the library, from index 0 to its limit.
+   * @param size the number of expressions.
+   */
+  private ExpressionLibrary(ByteBuffer buffer, int size) {
+    this.buffer = buffer;
+    this.size = size;
+  }
+
+  /**
+   * This method takes in a list of ExpressionTrees and returns them encoded as a library, in the
+   * same order.
+   *
+   * @param trees the ExpressionTrees to encode.
+   * @return the encoded library.
+   * @throws IllegalArgumentException if a tree is null.
+   */
+  public static byte[] encode(List<ExpressionTree> trees) throws IllegalArgumentException {
+    byte[][] encoded = new byte[trees.size()][];
+    long length = HEADER + 4L * (encoded.length + 1);
+    for (int i = 0; i < encoded.length; i++) {
+      encoded[i] = ExpressionCodec.encode(trees.get(i));
+      length += encoded[i].length;
+    }
+    if (length > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Library is too large.");
+    }
+    ByteBuffer out = ByteBuffer.allocate((int) length);
+    out.putInt(MAGIC).putShort(VERSION).putInt(encoded.length);
+    int offset = HEADER + 4 * (encoded.length + 1);
+    for (byte[] expression : encoded) {
+      out.putInt(offset);
+      offset += expression.length;
+    }
+    out.putInt(offset);
+    for (byte[] expression : encoded) {
+      out.put(expression);
+    }
+    return out.array();
+  }
+
+  /**
+   * This method writes the given ExpressionTrees as a library to a file, replacing any existing
+   * content.
+   *
+   * @param trees the ExpressionTrees to write.
+   * @param file the Path of the file.
+   * @throws IOException if writing fails.
+   * @throws IllegalArgumentException if a tree is null.
+   */
+  public static void write(List<ExpressionTree> trees, Path file)
+          throws IOException, IllegalArgumentException {
+    Files.write(file, encode(trees));
+  }
+
+  /**
+   * This method memory-maps the library in the given file and returns it without decoding any
+   * expression. The mapping stays valid after the file is closed, for as long as the library is
+   * reachable.
+   *
+   * @param file the Path of the library file.
+   * @return the ExpressionLibrary of the file.
+   * @throws IOException if the file cannot be mapped.
+   * @throws IllegalArgumentException if the file is not a valid library.
+   */
+  public static ExpressionLibrary open(Path file) throws IOException, IllegalArgumentException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      return wrap(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  /**
+   * This method takes in a ByteBuffer holding a library from its position to its limit and
+   * returns the library without copying or decoding it. Later changes to the position, limit, or
+   * byte order of the buffer do not affect the library.
+   *
+   * @param buffer the ByteBuffer holding the library.
+   * @return the ExpressionLibrary of the buffer.
+   * @throws IllegalArgumentException if the buffer is not a valid library.
+   */
+  public static ExpressionLibrary wrap(ByteBuffer buffer) throws IllegalArgumentException {
+    ByteBuffer library = buffer.slice().order(ByteOrder.BIG_ENDIAN);
+    try {
+      if (library.getInt(0) != MAGIC) {
+        throw new IllegalArgumentException("Library is invalid.");
+      }
+      short version = library.getShort(4);
+      if (version != VERSION) {
+        throw new IllegalArgumentException("Unsupported library version " + version + ".");
+      }
+      int size = library.getInt(6);
+      if (size < 0 || size > (library.limit() - HEADER) / 4 - 1) {
+        throw new IllegalArgumentException("Library is invalid.");
+      }
+      int previous = HEADER + 4 * (size + 1);
+      for (int i = 0; i <= size; i++) {
+        int offset = library.getInt(HEADER + 4 * i);
+        if (offset < previous || offset > library.limit()) {
+          throw new IllegalArgumentException("Library is invalid.");
+        }
+        previous = offset;
+      }
+      return new ExpressionLibrary(library, size);
+    } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+      throw new IllegalArgumentException("Library is invalid.", e);
+    }
+  }
+
+  /**
+   * This method takes in no arguments and returns the number of expressions in the library.
+   *
+   * @return the number of expressions.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * This method takes in the index of an expression and decodes it from the library. Every call
+   * decodes a new ExpressionTree, so callers that use an expression repeatedly should keep it.
+   *
+   * @param index the index of the expression.
+   * @return the decoded ExpressionTree.
+   * @throws IndexOutOfBoundsException if there is no expression at the index.
+   * @throws IllegalArgumentException if the expression is not validly encoded.
+   */
+  public ExpressionTree get(int index) throws IndexOutOfBoundsException, IllegalArgumentException {
+    return get(index, OperatorRegistry.extended());
+  }
+
+  /**
+   * This method takes in the index of an expression and decodes it from the library, binding its
+   * operators created with Operator.unary or Operator.binary to those of the given registry.
+   *
+   * @param index the index of the expression.
+   * @param registry the OperatorRegistry of the operators of the expression.
+   * @return the decoded ExpressionTree.
+   * @throws IndexOutOfBoundsException if there is no expression at the index.
+   * @throws IllegalArgumentException if the expression is not validly encoded or uses an operator
+   *         that is not in the registry.
+   */
+  public ExpressionTree get(int index, OperatorRegistry registry)
+          throws IndexOutOfBoundsException, IllegalArgumentException {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index " + index + " is out of bounds.");
+    }
+    int start = buffer.getInt(HEADER + 4 * index);
+    int end = buffer.getInt(HEADER + 4 * (index + 1));
+    ByteBuffer expression = buffer.duplicate();
+    expression.limit(end).position(start);
+    return ExpressionCodec.decode(expression, registry);
+  }
+
+}
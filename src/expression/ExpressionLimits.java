@@ -0,0 +1,381 @@
+/**
+ * All source code has been added into the expression package.
+ */
+
+package expression;
+
+/**
+ * Import Duration and Limit packages.
+ */
+import expression.LimitExceededException.Limit;
+import java.time.Duration;
+
+/**
+ * This class represents the limits on the cost of parsing and evaluating one expression: the
+ * largest number of tokens, the largest depth, the largest number of distinct variables, the
+ * largest number of nodes one evaluation may visit, and the time one parse or one evaluation may
+ * take. An ExpressionTree parsed with limits checks the first three while it scans its input and
+ * stops at the first term over budget, and checks the last two on every evaluation as it walks the
+ * tree, so a hostile formula fails fast with a LimitExceededException instead of pinning a core.
+ *
+ * <p>ExpressionLimits are immutable: every with method returns a copy with one limit changed.
+ *
+ * <pre>
+ *   ExpressionLimits limits = ExpressionLimits.UNLIMITED
+ *       .withMaxTokens(10_000).withMaxDepth(200).withMaxVariables(64)
+ *       .withTimeout(Duration.ofMillis(5));
+ *   ExpressionTree tree = new ExpressionTree(input, limits);
+ * </pre>
+ */
+public final class ExpressionLimits {
+
+  /**
+   * Limits that accept every expression.
+   */
+  public static final ExpressionLimits UNLIMITED = new ExpressionLimits(Long.MAX_VALUE,
+          Integer.MAX_VALUE, Integer.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE);
+
+  /**
+   * Number of tokens or steps between two reads of the clock, minus one.
+   */
+  private static final int CLOCK_MASK = 1023;
+
+  private final long maxTokens;
+  private final int maxDepth;
+  private final int maxVariables;
+  private final long maxSteps;
+  private final long timeoutNanos;
+
+  /**
+   * Constructs the ExpressionLimits with the given limits.
+   *
+   * @param maxTokens the largest number of tokens.
+   * @param maxDepth the largest depth.
+   * @param maxVariables the largest number of distinct variables.
+   * @param maxSteps the largest number of nodes one evaluation may visit.
+   * @param timeoutNanos the nanoseconds one parse or evaluation may take.
+   */
+  private ExpressionLimits(long maxTokens, int maxDepth, int maxVariables, long maxSteps,
+                           long timeoutNanos) {
+    this.maxTokens = maxTokens;
+    this.maxDepth = maxDepth;
+    this.maxVariables = maxVariables;
+    this.maxSteps = maxSteps;
+    this.timeoutNanos = timeoutNanos;
+  }
+
+  /**
+   * This method takes in the largest number of tokens an expression may have and returns a copy of
+   * these limits with that token limit.
+   *
+   * @param maxTokens the largest number of operators and operands.
+   * @return the new ExpressionLimits.
+   * @throws IllegalArgumentException if the limit is not positive.
+   */
+  public ExpressionLimits withMaxTokens(long maxTokens) throws IllegalArgumentException {
+    check(maxTokens);
+    return new ExpressionLimits(maxTokens, maxDepth, maxVariables, maxSteps, timeoutNanos);
+  }
+
+  /**
+   * This method takes in the largest depth an expression tree may have, where a lone operand has
+   * depth 1, and returns a copy of these limits with that depth limit.
+   *
+   * @param maxDepth the largest depth.
+   * @return the new ExpressionLimits.
+   * @throws IllegalArgumentException if the limit is not positive.
+   */
+  public ExpressionLimits withMaxDepth(int maxDepth) throws IllegalArgumentException {
+    check(maxDepth);
+    return new ExpressionLimits(maxTokens, maxDepth, maxVariables, maxSteps, timeoutNanos);
+  }
+
+  /**
+   * This method takes in the largest number of distinct variables an expression may have and
+   * returns a copy of these limits with that variable limit.
+   *
+   * @param maxVariables the largest number of distinct variables.
+   * @return the new ExpressionLimits.
+   * @throws IllegalArgumentException if the limit is negative.
+   */
+  public ExpressionLimits withMaxVariables(int maxVariables) throws IllegalArgumentException {
+    if (maxVariables < 0) {
+      throw new IllegalArgumentException("Limits must not be negative.");
+    }
+    return new ExpressionLimits(maxTokens, maxDepth, maxVariables, maxSteps, timeoutNanos);
+  }
+
+  /**
+   * This method takes in the largest number of nodes one evaluation may visit and returns a copy
+   * of these limits with that step budget.
+   *
+   * @param maxSteps the step budget of one evaluation.
+   * @return the new ExpressionLimits.
+   * @throws IllegalArgumentException if the limit is not positive.
+   */
+  public ExpressionLimits withMaxSteps(long maxSteps) throws IllegalArgumentException {
+    check(maxSteps);
+    return new ExpressionLimits(maxTokens, maxDepth, maxVariables, maxSteps, timeoutNanos);
+  }
+
+  /**
+   * This method takes in the time one parse or one evaluation may take and returns a copy of these
+   * limits with that deadline. The clock is read once every 1024 tokens or steps, so a call may
+   * overrun the timeout by the time those take.
+   *
+   * @param timeout the time one call may take.
+   * @return the new ExpressionLimits.
+   * @throws IllegalArgumentException if the timeout is null or not positive.
+   */
+  public ExpressionLimits withTimeout(Duration timeout) throws IllegalArgumentException {
+    if (timeout == null) {
+      throw new IllegalArgumentException("Limits must be positive.");
+    }
+    long nanos;
+    try {
+      nanos = timeout.toNanos();
+    } catch (ArithmeticException e) {
+      nanos = Long.MAX_VALUE;
+    }
+    check(nanos);
+    return new ExpressionLimits(maxTokens, maxDepth, maxVariables, maxSteps, nanos);
+  }
+
+  /**
+   * This method takes in no arguments and returns the largest number of tokens of an expression.
+   *
+   * @return the token limit.
+   */
+  public long getMaxTokens() {
+    return maxTokens;
+  }
+
+  /**
+   * This method takes in no arguments and returns the largest depth of an expression.
+   *
+   * @return the depth limit.
+   */
+  public int getMaxDepth() {
+    return maxDepth;
+  }
+
+  /**
+   * This method takes in no arguments and returns the largest number of distinct variables of an
+   * expression.
+   *
+   * @return the variable limit.
+   */
+  public int getMaxVariables() {
+    return maxVariables;
+  }
+
+  /**
+   * This method takes in no arguments and returns the largest number of nodes one evaluation may
+   * visit.
+   *
+   * @return the step budget.
+   */
+  public long getMaxSteps() {
+    return maxSteps;
+  }
+
+  /**
+   * This method takes in no arguments and returns the time one parse or evaluation may take, or
+   * null if it is not limited.
+   *
+   * @return the timeout, or null.
+   */
+  public Duration getTimeout() {
+    return timeoutNanos == Long.MAX_VALUE ? null : Duration.ofNanos(timeoutNanos);
+  }
+
+  /**
+   * Returns a new Budget for one parse or one evaluation under these limits, whose deadline starts
+   * now.
+   *
+   * @return the Budget.
+   */
+  Budget budget() {
+    return new Budget(this);
+  }
+
+  /**
+   * Charges the steps of evaluating an expression of the given number of nodes for the given
+   * number of rows to a new Budget, for evaluations whose whole cost is known before they start,
+   * like those of a batch or of a compiled program.
+   *
+   * @param nodes the number of nodes of the expression.
+   * @param rows the number of evaluations.
+   * @throws LimitExceededException if the evaluations together exceed the step budget.
+   */
+  void charge(long nodes, long rows) throws LimitExceededException {
+    if (rows > 0) {
+      budget().steps(nodes > maxSteps / rows ? Long.MAX_VALUE : nodes * rows);
+    }
+  }
+
+  /**
+   * Throws a LimitExceededException if an expression that has already been parsed exceeds the
+   * token, depth, or variable limit, with the same message its parse under these limits would
+   * have thrown.
+   *
+   * @param tree the ExpressionTree to check.
+   * @throws LimitExceededException if the tree exceeds a limit.
+   */
+  void admit(ExpressionTree tree) throws LimitExceededException {
+    if (tree.size() > maxTokens) {
+      throw new LimitExceededException(Limit.TOKENS, "Expression exceeds the limit of "
+              + maxTokens + " tokens.");
+    }
+    Budget budget = budget();
+    budget.depth(tree.depth());
+    int variables = 0;
+    for (String name : tree.getVariables()) {
+      if (name != null) {
+        variables++;
+      }
+    }
+    budget.variables(variables);
+  }
+
+  /**
+   * Throws an IllegalArgumentException unless the given limit is positive.
+   *
+   * @param limit the limit.
+   * @throws IllegalArgumentException if the limit is not positive.
+   */
+  private static void check(long limit) throws IllegalArgumentException {
+    if (limit <= 0) {
+      throw new IllegalArgumentException("Limits must be positive.");
+    }
+  }
+
+  /**
+   * This class counts the tokens or steps spent by one parse or evaluation and throws a
+   * LimitExceededException once they are over the limits. It is only used by the thread running
+   * that call.
+   */
+  static final class Budget {
+
+    private final ExpressionLimits limits;
+    private final long start;
+    private long tokens;
+    private long steps;
+
+    /**
+     * Constructs a Budget of the given limits whose deadline starts now.
+     *
+     * @param limits the ExpressionLimits of the call.
+     */
+    Budget(ExpressionLimits limits) {
+      this.limits = limits;
+      start = limits.timeoutNanos == Long.MAX_VALUE ? 0 : System.nanoTime();
+    }
+
+    /**
+     * Spends one token of the parse.
+     *
+     * @throws LimitExceededException if the token limit is exceeded or the time is up.
+     */
+    void token() throws LimitExceededException {
+      if (++tokens > limits.maxTokens) {
+        throw new LimitExceededException(Limit.TOKENS, "Expression exceeds the limit of "
+                + limits.maxTokens + " tokens.");
+      }
+      if ((tokens & CLOCK_MASK) == 0) {
+        clock();
+      }
+    }
+
+    /**
+     * Returns the number of tokens spent so far.
+     *
+     * @return the number of tokens.
+     */
+    long tokens() {
+      return tokens;
+    }
+
+    /**
+     * Grants the caller a number of evaluation steps it may take before asking for more, which is
+     * at most 1024 so that the clock is read between two grants, though not before the first.
+     * Counting the granted steps in a local variable keeps the cost of the step budget in a walk to
+     * one decrement per node.
+     *
+     * @return the number of steps granted, at least 1.
+     * @throws LimitExceededException if the step budget is spent or the time is up.
+     */
+    long grant() throws LimitExceededException {
+      if (steps >= limits.maxSteps) {
+        throw new LimitExceededException(Limit.STEPS, "Expression exceeds the limit of "
+                + limits.maxSteps + " steps.");
+      }
+      if (steps > 0) {
+        clock();
+      }
+      long granted = Math.min(CLOCK_MASK + 1, limits.maxSteps - steps);
+      steps += granted;
+      return granted;
+    }
+
+    /**
+     * Spends the given number of evaluation steps.
+     *
+     * @param count the number of nodes visited.
+     * @throws LimitExceededException if the step budget is exceeded or the time is up.
+     */
+    void steps(long count) throws LimitExceededException {
+      long before = steps;
+      steps += count;
+      if (steps > limits.maxSteps || steps < before) {
+        throw new LimitExceededException(Limit.STEPS, "Expression exceeds the limit of "
+                + limits.maxSteps + " steps.");
+      }
+      if (((before ^ steps) & ~CLOCK_MASK) != 0) {
+        clock();
+      }
+    }
+
+    /**
+     * Throws a LimitExceededException if the given depth is over the depth limit.
+     *
+     * @param depth the depth of a node being built.
+     * @throws LimitExceededException if the depth limit is exceeded.
+     */
+    void depth(int depth) throws LimitExceededException {
+      if (depth > limits.maxDepth) {
+        throw new LimitExceededException(Limit.DEPTH, "Expression exceeds the limit of "
+                + limits.maxDepth + " levels.");
+      }
+    }
+
+    /**
+     * Throws a LimitExceededException if the given number of distinct variables is over the
+     * variable limit.
+     *
+     * @param variables the number of distinct variables seen so far.
+     * @throws LimitExceededException if the variable limit is exceeded.
+     */
+    void variables(int variables) throws LimitExceededException {
+      if (variables > limits.maxVariables) {
+        throw new LimitExceededException(Limit.VARIABLES, "Expression exceeds the limit of "
+                + limits.maxVariables + " variables.");
+      }
+    }
+
+    /**
+     * Throws a LimitExceededException if the timeout has passed.
+     *
+     * @throws LimitExceededException if the time is up.
+     */
+    void clock() throws LimitExceededException {
+      if (limits.timeoutNanos != Long.MAX_VALUE
+              && System.nanoTime() - start > limits.timeoutNanos) {
+        throw new LimitExceededException(Limit.TIME, "Expression exceeds the time limit of "
+                + limits.timeoutNanos + " ns.");
+      }
+    }
+
+  }
+
+}
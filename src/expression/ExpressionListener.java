@@ -0,0 +1,59 @@
+/**
+ * All source code has been added into the expression package.
+ */
+
+package expression;
+
+/**
+ * This interface is the service provider interface for observing instrumented expressions. A
+ * listener is added to an Instrumentation directly or found on the class path by
+ * Instrumentation.loadListeners, in which case it is named in a
+ * META-INF/services/expression.ExpressionListener file. Every method does nothing by default, so a
+ * listener only overrides the events it needs.
+ *
+ * <p>Listeners are called on the thread that parsed or evaluated the expression, after the work is
+ * done, so they should return quickly and must be thread-safe. An exception thrown by a listener is
+ * passed on to the caller of the expression.
+ */
+public interface ExpressionListener {
+
+  /**
+   * This method is called after an expression was parsed successfully.
+   *
+   * @param name the name of the expression.
+   * @param nanos the time parsing took in nanoseconds.
+   */
+  default void onParse(String name, long nanos) {
+  }
+
+  /**
+   * This method is called after an expression was evaluated successfully for one set of
+   * variables.
+   *
+   * @param name the name of the expression.
+   * @param nanos the time evaluation took in nanoseconds.
+   */
+  default void onEvaluate(String name, long nanos) {
+  }
+
+  /**
+   * This method is called after an expression was evaluated successfully for a batch of rows.
+   *
+   * @param name the name of the expression.
+   * @param rows the number of rows evaluated.
+   * @param nanos the time the whole batch took in nanoseconds.
+   */
+  default void onBatch(String name, int rows, long nanos) {
+  }
+
+  /**
+   * This method is called after parsing or evaluating an expression failed, before the failure is
+   * thrown to the caller.
+   *
+   * @param name the name of the expression.
+   * @param failure the exception that is about to be thrown.
+   */
+  default void onFailure(String name, RuntimeException failure) {
+  }
+
+}
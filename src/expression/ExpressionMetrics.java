@@ -0,0 +1,207 @@
+/**
+ * All source code has been added into the expression package.
+ */
+
+package expression;
+
+/**
+ * Import LongAdder package.
+ */
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class holds the metrics an Instrumentation keeps for one expression name: counters of
+ * parses, evaluations, and failures, histograms of the latency of parses, of single evaluations,
+ * and of batch evaluations, and gauges of the
+ * node count and depth of the expression. Every expression parsed or instrumented under the same
+ * name shares one ExpressionMetrics. All counters are updated without locks and can be read at any
+ * time, and the class is the JMX MBean an Instrumentation registers for the name.
+ */
+public final class ExpressionMetrics implements ExpressionMetricsMBean {
+
+  private final String name;
+  private final LongAdder parses = new LongAdder();
+  private final LongAdder evaluations = new LongAdder();
+  private final LongAdder failures = new LongAdder();
+  private final LatencyHistogram parseLatency = new LatencyHistogram();
+  private final LatencyHistogram evaluationLatency = new LatencyHistogram();
+  private final LatencyHistogram batchLatency = new LatencyHistogram();
+
+  /**
+   * Gauges set when an expression is parsed or instrumented, never while it is evaluated.
+   */
+  private volatile long nodeCount = -1;
+  private volatile int depth = -1;
+
+  /**
+   * Constructs the ExpressionMetrics of the given name with every counter at zero and unknown
+   * gauges.
+   *
+   * @param name the name of the expression.
+   */
+  ExpressionMetrics(String name) {
+    this.name = name;
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public long getParseCount() {
+    return parses.sum();
+  }
+
+  @Override
+  public long getEvaluationCount() {
+    return evaluations.sum();
+  }
+
+  @Override
+  public long getFailureCount() {
+    return failures.sum();
+  }
+
+  @Override
+  public long getNodeCount() {
+    return nodeCount;
+  }
+
+  @Override
+  public int getDepth() {
+    return depth;
+  }
+
+  @Override
+  public double getParseLatencyMean() {
+    return parseLatency.getMean();
+  }
+
+  @Override
+  public double getEvaluationLatencyMean() {
+    return evaluationLatency.getMean();
+  }
+
+  @Override
+  public long getEvaluationLatencyP50() {
+    return evaluationLatency.getValueAtPercentile(50.0);
+  }
+
+  @Override
+  public long getEvaluationLatencyP99() {
+    return evaluationLatency.getValueAtPercentile(99.0);
+  }
+
+  @Override
+  public long getEvaluationLatencyMax() {
+    return evaluationLatency.getMax();
+  }
+
+  @Override
+  public long getBatchCount() {
+    return batchLatency.getCount();
+  }
+
+  @Override
+  public double getBatchLatencyMean() {
+    return batchLatency.getMean();
+  }
+
+  @Override
+  public long getBatchLatencyP99() {
+    return batchLatency.getValueAtPercentile(99.0);
+  }
+
+  /**
+   * This method takes in no arguments and returns the histogram of parse latencies.
+   *
+   * @return the parse LatencyHistogram.
+   */
+  public LatencyHistogram getParseLatency() {
+    return parseLatency;
+  }
+
+  /**
+   * This method takes in no arguments and returns the histogram of the latencies of single
+   * evaluations. Batch evaluations are recorded in getBatchLatency instead, so that they do not
+   * skew its percentiles.
+   *
+   * @return the evaluation LatencyHistogram.
+   */
+  public LatencyHistogram getEvaluationLatency() {
+    return evaluationLatency;
+  }
+
+  /**
+   * This method takes in no arguments and returns the histogram of the latencies of batch
+   * evaluations, with one value per call however many rows it evaluated.
+   *
+   * @return the batch LatencyHistogram.
+   */
+  public LatencyHistogram getBatchLatency() {
+    return batchLatency;
+  }
+
+  /**
+   * Records a successful parse.
+   *
+   * @param nanos the time parsing took.
+   */
+  void recordParse(long nanos) {
+    parses.increment();
+    parseLatency.record(nanos);
+  }
+
+  /**
+   * Records a successful single evaluation.
+   *
+   * @param nanos the time the evaluation took.
+   */
+  void recordEvaluation(long nanos) {
+    evaluations.increment();
+    evaluationLatency.record(nanos);
+  }
+
+  /**
+   * Records a successful batch evaluation of the given number of rows.
+   *
+   * @param rows the number of evaluations the call did.
+   * @param nanos the time the call took.
+   */
+  void recordBatch(int rows, long nanos) {
+    evaluations.add(rows);
+    batchLatency.record(nanos);
+  }
+
+  /**
+   * Records a failed parse or evaluation.
+   */
+  void recordFailure() {
+    failures.increment();
+  }
+
+  /**
+   * Sets the node count and depth gauges from the given expression, or leaves them unknown if its
+   * shape cannot be determined.
+   *
+   * @param expression the expression the metrics are kept for.
+   */
+  void measure(Expression expression) {
+    ExpressionTree tree = null;
+    if (expression instanceof ExpressionTree) {
+      tree = (ExpressionTree) expression;
+    }
+    else if (expression instanceof CompiledExpression) {
+      tree = ((CompiledExpression) expression).source();
+    }
+    if (tree != null) {
+      nodeCount = tree.size();
+      depth = tree.depth();
+    }
+    else if (expression instanceof CompactExpression) {
+      nodeCount = ((CompactExpression) expression).size();
+    }
+  }
+
+}
@@ -0,0 +1,117 @@
+/**
+ * All source code has been added into the expression package.
+ */
+
+package expression;
+
+/**
+ * This interface is the JMX management interface of ExpressionMetrics. Every attribute is read
+ * only, and latencies are in nanoseconds.
+ */
+public interface ExpressionMetricsMBean {
+
+  /**
+   * This method takes in no arguments and returns the name of the expression.
+   *
+   * @return the name the metrics are kept under.
+   */
+  String getName();
+
+  /**
+   * This method takes in no arguments and returns the number of successful parses.
+   *
+   * @return the number of parses.
+   */
+  long getParseCount();
+
+  /**
+   * This method takes in no arguments and returns the number of successful evaluations, counting
+   * every row of a batch.
+   *
+   * @return the number of evaluations.
+   */
+  long getEvaluationCount();
+
+  /**
+   * This method takes in no arguments and returns the number of parses and evaluations that threw
+   * an exception.
+   *
+   * @return the number of failures.
+   */
+  long getFailureCount();
+
+  /**
+   * This method takes in no arguments and returns the number of nodes of the expression, or -1 if
+   * it is not known.
+   *
+   * @return the node count.
+   */
+  long getNodeCount();
+
+  /**
+   * This method takes in no arguments and returns the depth of the expression, or -1 if it is not
+   * known.
+   *
+   * @return the depth.
+   */
+  int getDepth();
+
+  /**
+   * This method takes in no arguments and returns the mean parse latency.
+   *
+   * @return the mean parse latency in nanoseconds.
+   */
+  double getParseLatencyMean();
+
+  /**
+   * This method takes in no arguments and returns the mean latency of single evaluations.
+   *
+   * @return the mean evaluation latency in nanoseconds.
+   */
+  double getEvaluationLatencyMean();
+
+  /**
+   * This method takes in no arguments and returns the median latency of single evaluations.
+   *
+   * @return the 50th percentile of the evaluation latency in nanoseconds.
+   */
+  long getEvaluationLatencyP50();
+
+  /**
+   * This method takes in no arguments and returns the 99th percentile of the latency of single
+   * evaluations.
+   *
+   * @return the 99th percentile of the evaluation latency in nanoseconds.
+   */
+  long getEvaluationLatencyP99();
+
+  /**
+   * This method takes in no arguments and returns the largest latency of a single evaluation.
+   *
+   * @return the maximum evaluation latency in nanoseconds.
+   */
+  long getEvaluationLatencyMax();
+
+  /**
+   * This method takes in no arguments and returns the number of successful batch evaluations.
+   *
+   * @return the number of batches.
+   */
+  long getBatchCount();
+
+  /**
+   * This method takes in no arguments and returns the mean latency of batch evaluations.
+   *
+   * @return the mean batch latency in nanoseconds.
+   */
+  double getBatchLatencyMean();
+
+  /**
+   * This method takes in no arguments and returns the 99th percentile of the latency of batch
+   * evaluations.
+   *
+   * @return the 99th percentile of the batch latency in nanoseconds.
+   */
+  long getBatchLatencyP99();
+
+}
@@ -14,10 +14,36 @@ import java.util.Map;
  * ExpressionNodes are represented by the ExpressionTree class that is being implemented by the
  * Expression interface. This interface is implemented by the AbstractExpressionNode that is
  * extended into its subclasses OperatorNode and OperandNode. It should contain these methods:
- * getTerm, addTerm, infix, evaluate, and schemeExpression.
+ * getTerm, getChild, arity, addTerm, infix, evaluate, and schemeExpression.
  */
 public interface ExpressionNode {
 
+  /**
+   * Method that takes in no arguments as parameters and returns the term of this ExpressionNode,
+   * which is the operator for an OperatorNode and the literal or variable name for an OperandNode.
+   *
+   * @return the term of this ExpressionNode as a String data type.
+   */
+  String getTerm();
+
+  /**
+   * Method that takes in no arguments as parameters and returns the number of children of this
+   * ExpressionNode. OperandNodes have no children and OperatorNodes have one per operand.
+   *
+   * @return the number of children of this ExpressionNode as an int data type.
+   */
+  int arity();
+
+  /**
+   * Method that takes in the index of a child and returns that child of this ExpressionNode. Throws
+   * an IndexOutOfBoundsException if the index is not between 0 and arity() - 1.
+   *
+   * @param index the position of the child, starting from the leftmost operand at 0.
+   * @return the child ExpressionNode at the given index.
+   * @throws IndexOutOfBoundsException if the node has no child at the given index.
+   */
+  ExpressionNode getChild(int index);
+
   ExpressionNode addTerm(String parent, ExpressionNode child);
 
   /**
@@ -39,6 +65,16 @@ public interface ExpressionNode {
    */
   double evaluate(Map<String,Double> variables);
 
+  /**
+   * Method that takes in the variable values indexed by slot and returns the result of the
+   * evaluation of this ExpressionNode as a double data type. The slots are the ones assigned by the
+   * ExpressionTree that built this node.
+   *
+   * @param slots the variable values indexed by slot.
+   * @return the evaluation of this ExpressionNode as a double data type.
+   */
+  double evaluate(double[] slots);
+
   /**
    * Method that takes in no arguments as parameters and returns the correctly
    * formatted string in scheme form of the term and its children.
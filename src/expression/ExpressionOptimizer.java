@@ -0,0 +1,269 @@
+/**
+ * All source code has been added into the expression package.
+ */
+
+package expression;
+
+/**
+ * Import Arrays, IdentityHashMap, LinkedHashMap, and Map packages.
+ */
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class rewrites an ExpressionTree into a simpler one before evaluation. Operators whose
+ * operands are all literals are folded into a single literal, computed with the same double
+ * operation the evaluator would use, and the following identities are removed because they hold
+ * bit for bit for every double, including NaN, the infinities, and negative zero:
+ *
+ * <ul>
+ *   <li>x * 1 and 1 * x become x;</li>
+ *   <li>x / 1 becomes x;</li>
+ *   <li>x - 0 becomes x;</li>
+ *   <li>x + -0.0 and -0.0 + x become x;</li>
+ *   <li>x 1 ^ becomes x, as Math.pow defines;</li>
+ *   <li>x neg neg becomes x.</li>
+ * </ul>
+ *
+ * <p>Operators created with Operator.unary or Operator.binary are folded like the built-in ones,
+ * which is why their functions must be pure.
+ *
+ * <p>In fast-math mode the optimizer also applies rewrites that are only true for ordinary finite
+ * values: x + 0 and 0 + x become x (wrong for x = -0.0), x * 0 and 0 * x become 0 (wrong for NaN
+ * and the infinities), x - x becomes 0 and x / x becomes 1 for the same variable x (wrong for NaN,
+ * the infinities and, for x / x, zero). A fast-math tree may also no longer need the value of a
+ * variable that was multiplied by zero.
+ *
+ * <p>The original tree is never changed, so its infix and scheme forms stay the same. The returned
+ * tree keeps the slots of the original, so slot arrays and batch columns built for one can be
+ * used with the other, and renders folded literals with Double.toString.
+ */
+public final class ExpressionOptimizer {
+
+  private final boolean fastMath;
+
+  /**
+   * Constructs an ExpressionOptimizer that only applies rewrites preserving every result exactly.
+   */
+  public ExpressionOptimizer() {
+    this(false);
+  }
+
+  /**
+   * Constructs an ExpressionOptimizer that additionally applies the fast-math rewrites if fastMath
+   * is true.
+   *
+   * @param fastMath true to also apply rewrites that are not exact for every double.
+   */
+  public ExpressionOptimizer(boolean fastMath) {
+    this.fastMath = fastMath;
+  }
+
+  /**
+   * This method takes in no arguments and returns whether this optimizer applies the fast-math
+   * rewrites.
+   *
+   * @return true if fast-math rewrites are applied.
+   */
+  public boolean isFastMath() {
+    return fastMath;
+  }
+
+  /**
+   * This method takes in an ExpressionTree and returns a new ExpressionTree with its constant
+   * subtrees folded and its identities removed. Subtrees that cannot be simplified are shared with
+   * the original tree, and a subtree shared by several parents is simplified only once.
+   *
+   * @param tree the ExpressionTree to optimize.
+   * @return the optimized ExpressionTree.
+   */
+  public ExpressionTree optimize(ExpressionTree tree) {
+    Map<String,Integer> slots = new LinkedHashMap<>();
+    String[] variables = tree.getVariables();
+    for (int i = 0; i < variables.length; i++) {
+      if (variables[i] != null) {
+        slots.put(variables[i], i);
+      }
+    }
+    return new ExpressionTree(optimize(tree.root()), slots);
+  }
+
+  /**
+   * Rewrites the tree under the given root in postfix order with an explicit stack, so that every
+   * operator is simplified after its operands.
+   *
+   * @param root the root ExpressionNode of the tree.
+   * @return the root of the rewritten tree.
+   */
+  private ExpressionNode optimize(ExpressionNode root) {
+    Map<ExpressionNode,ExpressionNode> done = new IdentityHashMap<>();
+    ExpressionNode[] pending = new ExpressionNode[16];
+    int[] visited = new int[16];
+    ExpressionNode[] results = new ExpressionNode[16];
+    int top = 0;
+    int sp = 0;
+    pending[top++] = root;
+    while (top > 0) {
+      ExpressionNode node = pending[top - 1];
+      int next = visited[top - 1];
+      ExpressionNode result = done.get(node);
+      int arity = node.arity();
+      boolean operator = node instanceof OperatorNode
+              && arity == Program.arity(((OperatorNode) node).opcode());
+      if (result == null && operator && next < arity) {
+        visited[top - 1] = next + 1;
+        if (top == pending.length) {
+          pending = Arrays.copyOf(pending, top * 2);
+          visited = Arrays.copyOf(visited, top * 2);
+        }
+        pending[top] = node.getChild(next);
+        visited[top++] = 0;
+        continue;
+      }
+      top--;
+      if (result == null) {
+        if (operator && arity == 1) {
+          result = simplify((OperatorNode) node, results[--sp]);
+        }
+        else if (operator) {
+          sp -= 2;
+          result = simplify((OperatorNode) node, results[sp], results[sp + 1]);
+        }
+        else {
+          result = node;
+        }
+        done.put(node, result);
+      }
+      if (sp == results.length) {
+        results = Arrays.copyOf(results, sp * 2);
+      }
+      results[sp++] = result;
+    }
+    return results[0];
+  }
+
+  /**
+   * Returns the simplest node computing the given operator over its already simplified operands.
+   *
+   * @param node the original OperatorNode.
+   * @param left the simplified left operand.
+   * @param right the simplified right operand.
+   * @return the simplified node.
+   */
+  private ExpressionNode simplify(OperatorNode node, ExpressionNode left, ExpressionNode right) {
+    if (left instanceof ConstantNode && right instanceof ConstantNode) {
+      return constant(node.apply(((ConstantNode) left).getValue(),
+              ((ConstantNode) right).getValue()));
+    }
+    byte opcode = node.opcode();
+    if (opcode == Program.MUL) {
+      if (is(right, 1.0)) {
+        return left;
+      }
+      if (is(left, 1.0)) {
+        return right;
+      }
+      if (fastMath && (is(left, 0.0) || is(right, 0.0))) {
+        return constant(0.0);
+      }
+    }
+    else if (opcode == Program.DIV) {
+      if (is(right, 1.0)) {
+        return left;
+      }
+      if (fastMath && sameVariable(left, right)) {
+        return constant(1.0);
+      }
+    }
+    else if (opcode == Program.SUB) {
+      if (is(right, 0.0)) {
+        return left;
+      }
+      if (fastMath && is(right, -0.0)) {
+        return left;
+      }
+      if (fastMath && sameVariable(left, right)) {
+        return constant(0.0);
+      }
+    }
+    else if (opcode == Program.ADD) {
+      if (is(right, -0.0) || (fastMath && is(right, 0.0))) {
+        return left;
+      }
+      if (is(left, -0.0) || (fastMath && is(left, 0.0))) {
+        return right;
+      }
+    }
+    else if (opcode == Program.POW && is(right, 1.0)) {
+      return left;
+    }
+    if (left == node.getChild(0) && right == node.getChild(1)) {
+      return node;
+    }
+    if (opcode <= Program.DIV) {
+      return new OperatorNode(node.getTerm(), left, right);
+    }
+    return new OperatorNode(node.operator(), left, right);
+  }
+
+  /**
+   * Returns the simplest node computing the given unary operator over its already simplified
+   * operand.
+   *
+   * @param node the original OperatorNode.
+   * @param operand the simplified operand.
+   * @return the simplified node.
+   */
+  private ExpressionNode simplify(OperatorNode node, ExpressionNode operand) {
+    if (operand instanceof ConstantNode) {
+      return constant(node.apply(((ConstantNode) operand).getValue()));
+    }
+    if (node.opcode() == Program.NEG && operand instanceof OperatorNode
+            && ((OperatorNode) operand).opcode() == Program.NEG) {
+      return operand.getChild(0);
+    }
+    if (operand == node.getChild(0)) {
+      return node;
+    }
+    return new OperatorNode(node.operator(), operand);
+  }
+
+  /**
+   * Returns true if the given node is a literal with exactly the given value, telling 0.0 and -0.0
+   * apart.
+   *
+   * @param node the node to check.
+   * @param value the value to compare with.
+   * @return true if the node is a ConstantNode with the same bits as value.
+   */
+  private static boolean is(ExpressionNode node, double value) {
+    return node instanceof ConstantNode && Double.doubleToRawLongBits(
+            ((ConstantNode) node).getValue()) == Double.doubleToRawLongBits(value);
+  }
+
+  /**
+   * Returns true if both nodes are the same variable.
+   *
+   * @param left the first node.
+   * @param right the second node.
+   * @return true if both nodes are VariableNodes with the same name.
+   */
+  private static boolean sameVariable(ExpressionNode left, ExpressionNode right) {
+    return left instanceof VariableNode && right instanceof VariableNode
+            && left.getTerm().equals(right.getTerm());
+  }
+
+  /**
+   * Returns a new literal for the given value, spelled with Double.toString so that parsing the
+   * spelling gives back the same value.
+   *
+   * @param value the value of the literal.
+   * @return the ConstantNode of the value.
+   */
+  private static ConstantNode constant(double value) {
+    return new ConstantNode(Double.toString(value));
+  }
+
+}
@@ -0,0 +1,351 @@
+/**
+ * All source code has been added into the expression package.
+ */
+
+package expression;
+
+/**
+ * Import Executor, Flow, ForkJoinPool, HashMap, List, and Map packages.
+ */
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * This class is a reactive pipeline stage that evaluates one or more ExpressionTrees as their
+ * variables change. It subscribes to a Flow.Publisher of variable updates, each a Map from
+ * variable names to their new values, and publishes to a single subscriber a double array with the
+ * current value of every tree, where element i is the value of the i-th tree.
+ *
+ * <ul>
+ *   <li>Micro-batching: updates are merged into a pending batch as they arrive and the batch is
+ *   applied on the Executor as a whole, so a burst of updates leads to one evaluation rather than
+ *   one per update.</li>
+ *   <li>Conflation: a later value of a variable replaces an earlier one that has not been applied
+ *   yet, and while the subscriber has no outstanding demand further updates keep being merged, so
+ *   the subscriber always receives the latest values and never a backlog of stale ones.</li>
+ *   <li>Backpressure: at most batchSize updates are requested from the upstream publisher at a
+ *   time, and more are requested only as pending updates are applied.</li>
+ * </ul>
+ *
+ * <p>Every tree is evaluated through its own EvaluationSession, so only the nodes affected by the
+ * changed variables are recomputed. Results are published once every variable of every tree has
+ * received a value. Evaluation and all signals to the subscriber happen one at a time on the
+ * Executor, never on the publisher's thread.
+ */
+public final class ExpressionProcessor implements Flow.Processor<Map<String,Double>,double[]> {
+
+  /**
+   * Default number of updates requested from the upstream publisher at a time.
+   */
+  public static final int DEFAULT_BATCH_SIZE = 256;
+
+  private final EvaluationSession[] sessions;
+  private final int batchSize;
+  private final Executor executor;
+
+  private final Object lock = new Object();
+
+  /**
+   * Updates received but not yet applied, merged by variable name. Guarded by lock.
+   */
+  private Map<String,Double> pending = new HashMap<>();
+
+  /**
+   * Number of updates merged into pending since it was last taken. Guarded by lock.
+   */
+  private int received;
+
+  /**
+   * Outstanding demand of the subscriber. Guarded by lock.
+   */
+  private long demand;
+
+  /**
+   * True while a drain task is scheduled or running. Guarded by lock.
+   */
+  private boolean scheduled;
+
+  private boolean completed;
+  private Throwable failure;
+  private boolean cancelled;
+  private Flow.Subscription upstream;
+  private Flow.Subscriber<? super double[]> downstream;
+
+  /**
+   * True when the sessions hold values that have not been published yet. Only used by the drain
+   * task.
+   */
+  private boolean stale;
+
+  /**
+   * Constructs an ExpressionProcessor for one ExpressionTree that requests DEFAULT_BATCH_SIZE
+   * updates at a time and evaluates on the common ForkJoinPool.
+   *
+   * @param tree the ExpressionTree to evaluate.
+   */
+  public ExpressionProcessor(ExpressionTree tree) {
+    this(List.of(tree), DEFAULT_BATCH_SIZE, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Constructs an ExpressionProcessor for the given ExpressionTrees that requests at most
+   * batchSize updates at a time from upstream and evaluates on the given Executor.
+   *
+   * @param trees the ExpressionTrees to evaluate, in the order of their values in the results.
+   * @param batchSize the largest number of updates requested from upstream at a time.
+   * @param executor the Executor evaluating the trees and signalling the subscriber.
+   * @throws IllegalArgumentException if the batch size is not positive or an argument is null.
+   */
+  public ExpressionProcessor(List<ExpressionTree> trees, int batchSize, Executor executor)
+          throws IllegalArgumentException {
+    if (trees == null || executor == null) {
+      throw new IllegalArgumentException("Trees and executor must not be null.");
+    }
+    if (batchSize <= 0) {
+      throw new IllegalArgumentException("Batch size must be positive.");
+    }
+    sessions = new EvaluationSession[trees.size()];
+    for (int i = 0; i < sessions.length; i++) {
+      sessions[i] = new EvaluationSession(trees.get(i));
+    }
+    this.batchSize = batchSize;
+    this.executor = executor;
+  }
+
+  /**
+   * This method subscribes the single subscriber of this processor. Any further subscriber is
+   * immediately signalled an IllegalStateException.
+   *
+   * @param subscriber the Subscriber receiving the results.
+   */
+  @Override
+  public void subscribe(Flow.Subscriber<? super double[]> subscriber) {
+    boolean accepted;
+    synchronized (lock) {
+      accepted = downstream == null;
+      if (accepted) {
+        downstream = subscriber;
+      }
+    }
+    if (!accepted) {
+      subscriber.onSubscribe(new Flow.Subscription() {
+        @Override
+        public void request(long n) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+      });
+      subscriber.onError(new IllegalStateException(
+              "ExpressionProcessor allows only one subscriber."));
+      return;
+    }
+    subscriber.onSubscribe(new Flow.Subscription() {
+      @Override
+      public void request(long n) {
+        Flow.Subscription subscription = null;
+        synchronized (lock) {
+          if (n <= 0) {
+            if (failure == null) {
+              failure = new IllegalArgumentException("Demand must be positive.");
+            }
+            subscription = upstream;
+          }
+          else {
+            demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+          }
+        }
+        if (subscription != null) {
+          subscription.cancel();
+        }
+        schedule();
+      }
+
+      @Override
+      public void cancel() {
+        Flow.Subscription subscription;
+        synchronized (lock) {
+          cancelled = true;
+          subscription = upstream;
+        }
+        if (subscription != null) {
+          subscription.cancel();
+        }
+      }
+    });
+    schedule();
+  }
+
+  /**
+   * This method receives the subscription to the upstream publisher and requests the first batch
+   * of updates. A second subscription is cancelled.
+   *
+   * @param subscription the Subscription of the upstream publisher.
+   */
+  @Override
+  public void onSubscribe(Flow.Subscription subscription) {
+    boolean accepted;
+    synchronized (lock) {
+      accepted = upstream == null && !cancelled;
+      if (accepted) {
+        upstream = subscription;
+      }
+    }
+    if (accepted) {
+      subscription.request(batchSize);
+    }
+    else {
+      subscription.cancel();
+    }
+  }
+
+  /**
+   * This method merges an update into the pending batch, replacing any earlier value of the same
+   * variables that has not been applied yet, and schedules its evaluation.
+   *
+   * @param update the Map with the new values of some variables.
+   */
+  @Override
+  public void onNext(Map<String,Double> update) {
+    synchronized (lock) {
+      pending.putAll(update);
+      received++;
+    }
+    schedule();
+  }
+
+  /**
+   * This method forwards an upstream error to the subscriber, dropping any updates and results
+   * that have not been published yet.
+   *
+   * @param throwable the error of the upstream publisher.
+   */
+  @Override
+  public void onError(Throwable throwable) {
+    synchronized (lock) {
+      if (failure == null) {
+        failure = throwable;
+      }
+    }
+    schedule();
+  }
+
+  /**
+   * This method completes the subscriber once the pending updates have been applied and their
+   * result, if any, has been published.
+   */
+  @Override
+  public void onComplete() {
+    synchronized (lock) {
+      completed = true;
+    }
+    schedule();
+  }
+
+  /**
+   * Submits the drain task to the Executor unless it is already scheduled.
+   */
+  private void schedule() {
+    synchronized (lock) {
+      if (scheduled || downstream == null) {
+        return;
+      }
+      scheduled = true;
+    }
+    executor.execute(this::drain);
+  }
+
+  /**
+   * Applies pending updates and publishes results for as long as there is work and demand. Only
+   * one drain task runs at a time, so the sessions and the subscriber are only used by it.
+   */
+  private void drain() {
+    while (true) {
+      Map<String,Double> batch = null;
+      int consumed = 0;
+      Flow.Subscription subscription;
+      synchronized (lock) {
+        if (cancelled) {
+          scheduled = false;
+          return;
+        }
+        if (received > 0) {
+          batch = pending;
+          consumed = received;
+          pending = new HashMap<>();
+          received = 0;
+        }
+        subscription = upstream;
+      }
+      if (batch != null) {
+        for (EvaluationSession session : sessions) {
+          session.update(batch);
+        }
+        stale = true;
+        if (subscription != null) {
+          subscription.request(consumed);
+        }
+      }
+      boolean ready = stale && ready();
+      boolean deliver = false;
+      Throwable error = null;
+      boolean complete = false;
+      synchronized (lock) {
+        if (failure != null) {
+          error = failure;
+          cancelled = true;
+        }
+        else if (ready && demand > 0) {
+          deliver = true;
+          demand--;
+        }
+        else if (received == 0) {
+          if (completed && !ready) {
+            complete = true;
+            cancelled = true;
+          }
+          else {
+            scheduled = false;
+            return;
+          }
+        }
+      }
+      if (error != null) {
+        downstream.onError(error);
+        return;
+      }
+      if (complete) {
+        downstream.onComplete();
+        return;
+      }
+      if (deliver) {
+        double[] results = new double[sessions.length];
+        for (int i = 0; i < results.length; i++) {
+          results[i] = sessions[i].evaluate();
+        }
+        stale = false;
+        downstream.onNext(results);
+      }
+    }
+  }
+
+  /**
+   * Returns true if every variable of every tree has a value.
+   *
+   * @return true if all sessions can be evaluated.
+   */
+  private boolean ready() {
+    for (EvaluationSession session : sessions) {
+      if (!session.isReady()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+}
@@ -0,0 +1,181 @@
+/**
+ * All source code has been added into the expression package.
+ */
+
+package expression;
+
+/**
+ * Import Arrays, List, and Map packages.
+ */
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class represents a set of expressions that are always evaluated together against the same
+ * variables. The members are parsed against one SubexpressionPool, so every variable has a single
+ * slot shared by all of them and every subexpression that occurs in several members is a single
+ * node. The whole set is then compiled into one Program that computes every member in a single
+ * pass, evaluating each shared subexpression only once.
+ *
+ * <p>Evaluating with a Map looks up each variable once for the whole set instead of once per
+ * occurrence in every member. An ExpressionSet is immutable and can be evaluated from several
+ * threads at once.
+ */
+public final class ExpressionSet {
+
+  private final ExpressionTree[] members;
+  private final SubexpressionPool pool;
+  private final Program program;
+
+  /**
+   * Index in the frame of the value of the first member.
+   */
+  private final int outputs;
+
+  /**
+   * Constructs the ExpressionSet of the given postfix expressions. Throws an
+   * IllegalArgumentException if any expression is not valid.
+   *
+   * @param inputs the postfix expressions, in the order of their values in the results.
+   * @throws IllegalArgumentException if an input is an invalid postfix expression.
+   */
+  public ExpressionSet(String... inputs) throws IllegalArgumentException {
+    this(Arrays.asList(inputs));
+  }
+
+  /**
+   * Constructs the ExpressionSet of the given postfix expressions. Throws an
+   * IllegalArgumentException if any expression is not valid.
+   *
+   * @param inputs the postfix expressions, in the order of their values in the results.
+   * @throws IllegalArgumentException if an input is an invalid postfix expression.
+   */
+  public ExpressionSet(List<String> inputs) throws IllegalArgumentException {
+    pool = new SubexpressionPool();
+    members = new ExpressionTree[inputs.size()];
+    ExpressionNode[] roots = new ExpressionNode[members.length];
+    for (int i = 0; i < members.length; i++) {
+      members[i] = new ExpressionTree(inputs.get(i), pool);
+      roots[i] = members[i].root();
+    }
+    program = Program.compileAll(roots, pool.getVariables());
+    outputs = program.frameSize - members.length;
+  }
+
+  /**
+   * This method takes in no arguments and returns the number of expressions in the set.
+   *
+   * @return the number of members.
+   */
+  public int size() {
+    return members.length;
+  }
+
+  /**
+   * This method takes in the index of a member and returns its ExpressionTree, which renders like
+   * the expression it was parsed from and uses the slots of the set.
+   *
+   * @param index the index of the member.
+   * @return the ExpressionTree of the member.
+   * @throws IndexOutOfBoundsException if there is no member at the index.
+   */
+  public ExpressionTree get(int index) throws IndexOutOfBoundsException {
+    return members[index];
+  }
+
+  /**
+   * This method takes in no arguments and returns the names of the variables of all members, where
+   * the name at index i is bound to slot i.
+   *
+   * @return the variable names indexed by slot.
+   */
+  public String[] getVariables() {
+    return program.variables.clone();
+  }
+
+  /**
+   * This method takes in the name of a variable and returns its slot in the set, or -1 if no member
+   * uses it.
+   *
+   * @param variable the name of the variable.
+   * @return the slot of the variable, or -1 if it is not in the set.
+   */
+  public int slotOf(String variable) {
+    return pool.slotOf(variable);
+  }
+
+  /**
+   * This method takes in no arguments and returns the number of nodes that were shared with an
+   * identical subtree, within a member or across members, instead of being built.
+   *
+   * @return the number of deduplicated nodes.
+   */
+  public long getDeduplicatedNodeCount() {
+    return pool.deduplicatedCount();
+  }
+
+  /**
+   * This method takes in a Map of String to Double variables, looks up each variable of the set
+   * once, and returns the values of all members, where element i is the value of member i. Throws
+   * an ArithmeticException if a variable of any member has no value in the Map.
+   *
+   * @param variables the Map with the numerical values of the variables.
+   * @return the evaluation of every member.
+   * @throws ArithmeticException if the value of a variable cannot be determined.
+   */
+  public double[] evaluate(Map<String,Double> variables) throws ArithmeticException {
+    return evaluate(program.resolve(variables));
+  }
+
+  /**
+   * This method takes in the variable values indexed by slot and returns the values of all
+   * members, where element i is the value of member i.
+   *
+   * @param slots the variable values, where slots[i] is the value of getVariables()[i].
+   * @return the evaluation of every member.
+   */
+  public double[] evaluate(double[] slots) {
+    double[] results = new double[members.length];
+    evaluate(slots, newFrame(), results);
+    return results;
+  }
+
+  /**
+   * This method evaluates all members with the given variable slots and scratch frame and writes
+   * the value of member i into results[i]. The frame must come from newFrame and can be reused
+   * between calls on one thread, so this method does not allocate.
+   *
+   * @param slots the variable values indexed by slot.
+   * @param frame the scratch frame, at least getFrameSize() values long.
+   * @param results the array the values of the members are written to.
+   */
+  public void evaluate(double[] slots, double[] frame, double[] results) {
+    if (members.length == 0) {
+      return;
+    }
+    program.run(slots, frame);
+    System.arraycopy(frame, outputs, results, 0, members.length);
+  }
+
+  /**
+   * This method takes in no arguments and returns a new scratch frame large enough to evaluate
+   * the set.
+   *
+   * @return a new double array of getFrameSize() elements.
+   */
+  public double[] newFrame() {
+    return new double[program.frameSize];
+  }
+
+  /**
+   * This method takes in no arguments and returns the number of values a scratch frame must hold
+   * to evaluate the set.
+   *
+   * @return the operand stack depth plus the temporaries and results of the compiled program.
+   */
+  public int getFrameSize() {
+    return program.frameSize;
+  }
+
+}
@@ -5,23 +5,74 @@
 package expression;
 
 /**
- * Import EmptyStackException, Map, and Stack packages.
+ * Import ByteBuffer, FileChannel, InputStream, IOException, LinkedHashMap, Map, Path, Reader, and
+ * StandardOpenOption packages.
  */
-import java.util.EmptyStackException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Stack;
 
 /**
  * This class represents a single ExpressionTree object that contains an ExpressionNode that
  * represents the root or start of the ExpressionTree. This class is under the interface Expression
  * and contains the methods getTerm, addTerm, infix, evaluate, and schemeExpression.
+ *
+ * <p>An ExpressionTree is immutable once constructed: its nodes and slot table are never changed
+ * after the constructor returns, and the Program compiled on first batch use is itself immutable.
+ * The same ExpressionTree can therefore be evaluated from any number of threads at once, which is
+ * what ParallelEvaluator relies on.
+ *
+ * <p>An ExpressionTree built against a SubexpressionPool is a directed acyclic graph in which every
+ * repeated subexpression is a single shared node. It renders exactly like the plain tree, uses the
+ * slot numbering of the pool, and is evaluated through its compiled Program so that each shared
+ * subexpression is computed only once per evaluation.
+ *
+ * <p>An ExpressionTree parsed with ExpressionLimits rejects its input with a LimitExceededException
+ * at the first term over the token, depth, or variable limit, and every evaluation of it with the
+ * evaluate methods stops with a LimitExceededException once it is over the step budget or the
+ * timeout. Its CompiledExpression charges every evaluation its whole step cost before running, and
+ * BytecodeCompiler evaluates it through the tree instead of generating code, so the limits hold on
+ * every path.
  */
 public class ExpressionTree implements Expression {
 
   /**
    * ExpressionNode that is the root of the ExpressionTree.
    */
-  private ExpressionNode root;
+  private final ExpressionNode root;
+
+  /**
+   * Map from each variable name in the ExpressionTree to its slot, in order of first appearance.
+   */
+  private final Map<String,Integer> slots;
+
+  /**
+   * Number of nodes taken from a SubexpressionPool instead of being built for this tree.
+   */
+  private final int deduplicated;
+
+  /**
+   * Limits the evaluations of this ExpressionTree are checked against, or null for none.
+   */
+  private final ExpressionLimits limits;
+
+  /**
+   * Flat program of this ExpressionTree, compiled on first use by batch evaluation or compile, or
+   * by any evaluation of a tree with shared nodes.
+   */
+  private Program program;
+
+  /**
+   * Number of nodes and depth of this ExpressionTree, measured on first use, or -1 until then.
+   */
+  private volatile long size = -1;
+  private volatile int depth = -1;
 
   /**
    * Constructs the binary tree of the postfix expresssion input and stores
@@ -35,73 +86,547 @@ public class ExpressionTree implements Expression {
     if (input == null) {
       throw new IllegalArgumentException("Expression is invalid.");
     }
-    String equation = input.trim().replaceAll(" +", " ");
-    if (equation.equals("")) {
+    slots = new LinkedHashMap<>();
+    TreeBuilder builder = new TreeBuilder(slots);
+    scan(input, builder);
+    root = builder.finish();
+    deduplicated = 0;
+    limits = null;
+  }
+
+  /**
+   * Constructs the tree of the postfix expression input with its operators bound through the given
+   * OperatorRegistry, so that any term the registry defines, such as ^ or min in the extended
+   * registry, is parsed as an operator taking as many operands as its arity, and every other term
+   * is an operand. Throws an IllegalArgumentException if the expression is not valid.
+   *
+   * @param input the string input of the postfix expression.
+   * @param registry the OperatorRegistry defining the operators of the expression.
+   * @throws IllegalArgumentException if the input is an invalid postfix expression.
+   */
+  public ExpressionTree(String input, OperatorRegistry registry) throws IllegalArgumentException {
+    if (input == null || registry == null) {
       throw new IllegalArgumentException("Expression is invalid.");
     }
-    ExpressionNode node2;
-    ExpressionNode node1;
-    Stack<ExpressionNode> test_stack = new Stack();
-    String[] terms = equation.split(" ");
-    for (String s : terms) {
-      if (s.equals("+") || s.equals("-") || s.equals("*") || s.equals("/")) {
-        try {
-          node2 = test_stack.pop();
-          node1 = test_stack.pop();
-        } catch (EmptyStackException a) {
-          throw new IllegalArgumentException("Expression is invalid.");
-        }
-        ExpressionNode newOperator = new OperatorNode(s);
-        newOperator.addTerm(s, node1);
-        newOperator.addTerm(s, node2);
-        test_stack.push(newOperator);
-      }
-      else {
-        ExpressionNode newOperand = new OperandNode(s);
-        test_stack.push(newOperand);
-      }
-    }
-    try {
-      root = test_stack.pop();
-    } catch (EmptyStackException b) {
+    slots = new LinkedHashMap<>();
+    TreeBuilder builder = new TreeBuilder(slots);
+    scan(input, builder, registry);
+    root = builder.finish();
+    deduplicated = 0;
+    limits = null;
+  }
+
+  /**
+   * Constructs the tree of the postfix expression input under the given ExpressionLimits. The
+   * token, depth, and variable limits and the timeout are checked while the input is scanned, so
+   * input over budget is rejected at its first term over a limit without being scanned any
+   * further, and the step budget and timeout are checked again on every evaluation of the tree.
+   *
+   * @param input the string input of the postfix expression.
+   * @param limits the ExpressionLimits of the expression.
+   * @throws LimitExceededException if the expression exceeds a limit.
+   * @throws IllegalArgumentException if the input is an invalid postfix expression.
+   */
+  public ExpressionTree(String input, ExpressionLimits limits)
+          throws LimitExceededException, IllegalArgumentException {
+    this(input, null, limits);
+  }
+
+  /**
+   * Constructs the tree of the postfix expression input with its operators bound through the given
+   * OperatorRegistry, under the given ExpressionLimits, as described by the constructors above.
+   *
+   * @param input the string input of the postfix expression.
+   * @param registry the OperatorRegistry defining the operators of the expression, or null for
+   *        the four arithmetic operators.
+   * @param limits the ExpressionLimits of the expression.
+   * @throws LimitExceededException if the expression exceeds a limit.
+   * @throws IllegalArgumentException if the input is an invalid postfix expression.
+   */
+  public ExpressionTree(String input, OperatorRegistry registry, ExpressionLimits limits)
+          throws LimitExceededException, IllegalArgumentException {
+    if (input == null || limits == null) {
       throw new IllegalArgumentException("Expression is invalid.");
     }
-    if (!test_stack.empty()) {
+    slots = new LinkedHashMap<>();
+    ExpressionLimits.Budget budget = limits.budget();
+    TreeBuilder builder = new TreeBuilder(slots, budget);
+    scan(input, builder, registry, budget);
+    root = builder.finish();
+    deduplicated = 0;
+    this.limits = limits;
+    size = budget.tokens();
+  }
+
+  /**
+   * Constructs the tree of the postfix expression input with every node taken from the given
+   * SubexpressionPool, so that structurally identical subtrees, within this expression or shared
+   * with other expressions of the same pool, are a single node. Variables are bound to the slots
+   * of the pool. Throws an IllegalArgumentException if the expression is not valid.
+   *
+   * @param input the string input of the postfix expression.
+   * @param pool the SubexpressionPool the nodes are shared through.
+   * @throws IllegalArgumentException if the input is an invalid postfix expression.
+   */
+  public ExpressionTree(String input, SubexpressionPool pool) throws IllegalArgumentException {
+    if (input == null || pool == null) {
       throw new IllegalArgumentException("Expression is invalid.");
     }
+    slots = new LinkedHashMap<>();
+    TreeBuilder builder = new TreeBuilder(slots, pool);
+    scan(input, builder);
+    root = builder.finish();
+    deduplicated = builder.deduplicated();
+    limits = null;
+  }
+
+  /**
+   * Constructs an ExpressionTree around a tree of nodes that has already been built, together with
+   * the slots its VariableNodes are bound to.
+   *
+   * @param root the root ExpressionNode of the tree.
+   * @param slots the Map from each variable name in the tree to its slot.
+   */
+  ExpressionTree(ExpressionNode root, Map<String,Integer> slots) {
+    this.root = root;
+    this.slots = slots;
+    this.deduplicated = 0;
+    this.limits = null;
+  }
+
+  /**
+   * This method builds an ExpressionTree from postfix text read from a Reader. The text is
+   * consumed incrementally in small blocks and never held in memory as a whole, so expressions far
+   * larger than a String can be parsed with only the memory of the tree itself. Terms may be
+   * separated by any whitespace, including line breaks. The Reader is not closed.
+   *
+   * @param reader the Reader supplying the postfix expression.
+   * @return the ExpressionTree of the expression.
+   * @throws IOException if reading fails.
+   * @throws IllegalArgumentException if the expression is invalid, with the char offset of the
+   *         first invalid term in its message.
+   */
+  public static ExpressionTree parse(Reader reader) throws IOException, IllegalArgumentException {
+    StreamingParser parser = new StreamingParser();
+    char[] buffer = new char[StreamingParser.BUFFER_SIZE];
+    long offset = 0;
+    int read;
+    while ((read = reader.read(buffer)) != -1) {
+      parser.chars(buffer, read, offset);
+      offset += read;
+    }
+    return parser.finish(offset);
+  }
+
+  /**
+   * This method builds an ExpressionTree from UTF-8 postfix text read from an InputStream. The
+   * bytes are consumed incrementally and only the bytes of one term are buffered at a time. Terms
+   * may be separated by any whitespace, including line breaks. The InputStream is not closed.
+   *
+   * @param in the InputStream supplying the postfix expression.
+   * @return the ExpressionTree of the expression.
+   * @throws IOException if reading fails.
+   * @throws IllegalArgumentException if the expression is invalid, with the byte offset of the
+   *         first invalid term in its message.
+   */
+  public static ExpressionTree parse(InputStream in) throws IOException, IllegalArgumentException {
+    StreamingParser parser = new StreamingParser();
+    byte[] buffer = new byte[StreamingParser.BUFFER_SIZE];
+    long offset = 0;
+    int read;
+    while ((read = in.read(buffer)) != -1) {
+      parser.bytes(ByteBuffer.wrap(buffer, 0, read), offset);
+      offset += read;
+    }
+    return parser.finish(offset);
+  }
+
+  /**
+   * This method builds an ExpressionTree from a file of UTF-8 postfix text by memory-mapping it
+   * with FileChannel.map and scanning the mapped bytes directly, so the text is never copied onto
+   * the heap. Files larger than 2 GB are mapped one window at a time. Terms may be separated by any
+   * whitespace, including line breaks.
+   *
+   * @param file the path of the file holding the postfix expression.
+   * @return the ExpressionTree of the expression.
+   * @throws IOException if the file cannot be mapped.
+   * @throws IllegalArgumentException if the expression is invalid, with the byte offset of the
+   *         first invalid term in its message.
+   */
+  public static ExpressionTree parse(Path file) throws IOException, IllegalArgumentException {
+    StreamingParser parser = new StreamingParser();
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      for (long offset = 0; offset < size; offset += StreamingParser.MAP_WINDOW) {
+        long length = Math.min(StreamingParser.MAP_WINDOW, size - offset);
+        parser.bytes(channel.map(FileChannel.MapMode.READ_ONLY, offset, length), offset);
+      }
+      return parser.finish(size);
+    }
+  }
+
+  /**
+   * Scans a postfix expression in a single pass and feeds its terms to the given TreeBuilder. Like
+   * the original trim, replaceAll and split, leading and trailing whitespace is ignored and terms
+   * are separated by one or more spaces, but no regular expression, array of terms, or intermediate
+   * strings are created: only operands are copied out of the input.
+   *
+   * @param input the postfix expression.
+   * @param builder the TreeBuilder receiving the terms.
+   * @throws IllegalArgumentException if the input is an invalid postfix expression.
+   */
+  static void scan(CharSequence input, TreeBuilder builder) throws IllegalArgumentException {
+    scan(input, builder, null);
+  }
+
+  /**
+   * Scans a postfix expression as described above, looking up every term other than the four
+   * arithmetic operators in the given OperatorRegistry. Those four are recognized without a lookup,
+   * since every registry defines them the same way.
+   *
+   * @param input the postfix expression.
+   * @param builder the TreeBuilder receiving the terms.
+   * @param registry the OperatorRegistry of the other operators, or null for none.
+   * @throws IllegalArgumentException if the input is an invalid postfix expression.
+   */
+  static void scan(CharSequence input, TreeBuilder builder, OperatorRegistry registry)
+          throws IllegalArgumentException {
+    scan(input, builder, registry, null);
+  }
+
+  /**
+   * Scans a postfix expression as described above, spending one token of the given Budget on every
+   * term before it is fed to the TreeBuilder.
+   *
+   * @param input the postfix expression.
+   * @param builder the TreeBuilder receiving the terms.
+   * @param registry the OperatorRegistry of the other operators, or null for none.
+   * @param budget the Budget of the parse, or null for no limits.
+   * @throws LimitExceededException if the expression exceeds a limit of the Budget.
+   * @throws IllegalArgumentException if the input is an invalid postfix expression.
+   */
+  static void scan(CharSequence input, TreeBuilder builder, OperatorRegistry registry,
+                   ExpressionLimits.Budget budget)
+          throws LimitExceededException, IllegalArgumentException {
+    int start = 0;
+    int end = input.length();
+    while (start < end && input.charAt(start) <= ' ') {
+      start++;
+    }
+    while (end > start && input.charAt(end - 1) <= ' ') {
+      end--;
+    }
+    int i = start;
+    while (i < end) {
+      if (input.charAt(i) == ' ') {
+        i++;
+        continue;
+      }
+      int first = i;
+      while (i < end && input.charAt(i) != ' ') {
+        i++;
+      }
+      if (budget != null) {
+        budget.token();
+      }
+      String operator = i - first == 1 ? TreeBuilder.operator(input.charAt(first)) : null;
+      if (operator != null) {
+        builder.operator(operator);
+        continue;
+      }
+      String term = input.subSequence(first, i).toString();
+      Operator bound = registry == null ? null : registry.get(term);
+      if (bound != null) {
+        builder.operator(bound);
+      }
+      else {
+        builder.operand(term);
+      }
+    }
   }
 
   /**
-   * This recursive method takes in no arguments and returns the root of this expression tree as a
-   * string in infix form.
+   * This method takes in no arguments and returns the root of this expression tree as a string in
+   * infix form. The tree is walked with an explicit stack and rendered into a single StringBuilder,
+   * so trees of any depth are rendered in time linear in the length of the result.
    *
    * @return the root of this expression tree in infix form as a string data type.
    */
   public String infix() {
-    return root.infix();
+    return TreeWalker.infix(root);
+  }
+
+  /**
+   * This method appends the infix form of this expression tree to the given Appendable, which lets
+   * very large expressions be streamed straight to a Writer instead of being built as a String.
+   *
+   * @param out the Appendable receiving the infix form.
+   * @throws IOException if appending to out fails.
+   */
+  public void infix(Appendable out) throws IOException {
+    TreeWalker.infix(root, out);
   }
 
   /**
-   * This recursive method takes in a Map of String to Double variables and returns the result
+   * This method takes in a Map of String to Double variables and returns the result
    * of the evaluation of the root of this expression tree as a double data type. Throws an
    * ArithmeticException is the value of a variable cannot be determined from the provided map.
    *
    * @param variables the Map with the numerical values of variables in the expression tree.
    * @return the evaluation of the expression tree as a double data type.
    * @throws ArithmeticException if the value of this expression cannot be determined.
+   * @throws LimitExceededException if the tree was parsed with ExpressionLimits and the
+   *         evaluation exceeds its step budget or timeout.
+   */
+  public double evaluate(Map<String,Double> variables)
+          throws ArithmeticException, LimitExceededException {
+    if (deduplicated > 0) {
+      Program shared = program();
+      return shared.run(shared.resolve(variables), new double[shared.frameSize]);
+    }
+    return TreeWalker.evaluate(root, variables, limits == null ? null : limits.budget());
+  }
+
+  /**
+   * This method takes in the variable values indexed by slot and returns the result of
+   * the evaluation of the root of this expression tree as a double data type. The slot of each
+   * variable is given by slotOf.
+   *
+   * @param slots the variable values, where slots[i] is the value of getVariables()[i].
+   * @return the evaluation of the expression tree as a double data type.
+   * @throws LimitExceededException if the tree was parsed with ExpressionLimits and the
+   *         evaluation exceeds its step budget or timeout.
+   */
+  public double evaluate(double[] slots) throws LimitExceededException {
+    if (deduplicated > 0) {
+      Program shared = program();
+      return shared.run(slots, new double[shared.frameSize]);
+    }
+    return TreeWalker.evaluate(root, slots, limits == null ? null : limits.budget());
+  }
+
+  /**
+   * This method evaluates this expression tree for the rows from (inclusive) to to (exclusive) of
+   * the given columns and writes the result of row r into out[offset + r - from]. The tree is
+   * compiled on the first call and the rows are evaluated one operator at a time over chunks of
+   * the columns, which gives the same results as evaluating each row on its own. For a tree
+   * parsed with ExpressionLimits, the cost of every row is known before any is evaluated, so the
+   * whole call is rejected up front if its rows together exceed the step budget.
+   *
+   * @param columns the variable values, one column per slot.
+   * @param from the first row to evaluate.
+   * @param to one past the last row to evaluate.
+   * @param out the array the results are written to.
+   * @param offset the index in out of the result of row from.
+   * @throws ArithmeticException if the column of a variable in the expression tree is missing.
+   * @throws IndexOutOfBoundsException if the rows or the output range are out of bounds.
+   * @throws LimitExceededException if the tree was parsed with ExpressionLimits and the rows
+   *         exceed its step budget.
+   */
+  public void evaluate(double[][] columns, int from, int to, double[] out, int offset)
+          throws ArithmeticException, IndexOutOfBoundsException, LimitExceededException {
+    if (limits != null) {
+      limits.charge(size(), to - from);
+    }
+    program().runBatch(columns, from, to, out, offset);
+  }
+
+  /**
+   * This method takes in the name of a variable and returns its slot in this expression tree, or
+   * -1 if the variable does not appear in it.
+   *
+   * @param variable the name of the variable.
+   * @return the slot of the variable, or -1 if it is not in the expression tree.
+   */
+  public int slotOf(String variable) {
+    Integer slot = slots.get(variable);
+    return slot == null ? -1 : slot;
+  }
+
+  /**
+   * This method takes in no arguments and returns the names of the variables of this expression
+   * tree, where the name at index i is bound to slot i. Slots are given in order of first
+   * appearance, except for a tree built against a SubexpressionPool, which uses the slots of the
+   * pool and has null at the slots of the pool's other variables.
+   *
+   * @return the variable names indexed by slot.
+   */
+  public String[] getVariables() {
+    int length = 0;
+    for (int slot : slots.values()) {
+      length = Math.max(length, slot + 1);
+    }
+    String[] variables = new String[length];
+    for (Map.Entry<String,Integer> entry : slots.entrySet()) {
+      variables[entry.getValue()] = entry.getKey();
+    }
+    return variables;
+  }
+
+  /**
+   * This method takes in no arguments and returns the number of nodes of this expression tree that
+   * were shared with an identical subtree instead of being built, which is 0 unless the tree was
+   * built against a SubexpressionPool.
+   *
+   * @return the number of deduplicated nodes.
+   */
+  public int getDeduplicatedNodeCount() {
+    return deduplicated;
+  }
+
+  /**
+   * This method takes in no arguments and returns the ExpressionLimits this expression tree was
+   * parsed under, which are checked again on every evaluation, or null if it has none.
+   *
+   * @return the ExpressionLimits of the tree, or null.
    */
-  public double evaluate(Map<String,Double> variables) throws ArithmeticException {
-    return root.evaluate(variables);
+  public ExpressionLimits getLimits() {
+    return limits;
   }
 
   /**
-   * This recursive method takes in no arguments and returns the root of this expression tree as a
-   * string in scheme form.
+   * This method takes in no arguments and returns this expression tree compiled into a flat
+   * program over a primitive stack. The compiled expression evaluates to the same results as this
+   * tree but parses every literal once and resolves every variable to a slot up front. If the tree
+   * was parsed with ExpressionLimits, every evaluation of the compiled expression is charged its
+   * whole step cost before it starts, the way batch evaluation is; the timeout is not checked
+   * while the compiled program runs, whose time the step budget bounds instead.
+   *
+   * @return the CompiledExpression of this expression tree.
+   */
+  public CompiledExpression compile() {
+    return new CompiledExpression(this, program());
+  }
+
+  /**
+   * This method takes in the name of a variable and returns the symbolic derivative of this
+   * expression tree with respect to it, as a new ExpressionTree that can be rendered with infix
+   * and schemeExpression and evaluated like any other. Terms whose derivative is zero because they
+   * do not depend on the variable are left out, and the rest is simplified only with the exact
+   * rewrites of ExpressionOptimizer. Every rule multiplies the same factors as GradientEvaluator,
+   * including its partial derivatives of ^, which are 0 where the exponent, respectively the base,
+   * is 0, so the derivative agrees with its gradients up to rounding. The two can still differ
+   * where a subexpression is infinite or NaN, since the chain rule multiplies the factors in the
+   * opposite order, and a factor of 0 from min or max may meet an infinite factor in one and not
+   * in the other. The derivative shares the unchanged subtrees of this tree and keeps its slots,
+   * so the slot arrays and batch columns of this tree can be used with it. The derivative with
+   * respect to a name that is not a variable of this tree is the literal 0.
+   *
+   * <p>The derivative uses the functions ln, ^'1 and ^'2 for ^, &lt;= and &gt;= for min and max,
+   * and f', f'1 and f'2 for a function f created with Operator.unary or Operator.binary, so its
+   * infix form can only be parsed back with a registry defining them. GradientEvaluator computes
+   * every partial derivative at once without building any tree.
+   *
+   * @param variable the name of the variable to differentiate with respect to.
+   * @return the ExpressionTree of the derivative.
+   * @throws IllegalArgumentException if the variable is null.
+   */
+  public ExpressionTree derivative(String variable) throws IllegalArgumentException {
+    if (variable == null) {
+      throw new IllegalArgumentException("Variable must not be null.");
+    }
+    return Differentiator.derivative(this, variable);
+  }
+
+  /**
+   * This method takes in a Map of String to Interval variables and returns an Interval holding the
+   * value of this expression tree for every choice of the variables in their intervals, computed
+   * in one pass by interval arithmetic. The bounds are sound but may be wider than the true range;
+   * IntervalEvaluator describes the rules, and bounds many sets of intervals without allocating.
+   *
+   * @param variables the Map with the interval of every variable in the expression tree.
+   * @return the bounds of the value of the expression tree.
+   * @throws ArithmeticException if the interval of a variable cannot be determined.
+   */
+  public Interval bounds(Map<String,Interval> variables) throws ArithmeticException {
+    return new IntervalEvaluator(this).evaluate(variables);
+  }
+
+  /**
+   * Returns the root ExpressionNode of this expression tree.
+   *
+   * @return the root of the tree.
+   */
+  ExpressionNode root() {
+    return root;
+  }
+
+  /**
+   * Returns the Map from each variable name in this expression tree to its slot, in order of
+   * first appearance. The Map must not be modified.
+   *
+   * @return the slots of the variables.
+   */
+  Map<String,Integer> slots() {
+    return slots;
+  }
+
+  /**
+   * Returns the flat program of this expression tree, compiling it on first use. The Program is
+   * immutable, so a race between two threads compiling it at the same time is harmless.
+   *
+   * @return the Program of this expression tree.
+   */
+  Program program() {
+    Program compiled = program;
+    if (compiled == null) {
+      compiled = Program.compile(root, getVariables(), deduplicated > 0);
+      program = compiled;
+    }
+    return compiled;
+  }
+
+  /**
+   * Returns the number of nodes of this expression tree, counting a shared node once for every
+   * parent it has. The tree is only walked on the first call.
+   *
+   * @return the number of operators and operands in the tree.
+   */
+  long size() {
+    long measured = size;
+    if (measured < 0) {
+      measured = TreeWalker.size(root);
+      size = measured;
+    }
+    return measured;
+  }
+
+  /**
+   * Returns the depth of this expression tree, which is 1 for a single operand. The tree is only
+   * walked on the first call.
+   *
+   * @return the number of nodes on the longest path from the root to a leaf.
+   */
+  int depth() {
+    int measured = depth;
+    if (measured < 0) {
+      measured = TreeWalker.depth(root);
+      depth = measured;
+    }
+    return measured;
+  }
+
+  /**
+   * This method takes in no arguments and returns the root of this expression tree as a string in
+   * scheme form. The tree is walked with an explicit stack and rendered into a single
+   * StringBuilder, so trees of any depth are rendered in time linear in the length of the result.
    *
    * @return the root of this expression tree in scheme form as a string data type.
    */
   public String schemeExpression() {
-    return root.schemeExpression();
+    return TreeWalker.scheme(root);
+  }
+
+  /**
+   * This method appends the scheme form of this expression tree to the given Appendable, which
+   * lets very large expressions be streamed straight to a Writer instead of being built as a
+   * String.
+   *
+   * @param out the Appendable receiving the scheme form.
+   * @throws IOException if appending to out fails.
+   */
+  public void schemeExpression(Appendable out) throws IOException {
+    TreeWalker.scheme(root, out);
   }
 
 }
\ No newline at end of file
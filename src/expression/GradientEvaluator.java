@@ -0,0 +1,322 @@
+/**
+ * All source code has been added into the expression package.
+ */
+
+package expression;
+
+/**
+ * Import Arrays, IdentityHashMap, and Map packages.
+ */
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * This class evaluates an ExpressionTree together with its gradient, the partial derivative of
+ * its value with respect to every variable, by reverse-mode automatic differentiation: one forward
+ * pass computes the value of every node, and one backward pass from the root accumulates into
+ * every node the derivative of the root with respect to it, which for the variables is the
+ * gradient. A gradient therefore costs about two evaluations, however many variables there are,
+ * instead of the two evaluations per variable of central differences.
+ *
+ * <p>The nodes are stored in postfix order in flat arrays, like those of EvaluationSession, with
+ * every node shared by several parents stored once, so a shared subexpression is computed once on
+ * the way forward and collects the derivatives of all its parents on the way back. The arrays for
+ * the values and derivatives are allocated once by the constructor and evaluation allocates
+ * nothing, so a GradientEvaluator is not thread-safe; use one per thread.
+ *
+ * <p>Derivatives follow the usual rules, with these choices where an operator is not
+ * differentiable: min passes the derivative to its left operand when the operands are equal, and
+ * max does too, x ^ 0 has derivative 0 along x even at x = 0, and a ^ b has derivative 0 along b at
+ * a = 0. The derivatives of functions created with Operator.unary or Operator.binary are
+ * approximated by central differences of the function alone.
+ */
+public final class GradientEvaluator {
+
+  private final ExpressionTree tree;
+  private final String[] variables;
+
+  /**
+   * Opcode of each operator node, or Program.CONST and Program.VAR for leaves.
+   */
+  private final byte[] kinds;
+
+  /**
+   * Index of the left operand of each operator node, or the slot of each variable.
+   */
+  private final int[] left;
+
+  /**
+   * Index of the right operand of each operator node, or -1 for a unary operator.
+   */
+  private final int[] right;
+
+  /**
+   * Operator of each CALL1 and CALL2 node, or null for the other nodes.
+   */
+  private final Operator[] functions;
+
+  /**
+   * Value of each node, with the literals filled in by the constructor.
+   */
+  private final double[] values;
+
+  /**
+   * Derivative of the root with respect to each node, computed by the backward pass.
+   */
+  private final double[] adjoints;
+
+  /**
+   * Buffer the values of a Map are resolved into, indexed by slot.
+   */
+  private final double[] slots;
+
+  /**
+   * Constructs a GradientEvaluator of the given ExpressionTree.
+   *
+   * @param tree the ExpressionTree to differentiate.
+   */
+  public GradientEvaluator(ExpressionTree tree) {
+    this.tree = tree;
+    variables = tree.getVariables();
+    slots = new double[variables.length];
+
+    Map<ExpressionNode,Integer> indexes = new IdentityHashMap<>();
+    byte[] kinds = new byte[16];
+    int[] left = new int[16];
+    int[] right = new int[16];
+    Operator[] functions = new Operator[16];
+    double[] values = new double[16];
+    int[] operands = new int[16];
+    int sp = 0;
+    int index = 0;
+    ExpressionNode[] pending = new ExpressionNode[16];
+    int[] visited = new int[16];
+    int top = 0;
+    pending[top++] = tree.root();
+    while (top > 0) {
+      ExpressionNode node = pending[top - 1];
+      int next = visited[top - 1];
+      Integer known = indexes.get(node);
+      if (known == null && next < node.arity()) {
+        visited[top - 1] = next + 1;
+        if (top == pending.length) {
+          pending = Arrays.copyOf(pending, top * 2);
+          visited = Arrays.copyOf(visited, top * 2);
+        }
+        pending[top] = node.getChild(next);
+        visited[top++] = 0;
+        continue;
+      }
+      top--;
+      if (known == null) {
+        if (index == kinds.length) {
+          kinds = Arrays.copyOf(kinds, index * 2);
+          left = Arrays.copyOf(left, index * 2);
+          right = Arrays.copyOf(right, index * 2);
+          functions = Arrays.copyOf(functions, index * 2);
+          values = Arrays.copyOf(values, index * 2);
+        }
+        if (node instanceof VariableNode) {
+          kinds[index] = Program.VAR;
+          left[index] = ((VariableNode) node).getSlot();
+        }
+        else if (node.arity() == 0) {
+          kinds[index] = Program.CONST;
+          values[index] = node.evaluate(slots);
+        }
+        else {
+          kinds[index] = node instanceof OperatorNode
+                  ? ((OperatorNode) node).opcode() : Program.opcode(node.getTerm());
+          if (kinds[index] == Program.CALL1 || kinds[index] == Program.CALL2) {
+            functions[index] = ((OperatorNode) node).operator();
+          }
+          if (Program.arity(kinds[index]) == 1) {
+            left[index] = operands[--sp];
+            right[index] = -1;
+          }
+          else {
+            right[index] = operands[--sp];
+            left[index] = operands[--sp];
+          }
+        }
+        known = index++;
+        indexes.put(node, known);
+      }
+      if (sp == operands.length) {
+        operands = Arrays.copyOf(operands, sp * 2);
+      }
+      operands[sp++] = known;
+    }
+    this.kinds = Arrays.copyOf(kinds, index);
+    this.left = Arrays.copyOf(left, index);
+    this.right = Arrays.copyOf(right, index);
+    this.functions = Arrays.copyOf(functions, index);
+    this.values = Arrays.copyOf(values, index);
+    adjoints = new double[index];
+  }
+
+  /**
+   * This method takes in no arguments and returns the ExpressionTree this evaluator
+   * differentiates.
+   *
+   * @return the ExpressionTree of this evaluator.
+   */
+  public ExpressionTree getTree() {
+    return tree;
+  }
+
+  /**
+   * This method takes in no arguments and returns the number of distinct nodes of the tree, which
+   * is smaller than its number of nodes if some nodes are shared.
+   *
+   * @return the number of distinct operators and operands.
+   */
+  public int size() {
+    return values.length;
+  }
+
+  /**
+   * This method takes in the variable values indexed by slot and an array for the gradient, and
+   * returns the value of the tree. When it returns, gradient[i] holds the partial derivative of
+   * the value with respect to the variable in slot i, for every slot of the tree; any further
+   * elements of gradient are left unchanged.
+   *
+   * @param slots the variable values, where slots[i] is the value of getVariables()[i].
+   * @param gradient the array the gradient is written to, at least as long as the slots of the
+   *        tree.
+   * @return the value of the tree.
+   * @throws IndexOutOfBoundsException if gradient is shorter than the slots of the tree.
+   */
+  public double evaluate(double[] slots, double[] gradient) throws IndexOutOfBoundsException {
+    if (gradient.length < variables.length) {
+      throw new IndexOutOfBoundsException("Gradient has " + gradient.length + " elements for "
+              + variables.length + " slots.");
+    }
+    int n = values.length;
+    for (int i = 0; i < n; i++) {
+      byte kind = kinds[i];
+      if (kind == Program.VAR) {
+        values[i] = slots[left[i]];
+      }
+      else if (kind != Program.CONST) {
+        values[i] = compute(i);
+      }
+    }
+
+    Arrays.fill(gradient, 0, variables.length, 0.0);
+    Arrays.fill(adjoints, 0.0);
+    adjoints[n - 1] = 1.0;
+    for (int i = n - 1; i >= 0; i--) {
+      double g = adjoints[i];
+      byte kind = kinds[i];
+      if (kind == Program.VAR) {
+        gradient[left[i]] += g;
+      }
+      else if (kind != Program.CONST) {
+        backward(i, g);
+      }
+    }
+    return values[n - 1];
+  }
+
+  /**
+   * This method takes in a Map of String to Double variables and an array for the gradient, and
+   * returns the value of the tree, writing the gradient as evaluate(double[], double[]) does.
+   * Throws an ArithmeticException if a variable of the tree has no value in the Map.
+   *
+   * @param variables the Map with the numerical values of variables in the expression tree.
+   * @param gradient the array the gradient is written to, indexed by slot.
+   * @return the value of the tree.
+   * @throws ArithmeticException if the value of a variable cannot be determined.
+   * @throws IndexOutOfBoundsException if gradient is shorter than the slots of the tree.
+   */
+  public double evaluate(Map<String,Double> variables, double[] gradient)
+          throws ArithmeticException, IndexOutOfBoundsException {
+    for (int slot = 0; slot < this.variables.length; slot++) {
+      if (this.variables[slot] == null) {
+        continue;
+      }
+      Double value = variables.get(this.variables[slot]);
+      if (value == null) {
+        throw new ArithmeticException("Cannot evaluate variables in expression.");
+      }
+      slots[slot] = value;
+    }
+    return evaluate(slots, gradient);
+  }
+
+  /**
+   * Returns the value of an operator node from the values of its operands.
+   *
+   * @param node the index of the operator node.
+   * @return the value of the node.
+   */
+  private double compute(int node) {
+    byte kind = kinds[node];
+    if (right[node] < 0) {
+      return kind == Program.CALL1 ? functions[node].apply(values[left[node]])
+              : Program.apply(kind, values[left[node]]);
+    }
+    return kind == Program.CALL2 ? functions[node].apply(values[left[node]], values[right[node]])
+            : Program.apply(kind, values[left[node]], values[right[node]]);
+  }
+
+  /**
+   * Adds the derivative of the root with respect to the operands of an operator node, through
+   * that node, to the adjoints of the operands.
+   *
+   * @param node the index of the operator node.
+   * @param g the derivative of the root with respect to the node.
+   */
+  private void backward(int node, double g) {
+    int l = left[node];
+    int r = right[node];
+    double x = values[l];
+    switch (kinds[node]) {
+      case Program.NEG:
+        adjoints[l] -= g;
+        return;
+      case Program.CALL1:
+        adjoints[l] += g * functions[node].slope(x);
+        return;
+      default:
+        break;
+    }
+    double y = values[r];
+    switch (kinds[node]) {
+      case Program.ADD:
+        adjoints[l] += g;
+        adjoints[r] += g;
+        break;
+      case Program.SUB:
+        adjoints[l] += g;
+        adjoints[r] -= g;
+        break;
+      case Program.MUL:
+        adjoints[l] += g * y;
+        adjoints[r] += g * x;
+        break;
+      case Program.DIV:
+        adjoints[l] += g / y;
+        adjoints[r] -= g * values[node] / y;
+        break;
+      case Program.POW:
+        adjoints[l] += y == 0.0 ? 0.0 : g * y * Math.pow(x, y - 1.0);
+        adjoints[r] += x == 0.0 ? 0.0 : g * values[node] * Math.log(x);
+        break;
+      case Program.MIN:
+        adjoints[x <= y ? l : r] += g;
+        break;
+      case Program.MAX:
+        adjoints[x >= y ? l : r] += g;
+        break;
+      default:
+        Operator function = functions[node];
+        adjoints[l] += g * function.slope(0, x, y);
+        adjoints[r] += g * function.slope(1, x, y);
+        break;
+    }
+  }
+
+}
@@ -0,0 +1,416 @@
+/**
+ * All source code has been added into the expression package.
+ */
+
+package expression;
+
+/**
+ * Import ArrayList, Arrays, Collection, Collections, HashSet, InstanceAlreadyExistsException,
+ * JMException, LinkedHashMap, MBeanServer, Map, ObjectName, ServiceLoader, and Set packages.
+ */
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.Set;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * This class is an opt-in instrumentation layer for expressions. Expressions parsed by parse or
+ * wrapped by instrument are measured under a name: parses, evaluations, and failures are counted,
+ * their latencies are recorded in lock-free histograms, and the node count and depth of the
+ * expression are kept as gauges. The metrics of a name can be read with getMetrics, observed
+ * through ExpressionListeners, and exported as JMX MBeans.
+ *
+ * <p>At most a fixed number of names are kept, 10,000 unless the constructor is given another
+ * limit. When a new name would exceed it, the least recently parsed or instrumented name is
+ * dropped and its MBean unregistered, so a stream of distinct formulas parsed under their own text
+ * cannot grow the metrics without bound. Expressions already instrumented under a dropped name
+ * keep recording into its ExpressionMetrics, which are no longer reachable from getMetrics. Parses
+ * that fail are all recorded under the single name INVALID rather than under their input.
+ *
+ * <p>The layer is off unless it is constructed enabled or the system property
+ * expression.instrumentation is true. While it is off, parse only constructs the ExpressionTree and
+ * instrument returns the expression itself, so evaluation pays nothing at all. An expression that
+ * was wrapped while the layer was on and is evaluated after it was turned off goes straight to the
+ * expression after reading one volatile flag, without allocating or writing anything.
+ */
+public final class Instrumentation {
+
+  /**
+   * The name every failed parse is recorded under.
+   */
+  public static final String INVALID = "<invalid>";
+
+  /**
+   * The number of names kept by an Instrumentation constructed without a limit.
+   */
+  public static final int DEFAULT_MAX_NAMES = 10_000;
+
+  private static final ExpressionListener[] NO_LISTENERS = new ExpressionListener[0];
+
+  private volatile boolean enabled;
+
+  /**
+   * Listeners in the order they were added. The array is replaced, never modified, so it can be
+   * iterated without a lock or a copy.
+   */
+  private volatile ExpressionListener[] listeners = NO_LISTENERS;
+
+  /**
+   * Metrics by name, least recently used first. Guarded by this.
+   */
+  private final Names metrics;
+
+  /**
+   * The MBeanServer the metrics are exported to, or null. Guarded by this.
+   */
+  private MBeanServer server;
+
+  /**
+   * Names whose metrics this Instrumentation registered with the MBeanServer. Guarded by this.
+   */
+  private final Set<String> exported = new HashSet<>();
+
+  /**
+   * Constructs an Instrumentation that is enabled if the system property expression.instrumentation
+   * is true.
+   */
+  public Instrumentation() {
+    this(Boolean.getBoolean("expression.instrumentation"));
+  }
+
+  /**
+   * Constructs an Instrumentation that is enabled or disabled.
+   *
+   * @param enabled true to record metrics.
+   */
+  public Instrumentation(boolean enabled) {
+    this(enabled, DEFAULT_MAX_NAMES);
+  }
+
+  /**
+   * Constructs an Instrumentation that is enabled or disabled and keeps the metrics of at most the
+   * given number of names.
+   *
+   * @param enabled true to record metrics.
+   * @param maxNames the largest number of names whose metrics are kept.
+   * @throws IllegalArgumentException if maxNames is not positive.
+   */
+  public Instrumentation(boolean enabled, int maxNames) throws IllegalArgumentException {
+    if (maxNames <= 0) {
+      throw new IllegalArgumentException("Maximum size must be positive.");
+    }
+    this.enabled = enabled;
+    metrics = new Names(maxNames);
+  }
+
+  /**
+   * This method takes in no arguments and returns true if metrics are recorded.
+   *
+   * @return true if the layer is enabled.
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * This method turns recording on or off. Expressions wrapped while the layer was on keep their
+   * wrapper but stop recording while it is off.
+   *
+   * @param enabled true to record metrics.
+   */
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  /**
+   * This method takes in a postfix expression, parses it into an ExpressionTree, and records the
+   * parse under the normalized input, which is the input with surrounding whitespace removed and
+   * runs of spaces collapsed. A failed parse is counted under INVALID, its listeners are given
+   * the normalized input, and its IllegalArgumentException is thrown again.
+   *
+   * @param input the postfix expression.
+   * @return the ExpressionTree of the input.
+   * @throws IllegalArgumentException if the input is an invalid postfix expression.
+   */
+  public ExpressionTree parse(String input) throws IllegalArgumentException {
+    if (!enabled) {
+      return new ExpressionTree(input);
+    }
+    String name = input == null ? "null" : ExpressionCache.normalize(input);
+    long start = System.nanoTime();
+    ExpressionTree tree;
+    try {
+      tree = new ExpressionTree(input);
+    } catch (IllegalArgumentException e) {
+      failed(metrics(INVALID), name, e);
+      throw e;
+    }
+    long nanos = System.nanoTime() - start;
+    ExpressionMetrics target = metrics(name);
+    target.recordParse(nanos);
+    target.measure(tree);
+    for (ExpressionListener listener : listeners) {
+      listener.onParse(name, nanos);
+    }
+    return tree;
+  }
+
+  /**
+   * This method takes in an Expression and a name and returns an Expression that evaluates the
+   * same way and records its evaluations and failures under the name. If the layer is disabled the
+   * expression itself is returned.
+   *
+   * @param expression the Expression to measure.
+   * @param name the name to record the metrics under.
+   * @return the instrumented Expression, or the expression itself if the layer is disabled.
+   * @throws IllegalArgumentException if an argument is null.
+   */
+  public Expression instrument(Expression expression, String name)
+          throws IllegalArgumentException {
+    if (expression == null || name == null) {
+      throw new IllegalArgumentException("Expression and name must not be null.");
+    }
+    if (!enabled) {
+      return expression;
+    }
+    if (expression instanceof InstrumentedExpression) {
+      expression = ((InstrumentedExpression) expression).delegate();
+    }
+    ExpressionMetrics target = metrics(name);
+    target.measure(expression);
+    return new InstrumentedExpression(expression, name, target, this);
+  }
+
+  /**
+   * This method takes in the name of an expression and returns its metrics, or null if nothing was
+   * recorded under the name or it was dropped to make room for other names.
+   *
+   * @param name the name of the expression.
+   * @return the ExpressionMetrics of the name, or null.
+   */
+  public synchronized ExpressionMetrics getMetrics(String name) {
+    return metrics.get(name);
+  }
+
+  /**
+   * This method takes in no arguments and returns the metrics of every name currently kept.
+   *
+   * @return an unmodifiable snapshot of the ExpressionMetrics.
+   */
+  public synchronized Collection<ExpressionMetrics> getAllMetrics() {
+    return Collections.unmodifiableCollection(new ArrayList<>(metrics.values()));
+  }
+
+  /**
+   * This method adds a listener that is called after every parse, evaluation, and failure.
+   *
+   * @param listener the ExpressionListener to add.
+   * @throws IllegalArgumentException if the listener is null.
+   */
+  public synchronized void addListener(ExpressionListener listener)
+          throws IllegalArgumentException {
+    if (listener == null) {
+      throw new IllegalArgumentException("Listener must not be null.");
+    }
+    ExpressionListener[] grown = Arrays.copyOf(listeners, listeners.length + 1);
+    grown[listeners.length] = listener;
+    listeners = grown;
+  }
+
+  /**
+   * This method removes a listener that was added before. Nothing happens if it was not added.
+   *
+   * @param listener the ExpressionListener to remove.
+   */
+  public synchronized void removeListener(ExpressionListener listener) {
+    for (int i = 0; i < listeners.length; i++) {
+      if (listeners[i] == listener) {
+        ExpressionListener[] shrunk = new ExpressionListener[listeners.length - 1];
+        System.arraycopy(listeners, 0, shrunk, 0, i);
+        System.arraycopy(listeners, i + 1, shrunk, i, shrunk.length - i);
+        listeners = shrunk;
+        return;
+      }
+    }
+  }
+
+  /**
+   * This method adds every ExpressionListener provided on the class path through the
+   * ServiceLoader and returns how many were added.
+   *
+   * @return the number of listeners found.
+   */
+  public int loadListeners() {
+    int loaded = 0;
+    for (ExpressionListener listener : ServiceLoader.load(ExpressionListener.class)) {
+      addListener(listener);
+      loaded++;
+    }
+    return loaded;
+  }
+
+  /**
+   * This method registers the metrics of every name as an MBean with the given MBeanServer, and
+   * the metrics of names recorded later as soon as they appear. Each is registered as
+   * expression:type=ExpressionMetrics,name="the name". A name whose ObjectName is already
+   * registered, for example by another Instrumentation exporting to the same MBeanServer, is
+   * recorded as usual but not exported, and the MBean already registered is left alone.
+   *
+   * @param server the MBeanServer to export to, such as the platform MBeanServer.
+   * @throws IllegalStateException if the metrics are already exported or cannot be registered.
+   */
+  public synchronized void exportTo(MBeanServer server) throws IllegalStateException {
+    if (this.server != null) {
+      throw new IllegalStateException("Metrics are already exported.");
+    }
+    this.server = server;
+    for (ExpressionMetrics target : metrics.values()) {
+      register(target);
+    }
+  }
+
+  /**
+   * This method takes in the name of an expression and returns the JMX ObjectName its metrics are
+   * exported under.
+   *
+   * @param name the name of the expression.
+   * @return the ObjectName of its ExpressionMetrics.
+   * @throws IllegalArgumentException if the name cannot be quoted into an ObjectName.
+   */
+  public static ObjectName objectName(String name) throws IllegalArgumentException {
+    try {
+      return new ObjectName("expression:type=ExpressionMetrics,name=" + ObjectName.quote(name));
+    } catch (JMException e) {
+      throw new IllegalArgumentException("Name cannot be exported.", e);
+    }
+  }
+
+  /**
+   * Returns the listeners to notify, without copying them.
+   *
+   * @return the current listeners.
+   */
+  ExpressionListener[] listeners() {
+    return listeners;
+  }
+
+  /**
+   * Counts a failure and notifies the listeners of it.
+   *
+   * @param target the metrics of the failed expression.
+   * @param failure the exception that is about to be thrown.
+   */
+  void failed(ExpressionMetrics target, RuntimeException failure) {
+    failed(target, target.getName(), failure);
+  }
+
+  /**
+   * Counts a failure and notifies the listeners of it under the given name.
+   *
+   * @param target the metrics the failure is counted in.
+   * @param name the name the listeners are given.
+   * @param failure the exception that is about to be thrown.
+   */
+  private void failed(ExpressionMetrics target, String name, RuntimeException failure) {
+    target.recordFailure();
+    for (ExpressionListener listener : listeners) {
+      listener.onFailure(name, failure);
+    }
+  }
+
+  /**
+   * Returns the metrics of a name, creating and exporting them the first time and marking them as
+   * the most recently used. The lock of this is held, so exportTo never misses or registers twice a
+   * name created meanwhile, and a name dropped to make room is unregistered at once.
+   *
+   * @param name the name of the expression.
+   * @return the ExpressionMetrics of the name.
+   */
+  private synchronized ExpressionMetrics metrics(String name) {
+    ExpressionMetrics target = metrics.get(name);
+    if (target == null) {
+      target = new ExpressionMetrics(name);
+      if (server != null) {
+        register(target);
+      }
+      metrics.put(name, target);
+    }
+    return target;
+  }
+
+  /**
+   * Registers one ExpressionMetrics with the MBeanServer, unless its ObjectName is already taken.
+   * Guarded by this.
+   *
+   * @param target the metrics to register.
+   */
+  private void register(ExpressionMetrics target) {
+    try {
+      server.registerMBean(target, objectName(target.getName()));
+      exported.add(target.getName());
+    } catch (InstanceAlreadyExistsException e) {
+      return;
+    } catch (JMException e) {
+      throw new IllegalStateException("Metrics cannot be exported.", e);
+    }
+  }
+
+  /**
+   * Unregisters one ExpressionMetrics from the MBeanServer, if this Instrumentation registered it.
+   * Guarded by this.
+   *
+   * @param target the metrics to unregister.
+   */
+  private void unregister(ExpressionMetrics target) {
+    if (!exported.remove(target.getName())) {
+      return;
+    }
+    try {
+      server.unregisterMBean(objectName(target.getName()));
+    } catch (JMException e) {
+      throw new IllegalStateException("Metrics cannot be unexported.", e);
+    }
+  }
+
+  /**
+   * This class represents the metrics kept by name: an access-ordered LinkedHashMap that drops,
+   * and unregisters, its least recently used name once it holds more than its capacity, like a
+   * stripe of ExpressionCache. All access is synchronized on the enclosing Instrumentation.
+   */
+  private final class Names extends LinkedHashMap<String,ExpressionMetrics> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int capacity;
+
+    /**
+     * Constructs an empty Names holding at most capacity names.
+     *
+     * @param capacity the largest number of names.
+     */
+    Names(int capacity) {
+      super(16, 0.75f, true);
+      this.capacity = capacity;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String,ExpressionMetrics> eldest) {
+      if (size() <= capacity) {
+        return false;
+      }
+      unregister(eldest.getValue());
+      return true;
+    }
+
+  }
+
+}
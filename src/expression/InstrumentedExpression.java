@@ -0,0 +1,144 @@
+/**
+ * All source code has been added into the expression package.
+ */
+
+package expression;
+
+/**
+ * Import Map package.
+ */
+import java.util.Map;
+
+/**
+ * This class wraps an Expression created by Instrumentation.instrument and records the latency of
+ * every evaluation, in separate histograms for single evaluations and for batches, and every
+ * exception thrown by one, in the ExpressionMetrics of its name. While
+ * the Instrumentation is disabled it calls the wrapped expression directly after reading one
+ * volatile flag. Rendering and slot lookups are passed through without being measured.
+ */
+final class InstrumentedExpression implements Expression {
+
+  private final Expression delegate;
+  private final String name;
+  private final ExpressionMetrics metrics;
+  private final Instrumentation instrumentation;
+
+  /**
+   * Constructs an InstrumentedExpression around the given expression.
+   *
+   * @param delegate the Expression that is evaluated.
+   * @param name the name the metrics are recorded under.
+   * @param metrics the ExpressionMetrics of the name.
+   * @param instrumentation the Instrumentation that decides whether to record.
+   */
+  InstrumentedExpression(Expression delegate, String name, ExpressionMetrics metrics,
+                         Instrumentation instrumentation) {
+    this.delegate = delegate;
+    this.name = name;
+    this.metrics = metrics;
+    this.instrumentation = instrumentation;
+  }
+
+  /**
+   * Returns the wrapped expression.
+   *
+   * @return the Expression that is evaluated.
+   */
+  Expression delegate() {
+    return delegate;
+  }
+
+  @Override
+  public String infix() {
+    return delegate.infix();
+  }
+
+  @Override
+  public double evaluate(Map<String,Double> variables) throws ArithmeticException {
+    if (!instrumentation.isEnabled()) {
+      return delegate.evaluate(variables);
+    }
+    long start = System.nanoTime();
+    double result;
+    try {
+      result = delegate.evaluate(variables);
+    } catch (RuntimeException e) {
+      instrumentation.failed(metrics, e);
+      throw e;
+    }
+    evaluated(System.nanoTime() - start);
+    return result;
+  }
+
+  @Override
+  public double evaluate(double[] slots) {
+    if (!instrumentation.isEnabled()) {
+      return delegate.evaluate(slots);
+    }
+    long start = System.nanoTime();
+    double result;
+    try {
+      result = delegate.evaluate(slots);
+    } catch (RuntimeException e) {
+      instrumentation.failed(metrics, e);
+      throw e;
+    }
+    evaluated(System.nanoTime() - start);
+    return result;
+  }
+
+  @Override
+  public void evaluate(double[][] columns, int from, int to, double[] out, int offset)
+          throws ArithmeticException, IndexOutOfBoundsException {
+    if (!instrumentation.isEnabled()) {
+      delegate.evaluate(columns, from, to, out, offset);
+      return;
+    }
+    long start = System.nanoTime();
+    try {
+      delegate.evaluate(columns, from, to, out, offset);
+    } catch (RuntimeException e) {
+      instrumentation.failed(metrics, e);
+      throw e;
+    }
+    long nanos = System.nanoTime() - start;
+    int rows = Math.max(to - from, 0);
+    metrics.recordBatch(rows, nanos);
+    for (ExpressionListener listener : instrumentation.listeners()) {
+      listener.onBatch(name, rows, nanos);
+    }
+  }
+
+  @Override
+  public int slotOf(String variable) {
+    return delegate.slotOf(variable);
+  }
+
+  @Override
+  public String[] getVariables() {
+    return delegate.getVariables();
+  }
+
+  @Override
+  public String schemeExpression() {
+    return delegate.schemeExpression();
+  }
+
+  @Override
+  public String toString() {
+    return delegate.toString();
+  }
+
+  /**
+   * Records a successful single evaluation and notifies the listeners of it.
+   *
+   * @param nanos the time the evaluation took.
+   */
+  private void evaluated(long nanos) {
+    metrics.recordEvaluation(nanos);
+    for (ExpressionListener listener : instrumentation.listeners()) {
+      listener.onEvaluate(name, nanos);
+    }
+  }
+
+}
@@ -0,0 +1,89 @@
+/**
+ * All source code has been added into the expression package.
+ */
+
+package expression;
+
+/**
+ * This class represents a closed interval [lower, upper] of doubles, the range of a variable or
+ * the bounds of an expression computed by IntervalEvaluator. Either end may be infinite, and an
+ * interval whose ends are equal holds a single value. Intervals are immutable.
+ */
+public final class Interval {
+
+  /**
+   * The interval of every double, which is the bound of an expression nothing is known about.
+   */
+  public static final Interval ALL = new Interval(Double.NEGATIVE_INFINITY,
+          Double.POSITIVE_INFINITY);
+
+  private final double lower;
+  private final double upper;
+
+  /**
+   * Constructs the Interval from lower to upper, both included. Throws an IllegalArgumentException
+   * if lower is greater than upper or either is NaN.
+   *
+   * @param lower the smallest value of the interval.
+   * @param upper the largest value of the interval.
+   * @throws IllegalArgumentException if the interval is empty or an end is NaN.
+   */
+  public Interval(double lower, double upper) throws IllegalArgumentException {
+    if (!(lower <= upper)) {
+      throw new IllegalArgumentException("Interval is invalid.");
+    }
+    this.lower = lower;
+    this.upper = upper;
+  }
+
+  /**
+   * This method takes in a value and returns the Interval holding only that value.
+   *
+   * @param value the value of the interval.
+   * @return the Interval [value, value].
+   * @throws IllegalArgumentException if the value is NaN.
+   */
+  public static Interval of(double value) throws IllegalArgumentException {
+    return new Interval(value, value);
+  }
+
+  /**
+   * This method takes in no arguments and returns the smallest value of this interval.
+   *
+   * @return the lower end of the interval.
+   */
+  public double getLower() {
+    return lower;
+  }
+
+  /**
+   * This method takes in no arguments and returns the largest value of this interval.
+   *
+   * @return the upper end of the interval.
+   */
+  public double getUpper() {
+    return upper;
+  }
+
+  /**
+   * This method takes in a value and returns true if it lies in this interval, ends included.
+   *
+   * @param value the value to test.
+   * @return true if lower &lt;= value &lt;= upper.
+   */
+  public boolean contains(double value) {
+    return lower <= value && value <= upper;
+  }
+
+  /**
+   * This method takes in no arguments and returns the interval as a String of the form
+   * [lower, upper].
+   *
+   * @return the String form of the interval.
+   */
+  @Override
+  public String toString() {
+    return "[" + lower + ", " + upper + "]";
+  }
+
+}
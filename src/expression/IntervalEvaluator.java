@@ -0,0 +1,507 @@
+/**
+ * All source code has been added into the expression package.
+ */
+
+package expression;
+
+/**
+ * Import Arrays, IdentityHashMap, and Map packages.
+ */
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * This class evaluates an ExpressionTree by interval arithmetic: every variable is given an
+ * Interval instead of a value, and one pass over the tree computes an Interval that holds the
+ * value of the expression for every choice of the variables in their intervals. A question like
+ * "can this exceed 100 anywhere in these ranges?" is then answered without sampling: if the upper
+ * bound is at most 100, no input can, and only the expressions whose bounds cross 100 need an
+ * exact evaluation.
+ *
+ * <p>The bounds are sound but not always tight, since every operator bounds its result from the
+ * bounds of its operands alone, so an expression like x x - gets [-2, 2] rather than [0, 0] for x
+ * in [-1, 1]. Every arithmetic result is rounded outward by one unit in the last place, so the
+ * bounds hold both for the real value of the expression and for the value evaluate computes in
+ * floating point. A zero end of an interval stands for both 0.0 and -0.0, since a variable or
+ * subexpression in the interval can take either value, so division by an interval that contains
+ * zero, even only at one end, gives the whole line: 1 / 0.0 is positive infinity but 1 / -0.0 is
+ * negative infinity. For ^, an exponent that is a single integer is bounded exactly for every
+ * base, any exponent is bounded for bases that are not negative, and the rest give the whole
+ * line; a base interval with a lower end of zero reaches negative infinity when the exponent can
+ * be a negative odd integer, as -0.0 ^ -1 is. A function created with Operator.unary or
+ * Operator.binary is only known at single points, so it gives the whole line unless all its
+ * operands are single values. Results that are NaN, like those of 0 / 0 or a NaN literal, are
+ * not bounded: they get the whole line.
+ *
+ * <p>The nodes are stored in postfix order in flat arrays, like those of GradientEvaluator, with
+ * every node shared by several parents stored once. The arrays for the bounds are allocated once
+ * by the constructor and evaluation allocates nothing but the returned Interval, so an
+ * IntervalEvaluator is not thread-safe; use one per thread.
+ */
+public final class IntervalEvaluator {
+
+  private final ExpressionTree tree;
+  private final String[] variables;
+
+  /**
+   * Opcode of each operator node, or Program.CONST and Program.VAR for leaves.
+   */
+  private final byte[] kinds;
+
+  /**
+   * Index of the left operand of each operator node, or the slot of each variable.
+   */
+  private final int[] left;
+
+  /**
+   * Index of the right operand of each operator node, or -1 for a unary operator.
+   */
+  private final int[] right;
+
+  /**
+   * Operator of each CALL1 and CALL2 node, or null for the other nodes.
+   */
+  private final Operator[] functions;
+
+  /**
+   * Lower bound of each node, with the literals filled in by the constructor.
+   */
+  private final double[] lows;
+
+  /**
+   * Upper bound of each node, with the literals filled in by the constructor.
+   */
+  private final double[] highs;
+
+  /**
+   * Buffers the intervals of a Map or of one row of columns are copied into, indexed by slot.
+   */
+  private final double[] lower;
+  private final double[] upper;
+
+  /**
+   * Constructs an IntervalEvaluator of the given ExpressionTree.
+   *
+   * @param tree the ExpressionTree to bound.
+   */
+  public IntervalEvaluator(ExpressionTree tree) {
+    this.tree = tree;
+    variables = tree.getVariables();
+    lower = new double[variables.length];
+    upper = new double[variables.length];
+
+    Map<ExpressionNode,Integer> indexes = new IdentityHashMap<>();
+    byte[] kinds = new byte[16];
+    int[] left = new int[16];
+    int[] right = new int[16];
+    Operator[] functions = new Operator[16];
+    double[] values = new double[16];
+    int[] operands = new int[16];
+    int sp = 0;
+    int index = 0;
+    ExpressionNode[] pending = new ExpressionNode[16];
+    int[] visited = new int[16];
+    int top = 0;
+    pending[top++] = tree.root();
+    while (top > 0) {
+      ExpressionNode node = pending[top - 1];
+      int next = visited[top - 1];
+      Integer known = indexes.get(node);
+      if (known == null && next < node.arity()) {
+        visited[top - 1] = next + 1;
+        if (top == pending.length) {
+          pending = Arrays.copyOf(pending, top * 2);
+          visited = Arrays.copyOf(visited, top * 2);
+        }
+        pending[top] = node.getChild(next);
+        visited[top++] = 0;
+        continue;
+      }
+      top--;
+      if (known == null) {
+        if (index == kinds.length) {
+          kinds = Arrays.copyOf(kinds, index * 2);
+          left = Arrays.copyOf(left, index * 2);
+          right = Arrays.copyOf(right, index * 2);
+          functions = Arrays.copyOf(functions, index * 2);
+          values = Arrays.copyOf(values, index * 2);
+        }
+        if (node instanceof VariableNode) {
+          kinds[index] = Program.VAR;
+          left[index] = ((VariableNode) node).getSlot();
+        }
+        else if (node.arity() == 0) {
+          kinds[index] = Program.CONST;
+          values[index] = node.evaluate(lower);
+        }
+        else {
+          kinds[index] = node instanceof OperatorNode
+                  ? ((OperatorNode) node).opcode() : Program.opcode(node.getTerm());
+          if (kinds[index] == Program.CALL1 || kinds[index] == Program.CALL2) {
+            functions[index] = ((OperatorNode) node).operator();
+          }
+          if (Program.arity(kinds[index]) == 1) {
+            left[index] = operands[--sp];
+            right[index] = -1;
+          }
+          else {
+            right[index] = operands[--sp];
+            left[index] = operands[--sp];
+          }
+        }
+        known = index++;
+        indexes.put(node, known);
+      }
+      if (sp == operands.length) {
+        operands = Arrays.copyOf(operands, sp * 2);
+      }
+      operands[sp++] = known;
+    }
+    this.kinds = Arrays.copyOf(kinds, index);
+    this.left = Arrays.copyOf(left, index);
+    this.right = Arrays.copyOf(right, index);
+    this.functions = Arrays.copyOf(functions, index);
+    lows = Arrays.copyOf(values, index);
+    highs = Arrays.copyOf(values, index);
+    for (int i = 0; i < index; i++) {
+      if (Double.isNaN(lows[i])) {
+        whole(i);
+      }
+    }
+  }
+
+  /**
+   * This method takes in no arguments and returns the ExpressionTree this evaluator bounds.
+   *
+   * @return the ExpressionTree of this evaluator.
+   */
+  public ExpressionTree getTree() {
+    return tree;
+  }
+
+  /**
+   * This method takes in the lower and upper ends of the interval of every variable, indexed by
+   * slot, and returns an Interval holding the value of the tree for every choice of the variables
+   * in their intervals.
+   *
+   * @param lower the lower ends, where lower[i] bounds the value of getVariables()[i].
+   * @param upper the upper ends, where upper[i] bounds the value of getVariables()[i].
+   * @return the bounds of the value of the tree.
+   * @throws IllegalArgumentException if the interval of a variable is empty or has a NaN end.
+   */
+  public Interval evaluate(double[] lower, double[] upper) throws IllegalArgumentException {
+    int root = run(lower, upper);
+    return new Interval(lows[root], highs[root]);
+  }
+
+  /**
+   * This method takes in a Map of String to Interval variables and returns an Interval holding the
+   * value of the tree for every choice of the variables in their intervals. Throws an
+   * ArithmeticException if a variable of the tree has no Interval in the Map.
+   *
+   * @param variables the Map with the interval of every variable in the expression tree.
+   * @return the bounds of the value of the tree.
+   * @throws ArithmeticException if the interval of a variable cannot be determined.
+   */
+  public Interval evaluate(Map<String,Interval> variables) throws ArithmeticException {
+    for (int slot = 0; slot < this.variables.length; slot++) {
+      if (this.variables[slot] == null) {
+        continue;
+      }
+      Interval interval = variables.get(this.variables[slot]);
+      if (interval == null) {
+        throw new ArithmeticException("Cannot evaluate variables in expression.");
+      }
+      lower[slot] = interval.getLower();
+      upper[slot] = interval.getUpper();
+    }
+    return evaluate(lower, upper);
+  }
+
+  /**
+   * This method bounds the tree for the rows from (inclusive) to to (exclusive) of the given
+   * columns, where the interval of a slot in row r is [lower[slot][r], upper[slot][r]], and writes
+   * the bounds of row r into outLower[offset + r - from] and outUpper[offset + r - from]. Nothing
+   * is allocated, so screening many ranges this way costs about one exact evaluation per row.
+   *
+   * @param lower the lower ends of the variable intervals, one column per slot.
+   * @param upper the upper ends of the variable intervals, one column per slot.
+   * @param from the first row to bound.
+   * @param to one past the last row to bound.
+   * @param outLower the array the lower bounds are written to.
+   * @param outUpper the array the upper bounds are written to.
+   * @param offset the index in outLower and outUpper of the bounds of row from.
+   * @throws ArithmeticException if the columns of a variable in the expression tree are missing.
+   * @throws IndexOutOfBoundsException if the rows or the output range are out of bounds.
+   * @throws IllegalArgumentException if the interval of a variable in a row is empty or has a NaN
+   *         end.
+   */
+  public void evaluate(double[][] lower, double[][] upper, int from, int to, double[] outLower,
+                       double[] outUpper, int offset)
+          throws ArithmeticException, IndexOutOfBoundsException, IllegalArgumentException {
+    for (int i = 0; i < kinds.length; i++) {
+      if (kinds[i] != Program.VAR) {
+        continue;
+      }
+      int slot = left[i];
+      if (slot >= lower.length || slot >= upper.length || lower[slot] == null
+              || upper[slot] == null) {
+        throw new ArithmeticException("Cannot evaluate variables in expression.");
+      }
+      if (from < 0 || to > lower[slot].length || to > upper[slot].length) {
+        throw new IndexOutOfBoundsException("Rows " + from + " to " + to + " are out of bounds.");
+      }
+    }
+    if (from < 0 || to < from || offset < 0 || offset > outLower.length - (to - from)
+            || offset > outUpper.length - (to - from)) {
+      throw new IndexOutOfBoundsException("Rows " + from + " to " + to + " are out of bounds.");
+    }
+    for (int r = from; r < to; r++) {
+      for (int i = 0; i < kinds.length; i++) {
+        if (kinds[i] == Program.VAR) {
+          this.lower[left[i]] = lower[left[i]][r];
+          this.upper[left[i]] = upper[left[i]][r];
+        }
+      }
+      int root = run(this.lower, this.upper);
+      outLower[offset + r - from] = lows[root];
+      outUpper[offset + r - from] = highs[root];
+    }
+  }
+
+  /**
+   * Computes the bounds of every node from the given variable intervals and returns the index of
+   * the root.
+   *
+   * @param lower the lower ends of the variable intervals, indexed by slot.
+   * @param upper the upper ends of the variable intervals, indexed by slot.
+   * @return the index of the root node.
+   * @throws IllegalArgumentException if the interval of a variable is empty or has a NaN end.
+   */
+  private int run(double[] lower, double[] upper) throws IllegalArgumentException {
+    int n = kinds.length;
+    for (int i = 0; i < n; i++) {
+      byte kind = kinds[i];
+      if (kind == Program.VAR) {
+        double lo = lower[left[i]];
+        double hi = upper[left[i]];
+        if (!(lo <= hi)) {
+          throw new IllegalArgumentException("Interval is invalid.");
+        }
+        lows[i] = lo;
+        highs[i] = hi;
+      }
+      else if (kind != Program.CONST) {
+        bound(i);
+      }
+    }
+    return n - 1;
+  }
+
+  /**
+   * Computes the bounds of an operator node from the bounds of its operands.
+   *
+   * @param node the index of the operator node.
+   */
+  private void bound(int node) {
+    double al = lows[left[node]];
+    double ah = highs[left[node]];
+    switch (kinds[node]) {
+      case Program.NEG:
+        lows[node] = -ah;
+        highs[node] = -al;
+        return;
+      case Program.CALL1:
+        if (al == ah) {
+          point(node, functions[node].apply(al));
+        }
+        else {
+          whole(node);
+        }
+        return;
+      default:
+        break;
+    }
+    double bl = lows[right[node]];
+    double bh = highs[right[node]];
+    switch (kinds[node]) {
+      case Program.ADD:
+        lows[node] = down(al + bl);
+        highs[node] = up(ah + bh);
+        break;
+      case Program.SUB:
+        lows[node] = down(al - bh);
+        highs[node] = up(ah - bl);
+        break;
+      case Program.MUL:
+        double p = times(al, bl);
+        double q = times(al, bh);
+        double s = times(ah, bl);
+        double t = times(ah, bh);
+        lows[node] = down(Math.min(Math.min(p, q), Math.min(s, t)));
+        highs[node] = up(Math.max(Math.max(p, q), Math.max(s, t)));
+        break;
+      case Program.DIV:
+        divide(node, al, ah, bl, bh);
+        break;
+      case Program.POW:
+        power(node, al, ah, bl, bh);
+        break;
+      case Program.MIN:
+        lows[node] = Math.min(al, bl);
+        highs[node] = Math.min(ah, bh);
+        break;
+      case Program.MAX:
+        lows[node] = Math.max(al, bl);
+        highs[node] = Math.max(ah, bh);
+        break;
+      default:
+        if (al == ah && bl == bh) {
+          point(node, functions[node].apply(al, bl));
+        }
+        else {
+          whole(node);
+        }
+        break;
+    }
+  }
+
+  /**
+   * Computes the bounds of a quotient node from the bounds [al, ah] of the dividend and [bl, bh]
+   * of the divisor.
+   *
+   * @param node the index of the quotient node.
+   * @param al the lower bound of the dividend.
+   * @param ah the upper bound of the dividend.
+   * @param bl the lower bound of the divisor.
+   * @param bh the upper bound of the divisor.
+   */
+  private void divide(int node, double al, double ah, double bl, double bh) {
+    if (bl > 0.0 || bh < 0.0) {
+      double p = al / bl;
+      double q = al / bh;
+      double s = ah / bl;
+      double t = ah / bh;
+      lows[node] = down(Math.min(Math.min(p, q), Math.min(s, t)));
+      highs[node] = up(Math.max(Math.max(p, q), Math.max(s, t)));
+    }
+    else {
+      whole(node);
+    }
+  }
+
+  /**
+   * Computes the bounds of a power node from the bounds [al, ah] of the base and [bl, bh] of the
+   * exponent.
+   *
+   * @param node the index of the power node.
+   * @param al the lower bound of the base.
+   * @param ah the upper bound of the base.
+   * @param bl the lower bound of the exponent.
+   * @param bh the upper bound of the exponent.
+   */
+  private void power(int node, double al, double ah, double bl, double bh) {
+    double lo;
+    double hi;
+    if (bl == bh && bl == Math.rint(bl) && !Double.isInfinite(bl)) {
+      if (bl == 0.0) {
+        point(node, 1.0);
+        return;
+      }
+      double p = Math.pow(al, bl);
+      double q = Math.pow(ah, bl);
+      boolean even = bl % 2.0 == 0.0;
+      if (al > 0.0 || ah < 0.0 || bl > 0.0 && !even) {
+        lo = Math.min(p, q);
+        hi = Math.max(p, q);
+      }
+      else if (even) {
+        lo = bl > 0.0 ? 0.0 : Math.min(p, q);
+        hi = bl > 0.0 ? Math.max(p, q) : Double.POSITIVE_INFINITY;
+      }
+      else {
+        whole(node);
+        return;
+      }
+    }
+    else if (al >= 0.0) {
+      double p = Math.pow(al, bl);
+      double q = Math.pow(al, bh);
+      double s = Math.pow(ah, bl);
+      double t = Math.pow(ah, bh);
+      lo = Math.min(Math.min(p, q), Math.min(s, t));
+      hi = Math.max(Math.max(p, q), Math.max(s, t));
+      double odd = Math.ceil(bl) % 2.0 == 0.0 ? Math.ceil(bl) + 1.0 : Math.ceil(bl);
+      if (al == 0.0 && (bl == Double.NEGATIVE_INFINITY || odd <= Math.min(bh, -1.0))) {
+        lo = Double.NEGATIVE_INFINITY;
+      }
+    }
+    else {
+      whole(node);
+      return;
+    }
+    lows[node] = down(lo);
+    highs[node] = up(hi);
+  }
+
+  /**
+   * Sets the bounds of a node to a single value, or to the whole line if the value is NaN.
+   *
+   * @param node the index of the node.
+   * @param value the value of the node.
+   */
+  private void point(int node, double value) {
+    if (Double.isNaN(value)) {
+      whole(node);
+    }
+    else {
+      lows[node] = value;
+      highs[node] = value;
+    }
+  }
+
+  /**
+   * Sets the bounds of a node to the whole line.
+   *
+   * @param node the index of the node.
+   */
+  private void whole(int node) {
+    lows[node] = Double.NEGATIVE_INFINITY;
+    highs[node] = Double.POSITIVE_INFINITY;
+  }
+
+  /**
+   * Returns the product of two bounds, which is 0 if either is 0 even if the other is infinite.
+   *
+   * @param a the left bound.
+   * @param b the right bound.
+   * @return the product.
+   */
+  private static double times(double a, double b) {
+    return a == 0.0 || b == 0.0 ? 0.0 : a * b;
+  }
+
+  /**
+   * Rounds a computed lower bound down by one unit in the last place, so that it is at most the
+   * exact bound, and widens a NaN bound to negative infinity.
+   *
+   * @param x the computed lower bound.
+   * @return the rounded lower bound.
+   */
+  private static double down(double x) {
+    return Double.isNaN(x) ? Double.NEGATIVE_INFINITY : Math.nextDown(x);
+  }
+
+  /**
+   * Rounds a computed upper bound up by one unit in the last place, so that it is at least the
+   * exact bound, and widens a NaN bound to positive infinity.
+   *
+   * @param x the computed upper bound.
+   * @return the rounded upper bound.
+   */
+  private static double up(double x) {
+    return Double.isNaN(x) ? Double.POSITIVE_INFINITY : Math.nextUp(x);
+  }
+
+}
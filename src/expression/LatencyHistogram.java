@@ -0,0 +1,149 @@
+/**
+ * All source code has been added into the expression package.
+ */
+
+package expression;
+
+/**
+ * Import AtomicLong, AtomicLongArray, and LongAdder packages.
+ */
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class represents a histogram of latencies in nanoseconds in the style of HdrHistogram.
+ * Values below 32 each have their own bucket, and every larger power of two range is split into 32
+ * equal buckets, so any recorded value is reported within about 3 percent of its true value while
+ * the whole range of a long needs fewer than 2000 buckets.
+ *
+ * <p>Recording is lock-free and does not allocate: it increments one bucket, the count, and the
+ * sum, and only updates the maximum when the value is a new maximum. Recording and reading can
+ * happen from any number of threads at once; a reading taken during recording may miss the values
+ * still being recorded.
+ */
+public final class LatencyHistogram {
+
+  /**
+   * Number of bits of a value kept exactly, which gives 32 buckets per power of two.
+   */
+  private static final int SUB_BUCKET_BITS = 5;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  private final AtomicLongArray buckets =
+          new AtomicLongArray((Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sum = new LongAdder();
+  private final AtomicLong max = new AtomicLong();
+
+  /**
+   * This method takes in a latency in nanoseconds and records it. Negative values are recorded as
+   * zero.
+   *
+   * @param nanos the latency to record.
+   */
+  public void record(long nanos) {
+    long value = Math.max(nanos, 0L);
+    buckets.incrementAndGet(indexOf(value));
+    count.increment();
+    sum.add(value);
+    long current = max.get();
+    while (value > current && !max.compareAndSet(current, value)) {
+      current = max.get();
+    }
+  }
+
+  /**
+   * This method takes in no arguments and returns the number of recorded values.
+   *
+   * @return the number of recorded values.
+   */
+  public long getCount() {
+    return count.sum();
+  }
+
+  /**
+   * This method takes in no arguments and returns the mean of the recorded values, or 0 if nothing
+   * was recorded.
+   *
+   * @return the mean latency in nanoseconds.
+   */
+  public double getMean() {
+    long n = count.sum();
+    return n == 0 ? 0.0 : (double) sum.sum() / n;
+  }
+
+  /**
+   * This method takes in no arguments and returns the largest recorded value, or 0 if nothing was
+   * recorded.
+   *
+   * @return the maximum latency in nanoseconds.
+   */
+  public long getMax() {
+    return max.get();
+  }
+
+  /**
+   * This method takes in a percentile between 0 and 100 and returns the smallest latency that at
+   * least that percentage of the recorded values are equivalent to or below, or 0 if nothing was
+   * recorded. The result is the upper end of the bucket the percentile falls into, but never more
+   * than the maximum.
+   *
+   * @param percentile the percentile, such as 50 for the median or 99.
+   * @return the latency in nanoseconds at the percentile.
+   * @throws IllegalArgumentException if the percentile is not between 0 and 100.
+   */
+  public long getValueAtPercentile(double percentile) throws IllegalArgumentException {
+    if (!(percentile >= 0.0 && percentile <= 100.0)) {
+      throw new IllegalArgumentException("Percentile must be between 0 and 100.");
+    }
+    long[] counts = new long[buckets.length()];
+    long total = 0;
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = buckets.get(i);
+      total += counts[i];
+    }
+    if (total == 0) {
+      return 0L;
+    }
+    long target = Math.max(1L, (long) Math.ceil(percentile / 100.0 * total));
+    long seen = 0;
+    for (int i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (seen >= target) {
+        return Math.min(highestEquivalentValue(i), getMax());
+      }
+    }
+    return getMax();
+  }
+
+  /**
+   * Returns the bucket of a non-negative value.
+   *
+   * @param value the value.
+   * @return the index of its bucket.
+   */
+  static int indexOf(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    return (shift + 1) << SUB_BUCKET_BITS | (int) (value >>> shift) & (SUB_BUCKETS - 1);
+  }
+
+  /**
+   * Returns the largest value that falls into a bucket.
+   *
+   * @param index the index of the bucket.
+   * @return the upper end of the bucket.
+   */
+  static long highestEquivalentValue(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    int shift = (index >>> SUB_BUCKET_BITS) - 1;
+    long lowest = (long) (SUB_BUCKETS | index & (SUB_BUCKETS - 1)) << shift;
+    return lowest + (1L << shift) - 1;
+  }
+
+}
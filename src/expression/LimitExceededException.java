@@ -0,0 +1,70 @@
+/**
+ * All source code has been added into the expression package.
+ */
+
+package expression;
+
+/**
+ * This class represents the exception thrown when parsing or evaluating an expression would exceed
+ * one of its ExpressionLimits. It is an IllegalArgumentException, like the exception thrown for an
+ * invalid expression, so code that already rejects invalid input rejects input over budget too,
+ * while code that wants to tell them apart can catch this type and ask which limit was exceeded.
+ */
+public class LimitExceededException extends IllegalArgumentException {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * The kinds of limit an expression can exceed.
+   */
+  public enum Limit {
+
+    /**
+     * The number of terms of the postfix expression, which is also its number of nodes.
+     */
+    TOKENS,
+
+    /**
+     * The depth of the expression tree, where a lone operand has depth 1.
+     */
+    DEPTH,
+
+    /**
+     * The number of distinct variables of the expression.
+     */
+    VARIABLES,
+
+    /**
+     * The number of nodes visited by one evaluation.
+     */
+    STEPS,
+
+    /**
+     * The time one parse or evaluation may take.
+     */
+    TIME
+  }
+
+  private final Limit limit;
+
+  /**
+   * Constructs a LimitExceededException for the given limit with the given message.
+   *
+   * @param limit the Limit that was exceeded.
+   * @param message the detail message.
+   */
+  public LimitExceededException(Limit limit, String message) {
+    super(message);
+    this.limit = limit;
+  }
+
+  /**
+   * This method takes in no arguments and returns the kind of limit that was exceeded.
+   *
+   * @return the exceeded Limit.
+   */
+  public Limit getLimit() {
+    return limit;
+  }
+
+}
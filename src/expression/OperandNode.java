@@ -17,7 +17,7 @@ import java.util.Map;
  */
 public class OperandNode implements ExpressionNode {
 
-  private String term;
+  private final String term;
 
   /**
    * Constructs the OperandNode object that takes a string as a parameter and
@@ -29,6 +29,38 @@ public class OperandNode implements ExpressionNode {
     term = input;
   }
 
+  /**
+   * Public method that takes in no arguments as parameters and returns the literal or variable
+   * name held by this OperandNode.
+   *
+   * @return the term of the OperandNode as a String data type.
+   */
+  public String getTerm() {
+    return term;
+  }
+
+  /**
+   * Public method that takes in no arguments as parameters and returns 0 since an OperandNode is
+   * always a leaf of the expression tree.
+   *
+   * @return the number of children of this OperandNode, which is always 0.
+   */
+  public int arity() {
+    return 0;
+  }
+
+  /**
+   * Public method that takes in the index of a child and always throws an
+   * IndexOutOfBoundsException since an OperandNode has no children.
+   *
+   * @param index the position of the child.
+   * @return never returns normally.
+   * @throws IndexOutOfBoundsException always, since an OperandNode has no children.
+   */
+  public ExpressionNode getChild(int index) {
+    throw new IndexOutOfBoundsException("OperandNode has no children.");
+  }
+
   /**
    * Public method takes in a String and an ExpressionNode object and return this
    * OperandNode object.
@@ -64,6 +96,23 @@ public class OperandNode implements ExpressionNode {
     }
   }
 
+  /**
+   * Public method takes in the variable values indexed by slot and returns the numerical value of
+   * this OperandNode. A plain OperandNode is not bound to a slot, so it throws an
+   * ArithmeticException unless its term is a number.
+   *
+   * @param slots the variable values indexed by slot.
+   * @return the evaluation of this OperandNode as a double data type.
+   * @throws ArithmeticException if the term of the OperandNode is not a number.
+   */
+  public double evaluate(double[] slots) throws ArithmeticException {
+    try {
+      return Double.parseDouble(term);
+    } catch (NumberFormatException a) {
+      throw new ArithmeticException("Cannot evaluate variables in expression.");
+    }
+  }
+
   /**
    * Public method that takes in no arguments as parameters and returns the term of the OperandNode
    * as a String data type for conversion of the expression to infix form.
@@ -0,0 +1,315 @@
+/**
+ * All source code has been added into the expression package.
+ */
+
+package expression;
+
+/**
+ * Import DoubleBinaryOperator and DoubleUnaryOperator packages.
+ */
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * This class represents an operator that can appear in a postfix expression: its symbol, its arity,
+ * and the function computing it. Operators are registered in an OperatorRegistry, and the parser
+ * binds every operator term to its Operator once, so evaluation never compares strings.
+ *
+ * <p>The built-in operators each have their own opcode, which every evaluator handles with a
+ * switch or a dedicated instruction: the four arithmetic operators, ^ for Math.pow, min and max for
+ * Math.min and Math.max, and neg for unary negation. Operators created with unary or binary are
+ * evaluated by calling their function, and are not inlined by BytecodeCompiler. Functions must be
+ * pure, since the same node may be evaluated any number of times, or not at all after constant
+ * folding.
+ */
+public final class Operator {
+
+  /**
+   * Addition, written +.
+   */
+  public static final Operator ADD = new Operator("+", Program.ADD, null, null);
+
+  /**
+   * Subtraction, written -.
+   */
+  public static final Operator SUBTRACT = new Operator("-", Program.SUB, null, null);
+
+  /**
+   * Multiplication, written *.
+   */
+  public static final Operator MULTIPLY = new Operator("*", Program.MUL, null, null);
+
+  /**
+   * Division, written /.
+   */
+  public static final Operator DIVIDE = new Operator("/", Program.DIV, null, null);
+
+  /**
+   * Exponentiation with Math.pow, written ^, where a b ^ is a to the power b.
+   */
+  public static final Operator POWER = new Operator("^", Program.POW, null, null);
+
+  /**
+   * The smaller operand with Math.min, written min.
+   */
+  public static final Operator MIN = new Operator("min", Program.MIN, null, null);
+
+  /**
+   * The larger operand with Math.max, written max.
+   */
+  public static final Operator MAX = new Operator("max", Program.MAX, null, null);
+
+  /**
+   * Unary negation, written neg.
+   */
+  public static final Operator NEGATE = new Operator("neg", Program.NEG, null, null);
+
+  /**
+   * Relative step of the central differences that approximate the derivatives of functions, the
+   * cube root of the machine epsilon, which balances truncation against rounding error.
+   */
+  private static final double STEP = 6.0554544523933395E-6;
+
+  private final String symbol;
+
+  /**
+   * Opcode the operator is bound to; Program.CALL1 and Program.CALL2 for functions.
+   */
+  private final byte opcode;
+
+  private final DoubleUnaryOperator unary;
+  private final DoubleBinaryOperator binary;
+
+  /**
+   * Constructs an Operator from its parts.
+   *
+   * @param symbol the term of the operator in postfix expressions.
+   * @param opcode the opcode of the operator.
+   * @param unary the function of a unary CALL1 operator, or null.
+   * @param binary the function of a binary CALL2 operator, or null.
+   */
+  private Operator(String symbol, byte opcode, DoubleUnaryOperator unary,
+                   DoubleBinaryOperator binary) {
+    this.symbol = symbol;
+    this.opcode = opcode;
+    this.unary = unary;
+    this.binary = binary;
+  }
+
+  /**
+   * This method takes in a symbol and a function of one operand and returns the unary Operator
+   * computing it. Throws an IllegalArgumentException if the symbol is empty or contains
+   * whitespace.
+   *
+   * @param symbol the term of the operator in postfix expressions.
+   * @param function the function of the operand.
+   * @return the unary Operator.
+   * @throws IllegalArgumentException if the symbol or the function is invalid.
+   */
+  public static Operator unary(String symbol, DoubleUnaryOperator function)
+          throws IllegalArgumentException {
+    if (function == null) {
+      throw new IllegalArgumentException("Function must not be null.");
+    }
+    return new Operator(check(symbol), Program.CALL1, function, null);
+  }
+
+  /**
+   * This method takes in a symbol and a function of two operands and returns the binary Operator
+   * computing it. Throws an IllegalArgumentException if the symbol is empty or contains
+   * whitespace.
+   *
+   * @param symbol the term of the operator in postfix expressions.
+   * @param function the function of the left and right operands.
+   * @return the binary Operator.
+   * @throws IllegalArgumentException if the symbol or the function is invalid.
+   */
+  public static Operator binary(String symbol, DoubleBinaryOperator function)
+          throws IllegalArgumentException {
+    if (function == null) {
+      throw new IllegalArgumentException("Function must not be null.");
+    }
+    return new Operator(check(symbol), Program.CALL2, null, function);
+  }
+
+  /**
+   * This method takes in no arguments and returns the term of this operator in postfix
+   * expressions.
+   *
+   * @return the symbol of the operator.
+   */
+  public String getSymbol() {
+    return symbol;
+  }
+
+  /**
+   * This method takes in no arguments and returns the number of operands of this operator.
+   *
+   * @return 1 for a unary and 2 for a binary operator.
+   */
+  public int getArity() {
+    return Program.arity(opcode);
+  }
+
+  /**
+   * This method takes in the value of the operand of a unary operator and returns the result of
+   * the operator.
+   *
+   * @param operand the value of the operand.
+   * @return the result of the operator.
+   * @throws IllegalArgumentException if the operator is binary.
+   */
+  public double apply(double operand) throws IllegalArgumentException {
+    if (getArity() != 1) {
+      throw new IllegalArgumentException("Operator " + symbol + " is binary.");
+    }
+    return opcode == Program.CALL1 ? unary.applyAsDouble(operand) : Program.apply(opcode, operand);
+  }
+
+  /**
+   * This method takes in the values of the operands of a binary operator and returns the result
+   * of the operator.
+   *
+   * @param left the value of the left operand.
+   * @param right the value of the right operand.
+   * @return the result of the operator.
+   * @throws IllegalArgumentException if the operator is unary.
+   */
+  public double apply(double left, double right) throws IllegalArgumentException {
+    if (getArity() != 2) {
+      throw new IllegalArgumentException("Operator " + symbol + " is unary.");
+    }
+    return opcode == Program.CALL2 ? binary.applyAsDouble(left, right)
+            : Program.apply(opcode, left, right);
+  }
+
+  /**
+   * This method takes in no arguments and returns the symbol of this operator.
+   *
+   * @return the symbol of the operator.
+   */
+  @Override
+  public String toString() {
+    return symbol;
+  }
+
+  /**
+   * Returns the opcode this operator is bound to.
+   *
+   * @return the opcode of the operator.
+   */
+  byte opcode() {
+    return opcode;
+  }
+
+  /**
+   * Returns true if this operator is a function called through its functional interface rather
+   * than a built-in opcode.
+   *
+   * @return true for operators created with unary or binary.
+   */
+  boolean isFunction() {
+    return opcode == Program.CALL1 || opcode == Program.CALL2;
+  }
+
+  /**
+   * Returns the derivative of the function of a unary operator at the given operand, approximated
+   * by a central difference, since functions are opaque.
+   *
+   * @param x the value of the operand.
+   * @return the slope of the function at x.
+   */
+  double slope(double x) {
+    double h = STEP * Math.max(1.0, Math.abs(x));
+    double above = x + h;
+    double below = x - h;
+    return (unary.applyAsDouble(above) - unary.applyAsDouble(below)) / (above - below);
+  }
+
+  /**
+   * Returns the partial derivative of the function of a binary operator with respect to one of its
+   * operands at the given operands, approximated by a central difference.
+   *
+   * @param operand 0 for the left and 1 for the right operand.
+   * @param left the value of the left operand.
+   * @param right the value of the right operand.
+   * @return the slope of the function along the operand.
+   */
+  double slope(int operand, double left, double right) {
+    double x = operand == 0 ? left : right;
+    double h = STEP * Math.max(1.0, Math.abs(x));
+    double above = x + h;
+    double below = x - h;
+    double high = operand == 0 ? binary.applyAsDouble(above, right)
+            : binary.applyAsDouble(left, above);
+    double low = operand == 0 ? binary.applyAsDouble(below, right)
+            : binary.applyAsDouble(left, below);
+    return (high - low) / (above - below);
+  }
+
+  /**
+   * Returns the function Operator computing the derivative of this function along one of its
+   * operands, as slope does, which is written f' for a unary function f and f'1 or f'2 for the
+   * partial derivatives of a binary one. It takes the same operands as this operator.
+   *
+   * @param operand 0 for the left and 1 for the right operand.
+   * @return the derivative Operator.
+   */
+  Operator derivative(int operand) {
+    if (opcode == Program.CALL1) {
+      return new Operator(symbol + "'", Program.CALL1, this::slope, null);
+    }
+    return new Operator(symbol + "'" + (operand + 1), Program.CALL2, null,
+            (left, right) -> slope(operand, left, right));
+  }
+
+  /**
+   * Returns the built-in operator with the given opcode, or null if the opcode is not that of a
+   * built-in operator.
+   *
+   * @param opcode the opcode.
+   * @return the built-in Operator, or null.
+   */
+  static Operator builtIn(byte opcode) {
+    switch (opcode) {
+      case Program.ADD:
+        return ADD;
+      case Program.SUB:
+        return SUBTRACT;
+      case Program.MUL:
+        return MULTIPLY;
+      case Program.DIV:
+        return DIVIDE;
+      case Program.POW:
+        return POWER;
+      case Program.MIN:
+        return MIN;
+      case Program.MAX:
+        return MAX;
+      case Program.NEG:
+        return NEGATE;
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Returns the symbol if it can be told apart from other terms by the scanner.
+   *
+   * @param symbol the symbol to check.
+   * @return the symbol.
+   * @throws IllegalArgumentException if the symbol is null, empty, or contains whitespace.
+   */
+  private static String check(String symbol) throws IllegalArgumentException {
+    if (symbol == null || symbol.isEmpty()) {
+      throw new IllegalArgumentException("Operator symbol must not be empty.");
+    }
+    for (int i = 0; i < symbol.length(); i++) {
+      if (symbol.charAt(i) <= ' ') {
+        throw new IllegalArgumentException("Operator symbol must not contain whitespace.");
+      }
+    }
+    return symbol;
+  }
+
+}
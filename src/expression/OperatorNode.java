@@ -5,38 +5,141 @@
 package expression;
 
 /**
- * Import Map, LinkedList, and List packages.
+ * Import Arrays and Map packages.
  */
-import java.util.LinkedList;
-import java.util.List;
+import java.util.Arrays;
 import java.util.Map;
 
 /**
- * This class represents a single OperatorNode that contains a single List containing
+ * This class represents a single OperatorNode that contains a single array containing
  * ExpressionNodes that are its resultant children in the expression tree. The OperatorNode itself
  * takes in a input that is an operator (+, -, *, /) that is a single term in the expression tree.
+ * An ExpressionTree parsed with an OperatorRegistry may also contain OperatorNodes for the other
+ * operators of the registry, with one child for a unary and two for a binary operator.
  * It is extended by the abstract class AbstractExpressionNode under the interface ExpressionNode.
  * This class contains the methods: addTerm, evaluate, infix, schemeExpression.
  */
 public class OperatorNode implements ExpressionNode {
 
-  private String term;
+  private final String term;
 
   /**
-   * List containing ExpressionNodes that are the children of the OperatorNode.
+   * Opcode of the operator, resolved once from the term when the node is constructed.
    */
-  private List<ExpressionNode> children;
+  private final byte opcode;
+
+  /**
+   * Operator the node is bound to, whose function is called for the CALL1 and CALL2 opcodes.
+   */
+  private final Operator operator;
+
+  /**
+   * Array containing ExpressionNodes that are the children of the OperatorNode.
+   */
+  private ExpressionNode[] children;
+
+  /**
+   * Number of children that have been added to the OperatorNode.
+   */
+  private int count;
 
   /**
    * Constructs the OperatorNode object that takes a string as a parameter and
    * initializes it with the input as a String data type that is taken in as a parameter and an
-   * empty LinkedList that will contain its children in the expression tree.
+   * empty array with room for the two children it will contain in the expression tree.
    *
    * @param input String that contains the operator of the OperatorNode.
    */
   public OperatorNode(String input) {
     term = input;
-    children = new LinkedList<>();
+    opcode = Program.opcode(input);
+    operator = Operator.builtIn(opcode);
+    children = new ExpressionNode[2];
+  }
+
+  /**
+   * Constructs the OperatorNode object for a binary operator with both of its children, which is
+   * how the ExpressionTree constructor builds its nodes without going through addTerm.
+   *
+   * @param input String that contains the operator of the OperatorNode.
+   * @param left the left operand of the operator.
+   * @param right the right operand of the operator.
+   */
+  OperatorNode(String input, ExpressionNode left, ExpressionNode right) {
+    term = input;
+    opcode = Program.opcode(input);
+    operator = Operator.builtIn(opcode);
+    children = new ExpressionNode[] {left, right};
+    count = 2;
+  }
+
+  /**
+   * Constructs the OperatorNode object for an Operator bound at parse time, with as many children
+   * as the operator has operands.
+   *
+   * @param operator the Operator of the OperatorNode.
+   * @param children the operands of the operator, from left to right.
+   */
+  OperatorNode(Operator operator, ExpressionNode... children) {
+    term = operator.getSymbol();
+    opcode = operator.opcode();
+    this.operator = operator;
+    this.children = children;
+    count = children.length;
+  }
+
+  /**
+   * Public method that takes in no arguments as parameters and returns the operator held by this
+   * OperatorNode.
+   *
+   * @return the operator of the OperatorNode as a String data type.
+   */
+  public String getTerm() {
+    return term;
+  }
+
+  /**
+   * Package-private method that takes in no arguments as parameters and returns the opcode of the
+   * operator of this OperatorNode.
+   *
+   * @return the opcode of the operator, such as Program.ADD or Program.CALL2.
+   */
+  byte opcode() {
+    return opcode;
+  }
+
+  /**
+   * Package-private method that takes in no arguments as parameters and returns the Operator this
+   * OperatorNode is bound to.
+   *
+   * @return the Operator of the OperatorNode.
+   */
+  Operator operator() {
+    return operator;
+  }
+
+  /**
+   * Public method that takes in no arguments as parameters and returns the number of children
+   * that have been added to this OperatorNode.
+   *
+   * @return the number of children of this OperatorNode as an int data type.
+   */
+  public int arity() {
+    return count;
+  }
+
+  /**
+   * Public method that takes in the index of a child and returns that child of this OperatorNode.
+   *
+   * @param index the position of the child, starting from the leftmost operand at 0.
+   * @return the child ExpressionNode at the given index.
+   * @throws IndexOutOfBoundsException if the node has no child at the given index.
+   */
+  public ExpressionNode getChild(int index) {
+    if (index < 0 || index >= count) {
+      throw new IndexOutOfBoundsException("OperatorNode has no child at index " + index + ".");
+    }
+    return children[index];
   }
 
   /**
@@ -51,59 +154,90 @@ public class OperatorNode implements ExpressionNode {
    */
   public ExpressionNode addTerm(String parent, ExpressionNode child) {
     if (term.equals(parent)) {
-      children.add(child);
+      if (count == children.length) {
+        children = Arrays.copyOf(children, count * 2);
+      }
+      children[count++] = child;
       return this;
     }
-    for (int i = 0; i < children.size(); i++) {
-      children.set(i, children.get(i).addTerm(parent, child));
+    for (int i = 0; i < count; i++) {
+      children[i] = children[i].addTerm(parent, child);
     }
     return this;
   }
 
   /**
-   * Public recursive method takes in a Map of String to Double variables and returns the result
+   * Package-private method that takes in the values of the two operands of this OperatorNode and
+   * returns the result of applying its operator to them. Any term other than +, - and * divides,
+   * as the original string comparisons did.
+   *
+   * @param left the value of the left operand.
+   * @param right the value of the right operand.
+   * @return the result of the operator as a double data type.
+   */
+  double apply(double left, double right) {
+    return opcode == Program.CALL2 ? operator.apply(left, right)
+            : Program.apply(opcode, left, right);
+  }
+
+  /**
+   * Package-private method that takes in the value of the operand of this unary OperatorNode and
+   * returns the result of applying its operator to it.
+   *
+   * @param operand the value of the operand.
+   * @return the result of the operator as a double data type.
+   */
+  double apply(double operand) {
+    return opcode == Program.CALL1 ? operator.apply(operand) : Program.apply(opcode, operand);
+  }
+
+  /**
+   * Public method takes in a Map of String to Double variables and returns the result
    * of the evaluation of this OperandNode and its children as a double data type. The Map
    * contains the numerical values of the variables and will throw an ArithmeticException if the
-   * OperatorNode cannot be evaluated.
+   * OperatorNode cannot be evaluated. The tree is walked with an explicit stack, so its depth is
+   * not limited by the size of the call stack.
    *
    * @param variables the Map with the numerical values of the variables.
    * @return the evaluation of this OperatorNode as a double data type.
    */
   public double evaluate(Map<String,Double> variables) {
-    if (term.equals("+")) {
-      return children.get(0).evaluate(variables) + children.get(1).evaluate(variables);
-    }
-    else if (term.equals("-")) {
-      return children.get(0).evaluate(variables) - children.get(1).evaluate(variables);
-    }
-    else if (term.equals("*")) {
-      return children.get(0).evaluate(variables) * children.get(1).evaluate(variables);
-    }
-    else {
-      return children.get(0).evaluate(variables) / children.get(1).evaluate(variables);
-    }
+    return TreeWalker.evaluate(this, variables);
+  }
+
+  /**
+   * Public method takes in the variable values indexed by slot and returns the result
+   * of the evaluation of this OperatorNode and its children as a double data type. The tree is
+   * walked with an explicit stack, so its depth is not limited by the size of the call stack.
+   *
+   * @param slots the variable values indexed by slot.
+   * @return the evaluation of this OperatorNode as a double data type.
+   */
+  public double evaluate(double[] slots) {
+    return TreeWalker.evaluate(this, slots);
   }
 
   /**
-   * Public recursive method that takes in no arguments as parameters and returns the correctly
-   * formatted string in infix form of the term and its children.
+   * Public method that takes in no arguments as parameters and returns the correctly
+   * formatted string in infix form of the term and its children. The string is built in a single
+   * StringBuilder without recursion, so it takes time linear in its length for trees of any depth.
    *
    * @return the term and the children of the OperandNode as a String data type in infix form.
    */
   @Override
   public String infix() {
-    return "( " + children.get(0).infix() + " " + term + " " + children.get(1).infix() + " )";
+    return TreeWalker.infix(this);
   }
 
   /**
-   * Public recursive method that takes in no arguments as parameters and returns the correctly
-   * formatted string in scheme form of the term and its children.
+   * Public method that takes in no arguments as parameters and returns the correctly
+   * formatted string in scheme form of the term and its children. The string is built in a single
+   * StringBuilder without recursion, so it takes time linear in its length for trees of any depth.
    *
    * @return the term and the children of the OperandNode as a String data type in scheme form.
    */
   public String schemeExpression() {
-    return "(" + term + " " + children.get(0).schemeExpression() + " "
-            + children.get(1).schemeExpression() + ")";
+    return TreeWalker.scheme(this);
   }
 
 }
@@ -0,0 +1,113 @@
+/**
+ * All source code has been added into the expression package.
+ */
+
+package expression;
+
+/**
+ * Import Collection, Collections, HashMap, and Map packages.
+ */
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class represents the set of operators a postfix expression may use, by symbol. Every
+ * registry contains the four arithmetic operators of the standard registry, which is what the
+ * ExpressionTree(String) constructor parses with, so existing expressions keep their meaning: a
+ * term such as min is a variable unless the registry used to parse it defines min as an operator.
+ *
+ * <p>A registry is immutable. The extended registry adds the other built-in operators, and with
+ * returns a new registry with one more operator, so domain functions are added like this:
+ *
+ * <pre>
+ *   OperatorRegistry registry = OperatorRegistry.extended()
+ *       .with(Operator.unary("abs", Math::abs))
+ *       .with(Operator.binary("hypot", Math::hypot));
+ *   ExpressionTree tree = new ExpressionTree("x neg y hypot abs", registry);
+ * </pre>
+ */
+public final class OperatorRegistry {
+
+  private static final OperatorRegistry STANDARD = new OperatorRegistry(new HashMap<>())
+          .with(Operator.ADD).with(Operator.SUBTRACT).with(Operator.MULTIPLY)
+          .with(Operator.DIVIDE);
+
+  private static final OperatorRegistry EXTENDED = STANDARD.with(Operator.POWER)
+          .with(Operator.MIN).with(Operator.MAX).with(Operator.NEGATE);
+
+  private final Map<String,Operator> operators;
+
+  /**
+   * Constructs an OperatorRegistry that owns the given Map.
+   *
+   * @param operators the Map from each symbol to its Operator.
+   */
+  private OperatorRegistry(Map<String,Operator> operators) {
+    this.operators = operators;
+  }
+
+  /**
+   * This method takes in no arguments and returns the registry of the four arithmetic operators,
+   * +, -, * and /.
+   *
+   * @return the standard OperatorRegistry.
+   */
+  public static OperatorRegistry standard() {
+    return STANDARD;
+  }
+
+  /**
+   * This method takes in no arguments and returns the registry of all built-in operators: the
+   * standard ones, ^, min, max, and neg.
+   *
+   * @return the extended OperatorRegistry.
+   */
+  public static OperatorRegistry extended() {
+    return EXTENDED;
+  }
+
+  /**
+   * This method takes in an Operator and returns a new registry with the operators of this one and
+   * the given one. Throws an IllegalArgumentException if this registry already has an operator
+   * with the same symbol.
+   *
+   * @param operator the Operator to add.
+   * @return the new OperatorRegistry.
+   * @throws IllegalArgumentException if the symbol is already registered.
+   */
+  public OperatorRegistry with(Operator operator) throws IllegalArgumentException {
+    if (operator == null) {
+      throw new IllegalArgumentException("Operator must not be null.");
+    }
+    if (operators.containsKey(operator.getSymbol())) {
+      throw new IllegalArgumentException("Operator " + operator.getSymbol()
+              + " is already registered.");
+    }
+    Map<String,Operator> copy = new HashMap<>(operators);
+    copy.put(operator.getSymbol(), operator);
+    return new OperatorRegistry(copy);
+  }
+
+  /**
+   * This method takes in a term and returns the Operator it denotes, or null if the term is an
+   * operand.
+   *
+   * @param symbol the term.
+   * @return the Operator of the term, or null.
+   */
+  public Operator get(String symbol) {
+    return operators.get(symbol);
+  }
+
+  /**
+   * This method takes in no arguments and returns every operator of this registry.
+   *
+   * @return an unmodifiable view of the operators.
+   */
+  public Collection<Operator> getOperators() {
+    return Collections.unmodifiableCollection(operators.values());
+  }
+
+}
@@ -0,0 +1,176 @@
+/**
+ * All source code has been added into the expression package.
+ */
+
+package expression;
+
+/**
+ * Import ArrayList, CompletableFuture, CompletionException, Executor, ForkJoinPool, List, and
+ * RecursiveAction packages.
+ */
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class evaluates an Expression over large column batches on several threads. The row range
+ * is split into slices of at most grainSize rows and each slice is evaluated with the batch
+ * evaluate method of the Expression, writing into its own disjoint part of the output array. The
+ * tasks share no mutable state: ExpressionTree and CompiledExpression are immutable once
+ * constructed, and the batch evaluation of one slice only allocates scratch space of its own.
+ * Every row goes through exactly the same operations as in sequential evaluation, so the results
+ * are bit-identical to it regardless of the grain size or the number of threads.
+ */
+public final class ParallelEvaluator {
+
+  /**
+   * Default number of rows per task.
+   */
+  public static final int DEFAULT_GRAIN_SIZE = 1 << 16;
+
+  private final Expression expression;
+
+  private final int grainSize;
+
+  /**
+   * Executor the slices are run on. Slices run as fork-join tasks when it is a ForkJoinPool.
+   */
+  private final Executor executor;
+
+  /**
+   * Constructs a ParallelEvaluator for the given Expression that runs slices of
+   * DEFAULT_GRAIN_SIZE rows on the common ForkJoinPool.
+   *
+   * @param expression the Expression to evaluate.
+   */
+  public ParallelEvaluator(Expression expression) {
+    this(expression, DEFAULT_GRAIN_SIZE, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Constructs a ParallelEvaluator for the given Expression that runs slices of at most grainSize
+   * rows on the common ForkJoinPool.
+   *
+   * @param expression the Expression to evaluate.
+   * @param grainSize the largest number of rows evaluated by one task.
+   * @throws IllegalArgumentException if the grain size is not positive.
+   */
+  public ParallelEvaluator(Expression expression, int grainSize) throws IllegalArgumentException {
+    this(expression, grainSize, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Constructs a ParallelEvaluator for the given Expression that runs slices of at most grainSize
+   * rows on the given Executor. When the Executor is a ForkJoinPool the range is split recursively
+   * into fork-join tasks; otherwise every slice is submitted to it as a separate task.
+   *
+   * @param expression the Expression to evaluate.
+   * @param grainSize the largest number of rows evaluated by one task.
+   * @param executor the Executor running the tasks.
+   * @throws IllegalArgumentException if the grain size is not positive or an argument is null.
+   */
+  public ParallelEvaluator(Expression expression, int grainSize, Executor executor)
+          throws IllegalArgumentException {
+    if (expression == null || executor == null) {
+      throw new IllegalArgumentException("Expression and executor must not be null.");
+    }
+    if (grainSize < 1) {
+      throw new IllegalArgumentException("Grain size must be positive.");
+    }
+    this.expression = expression;
+    this.grainSize = grainSize;
+    this.executor = executor;
+  }
+
+  /**
+   * This method evaluates the Expression for every row from (inclusive) to to (exclusive) of the
+   * given columns in parallel and writes the result of row r into out[offset + r - from]. It
+   * returns once every row has been evaluated, and rethrows the first exception thrown by a task.
+   *
+   * @param columns the variable values, one column per slot.
+   * @param from the first row to evaluate.
+   * @param to one past the last row to evaluate.
+   * @param out the array the results are written to.
+   * @param offset the index in out of the result of row from.
+   * @throws ArithmeticException if the column of a variable in the expression is missing.
+   * @throws IndexOutOfBoundsException if the rows or the output range are out of bounds.
+   */
+  public void evaluate(double[][] columns, int from, int to, double[] out, int offset)
+          throws ArithmeticException, IndexOutOfBoundsException {
+    if (from < 0 || to < from || offset < 0 || offset > out.length - (to - from)) {
+      throw new IndexOutOfBoundsException("Rows " + from + " to " + to + " are out of bounds.");
+    }
+    if (to - from <= grainSize) {
+      expression.evaluate(columns, from, to, out, offset);
+    }
+    else if (executor instanceof ForkJoinPool) {
+      ((ForkJoinPool) executor).invoke(new Slice(columns, from, to, out, offset));
+    }
+    else {
+      List<CompletableFuture<Void>> tasks = new ArrayList<>();
+      for (int start = from; start < to; start += grainSize) {
+        int first = start;
+        int last = Math.min(to, start + grainSize);
+        tasks.add(CompletableFuture.runAsync(() ->
+                expression.evaluate(columns, first, last, out, offset + first - from), executor));
+      }
+      try {
+        CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).join();
+      } catch (CompletionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * This class represents the fork-join task evaluating one range of rows. It splits the range in
+   * half until it holds at most grainSize rows.
+   */
+  private final class Slice extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final double[][] columns;
+    private final int from;
+    private final int to;
+    private final double[] out;
+    private final int offset;
+
+    /**
+     * Constructs the task evaluating rows from (inclusive) to to (exclusive).
+     *
+     * @param columns the variable values, one column per slot.
+     * @param from the first row to evaluate.
+     * @param to one past the last row to evaluate.
+     * @param out the array the results are written to.
+     * @param offset the index in out of the result of row from.
+     */
+    Slice(double[][] columns, int from, int to, double[] out, int offset) {
+      this.columns = columns;
+      this.from = from;
+      this.to = to;
+      this.out = out;
+      this.offset = offset;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= grainSize) {
+        expression.evaluate(columns, from, to, out, offset);
+        return;
+      }
+      int middle = (from + to) >>> 1;
+      invokeAll(new Slice(columns, from, middle, out, offset),
+              new Slice(columns, middle, to, out, offset + middle - from));
+    }
+
+  }
+
+}
@@ -0,0 +1,841 @@
+/**
+ * All source code has been added into the expression package.
+ */
+
+package expression;
+
+/**
+ * Import ArrayList, Arrays, HashMap, IdentityHashMap, List, and Map packages.
+ */
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class represents an expression tree flattened into a postfix program. Every instruction is
+ * an opcode in the ops array with an argument at the same position in the args array. Literals are
+ * parsed once into the constant pool and variables are resolved to slots in the variable table, so
+ * running the program needs no string comparisons, no map lookups, and no allocation.
+ *
+ * <p>A tree whose nodes are shared by several parents, as built against a SubexpressionPool, is
+ * compiled with temporaries: the first occurrence of a shared operator is computed and stored into
+ * a temporary with STORE, and every later occurrence loads it back with LOAD. The temporaries live
+ * in the scratch frame right above the operand stack.
+ */
+final class Program {
+
+  /**
+   * Opcode that pushes the constant at index args[pc] of the constant pool.
+   */
+  static final byte CONST = 0;
+
+  /**
+   * Opcode that pushes the value of the variable in slot args[pc].
+   */
+  static final byte VAR = 1;
+
+  /**
+   * Opcode that pops two values and pushes their sum.
+   */
+  static final byte ADD = 2;
+
+  /**
+   * Opcode that pops two values and pushes their difference.
+   */
+  static final byte SUB = 3;
+
+  /**
+   * Opcode that pops two values and pushes their product.
+   */
+  static final byte MUL = 4;
+
+  /**
+   * Opcode that pops two values and pushes their quotient.
+   */
+  static final byte DIV = 5;
+
+  /**
+   * Opcode that copies the value on top of the stack into the frame cell args[pc], leaving it on
+   * the stack.
+   */
+  static final byte STORE = 6;
+
+  /**
+   * Opcode that pushes the value of the frame cell args[pc].
+   */
+  static final byte LOAD = 7;
+
+  /**
+   * Opcode that pops the value on top of the stack into the frame cell args[pc], where a Program
+   * compiled from several trees leaves the value of each.
+   */
+  static final byte OUT = 8;
+
+  /**
+   * Opcode that pops one value and pushes its negation.
+   */
+  static final byte NEG = 9;
+
+  /**
+   * Opcode that pops two values and pushes the left one raised to the power of the right one.
+   */
+  static final byte POW = 10;
+
+  /**
+   * Opcode that pops two values and pushes the smaller one, as Math.min.
+   */
+  static final byte MIN = 11;
+
+  /**
+   * Opcode that pops two values and pushes the larger one, as Math.max.
+   */
+  static final byte MAX = 12;
+
+  /**
+   * Opcode that pops one value and pushes the result of the unary function at index args[pc] of
+   * the function table.
+   */
+  static final byte CALL1 = 13;
+
+  /**
+   * Opcode that pops two values and pushes the result of the binary function at index args[pc] of
+   * the function table.
+   */
+  static final byte CALL2 = 14;
+
+  /**
+   * Opcodes of the program in postfix order.
+   */
+  final byte[] ops;
+
+  /**
+   * Argument of each instruction; a constant pool index for CONST, a slot for VAR, a frame cell
+   * for STORE and LOAD, and a function table index for CALL1 and CALL2.
+   */
+  final int[] args;
+
+  /**
+   * Literal values referenced by CONST instructions.
+   */
+  final double[] constants;
+
+  /**
+   * Operators created with Operator.unary or Operator.binary that are called by CALL1 and CALL2
+   * instructions.
+   */
+  final Operator[] functions;
+
+  /**
+   * Names of the variables where the name at index i is bound to slot i, or null for a slot the
+   * program does not read.
+   */
+  final String[] variables;
+
+  /**
+   * Largest number of values on the operand stack at any point while running the program.
+   */
+  final int maxDepth;
+
+  /**
+   * Number of values in the scratch frame: the operand stack followed by the temporaries.
+   */
+  final int frameSize;
+
+  /**
+   * Number of rows evaluated together by runBatch, small enough for the chunk registers of a
+   * typical expression to stay in the L1 cache.
+   */
+  static final int CHUNK = 512;
+
+  /**
+   * The vectorized element-wise loops of runBatch, or null to use the scalar loops of this class.
+   */
+  private static final ColumnKernel KERNEL = ColumnKernel.load();
+
+  /**
+   * Constructs a Program from its already flattened parts.
+   *
+   * @param ops the opcodes of the program in postfix order.
+   * @param args the argument of each instruction.
+   * @param constants the constant pool.
+   * @param variables the variable names indexed by slot.
+   * @param maxDepth the largest operand stack depth reached by the program.
+   */
+  Program(byte[] ops, int[] args, double[] constants, String[] variables, int maxDepth) {
+    this(ops, args, constants, new Operator[0], variables, maxDepth, maxDepth);
+  }
+
+  /**
+   * Constructs a Program that uses temporaries from its already flattened parts.
+   *
+   * @param ops the opcodes of the program in postfix order.
+   * @param args the argument of each instruction.
+   * @param constants the constant pool.
+   * @param functions the function table.
+   * @param variables the variable names indexed by slot.
+   * @param maxDepth the largest operand stack depth reached by the program.
+   * @param frameSize the size of the operand stack plus the number of temporaries.
+   */
+  Program(byte[] ops, int[] args, double[] constants, Operator[] functions, String[] variables,
+          int maxDepth, int frameSize) {
+    this.ops = ops;
+    this.args = args;
+    this.constants = constants;
+    this.functions = functions;
+    this.variables = variables;
+    this.maxDepth = maxDepth;
+    this.frameSize = frameSize;
+  }
+
+  /**
+   * Returns the result of the binary operator with the given opcode applied to two values.
+   *
+   * @param op the opcode of the operator.
+   * @param left the value of the left operand.
+   * @param right the value of the right operand.
+   * @return the result of the operator.
+   */
+  static double apply(byte op, double left, double right) {
+    switch (op) {
+      case ADD:
+        return left + right;
+      case SUB:
+        return left - right;
+      case MUL:
+        return left * right;
+      case POW:
+        return Math.pow(left, right);
+      case MIN:
+        return Math.min(left, right);
+      case MAX:
+        return Math.max(left, right);
+      default:
+        return left / right;
+    }
+  }
+
+  /**
+   * Returns the result of the unary operator with the given opcode applied to a value. NEG is the
+   * only built-in unary operator.
+   *
+   * @param op the opcode of the operator.
+   * @param operand the value of the operand.
+   * @return the result of the operator.
+   */
+  static double apply(byte op, double operand) {
+    return -operand;
+  }
+
+  /**
+   * Returns true if the given opcode is a built-in operator that pops two values and pushes one.
+   * CALL2 is binary too, but is not included since it needs the function table.
+   *
+   * @param op the opcode.
+   * @return true for ADD, SUB, MUL, DIV, POW, MIN, and MAX.
+   */
+  static boolean isBinary(byte op) {
+    return op >= ADD && op <= DIV || op >= POW && op <= MAX;
+  }
+
+  /**
+   * Returns the number of operands of the operator with the given opcode.
+   *
+   * @param op the opcode of an operator.
+   * @return 1 for NEG and CALL1, and 2 for every other operator.
+   */
+  static int arity(byte op) {
+    return op == NEG || op == CALL1 ? 1 : 2;
+  }
+
+  /**
+   * Flattens the tree starting at the given root into a Program. The tree is walked in postfix
+   * order with an explicit stack. ConstantNodes and VariableNodes keep their parsed value and slot,
+   * while plain OperandNodes are parsed here and, if they are variables, looked up in or appended
+   * to the given variable table.
+   *
+   * @param root the root ExpressionNode of the tree to flatten.
+   * @param variables the variable names already bound to slots, indexed by slot.
+   * @return the Program computing the same value as the tree.
+   */
+  static Program compile(ExpressionNode root, String[] variables) {
+    return compile(root, variables, false);
+  }
+
+  /**
+   * Flattens the tree starting at the given root into a Program, as described above. When shared
+   * is true, the nodes reachable through more than one parent are counted first, and every shared
+   * operator is computed once and kept in a temporary for its later occurrences.
+   *
+   * @param root the root ExpressionNode of the tree to flatten.
+   * @param variables the variable names already bound to slots, indexed by slot, with null for
+   *        unused slots.
+   * @param shared true if nodes of the tree may be shared by several parents.
+   * @return the Program computing the same value as the tree.
+   */
+  static Program compile(ExpressionNode root, String[] variables, boolean shared) {
+    return compile(new ExpressionNode[] {root}, variables, shared, false);
+  }
+
+  /**
+   * Flattens several trees into one Program that computes all of them in a single run. The code
+   * of each tree is followed by an OUT instruction that moves its value into the frame cell
+   * frameSize - roots.length + i, where i is the index of the tree. Nodes shared between the trees
+   * are computed once, like the shared nodes of a single tree.
+   *
+   * @param roots the root ExpressionNodes of the trees to flatten.
+   * @param variables the variable names already bound to slots, indexed by slot, with null for
+   *        unused slots.
+   * @return the Program computing the values of all the trees.
+   */
+  static Program compileAll(ExpressionNode[] roots, String[] variables) {
+    return compile(roots, variables, true, true);
+  }
+
+  /**
+   * Flattens the trees starting at the given roots into a Program, one after the other.
+   *
+   * @param roots the root ExpressionNodes of the trees to flatten.
+   * @param variables the variable names already bound to slots, indexed by slot, with null for
+   *        unused slots.
+   * @param shared true if nodes of the trees may be shared by several parents.
+   * @param outputs true to move the value of every tree into its output cell with OUT.
+   * @return the Program computing the trees.
+   */
+  private static Program compile(ExpressionNode[] roots, String[] variables, boolean shared,
+                                 boolean outputs) {
+    byte[] ops = new byte[16];
+    int[] args = new int[16];
+    double[] constants = new double[8];
+    List<Operator> functions = new ArrayList<>();
+    List<String> names = new ArrayList<>(Arrays.asList(variables));
+    Map<String,Integer> slots = new HashMap<>();
+    for (int i = 0; i < variables.length; i++) {
+      if (variables[i] != null) {
+        slots.put(variables[i], i);
+      }
+    }
+    Map<ExpressionNode,Integer> parents = shared ? countParents(roots) : null;
+    Map<ExpressionNode,Integer> temps = shared ? new IdentityHashMap<>() : null;
+    int length = 0;
+    int constantCount = 0;
+    int depth = 0;
+    int maxDepth = 0;
+
+    ExpressionNode[] pending = new ExpressionNode[16];
+    int[] visited = new int[16];
+    for (int output = 0; output < roots.length; output++) {
+      if (length + 2 >= ops.length) {
+        ops = Arrays.copyOf(ops, ops.length * 2);
+        args = Arrays.copyOf(args, ops.length);
+      }
+      Integer rootTemp = temps == null ? null : temps.get(roots[output]);
+      if (rootTemp != null) {
+        ops[length] = LOAD;
+        args[length++] = rootTemp;
+        depth++;
+        maxDepth = Math.max(maxDepth, depth);
+      }
+      int top = 0;
+      if (rootTemp == null) {
+        pending[top] = roots[output];
+        visited[top++] = 0;
+      }
+      while (top > 0) {
+        ExpressionNode node = pending[top - 1];
+        int next = visited[top - 1];
+        if (length + 1 >= ops.length) {
+          ops = Arrays.copyOf(ops, ops.length * 2);
+          args = Arrays.copyOf(args, ops.length);
+        }
+        if (next < node.arity()) {
+          visited[top - 1] = next + 1;
+          ExpressionNode child = node.getChild(next);
+          Integer temp = temps == null ? null : temps.get(child);
+          if (temp != null) {
+            ops[length] = LOAD;
+            args[length++] = temp;
+            depth++;
+            maxDepth = Math.max(maxDepth, depth);
+            continue;
+          }
+          if (top == pending.length) {
+            pending = Arrays.copyOf(pending, top * 2);
+            visited = Arrays.copyOf(visited, top * 2);
+          }
+          pending[top] = child;
+          visited[top] = 0;
+          top++;
+          continue;
+        }
+        top--;
+        if (node instanceof VariableNode) {
+          ops[length] = VAR;
+          args[length] = ((VariableNode) node).getSlot();
+          depth++;
+          maxDepth = Math.max(maxDepth, depth);
+        }
+        else if (node.arity() == 0) {
+          String term = node.getTerm();
+          try {
+            double value = node instanceof ConstantNode
+                    ? ((ConstantNode) node).getValue() : Double.parseDouble(term);
+            if (constantCount == constants.length) {
+              constants = Arrays.copyOf(constants, constantCount * 2);
+            }
+            constants[constantCount] = value;
+            ops[length] = CONST;
+            args[length] = constantCount++;
+          } catch (NumberFormatException a) {
+            Integer slot = slots.get(term);
+            if (slot == null) {
+              slot = names.size();
+              names.add(term);
+              slots.put(term, slot);
+            }
+            ops[length] = VAR;
+            args[length] = slot;
+          }
+          depth++;
+          maxDepth = Math.max(maxDepth, depth);
+        }
+        else {
+          ops[length] = node instanceof OperatorNode
+                  ? ((OperatorNode) node).opcode() : opcode(node.getTerm());
+          if (ops[length] == CALL1 || ops[length] == CALL2) {
+            Operator function = ((OperatorNode) node).operator();
+            int index = functions.indexOf(function);
+            if (index < 0) {
+              index = functions.size();
+              functions.add(function);
+            }
+            args[length] = index;
+          }
+          depth -= arity(ops[length]) - 1;
+          if (parents != null && parents.get(node) > 1) {
+            int temp = temps.size();
+            temps.put(node, temp);
+            ops[++length] = STORE;
+            args[length] = temp;
+          }
+        }
+        length++;
+      }
+      if (outputs) {
+        ops[length] = OUT;
+        args[length++] = output;
+        depth--;
+      }
+    }
+    int tempCount = temps == null ? 0 : temps.size();
+    for (int pc = 0; pc < length; pc++) {
+      if (ops[pc] == STORE || ops[pc] == LOAD) {
+        args[pc] += maxDepth;
+      }
+      else if (ops[pc] == OUT) {
+        args[pc] += maxDepth + tempCount;
+      }
+    }
+    int frameSize = maxDepth + tempCount + (outputs ? roots.length : 0);
+    return new Program(Arrays.copyOf(ops, length), Arrays.copyOf(args, length),
+            Arrays.copyOf(constants, constantCount), functions.toArray(new Operator[0]),
+            names.toArray(new String[0]), maxDepth, frameSize);
+  }
+
+  /**
+   * Counts the parents of every node of the trees starting at the given roots, visiting the
+   * children of a shared node only once.
+   *
+   * @param roots the root ExpressionNodes of the trees.
+   * @return the number of parents of every node, counting each root as having one.
+   */
+  private static Map<ExpressionNode,Integer> countParents(ExpressionNode[] roots) {
+    Map<ExpressionNode,Integer> parents = new IdentityHashMap<>();
+    ExpressionNode[] pending = new ExpressionNode[16];
+    int top = 0;
+    for (ExpressionNode root : roots) {
+      pending[top++] = root;
+      while (top > 0) {
+        ExpressionNode node = pending[--top];
+        if (parents.merge(node, 1, Integer::sum) > 1) {
+          continue;
+        }
+        for (int i = 0; i < node.arity(); i++) {
+          if (top == pending.length) {
+            pending = Arrays.copyOf(pending, top * 2);
+          }
+          pending[top++] = node.getChild(i);
+        }
+      }
+    }
+    return parents;
+  }
+
+  /**
+   * Returns the opcode of the given binary operator.
+   *
+   * @param operator one of +, -, * or /.
+   * @return the opcode of the operator.
+   */
+  static byte opcode(String operator) {
+    switch (operator) {
+      case "+":
+        return ADD;
+      case "-":
+        return SUB;
+      case "*":
+        return MUL;
+      default:
+        return DIV;
+    }
+  }
+
+  /**
+   * Runs the program with the given variable slots on the given operand stack and returns the
+   * value left on top of the stack. The stack must hold at least frameSize values; it is only used
+   * as scratch space, so the same array can be reused between calls on one thread.
+   *
+   * @param slots the variable values indexed by slot.
+   * @param stack the scratch operand stack.
+   * @return the value of the program.
+   */
+  double run(double[] slots, double[] stack) {
+    return run(ops, args, constants, functions, slots, stack);
+  }
+
+  /**
+   * Runs the postfix program given by its opcodes, arguments, and constant pool with the given
+   * variable slots on the given operand stack, and returns the value left on top of the stack.
+   * This is shared by every representation that lays its nodes out in postfix order.
+   *
+   * @param ops the opcodes of the program in postfix order.
+   * @param args the argument of each instruction.
+   * @param constants the constant pool.
+   * @param functions the function table, which may be null if the program has no CALL1 or CALL2.
+   * @param slots the variable values indexed by slot.
+   * @param stack the scratch operand stack.
+   * @return the value of the program.
+   */
+  static double run(byte[] ops, int[] args, double[] constants, Operator[] functions,
+                    double[] slots, double[] stack) {
+    int sp = -1;
+    for (int pc = 0; pc < ops.length; pc++) {
+      switch (ops[pc]) {
+        case CONST:
+          stack[++sp] = constants[args[pc]];
+          break;
+        case VAR:
+          stack[++sp] = slots[args[pc]];
+          break;
+        case ADD:
+          sp--;
+          stack[sp] = stack[sp] + stack[sp + 1];
+          break;
+        case SUB:
+          sp--;
+          stack[sp] = stack[sp] - stack[sp + 1];
+          break;
+        case MUL:
+          sp--;
+          stack[sp] = stack[sp] * stack[sp + 1];
+          break;
+        case STORE:
+          stack[args[pc]] = stack[sp];
+          break;
+        case LOAD:
+          stack[++sp] = stack[args[pc]];
+          break;
+        case OUT:
+          stack[args[pc]] = stack[sp--];
+          break;
+        case NEG:
+          stack[sp] = -stack[sp];
+          break;
+        case POW:
+        case MIN:
+        case MAX:
+          sp--;
+          stack[sp] = apply(ops[pc], stack[sp], stack[sp + 1]);
+          break;
+        case CALL1:
+          stack[sp] = functions[args[pc]].apply(stack[sp]);
+          break;
+        case CALL2:
+          sp--;
+          stack[sp] = functions[args[pc]].apply(stack[sp], stack[sp + 1]);
+          break;
+        default:
+          sp--;
+          stack[sp] = stack[sp] / stack[sp + 1];
+          break;
+      }
+    }
+    return stack[0];
+  }
+
+  /**
+   * Runs the program over the rows from (inclusive) to to (exclusive) of the given columns and
+   * writes the value of row r into out[offset + r - from]. Rows are processed in chunks, one
+   * instruction at a time over the whole chunk, so every instruction becomes a tight primitive
+   * loop the JIT can vectorize. A variable or constant that is immediately consumed by an operator
+   * is fused into that operator's loop instead of being copied into a register first. Each row
+   * goes through the same operations in the same order as run, so the results are identical.
+   *
+   * @param columns the variable values, where columns[slot][r] is the value of a slot in row r.
+   * @param from the first row to evaluate.
+   * @param to one past the last row to evaluate.
+   * @param out the array the results are written to.
+   * @param offset the index in out of the result of row from.
+   * @throws ArithmeticException if the column of a variable of the program is missing.
+   * @throws IndexOutOfBoundsException if the rows or the output range are out of bounds.
+   */
+  void runBatch(double[][] columns, int from, int to, double[] out, int offset)
+          throws ArithmeticException, IndexOutOfBoundsException {
+    runBatch(ops, args, constants, functions, frameSize, columns, from, to, out, offset);
+  }
+
+  /**
+   * Runs the postfix program given by its opcodes, arguments, and constant pool over a range of
+   * rows of the given columns, as described for the runBatch instance method.
+   *
+   * @param ops the opcodes of the program in postfix order.
+   * @param args the argument of each instruction.
+   * @param constants the constant pool.
+   * @param functions the function table, which may be null if the program has no CALL1 or CALL2.
+   * @param frameSize the size of the operand stack plus the number of temporaries.
+   * @param columns the variable values, where columns[slot][r] is the value of a slot in row r.
+   * @param from the first row to evaluate.
+   * @param to one past the last row to evaluate.
+   * @param out the array the results are written to.
+   * @param offset the index in out of the result of row from.
+   * @throws ArithmeticException if the column of a variable of the program is missing.
+   * @throws IndexOutOfBoundsException if the rows or the output range are out of bounds.
+   */
+  static void runBatch(byte[] ops, int[] args, double[] constants, Operator[] functions,
+                       int frameSize, double[][] columns, int from, int to, double[] out,
+                       int offset)
+          throws ArithmeticException, IndexOutOfBoundsException {
+    for (int pc = 0; pc < ops.length; pc++) {
+      if (ops[pc] != VAR) {
+        continue;
+      }
+      int slot = args[pc];
+      if (slot >= columns.length || columns[slot] == null) {
+        throw new ArithmeticException("Cannot evaluate variables in expression.");
+      }
+      if (from < 0 || to > columns[slot].length) {
+        throw new IndexOutOfBoundsException("Rows " + from + " to " + to + " are out of bounds.");
+      }
+    }
+    if (from < 0 || to < from || offset < 0 || offset > out.length - (to - from)) {
+      throw new IndexOutOfBoundsException("Rows " + from + " to " + to + " are out of bounds.");
+    }
+    double[][] registers = new double[frameSize][Math.min(CHUNK, to - from)];
+    for (int start = from; start < to; start += CHUNK) {
+      int n = Math.min(CHUNK, to - start);
+      int sp = -1;
+      for (int pc = 0; pc < ops.length; pc++) {
+        byte op = ops[pc];
+        if (op == CONST || op == VAR) {
+          boolean fused = sp >= 0 && pc + 1 < ops.length && isBinary(ops[pc + 1]);
+          if (op == CONST) {
+            double c = constants[args[pc]];
+            if (fused) {
+              constant(ops[++pc], registers[sp], c, n);
+            }
+            else {
+              Arrays.fill(registers[++sp], 0, n, c);
+            }
+          }
+          else if (fused) {
+            column(ops[++pc], registers[sp], columns[args[pc - 1]], start, n);
+          }
+          else {
+            System.arraycopy(columns[args[pc]], start, registers[++sp], 0, n);
+          }
+        }
+        else if (op == STORE) {
+          System.arraycopy(registers[sp], 0, registers[args[pc]], 0, n);
+        }
+        else if (op == LOAD) {
+          System.arraycopy(registers[args[pc]], 0, registers[++sp], 0, n);
+        }
+        else if (op == NEG) {
+          double[] a = registers[sp];
+          for (int i = 0; i < n; i++) {
+            a[i] = -a[i];
+          }
+        }
+        else if (op == CALL1) {
+          Operator function = functions[args[pc]];
+          double[] a = registers[sp];
+          for (int i = 0; i < n; i++) {
+            a[i] = function.apply(a[i]);
+          }
+        }
+        else if (op == CALL2) {
+          sp--;
+          Operator function = functions[args[pc]];
+          double[] a = registers[sp];
+          double[] b = registers[sp + 1];
+          for (int i = 0; i < n; i++) {
+            a[i] = function.apply(a[i], b[i]);
+          }
+        }
+        else {
+          sp--;
+          column(op, registers[sp], registers[sp + 1], 0, n);
+        }
+      }
+      System.arraycopy(registers[0], 0, out, offset + start - from, n);
+    }
+  }
+
+  /**
+   * Applies a binary operator element-wise to a column with the vectorized KERNEL if there is one
+   * and it handles the operator, and with the scalar loops of this class otherwise. The kernel only
+   * implements the four arithmetic operators.
+   *
+   * @param op the opcode of the operator.
+   * @param a the left operands and the destination.
+   * @param b the array holding the right operands.
+   * @param start the index in b of the right operand of a[0].
+   * @param n the number of elements.
+   */
+  private static void column(byte op, double[] a, double[] b, int start, int n) {
+    if (KERNEL != null && op <= DIV) {
+      KERNEL.applyColumn(op, a, b, start, n);
+    }
+    else {
+      applyColumn(op, a, b, start, n);
+    }
+  }
+
+  /**
+   * Applies a binary operator element-wise to a constant right operand with the vectorized KERNEL
+   * if there is one and it handles the operator, and with the scalar loops of this class otherwise.
+   *
+   * @param op the opcode of the operator.
+   * @param a the left operands and the destination.
+   * @param c the right operand.
+   * @param n the number of elements.
+   */
+  private static void constant(byte op, double[] a, double c, int n) {
+    if (KERNEL != null && op <= DIV) {
+      KERNEL.applyConstant(op, a, c, n);
+    }
+    else {
+      applyConstant(op, a, c, n);
+    }
+  }
+
+  /**
+   * Applies a binary operator element-wise with a as the left operand and the values of b from
+   * index start as the right operand, storing the results in a.
+   *
+   * @param op the opcode of the operator.
+   * @param a the left operands and the destination.
+   * @param b the array holding the right operands.
+   * @param start the index in b of the right operand of a[0].
+   * @param n the number of elements.
+   */
+  private static void applyColumn(byte op, double[] a, double[] b, int start, int n) {
+    switch (op) {
+      case ADD:
+        for (int i = 0; i < n; i++) {
+          a[i] = a[i] + b[start + i];
+        }
+        break;
+      case SUB:
+        for (int i = 0; i < n; i++) {
+          a[i] = a[i] - b[start + i];
+        }
+        break;
+      case MUL:
+        for (int i = 0; i < n; i++) {
+          a[i] = a[i] * b[start + i];
+        }
+        break;
+      case POW:
+      case MIN:
+      case MAX:
+        for (int i = 0; i < n; i++) {
+          a[i] = apply(op, a[i], b[start + i]);
+        }
+        break;
+      default:
+        for (int i = 0; i < n; i++) {
+          a[i] = a[i] / b[start + i];
+        }
+        break;
+    }
+  }
+
+  /**
+   * Applies a binary operator element-wise with a as the left operand and the constant c as the
+   * right operand, storing the results in a.
+   *
+   * @param op the opcode of the operator.
+   * @param a the left operands and the destination.
+   * @param c the right operand.
+   * @param n the number of elements.
+   */
+  private static void applyConstant(byte op, double[] a, double c, int n) {
+    switch (op) {
+      case ADD:
+        for (int i = 0; i < n; i++) {
+          a[i] = a[i] + c;
+        }
+        break;
+      case SUB:
+        for (int i = 0; i < n; i++) {
+          a[i] = a[i] - c;
+        }
+        break;
+      case MUL:
+        for (int i = 0; i < n; i++) {
+          a[i] = a[i] * c;
+        }
+        break;
+      case POW:
+      case MIN:
+      case MAX:
+        for (int i = 0; i < n; i++) {
+          a[i] = apply(op, a[i], c);
+        }
+        break;
+      default:
+        for (int i = 0; i < n; i++) {
+          a[i] = a[i] / c;
+        }
+        break;
+    }
+  }
+
+  /**
+   * Returns the slots of this program with the values of the given Map. Throws an
+   * ArithmeticException if a variable of the program has no value in the Map. Slots the program
+   * does not read are left at zero.
+   *
+   * @param values the Map with the numerical values of the variables.
+   * @return the variable values indexed by slot.
+   * @throws ArithmeticException if the value of a variable cannot be determined.
+   */
+  double[] resolve(Map<String,Double> values) throws ArithmeticException {
+    double[] slots = new double[variables.length];
+    for (int i = 0; i < variables.length; i++) {
+      if (variables[i] == null) {
+        continue;
+      }
+      Double value = values.get(variables[i]);
+      if (value == null) {
+        throw new ArithmeticException("Cannot evaluate variables in expression.");
+      }
+      slots[i] = value;
+    }
+    return slots;
+  }
+
+}
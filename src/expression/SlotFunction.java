@@ -0,0 +1,23 @@
+/**
+ * All source code has been added into the expression package.
+ */
+
+package expression;
+
+/**
+ * This interface represents an expression as a plain function of its variable slots. It is
+ * implemented by the classes generated by BytecodeCompiler, which the JIT can inline entirely.
+ */
+@FunctionalInterface
+public interface SlotFunction {
+
+  /**
+   * This method takes in the values of the variables indexed by slot and returns the value of the
+   * expression for them.
+   *
+   * @param vars the variable values, where vars[i] is the value of the variable in slot i.
+   * @return the evaluation of the expression as a double data type.
+   */
+  double apply(double[] vars);
+
+}
@@ -0,0 +1,180 @@
+/**
+ * All source code has been added into the expression package.
+ */
+
+package expression;
+
+/**
+ * Import Arrays, ByteBuffer, LinkedHashMap, Map, and StandardCharsets packages.
+ */
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class scans postfix text that arrives in blocks of chars or bytes and feeds its terms to a
+ * TreeBuilder as soon as each term is complete. Only the term currently being scanned is buffered,
+ * so a term may span any number of blocks while the text as a whole is never materialized. Any
+ * character up to and including the space is a separator, so generated files may put one term per
+ * line. Errors report the offset of the first invalid term in the same unit as the input.
+ */
+final class StreamingParser {
+
+  /**
+   * Size of the blocks read from Readers and InputStreams.
+   */
+  static final int BUFFER_SIZE = 8192;
+
+  /**
+   * Largest number of bytes of a file that are mapped at once.
+   */
+  static final long MAP_WINDOW = 1L << 30;
+
+  private final Map<String,Integer> slots = new LinkedHashMap<>();
+  private final TreeBuilder builder = new TreeBuilder(slots);
+
+  /**
+   * Bytes of the term being scanned from a byte input.
+   */
+  private byte[] termBytes = new byte[64];
+
+  /**
+   * Chars of the term being scanned from a char input.
+   */
+  private final StringBuilder termChars = new StringBuilder();
+
+  private int termLength;
+
+  /**
+   * Offset of the first char or byte of the term being scanned.
+   */
+  private long termStart;
+
+  /**
+   * Scans a block of chars whose first char is at the given offset of the whole input.
+   *
+   * @param buffer the chars of the block.
+   * @param length the number of chars in the block.
+   * @param base the offset of buffer[0] in the input.
+   * @throws IllegalArgumentException if a term completed in this block is invalid.
+   */
+  void chars(char[] buffer, int length, long base) throws IllegalArgumentException {
+    for (int i = 0; i < length; i++) {
+      char c = buffer[i];
+      if (c <= ' ') {
+        if (termLength > 0) {
+          endChars();
+        }
+      }
+      else {
+        if (termLength == 0) {
+          termStart = base + i;
+        }
+        termChars.append(c);
+        termLength++;
+      }
+    }
+  }
+
+  /**
+   * Scans the remaining bytes of a buffer whose current position is at the given offset of the
+   * whole input. The buffer is read with absolute gets, so its position is not changed.
+   *
+   * @param buffer the bytes of the block.
+   * @param base the offset of the current position of the buffer in the input.
+   * @throws IllegalArgumentException if a term completed in this block is invalid.
+   */
+  void bytes(ByteBuffer buffer, long base) throws IllegalArgumentException {
+    int start = buffer.position();
+    int end = buffer.limit();
+    for (int i = start; i < end; i++) {
+      byte b = buffer.get(i);
+      if (b >= 0 && b <= ' ') {
+        if (termLength > 0) {
+          endBytes();
+        }
+      }
+      else {
+        if (termLength == 0) {
+          termStart = base + i - start;
+        }
+        if (termLength == termBytes.length) {
+          termBytes = Arrays.copyOf(termBytes, termLength * 2);
+        }
+        termBytes[termLength++] = b;
+      }
+    }
+  }
+
+  /**
+   * Completes the input at the given total length and returns the ExpressionTree it describes.
+   *
+   * @param end the length of the whole input.
+   * @return the ExpressionTree of the input.
+   * @throws IllegalArgumentException if the input is not a single valid postfix expression.
+   */
+  ExpressionTree finish(long end) throws IllegalArgumentException {
+    if (termLength > 0) {
+      if (termChars.length() > 0) {
+        endChars();
+      }
+      else {
+        endBytes();
+      }
+    }
+    try {
+      return new ExpressionTree(builder.finish(), slots);
+    } catch (IllegalArgumentException e) {
+      throw invalid(end);
+    }
+  }
+
+  /**
+   * Feeds the term collected from a char input to the TreeBuilder.
+   */
+  private void endChars() throws IllegalArgumentException {
+    String operator = termLength == 1 ? TreeBuilder.operator(termChars.charAt(0)) : null;
+    term(operator != null ? operator : termChars.toString(), operator != null);
+    termChars.setLength(0);
+    termLength = 0;
+  }
+
+  /**
+   * Feeds the term collected from a byte input to the TreeBuilder, decoding it as UTF-8.
+   */
+  private void endBytes() throws IllegalArgumentException {
+    String operator = termLength == 1 ? TreeBuilder.operator((char) termBytes[0]) : null;
+    term(operator != null ? operator
+            : new String(termBytes, 0, termLength, StandardCharsets.UTF_8), operator != null);
+    termLength = 0;
+  }
+
+  /**
+   * Feeds one term to the TreeBuilder, reporting the offset of the term if it is invalid.
+   */
+  private void term(String term, boolean operator) throws IllegalArgumentException {
+    if (!operator) {
+      builder.operand(term);
+      return;
+    }
+    try {
+      builder.operator(term);
+    } catch (IllegalArgumentException e) {
+      throw invalid(termStart);
+    }
+  }
+
+  /**
+   * Returns the exception thrown for an invalid expression, naming the offset of the problem.
+   *
+   * @param offset the offset of the first invalid term, or the length of the input when the
+   *        expression ends with too many or no operands.
+   * @return the IllegalArgumentException to throw.
+   */
+  private static IllegalArgumentException invalid(long offset) {
+    return new IllegalArgumentException("Expression is invalid at offset " + offset + ".");
+  }
+
+}
@@ -0,0 +1,163 @@
+/**
+ * All source code has been added into the expression package.
+ */
+
+package expression;
+
+/**
+ * Import ArrayList, ConcurrentHashMap, List, LongAdder, and Map packages.
+ */
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class represents a hash-consing table of ExpressionNodes. ExpressionTrees built against the
+ * same pool share a single node for every structurally identical subtree, whether it repeats within
+ * one expression or across many, turning their trees into one directed acyclic graph. Operands are
+ * identified by their spelling and operators by their term and the identity of their already
+ * shared operands, so rendering is not affected by the sharing.
+ *
+ * <p>Since variable nodes are shared, the pool also owns the slot numbering of every tree built
+ * against it: a variable has the same slot in all of them. The pool is safe to use from several
+ * threads at once and keeps every node it has handed out until it is itself discarded.
+ */
+public final class SubexpressionPool {
+
+  private final Map<Object,ExpressionNode> nodes = new ConcurrentHashMap<>();
+  private final Map<String,Integer> slots = new ConcurrentHashMap<>();
+  private final List<String> variables = new ArrayList<>();
+  private final LongAdder deduplicated = new LongAdder();
+
+  /**
+   * This method takes in no arguments and returns the number of distinct nodes in the pool.
+   *
+   * @return the number of shared nodes.
+   */
+  public int size() {
+    return nodes.size();
+  }
+
+  /**
+   * This method takes in no arguments and returns the number of times a tree built against the
+   * pool reused an existing node instead of creating a new one.
+   *
+   * @return the total number of deduplicated nodes.
+   */
+  public long deduplicatedCount() {
+    return deduplicated.sum();
+  }
+
+  /**
+   * This method takes in the name of a variable and returns its slot in every tree built against
+   * the pool, or -1 if no such tree uses it.
+   *
+   * @param variable the name of the variable.
+   * @return the slot of the variable, or -1 if the pool has not seen it.
+   */
+  public int slotOf(String variable) {
+    Integer slot = slots.get(variable);
+    return slot == null ? -1 : slot;
+  }
+
+  /**
+   * This method takes in no arguments and returns the names of all variables seen by the pool,
+   * where the name at index i is bound to slot i.
+   *
+   * @return the variable names indexed by slot.
+   */
+  public synchronized String[] getVariables() {
+    return variables.toArray(new String[0]);
+  }
+
+  /**
+   * Returns the slot of a variable, assigning the next free slot if the pool has not seen it.
+   *
+   * @param variable the name of the variable.
+   * @return the slot of the variable.
+   */
+  synchronized int slot(String variable) {
+    Integer slot = slots.get(variable);
+    if (slot == null) {
+      slot = variables.size();
+      variables.add(variable);
+      slots.put(variable, slot);
+    }
+    return slot;
+  }
+
+  /**
+   * Returns the shared node for the given key, or null if the pool has none yet.
+   *
+   * @param key the spelling of an operand or the OperatorKey of an operator.
+   * @return the shared node, or null.
+   */
+  ExpressionNode lookup(Object key) {
+    ExpressionNode node = nodes.get(key);
+    if (node != null) {
+      deduplicated.increment();
+    }
+    return node;
+  }
+
+  /**
+   * Adds a newly built node for the given key and returns the node shared under it, which is the
+   * candidate unless another thread added one first.
+   *
+   * @param key the spelling of an operand or the OperatorKey of an operator.
+   * @param candidate the node to share.
+   * @return the shared node.
+   */
+  ExpressionNode intern(Object key, ExpressionNode candidate) {
+    ExpressionNode raced = ((ConcurrentHashMap<Object,ExpressionNode>) nodes)
+            .putIfAbsent(key, candidate);
+    if (raced != null) {
+      deduplicated.increment();
+      return raced;
+    }
+    return candidate;
+  }
+
+  /**
+   * This class represents the key of an operator node: its term and its operands, which are
+   * compared by identity since they are already shared nodes.
+   */
+  static final class OperatorKey {
+
+    private final String term;
+    private final ExpressionNode left;
+    private final ExpressionNode right;
+
+    /**
+     * Constructs the key of the operator with the given term and operands.
+     *
+     * @param term the operator.
+     * @param left the shared left operand.
+     * @param right the shared right operand.
+     */
+    OperatorKey(String term, ExpressionNode left, ExpressionNode right) {
+      this.term = term;
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof OperatorKey)) {
+        return false;
+      }
+      OperatorKey key = (OperatorKey) other;
+      return key.left == left && key.right == right && key.term.equals(term);
+    }
+
+    @Override
+    public int hashCode() {
+      return (term.hashCode() * 31 + System.identityHashCode(left)) * 31
+              + System.identityHashCode(right);
+    }
+
+  }
+
+}
@@ -0,0 +1,89 @@
+/**
+ * All source code has been added into the expression package.
+ */
+
+package expression;
+
+/**
+ * Import Arrays and ConcurrentHashMap packages.
+ */
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class represents a table of interned strings, each identified by a small int id. Compact
+ * expressions store the ids of their variable names instead of the strings themselves, so every
+ * distinct name is kept once no matter how many of the expressions sharing the table use it. The
+ * table only grows, so it should belong to an owner whose expressions it outlives no longer than
+ * necessary, like a cache or a library, rather than to the whole JVM. It is safe to share between
+ * threads: lookups by name or by id never block, and new strings are appended under a lock.
+ */
+public final class SymbolTable {
+
+  private final ConcurrentHashMap<String,Integer> ids = new ConcurrentHashMap<>();
+
+  /**
+   * Interned strings indexed by id, replaced by a longer copy when it is full.
+   */
+  private volatile String[] names = new String[64];
+
+  private int size;
+
+  /**
+   * This method takes in a string and returns its id, adding it to the table if it is new.
+   *
+   * @param name the string to intern.
+   * @return the id of the string.
+   */
+  public int intern(String name) {
+    Integer id = ids.get(name);
+    if (id != null) {
+      return id;
+    }
+    synchronized (this) {
+      id = ids.get(name);
+      if (id == null) {
+        String[] current = names;
+        if (size == current.length) {
+          current = Arrays.copyOf(current, size * 2);
+        }
+        current[size] = name;
+        names = current;
+        id = size++;
+        ids.put(name, id);
+      }
+      return id;
+    }
+  }
+
+  /**
+   * This method takes in a string and returns its id, or -1 if it has not been interned.
+   *
+   * @param name the string to look up.
+   * @return the id of the string, or -1 if it is not in the table.
+   */
+  public int lookup(String name) {
+    Integer id = ids.get(name);
+    return id == null ? -1 : id;
+  }
+
+  /**
+   * This method takes in an id returned by intern and returns the string it stands for.
+   *
+   * @param id the id of the string.
+   * @return the interned string.
+   */
+  public String name(int id) {
+    return names[id];
+  }
+
+  /**
+   * This method takes in no arguments and returns the number of strings in the table.
+   *
+   * @return the number of interned strings.
+   */
+  public int size() {
+    return ids.size();
+  }
+
+}
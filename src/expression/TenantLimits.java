@@ -0,0 +1,84 @@
+/**
+ * All source code has been added into the expression package.
+ */
+
+package expression;
+
+/**
+ * This class represents the limits an EvaluationServer enforces on the expressions of one tenant:
+ * the largest number of nodes and the largest depth of an expression tree. A request whose
+ * expression exceeds either limit is rejected with a LimitExceededException before it is
+ * evaluated, so a single tenant cannot make the server walk arbitrarily large trees. The server
+ * parses the expression under the equivalent ExpressionLimits, so input over the limits is
+ * rejected at its first term over budget instead of being parsed whole. TenantLimits are
+ * immutable.
+ */
+public final class TenantLimits {
+
+  /**
+   * Limits that accept every expression.
+   */
+  public static final TenantLimits UNLIMITED = new TenantLimits(Long.MAX_VALUE, Integer.MAX_VALUE);
+
+  private final long maxNodes;
+  private final int maxDepth;
+  private final ExpressionLimits expressionLimits;
+
+  /**
+   * Constructs the TenantLimits allowing expressions of at most maxNodes nodes and at most
+   * maxDepth levels, where a lone operand has depth 1.
+   *
+   * @param maxNodes the largest number of operators and operands of an expression.
+   * @param maxDepth the largest depth of an expression tree.
+   * @throws IllegalArgumentException if a limit is not positive.
+   */
+  public TenantLimits(long maxNodes, int maxDepth) throws IllegalArgumentException {
+    if (maxNodes <= 0 || maxDepth <= 0) {
+      throw new IllegalArgumentException("Limits must be positive.");
+    }
+    this.maxNodes = maxNodes;
+    this.maxDepth = maxDepth;
+    expressionLimits = ExpressionLimits.UNLIMITED.withMaxTokens(maxNodes).withMaxDepth(maxDepth);
+  }
+
+  /**
+   * This method takes in no arguments and returns the largest number of nodes of an expression.
+   *
+   * @return the node limit.
+   */
+  public long getMaxNodes() {
+    return maxNodes;
+  }
+
+  /**
+   * This method takes in no arguments and returns the largest depth of an expression.
+   *
+   * @return the depth limit.
+   */
+  public int getMaxDepth() {
+    return maxDepth;
+  }
+
+  /**
+   * This method takes in no arguments and returns the ExpressionLimits with the token and depth
+   * limits of these limits, which expressions of the tenant are parsed under.
+   *
+   * @return the equivalent ExpressionLimits.
+   */
+  public ExpressionLimits getExpressionLimits() {
+    return expressionLimits;
+  }
+
+  /**
+   * This method takes in the number of nodes and the depth of an expression and returns true if
+   * the expression is within these limits.
+   *
+   * @param nodes the number of nodes of the expression.
+   * @param depth the depth of the expression.
+   * @return true if neither limit is exceeded.
+   */
+  public boolean allows(long nodes, int depth) {
+    return nodes <= maxNodes && depth <= maxDepth;
+  }
+
+}
@@ -0,0 +1,289 @@
+/**
+ * All source code has been added into the expression package.
+ */
+
+package expression;
+
+/**
+ * Import Arrays and Map packages.
+ */
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * This class builds the nodes of an ExpressionTree from the terms of a postfix expression, fed to
+ * it one at a time by a scanner. It keeps the operand stack in a plain array and applies the same
+ * validation rules as the original ExpressionTree constructor: an operator needs as many operands
+ * on the stack as its arity and the whole expression must leave exactly one node behind. When it
+ * is given a Budget, it also tracks the depth of every node on the stack and the number of
+ * distinct variables, and stops at the first node over the limits.
+ */
+final class TreeBuilder {
+
+  /**
+   * The operator terms, shared by every OperatorNode so that scanning does not allocate them.
+   */
+  private static final String[] OPERATORS = {"+", "-", "*", "/"};
+
+  /**
+   * Map from each variable name to its slot, filled in order of first appearance.
+   */
+  private final Map<String,Integer> slots;
+
+  /**
+   * SubexpressionPool the nodes are shared through, or null to build a plain tree.
+   */
+  private final SubexpressionPool pool;
+
+  /**
+   * Budget of the parse, or null if it has no limits, and the depth of every node on the stack,
+   * which is only tracked when there is a Budget.
+   */
+  private final ExpressionLimits.Budget budget;
+  private int[] depths;
+
+  private ExpressionNode[] stack = new ExpressionNode[16];
+  private int size;
+  private int deduplicated;
+
+  /**
+   * Constructs a TreeBuilder that binds variables to slots in the given Map.
+   *
+   * @param slots the Map the slot of every new variable is added to.
+   */
+  TreeBuilder(Map<String,Integer> slots) {
+    this(slots, (SubexpressionPool) null);
+  }
+
+  /**
+   * Constructs a TreeBuilder that binds variables to slots in the given Map and, if a pool is
+   * given, takes every node from it so that identical subtrees become a single shared node. The
+   * slots are then the slots of the pool.
+   *
+   * @param slots the Map the slot of every new variable is added to.
+   * @param pool the SubexpressionPool to share nodes through, or null.
+   */
+  TreeBuilder(Map<String,Integer> slots, SubexpressionPool pool) {
+    this.slots = slots;
+    this.pool = pool;
+    this.budget = null;
+  }
+
+  /**
+   * Constructs a TreeBuilder that binds variables to slots in the given Map and throws a
+   * LimitExceededException as soon as the tree is deeper or has more distinct variables than the
+   * limits of the given Budget allow.
+   *
+   * @param slots the Map the slot of every new variable is added to.
+   * @param budget the Budget of the parse.
+   */
+  TreeBuilder(Map<String,Integer> slots, ExpressionLimits.Budget budget) {
+    this.slots = slots;
+    this.pool = null;
+    this.budget = budget;
+    this.depths = new int[stack.length];
+  }
+
+  /**
+   * Returns the number of nodes that were taken from the pool instead of being built.
+   *
+   * @return the number of deduplicated nodes.
+   */
+  int deduplicated() {
+    return deduplicated;
+  }
+
+  /**
+   * Returns the operator term for the given character, or null if the character is not one of the
+   * operators +, -, * and /.
+   *
+   * @param c the only character of a term.
+   * @return the shared operator term, or null if c is not an operator.
+   */
+  static String operator(char c) {
+    switch (c) {
+      case '+':
+        return OPERATORS[0];
+      case '-':
+        return OPERATORS[1];
+      case '*':
+        return OPERATORS[2];
+      case '/':
+        return OPERATORS[3];
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Pushes the OperandNode for a term. Numerical literals become ConstantNodes that are parsed once
+   * here, and variables become VariableNodes bound to a slot that is shared by every occurrence of
+   * the same name.
+   *
+   * @param term the operand as written in the postfix expression.
+   */
+  void operand(String term) {
+    ExpressionNode node = pool == null ? null : pool.lookup(term);
+    if (node != null) {
+      deduplicated++;
+      if (node instanceof VariableNode) {
+        slots.putIfAbsent(term, ((VariableNode) node).getSlot());
+      }
+      push(node);
+      return;
+    }
+    if (ConstantNode.mayBeNumber(term)) {
+      try {
+        node = new ConstantNode(term);
+      } catch (NumberFormatException a) {
+        // not a number after all, so it is a variable
+      }
+    }
+    if (node == null) {
+      Integer slot = slots.get(term);
+      if (slot == null) {
+        slot = pool == null ? slots.size() : pool.slot(term);
+        slots.put(term, slot);
+        if (budget != null) {
+          budget.variables(slots.size());
+        }
+      }
+      node = new VariableNode(term, slot);
+    }
+    push(pool == null ? node : share(term, node));
+    if (budget != null) {
+      depth(1);
+    }
+  }
+
+  /**
+   * Pops the two operands of a binary operator and pushes the OperatorNode combining them. Throws
+   * an IllegalArgumentException if there are fewer than two operands on the stack.
+   *
+   * @param term the operator.
+   * @throws IllegalArgumentException if the operator is missing an operand.
+   */
+  void operator(String term) throws IllegalArgumentException {
+    if (size < 2) {
+      throw new IllegalArgumentException("Expression is invalid.");
+    }
+    ExpressionNode right = stack[--size];
+    ExpressionNode left = stack[--size];
+    stack[size] = null;
+    stack[size + 1] = null;
+    if (pool == null) {
+      push(new OperatorNode(term, left, right));
+      if (budget != null) {
+        depth(Math.max(depths[size - 1], depths[size]) + 1);
+      }
+      return;
+    }
+    SubexpressionPool.OperatorKey key = new SubexpressionPool.OperatorKey(term, left, right);
+    ExpressionNode node = pool.lookup(key);
+    if (node != null) {
+      deduplicated++;
+      push(node);
+    }
+    else {
+      push(share(key, new OperatorNode(term, left, right)));
+    }
+  }
+
+  /**
+   * Pops the operands of an Operator bound by an OperatorRegistry and pushes the OperatorNode
+   * applying it to them. Throws an IllegalArgumentException if there are fewer operands on the
+   * stack than the arity of the operator.
+   *
+   * @param operator the Operator.
+   * @throws IllegalArgumentException if the operator is missing an operand.
+   */
+  void operator(Operator operator) throws IllegalArgumentException {
+    int arity = operator.getArity();
+    if (size < arity) {
+      throw new IllegalArgumentException("Expression is invalid.");
+    }
+    ExpressionNode[] operands = Arrays.copyOfRange(stack, size - arity, size);
+    Arrays.fill(stack, size - arity, size, null);
+    size -= arity;
+    if (pool == null) {
+      push(new OperatorNode(operator, operands));
+      if (budget != null) {
+        int depth = depths[size - 1];
+        if (arity == 2) {
+          depth = Math.max(depth, depths[size]);
+        }
+        depth(depth + 1);
+      }
+      return;
+    }
+    SubexpressionPool.OperatorKey key = new SubexpressionPool.OperatorKey(operator.getSymbol(),
+            operands[0], arity == 2 ? operands[1] : null);
+    ExpressionNode node = pool.lookup(key);
+    if (node != null) {
+      deduplicated++;
+      push(node);
+    }
+    else {
+      push(share(key, new OperatorNode(operator, operands)));
+    }
+  }
+
+  /**
+   * Returns the root of the finished tree. Throws an IllegalArgumentException unless exactly one
+   * node is left on the stack.
+   *
+   * @return the root ExpressionNode of the tree.
+   * @throws IllegalArgumentException if the terms did not form a single expression.
+   */
+  ExpressionNode finish() throws IllegalArgumentException {
+    if (size != 1) {
+      throw new IllegalArgumentException("Expression is invalid.");
+    }
+    return stack[0];
+  }
+
+  /**
+   * Adds a newly built node to the pool and returns the node shared under its key, counting it as
+   * deduplicated if another thread added one first.
+   *
+   * @param key the key of the node in the pool.
+   * @param node the newly built node.
+   * @return the shared node.
+   */
+  private ExpressionNode share(Object key, ExpressionNode node) {
+    ExpressionNode shared = pool.intern(key, node);
+    if (shared != node) {
+      deduplicated++;
+    }
+    return shared;
+  }
+
+  /**
+   * Records the depth of the node just pushed, throwing a LimitExceededException if it is over the
+   * depth limit of the Budget. The depths of the operands of an operator are still in the slots
+   * above the top of the stack, where they were before being popped.
+   *
+   * @param depth the depth of the node on top of the stack.
+   * @throws LimitExceededException if the depth limit is exceeded.
+   */
+  private void depth(int depth) throws LimitExceededException {
+    budget.depth(depth);
+    if (depths.length < stack.length) {
+      depths = Arrays.copyOf(depths, stack.length);
+    }
+    depths[size - 1] = depth;
+  }
+
+  /**
+   * Pushes a node on the stack, growing it when full.
+   *
+   * @param node the node to push.
+   */
+  private void push(ExpressionNode node) {
+    if (size == stack.length) {
+      stack = Arrays.copyOf(stack, size * 2);
+    }
+    stack[size++] = node;
+  }
+
+}
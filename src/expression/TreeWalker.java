@@ -0,0 +1,327 @@
+/**
+ * All source code has been added into the expression package.
+ */
+
+package expression;
+
+/**
+ * Import Appendable, Arrays, IOException, and Map packages.
+ */
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * This class walks trees of ExpressionNodes without recursion. Every walk keeps its pending nodes
+ * on an explicit array stack, so trees of any depth can be rendered and evaluated on a thread with
+ * a small call stack, and rendering appends every term exactly once to a single Appendable, which
+ * keeps it linear in the size of the output.
+ */
+final class TreeWalker {
+
+  /**
+   * Private constructor since this class only has static methods.
+   */
+  private TreeWalker() {
+  }
+
+  /**
+   * Appends the infix form of the tree under the given root to out, in the same format as
+   * OperatorNode.infix: an operator and its operands are written as ( left term right ).
+   *
+   * @param root the root ExpressionNode of the tree.
+   * @param out the Appendable receiving the infix form.
+   * @throws IOException if appending to out fails.
+   */
+  static void infix(ExpressionNode root, Appendable out) throws IOException {
+    ExpressionNode[] nodes = new ExpressionNode[16];
+    int[] states = new int[16];
+    int top = 0;
+    nodes[top] = root;
+    states[top++] = 0;
+    while (top > 0) {
+      ExpressionNode node = nodes[top - 1];
+      int arity = node.arity();
+      if (arity == 0) {
+        out.append(node.getTerm());
+        top--;
+        continue;
+      }
+      int state = states[top - 1]++;
+      if (state == 0) {
+        out.append("( ");
+        if (arity == 1) {
+          out.append(node.getTerm()).append(' ');
+        }
+      }
+      else if (state < arity) {
+        out.append(' ').append(node.getTerm()).append(' ');
+      }
+      else {
+        out.append(" )");
+        top--;
+        continue;
+      }
+      if (top == nodes.length) {
+        nodes = Arrays.copyOf(nodes, top * 2);
+        states = Arrays.copyOf(states, top * 2);
+      }
+      nodes[top] = node.getChild(state);
+      states[top++] = 0;
+    }
+  }
+
+  /**
+   * Appends the scheme form of the tree under the given root to out, in the same format as
+   * OperatorNode.schemeExpression: an operator and its operands are written as (term left right).
+   *
+   * @param root the root ExpressionNode of the tree.
+   * @param out the Appendable receiving the scheme form.
+   * @throws IOException if appending to out fails.
+   */
+  static void scheme(ExpressionNode root, Appendable out) throws IOException {
+    ExpressionNode[] nodes = new ExpressionNode[16];
+    int[] states = new int[16];
+    int top = 0;
+    nodes[top] = root;
+    states[top++] = 0;
+    while (top > 0) {
+      ExpressionNode node = nodes[top - 1];
+      int arity = node.arity();
+      if (arity == 0) {
+        out.append(node.getTerm());
+        top--;
+        continue;
+      }
+      int state = states[top - 1]++;
+      if (state == 0) {
+        out.append('(').append(node.getTerm());
+      }
+      if (state == arity) {
+        out.append(')');
+        top--;
+        continue;
+      }
+      out.append(' ');
+      if (top == nodes.length) {
+        nodes = Arrays.copyOf(nodes, top * 2);
+        states = Arrays.copyOf(states, top * 2);
+      }
+      nodes[top] = node.getChild(state);
+      states[top++] = 0;
+    }
+  }
+
+  /**
+   * Returns the infix form of the tree under the given root as a String.
+   *
+   * @param root the root ExpressionNode of the tree.
+   * @return the infix form of the tree.
+   */
+  static String infix(ExpressionNode root) {
+    StringBuilder builder = new StringBuilder();
+    try {
+      infix(root, builder);
+    } catch (IOException e) {
+      throw new AssertionError("StringBuilder does not throw IOException.", e);
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Returns the scheme form of the tree under the given root as a String.
+   *
+   * @param root the root ExpressionNode of the tree.
+   * @return the scheme form of the tree.
+   */
+  static String scheme(ExpressionNode root) {
+    StringBuilder builder = new StringBuilder();
+    try {
+      scheme(root, builder);
+    } catch (IOException e) {
+      throw new AssertionError("StringBuilder does not throw IOException.", e);
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Evaluates the tree under the given root with variable values from a Map. Throws an
+   * ArithmeticException if a variable has no value in the Map.
+   *
+   * @param root the root ExpressionNode of the tree.
+   * @param variables the Map with the numerical values of the variables.
+   * @return the value of the tree.
+   * @throws ArithmeticException if the value of a variable cannot be determined.
+   */
+  static double evaluate(ExpressionNode root, Map<String,Double> variables)
+          throws ArithmeticException {
+    return evaluate(root, variables, null, null);
+  }
+
+  /**
+   * Evaluates the tree under the given root with variable values from a Map, spending one step of
+   * the given Budget on every node visited.
+   *
+   * @param root the root ExpressionNode of the tree.
+   * @param variables the Map with the numerical values of the variables.
+   * @param budget the Budget of the evaluation, or null for no limits.
+   * @return the value of the tree.
+   * @throws ArithmeticException if the value of a variable cannot be determined.
+   * @throws LimitExceededException if the evaluation exceeds a limit of the Budget.
+   */
+  static double evaluate(ExpressionNode root, Map<String,Double> variables,
+                         ExpressionLimits.Budget budget)
+          throws ArithmeticException, LimitExceededException {
+    return evaluate(root, variables, null, budget);
+  }
+
+  /**
+   * Evaluates the tree under the given root with variable values indexed by slot.
+   *
+   * @param root the root ExpressionNode of the tree.
+   * @param slots the variable values indexed by slot.
+   * @return the value of the tree.
+   */
+  static double evaluate(ExpressionNode root, double[] slots) {
+    return evaluate(root, null, slots, null);
+  }
+
+  /**
+   * Evaluates the tree under the given root with variable values indexed by slot, spending one
+   * step of the given Budget on every node visited.
+   *
+   * @param root the root ExpressionNode of the tree.
+   * @param slots the variable values indexed by slot.
+   * @param budget the Budget of the evaluation, or null for no limits.
+   * @return the value of the tree.
+   * @throws LimitExceededException if the evaluation exceeds a limit of the Budget.
+   */
+  static double evaluate(ExpressionNode root, double[] slots, ExpressionLimits.Budget budget)
+          throws LimitExceededException {
+    return evaluate(root, null, slots, budget);
+  }
+
+  /**
+   * Evaluates the tree in postfix order with an explicit stack of pending nodes and a stack of
+   * operand values. Leaves are evaluated from the Map when it is given and from the slots
+   * otherwise; OperatorNodes pop their operands and push the result of their operator. Every node
+   * spends one step of the Budget, if there is one, as its value is pushed: steps are granted by
+   * the Budget in chunks and counted down in a local, which never runs out without a Budget.
+   *
+   * @param root the root ExpressionNode of the tree.
+   * @param variables the Map with the values of the variables, or null to use the slots.
+   * @param slots the variable values indexed by slot, used when variables is null.
+   * @param budget the Budget of the evaluation, or null for no limits.
+   * @return the value of the tree.
+   * @throws ArithmeticException if the value of a variable cannot be determined.
+   * @throws LimitExceededException if the evaluation exceeds a limit of the Budget.
+   */
+  private static double evaluate(ExpressionNode root, Map<String,Double> variables,
+                                 double[] slots, ExpressionLimits.Budget budget)
+          throws ArithmeticException, LimitExceededException {
+    ExpressionNode[] nodes = new ExpressionNode[16];
+    int[] states = new int[16];
+    double[] values = new double[16];
+    int top = 0;
+    int sp = 0;
+    long allowance = budget == null ? Long.MAX_VALUE : budget.grant();
+    nodes[top] = root;
+    states[top++] = 0;
+    while (top > 0) {
+      ExpressionNode node = nodes[top - 1];
+      int state = states[top - 1];
+      if (!(node instanceof OperatorNode) || state == node.arity()) {
+        if (--allowance < 0) {
+          allowance = budget.grant() - 1;
+        }
+        double value;
+        if (node instanceof OperatorNode) {
+          OperatorNode operator = (OperatorNode) node;
+          if (state != Program.arity(operator.opcode())) {
+            throw new IndexOutOfBoundsException("OperatorNode has no child at index " + state
+                    + ".");
+          }
+          if (state == 1) {
+            value = operator.apply(values[--sp]);
+          }
+          else {
+            sp -= 2;
+            value = operator.apply(values[sp], values[sp + 1]);
+          }
+        }
+        else {
+          value = variables != null ? node.evaluate(variables) : node.evaluate(slots);
+        }
+        if (sp == values.length) {
+          values = Arrays.copyOf(values, sp * 2);
+        }
+        values[sp++] = value;
+        top--;
+        continue;
+      }
+      states[top - 1] = state + 1;
+      if (top == nodes.length) {
+        nodes = Arrays.copyOf(nodes, top * 2);
+        states = Arrays.copyOf(states, top * 2);
+      }
+      nodes[top] = node.getChild(state);
+      states[top++] = 0;
+    }
+    return values[0];
+  }
+
+  /**
+   * Returns the number of nodes of the tree under the given root, counting a shared node once for
+   * every parent it has.
+   *
+   * @param root the root ExpressionNode of the tree.
+   * @return the number of operators and operands in the tree.
+   */
+  static long size(ExpressionNode root) {
+    long size = 0;
+    ExpressionNode[] nodes = new ExpressionNode[16];
+    int top = 0;
+    nodes[top++] = root;
+    while (top > 0) {
+      ExpressionNode node = nodes[--top];
+      size++;
+      for (int i = 0; i < node.arity(); i++) {
+        if (top == nodes.length) {
+          nodes = Arrays.copyOf(nodes, top * 2);
+        }
+        nodes[top++] = node.getChild(i);
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Returns the depth of the tree under the given root, which is 1 for a single operand.
+   *
+   * @param root the root ExpressionNode of the tree.
+   * @return the number of nodes on the longest path from the root to a leaf.
+   */
+  static int depth(ExpressionNode root) {
+    int depth = 0;
+    ExpressionNode[] nodes = new ExpressionNode[16];
+    int[] levels = new int[16];
+    int top = 0;
+    nodes[top] = root;
+    levels[top++] = 1;
+    while (top > 0) {
+      ExpressionNode node = nodes[--top];
+      int level = levels[top];
+      depth = Math.max(depth, level);
+      for (int i = 0; i < node.arity(); i++) {
+        if (top == nodes.length) {
+          nodes = Arrays.copyOf(nodes, top * 2);
+          levels = Arrays.copyOf(levels, top * 2);
+        }
+        nodes[top] = node.getChild(i);
+        levels[top++] = level + 1;
+      }
+    }
+    return depth;
+  }
+
+}
@@ -0,0 +1,71 @@
+/**
+ * All source code has been added into the expression package.
+ */
+
+package expression;
+
+/**
+ * Import Map package.
+ */
+import java.util.Map;
+
+/**
+ * This class represents an OperandNode whose term is a variable name. The variable is resolved to
+ * a slot when the ExpressionTree is built, so it can be evaluated from an array of values indexed
+ * by slot without any lookup by name.
+ */
+public class VariableNode extends OperandNode {
+
+  private final int slot;
+
+  /**
+   * Constructs the VariableNode object from a variable name and the slot holding its value.
+   *
+   * @param input String that contains the name of the variable.
+   * @param slot the index of the value of the variable in a slots array.
+   */
+  public VariableNode(String input, int slot) {
+    super(input);
+    this.slot = slot;
+  }
+
+  /**
+   * Public method that takes in no arguments as parameters and returns the slot of this
+   * VariableNode.
+   *
+   * @return the index of the value of this variable in a slots array.
+   */
+  public int getSlot() {
+    return slot;
+  }
+
+  /**
+   * Public method takes in a Map of String to Double variables and returns the value of this
+   * variable from the Map. Throws an ArithmeticException if the Map has no value for it.
+   *
+   * @param variables the Map with the numerical value of the variable.
+   * @return the value of the variable as a double data type.
+   * @throws ArithmeticException if the value of the variable cannot be determined.
+   */
+  @Override
+  public double evaluate(Map<String,Double> variables) throws ArithmeticException {
+    Double value = variables.get(getTerm());
+    if (value == null) {
+      throw new ArithmeticException("Cannot evaluate variables in expression.");
+    }
+    return value;
+  }
+
+  /**
+   * Public method takes in the variable values indexed by slot and returns the value in the slot of
+   * this VariableNode.
+   *
+   * @param slots the variable values indexed by slot.
+   * @return the value of the variable as a double data type.
+   */
+  @Override
+  public double evaluate(double[] slots) {
+    return slots[slot];
+  }
+
+}
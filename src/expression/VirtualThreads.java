@@ -0,0 +1,101 @@
+/**
+ * All source code has been added into the expression package.
+ */
+
+package expression;
+
+/**
+ * Import AtomicLong, ExecutorService, Executors, Method, and ThreadFactory packages.
+ */
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class creates executors that run every task on its own virtual thread when the running JDK
+ * has virtual threads, and on a cached pool of daemon platform threads otherwise. The library is
+ * compiled for Java 17, which has no virtual threads, so Thread.ofVirtual and
+ * Executors.newThreadPerTaskExecutor are looked up reflectively once when the class is loaded.
+ * Code run on these executors should block with java.util.concurrent locks rather than
+ * synchronized, so that a waiting virtual thread does not pin its carrier thread.
+ */
+final class VirtualThreads {
+
+  /**
+   * Factory of virtual threads, or null if the JDK has none.
+   */
+  private static final ThreadFactory VIRTUAL;
+
+  /**
+   * Executors.newThreadPerTaskExecutor, or null if the JDK has no virtual threads.
+   */
+  private static final Method PER_TASK;
+
+  static {
+    ThreadFactory factory = null;
+    Method perTask = null;
+    try {
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      factory = (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory")
+              .invoke(builder);
+      perTask = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+    } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+      factory = null;
+      perTask = null;
+    }
+    VIRTUAL = factory;
+    PER_TASK = perTask;
+  }
+
+  /**
+   * Private constructor since this class only has static methods.
+   */
+  private VirtualThreads() {
+  }
+
+  /**
+   * Returns true if tasks are run on virtual threads.
+   *
+   * @return true if the JDK supports virtual threads.
+   */
+  static boolean available() {
+    return PER_TASK != null;
+  }
+
+  /**
+   * Returns an ExecutorService that runs every task on a new virtual thread, or on a cached pool
+   * of daemon platform threads named after the given prefix when virtual threads are not
+   * available.
+   *
+   * @param prefix the prefix of the names of the platform threads.
+   * @return the ExecutorService.
+   */
+  static ExecutorService newExecutor(String prefix) {
+    if (PER_TASK != null) {
+      try {
+        return (ExecutorService) PER_TASK.invoke(null, VIRTUAL);
+      } catch (ReflectiveOperationException | RuntimeException e) {
+        // fall back to platform threads below
+      }
+    }
+    return Executors.newCachedThreadPool(daemonFactory(prefix));
+  }
+
+  /**
+   * Returns a ThreadFactory of daemon platform threads named prefix-1, prefix-2, and so on.
+   *
+   * @param prefix the prefix of the names of the threads.
+   * @return the ThreadFactory.
+   */
+  static ThreadFactory daemonFactory(String prefix) {
+    AtomicLong count = new AtomicLong();
+    return task -> {
+      Thread thread = new Thread(task, prefix + "-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+}
@@ -0,0 +1,89 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import expression.Expression;
+import expression.ExpressionTree;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * A JUnit test class for the batch evaluation of Expressions over columns.
+ */
+public class BatchEvaluationTest {
+
+  private static final int ROWS = 2000;
+
+  private Expression allTree;
+  private Expression abcdTree;
+  private double[][] columns;
+
+  @Before
+  public void testsetUp() {
+    allTree = new ExpressionTree("10.3 5 / -4.5 * b + 22.2 -23 * -");
+    abcdTree = new ExpressionTree("a b - c d + / a *");
+    Random random = new Random(42);
+    columns = new double[4][ROWS];
+    for (double[] column : columns) {
+      for (int r = 0; r < ROWS; r++) {
+        column[r] = random.nextInt(7) - 3 + random.nextDouble();
+      }
+    }
+    columns[2][7] = -columns[3][7];
+  }
+
+  private double[] row(int r) {
+    double[] slots = new double[columns.length];
+    for (int i = 0; i < columns.length; i++) {
+      slots[i] = columns[i][r];
+    }
+    return slots;
+  }
+
+  @Test
+  public void testBatchMatchesRows() {
+    double[] out = new double[ROWS];
+    abcdTree.evaluate(columns, 0, ROWS, out, 0);
+    for (int r = 0; r < ROWS; r++) {
+      assertEquals(abcdTree.evaluate(row(r)), out[r], 0.0);
+    }
+    double[] constant = new double[ROWS];
+    allTree.evaluate(new double[][] {columns[1]}, 0, ROWS, constant, 0);
+    for (int r = 0; r < ROWS; r++) {
+      assertEquals(allTree.evaluate(new double[] {columns[1][r]}), constant[r], 0.0);
+    }
+  }
+
+  @Test
+  public void testBatchRangeAndOffset() {
+    double[] out = new double[ROWS];
+    Expression compiled = new ExpressionTree("a b - c d + / a *").compile();
+    compiled.evaluate(columns, 600, 1500, out, 3);
+    for (int r = 600; r < 1500; r++) {
+      assertEquals(abcdTree.evaluate(row(r)), out[r - 597], 0.0);
+    }
+    assertEquals(0.0, out[2], 0.0);
+    assertEquals(0.0, out[903], 0.0);
+  }
+
+  @Test
+  public void testBatchSingleOperand() {
+    double[] out = new double[10];
+    new ExpressionTree("c").evaluate(new double[][] {columns[2]}, 5, 15, out, 0);
+    for (int r = 5; r < 15; r++) {
+      assertEquals(columns[2][r], out[r - 5], 0.0);
+    }
+  }
+
+  @Test(expected = ArithmeticException.class)
+  public void testBatchMissingColumn() {
+    abcdTree.evaluate(new double[][] {columns[0], columns[1]}, 0, ROWS, new double[ROWS], 0);
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testBatchOutputTooSmall() {
+    abcdTree.evaluate(columns, 0, ROWS, new double[ROWS], 1);
+  }
+
+}
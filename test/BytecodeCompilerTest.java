@@ -0,0 +1,89 @@
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.Random;
+
+import expression.BytecodeCompiler;
+import expression.ExpressionTree;
+import expression.SlotFunction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * A JUnit test class for the BytecodeCompiler class.
+ */
+public class BytecodeCompilerTest {
+
+  private static final String[] EXPRESSIONS = {
+    "a b +", "-6 3.54 +", "60 d -", "a 10 *", "6 f /", "d",
+    "10.3 5 / -4.5 * b + 22.2 -23 * -", "a b - c d + /", "a b + c d + *",
+    "a 0 / b 0 / -", "NaN a *", "0.0 a -", "1 a /", "a a a a a a a a + + + + + + +",
+    "g f e d c b a + - * / + -"
+  };
+
+  private static boolean isGenerated(SlotFunction function) {
+    return function.getClass().isHidden()
+            && function.getClass().getName().startsWith("expression.GeneratedSlotFunction");
+  }
+
+  @Test
+  public void testGeneratedMatchesTree() {
+    Random random = new Random(3);
+    for (String input : EXPRESSIONS) {
+      ExpressionTree tree = new ExpressionTree(input);
+      SlotFunction function = BytecodeCompiler.compile(tree);
+      assertTrue(input, isGenerated(function));
+      double[] vars = new double[tree.getVariables().length];
+      for (int i = 0; i < 100; i++) {
+        for (int v = 0; v < vars.length; v++) {
+          vars[v] = i == 0 ? -0.0 : random.nextGaussian();
+        }
+        assertEquals(input, tree.evaluate(vars), function.apply(vars), 0.0);
+      }
+    }
+  }
+
+  @Test
+  public void testManyVariables() {
+    StringBuilder input = new StringBuilder("v0");
+    for (int i = 1; i < 300; i++) {
+      input.append(" v").append(i).append(" +");
+    }
+    ExpressionTree tree = new ExpressionTree(input.toString());
+    SlotFunction function = BytecodeCompiler.compile(tree);
+    assertTrue(isGenerated(function));
+    double[] vars = new double[300];
+    for (int i = 0; i < vars.length; i++) {
+      vars[i] = i;
+    }
+    assertEquals(tree.evaluate(vars), function.apply(vars), 0.0);
+  }
+
+  @Test
+  public void testFallbackForHugeExpression() {
+    StringBuilder input = new StringBuilder("1.5");
+    for (int i = 0; i < 5000; i++) {
+      input.append(" a +");
+    }
+    ExpressionTree tree = new ExpressionTree(input.toString());
+    SlotFunction function = BytecodeCompiler.compile(tree);
+    assertFalse(isGenerated(function));
+    assertEquals(tree.evaluate(new double[] {2.0}), function.apply(new double[] {2.0}), 0.0);
+  }
+
+  @Test
+  public void testGeneratedClassIsUnloadable() throws InterruptedException {
+    SlotFunction function = BytecodeCompiler.compile(new ExpressionTree("a b * 2.5 +"));
+    WeakReference<Class<?>> generated = new WeakReference<>(function.getClass());
+    function = null;
+    for (int i = 0; i < 20 && generated.get() != null; i++) {
+      System.gc();
+      Thread.sleep(20);
+    }
+    assertNull(generated.get());
+  }
+
+}
@@ -0,0 +1,88 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import expression.CompactExpression;
+import expression.ExpressionTree;
+import expression.SymbolTable;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * A JUnit test class for the CompactExpression class.
+ */
+public class CompactExpressionTest {
+
+  private static final String[] INPUTS = {
+    "a b +", "-6 3.54 +", "60 d -", "  20.3   3.54   -", "a 10 *", "   3   -5.6   *",
+    "10.3 5 / -4.5 * b + 22.2 -23 * -", "a b + c d + *", "  a   b   -   c  d   +  /  ", "  d  ",
+    "b a - b c * /"
+  };
+
+  private SymbolTable symbols;
+  private Map<String, Double> map;
+
+  @Before
+  public void testsetUp() {
+    symbols = new SymbolTable();
+    map = new HashMap<>();
+    map.put("a", 100.0);
+    map.put("b", -5.0);
+    map.put("c", 12.5);
+    map.put("d", 0.1);
+  }
+
+  @Test
+  public void testMatchesTree() {
+    for (String input : INPUTS) {
+      ExpressionTree tree = new ExpressionTree(input);
+      CompactExpression compact = new CompactExpression(input, symbols);
+      assertEquals(tree.infix(), compact.infix());
+      assertEquals(tree.schemeExpression(), compact.schemeExpression());
+      assertEquals(tree.evaluate(map), compact.evaluate(map), 0.0);
+      assertArrayEquals(tree.getVariables(), compact.getVariables());
+      for (String variable : tree.getVariables()) {
+        assertEquals(tree.slotOf(variable), compact.slotOf(variable));
+      }
+      assertEquals(-1, compact.slotOf("missing"));
+    }
+  }
+
+  @Test
+  public void testSharedSymbols() {
+    new CompactExpression("a b + c *", symbols);
+    int size = symbols.size();
+    CompactExpression other = new CompactExpression("c b a * *", symbols);
+    assertEquals(size, symbols.size());
+    assertEquals(5, other.size());
+    assertEquals(-1250, other.evaluate(new double[] {-2, 5, 125}), 0.0);
+  }
+
+  @Test
+  public void testLiteralsAreNotInterned() {
+    String input = "x 0.50 + 3 * 1e3 - -0 /";
+    CompactExpression compact = new CompactExpression(input, symbols);
+    assertEquals(new ExpressionTree(input).infix(), compact.infix());
+    assertEquals(1, symbols.size());
+    assertEquals(0, new CompactExpression("7 2.5 *").getSymbols().size());
+  }
+
+  @Test
+  public void testBatch() {
+    CompactExpression compact = new CompactExpression("a b - c d + /", symbols);
+    double[][] columns = {{1, 2, 3}, {4, 5, 6}, {7, 8, 9}, {1, 0, -9}};
+    double[] out = new double[3];
+    compact.evaluate(columns, 0, 3, out, 0);
+    assertArrayEquals(new double[] {-3.0 / 8, -3.0 / 8, Double.NEGATIVE_INFINITY}, out, 0.0);
+  }
+
+  @Test(expected = ArithmeticException.class)
+  public void testIllegalEval() {
+    map.remove("c");
+    new CompactExpression("a b + c *", symbols).evaluate(map);
+  }
+
+}
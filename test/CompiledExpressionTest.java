@@ -0,0 +1,68 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import expression.CompiledExpression;
+import expression.ExpressionTree;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * A JUnit test class for the CompiledExpression class.
+ */
+public class CompiledExpressionTest {
+
+  private ExpressionTree allTree;
+  private ExpressionTree abcdTree;
+  private ExpressionTree single;
+  private Map<String, Double> map;
+
+  @Before
+  public void testsetUp() {
+    allTree = new ExpressionTree("10.3 5 / -4.5 * b + 22.2 -23 * -");
+    abcdTree = new ExpressionTree("  a   b   -   c  d   +  /  ");
+    single = new ExpressionTree("  d  ");
+    map = new HashMap<>();
+    map.put("a", 100.0);
+    map.put("b", -5.0);
+    map.put("c", 12.5);
+    map.put("d", 0.1);
+  }
+
+  @Test
+  public void testRendering() {
+    assertEquals(allTree.infix(), allTree.compile().infix());
+    assertEquals(allTree.schemeExpression(), allTree.compile().schemeExpression());
+    assertEquals("d", single.compile().infix());
+  }
+
+  @Test
+  public void testEvaluateMatchesTree() {
+    assertEquals(allTree.evaluate(map), allTree.compile().evaluate(map), 0.0);
+    assertEquals(abcdTree.evaluate(map), abcdTree.compile().evaluate(map), 0.0);
+    assertEquals(single.evaluate(map), single.compile().evaluate(map), 0.0);
+    Map<String, Double> noMap = new HashMap<>();
+    ExpressionTree constants = new ExpressionTree("20 10 2 / - 0 /");
+    assertEquals(constants.evaluate(noMap), constants.compile().evaluate(noMap), 0.0);
+  }
+
+  @Test
+  public void testEvaluateSlots() {
+    CompiledExpression compiled = new ExpressionTree("a b - a c + /").compile();
+    assertArrayEquals(new String[] {"a", "b", "c"}, compiled.getVariables());
+    assertEquals(3, compiled.getStackSize());
+    double[] stack = compiled.newStack();
+    assertEquals(0.5, compiled.evaluate(new double[] {3, 1, 1}, stack), 0.0);
+    assertEquals(-1, compiled.evaluate(new double[] {0, 2, 2}, stack), 0.0);
+  }
+
+  @Test(expected = ArithmeticException.class)
+  public void testIllegalEval() {
+    map.remove("b");
+    allTree.compile().evaluate(map);
+  }
+
+}
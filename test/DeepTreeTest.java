@@ -0,0 +1,80 @@
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Map;
+
+import expression.BytecodeCompiler;
+import expression.ExpressionTree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * A JUnit test class for ExpressionTrees that are far deeper than the call stack allows.
+ */
+public class DeepTreeTest {
+
+  private static final int OPERATORS = 200_000;
+
+  private static ExpressionTree leftDeep;
+  private static ExpressionTree rightDeep;
+  private static Map<String, Double> map;
+
+  @BeforeClass
+  public static void testsetUp() {
+    StringBuilder left = new StringBuilder("a");
+    StringBuilder right = new StringBuilder();
+    for (int i = 0; i < OPERATORS; i++) {
+      left.append(i % 2 == 0 ? " b +" : " 1 -");
+      right.append("a ");
+    }
+    right.append("b");
+    for (int i = 0; i < OPERATORS; i++) {
+      right.append(" *");
+    }
+    leftDeep = new ExpressionTree(left.toString());
+    rightDeep = new ExpressionTree(right.toString());
+    map = new HashMap<>();
+    map.put("a", 1.0);
+    map.put("b", 2.0);
+  }
+
+  @Test
+  public void testEvaluate() {
+    assertEquals(1 + OPERATORS / 2, leftDeep.evaluate(map), 0.0);
+    assertEquals(1 + OPERATORS / 2, leftDeep.evaluate(new double[] {1.0, 2.0}), 0.0);
+    assertEquals(2.0, rightDeep.evaluate(map), 0.0);
+    assertEquals(leftDeep.evaluate(map), leftDeep.compile().evaluate(map), 0.0);
+    assertEquals(leftDeep.evaluate(map),
+            BytecodeCompiler.compile(leftDeep).apply(new double[] {1.0, 2.0}), 0.0);
+  }
+
+  @Test
+  public void testRendering() {
+    String infix = leftDeep.infix();
+    assertTrue(infix.startsWith("( a + b ) - 1 ) + b ) - 1 )", 2 * (OPERATORS - 1)));
+    assertTrue(infix.endsWith(" ) + b ) - 1 )"));
+    String scheme = rightDeep.schemeExpression();
+    assertTrue(scheme.startsWith("(* a (* a (* a"));
+    assertTrue(scheme.startsWith("(* a b))))", 5 * (OPERATORS - 1)));
+    assertEquals(OPERATORS * 2L + 1 + OPERATORS * 4L, scheme.length());
+  }
+
+  @Test
+  public void testAppendable() throws IOException {
+    StringWriter infix = new StringWriter();
+    rightDeep.infix(infix);
+    assertEquals(rightDeep.infix(), infix.toString());
+    StringWriter scheme = new StringWriter();
+    leftDeep.schemeExpression(scheme);
+    assertEquals(leftDeep.schemeExpression(), scheme.toString());
+
+    StringBuilder small = new StringBuilder("x = ");
+    new ExpressionTree("a b + c *").schemeExpression(small);
+    assertEquals("x = (* (+ a b) c)", small.toString());
+  }
+
+}
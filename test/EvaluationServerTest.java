@@ -0,0 +1,200 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import expression.EvaluationClient;
+import expression.EvaluationServer;
+import expression.LimitExceededException;
+import expression.TenantLimits;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * A JUnit test class for the EvaluationServer and EvaluationClient classes.
+ */
+public class EvaluationServerTest {
+
+  private EvaluationServer server;
+  private EvaluationClient client;
+
+  @Before
+  public void testsetUp() throws IOException {
+    server = new EvaluationServer();
+    client = new EvaluationClient(server.getAddress());
+  }
+
+  @After
+  public void testtearDown() throws IOException {
+    client.close();
+    server.close();
+  }
+
+  private static Map<String,Double> variables(double a, double b) {
+    Map<String,Double> variables = new HashMap<>();
+    variables.put("a", a);
+    variables.put("b", b);
+    return variables;
+  }
+
+  @Test
+  public void testRoundTrip() {
+    assertEquals(14, client.evaluate("acme", "a b + 2 *", variables(3, 4)), 0.0);
+    assertEquals(3.5, client.evaluate("acme", " 7   2 / ", new HashMap<>()), 0.0);
+    assertEquals(14, server.evaluate("acme", "a b + 2 *", variables(3, 4)), 0.0);
+    assertEquals(3, server.getRequestCount());
+  }
+
+  @Test
+  public void testErrors() {
+    try {
+      client.evaluate("acme", "5 + 7", new HashMap<>());
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Expression is invalid.", e.getMessage());
+    }
+    try {
+      client.evaluate("acme", "a c +", variables(1, 2));
+      fail();
+    } catch (ArithmeticException e) {
+      assertEquals("Cannot evaluate variables in expression.", e.getMessage());
+    }
+    assertEquals(3, client.evaluate("acme", "a b +", variables(1, 2)), 0.0);
+  }
+
+  @Test
+  public void testTenantLimits() {
+    server.setLimits("small", new TenantLimits(3, 2));
+    assertEquals(3, client.evaluate("small", "a b +", variables(1, 2)), 0.0);
+    try {
+      client.evaluate("small", "a b + 2 *", variables(1, 2));
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Expression exceeds the limits of tenant small.", e.getMessage());
+    }
+    try {
+      server.evaluate("small", "a b + 2 *", variables(1, 2));
+      fail();
+    } catch (LimitExceededException e) {
+      assertEquals(LimitExceededException.Limit.TOKENS, e.getLimit());
+    }
+    assertEquals(6, client.evaluate("large", "a b + 2 *", variables(1, 2)), 0.0);
+    server.setLimits("small", null);
+    assertEquals(6, client.evaluate("small", "a b + 2 *", variables(1, 2)), 0.0);
+    try {
+      new TenantLimits(0, 5);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Limits must be positive.", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testLimitsApplyBeforeParsing() {
+    server.setLimits("small", new TenantLimits(5, 3));
+    assertEquals(6, server.evaluate("large", "a b + 2 *", variables(1, 2)), 0.0);
+    assertEquals(6, server.evaluate("small", "a b + 2 *", variables(1, 2)), 0.0);
+    assertEquals(18, server.evaluate("large", "a b + 2 * 3 *", variables(1, 2)), 0.0);
+    try {
+      server.evaluate("small", "a b + 2 * 3 *", variables(1, 2));
+      fail();
+    } catch (LimitExceededException e) {
+      assertEquals(LimitExceededException.Limit.TOKENS, e.getLimit());
+    }
+    server.setLimits("narrow", new TenantLimits(100, 2));
+    try {
+      server.evaluate("narrow", "1 2 3 + +", variables(1, 2));
+      fail();
+    } catch (LimitExceededException e) {
+      assertEquals(LimitExceededException.Limit.DEPTH, e.getLimit());
+      assertEquals("Expression exceeds the limits of tenant narrow.", e.getMessage());
+    }
+    StringBuilder hostile = new StringBuilder("a");
+    for (int i = 0; i < 100_000; i++) {
+      hostile.append(" a +");
+    }
+    hostile.append(" +");
+    try {
+      client.evaluate("small", hostile.toString(), variables(1, 2));
+      fail();
+    } catch (LimitExceededException e) {
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Expression exceeds the limits of tenant small.", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testPipelinedRequests() {
+    List<CompletableFuture<Double>> futures = new ArrayList<>();
+    assertTrue(1000 > EvaluationServer.MAX_IN_FLIGHT);
+    for (int i = 0; i < 1000; i++) {
+      futures.add(client.submit("acme", "a b * 1 +", variables(i, 2)));
+    }
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(2 * i + 1, futures.get(i).join(), 0.0);
+    }
+  }
+
+  @Test
+  public void testConcurrentRequestsAreBatched() throws InterruptedException {
+    int threads = 16;
+    int rows = 2000;
+    CountDownLatch start = new CountDownLatch(1);
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    List<Thread> workers = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      int offset = t * rows;
+      Thread worker = new Thread(() -> {
+        try {
+          start.await();
+          for (int i = offset; i < offset + rows; i++) {
+            double value = server.evaluate("acme", "a b - a *", variables(i, 1));
+            if (value != (i - 1.0) * i) {
+              throw new AssertionError("Wrong value " + value + " for row " + i);
+            }
+          }
+        } catch (Throwable e) {
+          failure.compareAndSet(null, e);
+        }
+      });
+      worker.start();
+      workers.add(worker);
+    }
+    start.countDown();
+    for (Thread worker : workers) {
+      worker.join();
+    }
+    assertNull(failure.get());
+    assertEquals(threads * rows, server.getRequestCount());
+    assertTrue(server.getBatchCount() <= server.getRequestCount());
+    assertTrue(server.getBatchCount() > 0);
+  }
+
+  @Test
+  public void testClosedServerFailsPendingRequests() throws IOException {
+    assertEquals(3, client.evaluate("acme", "a b +", variables(1, 2)), 0.0);
+    server.close();
+    try {
+      for (int i = 0; i < 100; i++) {
+        client.evaluate("acme", "a b +", variables(1, 2));
+      }
+      fail();
+    } catch (UncheckedIOException e) {
+      assertTrue(e.getCause() instanceof IOException);
+    }
+  }
+
+}
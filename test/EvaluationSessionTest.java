@@ -0,0 +1,106 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import expression.EvaluationSession;
+import expression.ExpressionTree;
+import expression.SubexpressionPool;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * A JUnit test class for the EvaluationSession class.
+ */
+public class EvaluationSessionTest {
+
+  private ExpressionTree tree;
+  private EvaluationSession session;
+  private Map<String, Double> map;
+
+  @Before
+  public void testsetUp() {
+    tree = new ExpressionTree("a b + c d + * e 2 - /");
+    session = new EvaluationSession(tree);
+    map = new HashMap<>();
+    map.put("a", 100.0);
+    map.put("b", -5.0);
+    map.put("c", 12.5);
+    map.put("d", 0.1);
+    map.put("e", 4.0);
+  }
+
+  @Test
+  public void testEvaluate() {
+    assertEquals(tree.evaluate(map), session.evaluate(map), 0.0);
+    assertEquals(5, session.getRecomputedCount());
+    assertEquals(11, session.size());
+    assertEquals(tree.evaluate(map), session.evaluate(map), 0.0);
+    assertEquals(0, session.getRecomputedCount());
+  }
+
+  @Test
+  public void testOnlyAffectedPath() {
+    session.evaluate(map);
+    session.set("a", 7.0);
+    map.put("a", 7.0);
+    assertEquals(tree.evaluate(map), session.evaluate(), 0.0);
+    assertEquals(3, session.getRecomputedCount());
+    session.set(tree.slotOf("e"), -1.0);
+    map.put("e", -1.0);
+    assertEquals(tree.evaluate(map), session.evaluate(), 0.0);
+    assertEquals(2, session.getRecomputedCount());
+    session.set("e", -1.0);
+    session.set("unknown", 3.0);
+    assertEquals(tree.evaluate(map), session.evaluate(), 0.0);
+    assertEquals(0, session.getRecomputedCount());
+  }
+
+  @Test
+  public void testUpdate() {
+    session.evaluate(map);
+    Map<String, Double> changes = new HashMap<>();
+    changes.put("c", Double.NaN);
+    changes.put("d", -0.0);
+    session.update(changes);
+    map.putAll(changes);
+    assertEquals(tree.evaluate(map), session.evaluate(), 0.0);
+    assertEquals(3, session.getRecomputedCount());
+  }
+
+  @Test(expected = ArithmeticException.class)
+  public void testUnsetVariable() {
+    session.set("a", 1.0);
+    session.evaluate();
+  }
+
+  @Test(expected = ArithmeticException.class)
+  public void testMissingVariable() {
+    map.remove("c");
+    session.evaluate(map);
+  }
+
+  @Test
+  public void testRandomChanges() {
+    StringBuilder input = new StringBuilder("v0");
+    Random random = new Random(42);
+    for (int i = 1; i < 500; i++) {
+      input.append(" v").append(random.nextInt(50)).append(" ").append("+-*/".charAt(i % 4));
+    }
+    ExpressionTree large = new ExpressionTree(input.toString(), new SubexpressionPool());
+    EvaluationSession incremental = new EvaluationSession(large);
+    Map<String, Double> values = new HashMap<>();
+    for (int i = 0; i < 50; i++) {
+      values.put("v" + i, random.nextDouble() + 0.5);
+    }
+    for (int round = 0; round < 200; round++) {
+      for (int change = random.nextInt(3); change >= 0; change--) {
+        values.put("v" + random.nextInt(50), random.nextDouble() + 0.5);
+      }
+      assertEquals(large.evaluate(values), incremental.evaluate(values), 0.0);
+    }
+  }
+
+}
@@ -0,0 +1,107 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import expression.ExpressionCache;
+import expression.ExpressionTree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * A JUnit test class for the ExpressionCache class.
+ */
+public class ExpressionCacheTest {
+
+  private ExpressionCache cache;
+
+  @Before
+  public void testsetUp() {
+    cache = new ExpressionCache(64);
+  }
+
+  @Test
+  public void testSameTreeForNormalizedInput() {
+    ExpressionTree tree = cache.get("a b +");
+    assertSame(tree, cache.get("  a   b  + "));
+    assertSame(tree, cache.get("a b +"));
+    assertEquals("( a + b )", tree.infix());
+    assertEquals(1, cache.missCount());
+    assertEquals(2, cache.hitCount());
+    assertEquals(1, cache.size());
+    assertEquals(7, cache.getCompiled("a b +").evaluate(new double[] {3, 4}), 0.0);
+  }
+
+  @Test
+  public void testInvalidInputIsCached() {
+    for (int i = 0; i < 3; i++) {
+      try {
+        cache.get(" 5 + 7 / 2");
+        fail();
+      } catch (IllegalArgumentException e) {
+        assertEquals("Expression is invalid.", e.getMessage());
+      }
+    }
+    assertEquals(1, cache.missCount());
+    assertEquals(2, cache.hitCount());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNullInput() {
+    cache.get(null);
+  }
+
+  @Test
+  public void testEviction() {
+    for (int i = 0; i < 1000; i++) {
+      cache.get("x " + i + " *");
+    }
+    assertTrue(cache.size() <= cache.maximumSize());
+    assertEquals(1000 - cache.size(), cache.evictionCount());
+
+    ExpressionCache small = new ExpressionCache(1);
+    ExpressionTree first = small.get("a b +");
+    small.get("a b -");
+    assertEquals(1, small.size());
+    assertEquals(1, small.evictionCount());
+    assertTrue(first != small.get("a b +"));
+  }
+
+  @Test
+  public void testLeastRecentlyUsedIsEvicted() {
+    ExpressionCache single = new ExpressionCache(128);
+    List<ExpressionTree> trees = new ArrayList<>();
+    for (int i = 0; i < 512; i++) {
+      trees.add(single.get("x " + i + " *"));
+      single.get("x 0 *");
+    }
+    assertSame(trees.get(0), single.get("x 0 *"));
+  }
+
+  @Test
+  public void testConcurrentLookups() throws InterruptedException {
+    Thread[] threads = new Thread[8];
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] = new Thread(() -> {
+        for (int i = 0; i < 5000; i++) {
+          ExpressionTree tree = cache.get("a " + (i % 100) + " +");
+          HashMap<String, Double> map = new HashMap<>();
+          map.put("a", 1.0);
+          assertEquals(1 + i % 100, tree.evaluate(map), 0.0);
+        }
+      });
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(40000, cache.hitCount() + cache.missCount());
+    assertTrue(cache.size() <= cache.maximumSize());
+  }
+
+}
@@ -0,0 +1,182 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import expression.ExpressionCodec;
+import expression.ExpressionLibrary;
+import expression.ExpressionTree;
+import expression.SubexpressionPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * A JUnit test class for the ExpressionCodec and ExpressionLibrary classes.
+ */
+public class ExpressionCodecTest {
+
+  private String[] inputs;
+  private Map<String, Double> map;
+
+  @Before
+  public void testsetUp() {
+    inputs = new String[] {
+      "-6 -6.0 +",
+      "x 1e3 * 0.50 / x -",
+      "NaN y - -0 *",
+      "42",
+      "\u00e9t\u00e9 2 * b c + /",
+      "a b + c d + * e 2 - /"
+    };
+    map = new HashMap<>();
+    map.put("x", 1.5);
+    map.put("y", 2.0);
+    map.put("b", 3.0);
+    map.put("c", -4.0);
+    map.put("a", 10.0);
+    map.put("d", 0.25);
+    map.put("e", 7.0);
+    map.put("\u00e9t\u00e9", 5.0);
+  }
+
+  private static void assertRoundTrip(ExpressionTree tree, ExpressionTree decoded,
+                                      Map<String, Double> map) {
+    assertEquals(tree.infix(), decoded.infix());
+    assertEquals(tree.schemeExpression(), decoded.schemeExpression());
+    assertArrayEquals(tree.getVariables(), decoded.getVariables());
+    assertEquals(tree.evaluate(map), decoded.evaluate(map), 0.0);
+  }
+
+  @Test
+  public void testRoundTrip() {
+    for (String input : inputs) {
+      ExpressionTree tree = new ExpressionTree(input);
+      assertRoundTrip(tree, ExpressionCodec.decode(ExpressionCodec.encode(tree)), map);
+    }
+    assertEquals("( -6 + -6.0 )",
+            ExpressionCodec.decode(ExpressionCodec.encode(new ExpressionTree("-6 -6.0 +")))
+                    .infix());
+  }
+
+  @Test
+  public void testPooledSlots() {
+    SubexpressionPool pool = new SubexpressionPool();
+    new ExpressionTree("z y x * +", pool);
+    ExpressionTree tree = new ExpressionTree("x y * x y * +", pool);
+    ExpressionTree decoded = ExpressionCodec.decode(ExpressionCodec.encode(tree));
+    assertRoundTrip(new ExpressionTree("x y * x y * +"), decoded, map);
+    assertEquals(tree.infix(), decoded.infix());
+    assertEquals(2, tree.slotOf("x"));
+    assertEquals(0, decoded.slotOf("x"));
+    assertEquals(1, decoded.slotOf("y"));
+    assertEquals(tree.evaluate(new double[] {0, 4, 3}), decoded.evaluate(new double[] {3, 4}),
+            0.0);
+  }
+
+  @Test
+  public void testBufferPosition() {
+    byte[] first = ExpressionCodec.encode(new ExpressionTree(inputs[0]));
+    byte[] second = ExpressionCodec.encode(new ExpressionTree(inputs[1]));
+    ByteBuffer buffer = ByteBuffer.allocateDirect(first.length + second.length + 3);
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    buffer.put(new byte[3]).put(first).put(second).flip().position(3);
+    assertEquals("( -6 + -6.0 )", ExpressionCodec.decode(buffer).infix());
+    assertEquals(3 + first.length, buffer.position());
+    assertEquals(new ExpressionTree(inputs[1]).infix(), ExpressionCodec.decode(buffer).infix());
+    assertEquals(buffer.limit(), buffer.position());
+    assertEquals(ByteOrder.LITTLE_ENDIAN, buffer.order());
+  }
+
+  @Test
+  public void testInvalid() {
+    byte[] encoded = ExpressionCodec.encode(new ExpressionTree("a b +"));
+    byte[] version = encoded.clone();
+    version[5] = 3;
+    try {
+      ExpressionCodec.decode(version);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Unsupported encoding version 3.", e.getMessage());
+    }
+    byte[] operator = encoded.clone();
+    operator[operator.length - 1] = 9;
+    byte[][] corrupt = {new byte[0], Arrays.copyOf(encoded, encoded.length - 1), operator,
+      Arrays.copyOf(new byte[] {1, 2, 3, 4}, 40)};
+    for (byte[] bytes : corrupt) {
+      try {
+        ExpressionCodec.decode(bytes);
+        fail();
+      } catch (IllegalArgumentException e) {
+        assertEquals("Encoded expression is invalid.", e.getMessage());
+      }
+    }
+  }
+
+  @Test
+  public void testInvalidSlots() {
+    byte[] large = ExpressionCodec.encode(new ExpressionTree("x 1 +"));
+    ByteBuffer.wrap(large).putInt(28, 0x7FFFFFEF);
+    byte[] repeated = ExpressionCodec.encode(new ExpressionTree("x y -"));
+    ByteBuffer.wrap(repeated).putInt(36, 0);
+    byte[] negative = repeated.clone();
+    ByteBuffer.wrap(negative).putInt(36, -1);
+    for (byte[] bytes : new byte[][] {large, repeated, negative}) {
+      try {
+        ExpressionCodec.decode(bytes);
+        fail();
+      } catch (IllegalArgumentException e) {
+        assertEquals("Encoded expression is invalid.", e.getMessage());
+      }
+    }
+    ByteBuffer.wrap(repeated).putInt(28, 1).putInt(36, 0);
+    assertEquals(-1.0, ExpressionCodec.decode(repeated).evaluate(new double[] {3, 2}), 0.0);
+  }
+
+  @Test
+  public void testLibrary() throws IOException {
+    List<ExpressionTree> trees = new ArrayList<>();
+    for (String input : inputs) {
+      trees.add(new ExpressionTree(input));
+    }
+    Path file = Files.createTempFile("expressions", ".lib");
+    try {
+      ExpressionLibrary.write(trees, file);
+      ExpressionLibrary library = ExpressionLibrary.open(file);
+      assertEquals(inputs.length, library.size());
+      for (int i = inputs.length - 1; i >= 0; i--) {
+        assertRoundTrip(trees.get(i), library.get(i), map);
+      }
+    } finally {
+      Files.delete(file);
+    }
+    ExpressionLibrary empty = ExpressionLibrary.wrap(
+            ByteBuffer.wrap(ExpressionLibrary.encode(new ArrayList<>())));
+    assertEquals(0, empty.size());
+    try {
+      empty.get(0);
+      fail();
+    } catch (IndexOutOfBoundsException e) {
+      assertEquals("Index 0 is out of bounds.", e.getMessage());
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidLibrary() {
+    byte[] library = ExpressionLibrary.encode(List.of(new ExpressionTree("a b +")));
+    library[library.length - 1] = 0;
+    library[12] = (byte) 0xff;
+    ExpressionLibrary.wrap(ByteBuffer.wrap(library));
+  }
+
+}
@@ -0,0 +1,227 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import expression.BytecodeCompiler;
+import expression.CompiledExpression;
+import expression.ExpressionCache;
+import expression.ExpressionLimits;
+import expression.ExpressionTree;
+import expression.LimitExceededException;
+import expression.OperatorRegistry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * A JUnit test class for the ExpressionLimits and LimitExceededException classes.
+ */
+public class ExpressionLimitsTest {
+
+  private Map<String,Double> variables;
+
+  @Before
+  public void testsetUp() {
+    variables = new HashMap<>();
+    variables.put("a", 2.0);
+    variables.put("b", 3.0);
+    variables.put("c", 4.0);
+    variables.put("d", 5.0);
+  }
+
+  private static LimitExceededException.Limit parseLimit(String input, ExpressionLimits limits) {
+    try {
+      new ExpressionTree(input, limits);
+      fail();
+      return null;
+    } catch (LimitExceededException e) {
+      return e.getLimit();
+    }
+  }
+
+  @Test
+  public void testTokens() {
+    ExpressionLimits limits = ExpressionLimits.UNLIMITED.withMaxTokens(5);
+    assertEquals(20, new ExpressionTree("a b + c *", limits).evaluate(variables), 0.0);
+    assertEquals(LimitExceededException.Limit.TOKENS, parseLimit("a b + c * d +", limits));
+    try {
+      new ExpressionTree("a b + c * d +", limits);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Expression exceeds the limit of 5 tokens.", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testDepth() {
+    ExpressionLimits limits = ExpressionLimits.UNLIMITED.withMaxDepth(3);
+    assertEquals(45, new ExpressionTree("a b + c d + *", limits).evaluate(variables), 0.0);
+    assertEquals(LimitExceededException.Limit.DEPTH, parseLimit("a b c d + + +", limits));
+    assertEquals(LimitExceededException.Limit.DEPTH,
+            parseLimit("1 2 3 4 5 6 7 8 9 + + + + + + + +", limits));
+    try {
+      new ExpressionTree("x neg neg neg", OperatorRegistry.extended(), limits);
+      fail();
+    } catch (LimitExceededException e) {
+      assertEquals("Expression exceeds the limit of 3 levels.", e.getMessage());
+    }
+    assertEquals(-2, new ExpressionTree("a neg", OperatorRegistry.extended(), limits)
+            .evaluate(variables), 0.0);
+  }
+
+  @Test
+  public void testVariables() {
+    ExpressionLimits limits = ExpressionLimits.UNLIMITED.withMaxVariables(2);
+    assertEquals(20, new ExpressionTree("a b + a * 2 *", limits).evaluate(variables), 0.0);
+    assertEquals(LimitExceededException.Limit.VARIABLES, parseLimit("a b + c +", limits));
+    assertEquals(3, new ExpressionTree("1 2 +", ExpressionLimits.UNLIMITED.withMaxVariables(0))
+            .evaluate(variables), 0.0);
+  }
+
+  @Test
+  public void testSteps() {
+    ExpressionTree tree = new ExpressionTree("a b + c *",
+            ExpressionLimits.UNLIMITED.withMaxSteps(10));
+    assertEquals(20, tree.evaluate(variables), 0.0);
+    assertEquals(20, tree.evaluate(new double[] {2, 3, 4}), 0.0);
+    double[] out = new double[3];
+    double[][] columns = {{1, 2, 3}, {1, 1, 1}, {2, 2, 2}};
+    tree.evaluate(columns, 0, 2, out, 0);
+    assertEquals(6, out[1], 0.0);
+    try {
+      tree.evaluate(columns, 0, 3, out, 0);
+      fail();
+    } catch (LimitExceededException e) {
+      assertEquals(LimitExceededException.Limit.STEPS, e.getLimit());
+      assertEquals("Expression exceeds the limit of 10 steps.", e.getMessage());
+    }
+    ExpressionTree small = new ExpressionTree("a b + c *",
+            ExpressionLimits.UNLIMITED.withMaxSteps(4));
+    try {
+      small.evaluate(variables);
+      fail();
+    } catch (LimitExceededException e) {
+      assertEquals(LimitExceededException.Limit.STEPS, e.getLimit());
+    }
+  }
+
+  @Test
+  public void testTimeout() {
+    StringBuilder input = new StringBuilder("a");
+    for (int i = 0; i < 5000; i++) {
+      input.append(" a +");
+    }
+    ExpressionLimits limits = ExpressionLimits.UNLIMITED.withTimeout(Duration.ofNanos(1));
+    assertEquals(LimitExceededException.Limit.TIME, parseLimit(input.toString(), limits));
+    assertEquals(5, new ExpressionTree("a b +", limits).evaluate(variables), 0.0);
+    assertEquals(Duration.ofNanos(1), limits.getTimeout());
+    assertNull(ExpressionLimits.UNLIMITED.getTimeout());
+  }
+
+  @Test
+  public void testInvalidLimits() {
+    try {
+      ExpressionLimits.UNLIMITED.withMaxTokens(0);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Limits must be positive.", e.getMessage());
+    }
+    try {
+      ExpressionLimits.UNLIMITED.withMaxVariables(-1);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Limits must not be negative.", e.getMessage());
+    }
+    ExpressionLimits limits = ExpressionLimits.UNLIMITED.withMaxDepth(7).withMaxSteps(9);
+    assertEquals(7, limits.getMaxDepth());
+    assertEquals(9, limits.getMaxSteps());
+    assertEquals(Long.MAX_VALUE, limits.getMaxTokens());
+    assertEquals(Integer.MAX_VALUE, ExpressionLimits.UNLIMITED.getMaxDepth());
+  }
+
+  @Test
+  public void testCompiledKeepsStepBudget() {
+    ExpressionTree tree = new ExpressionTree("a b + c *",
+            ExpressionLimits.UNLIMITED.withMaxSteps(4));
+    assertEquals(4, tree.getLimits().getMaxSteps());
+    CompiledExpression compiled = tree.compile();
+    try {
+      compiled.evaluate(new double[] {2, 3, 4});
+      fail();
+    } catch (LimitExceededException e) {
+      assertEquals(LimitExceededException.Limit.STEPS, e.getLimit());
+    }
+    try {
+      compiled.evaluate(variables);
+      fail();
+    } catch (LimitExceededException e) {
+      assertEquals("Expression exceeds the limit of 4 steps.", e.getMessage());
+    }
+    try {
+      BytecodeCompiler.compile(tree).apply(new double[] {2, 3, 4});
+      fail();
+    } catch (LimitExceededException e) {
+      assertEquals(LimitExceededException.Limit.STEPS, e.getLimit());
+    }
+    ExpressionTree enough = new ExpressionTree("a b + c *",
+            ExpressionLimits.UNLIMITED.withMaxSteps(10));
+    assertEquals(20, enough.compile().evaluate(new double[] {2, 3, 4}), 0.0);
+    assertEquals(20, BytecodeCompiler.compile(enough).apply(new double[] {2, 3, 4}), 0.0);
+    double[] out = new double[3];
+    enough.compile().evaluate(new double[][] {{2, 2}, {3, 3}, {4, 4}}, 0, 2, out, 0);
+    assertEquals(20, out[1], 0.0);
+    assertNull(new ExpressionTree("a b +").getLimits());
+  }
+
+  @Test
+  public void testCacheParsesUnderLimits() {
+    ExpressionCache cache = new ExpressionCache(16);
+    ExpressionLimits small = ExpressionLimits.UNLIMITED.withMaxTokens(3);
+    assertEquals(LimitExceededException.Limit.TOKENS, cacheLimit(cache, "a b + c *", small));
+    assertEquals(0, cache.size());
+    assertEquals(5, cache.get("a b +", small).evaluate(variables), 0.0);
+    assertNull(cache.get("a b +", small).getLimits());
+    assertEquals(20, cache.get("a b + c *").evaluate(variables), 0.0);
+    assertEquals(LimitExceededException.Limit.TOKENS, cacheLimit(cache, "a b + c *", small));
+    assertEquals(LimitExceededException.Limit.DEPTH, cacheLimit(cache, "a b + c *",
+            ExpressionLimits.UNLIMITED.withMaxDepth(2)));
+    assertEquals(LimitExceededException.Limit.VARIABLES, cacheLimit(cache, "a b + c *",
+            ExpressionLimits.UNLIMITED.withMaxVariables(2)));
+    try {
+      cache.get("a +", small);
+      fail();
+    } catch (LimitExceededException e) {
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Expression is invalid.", e.getMessage());
+    }
+  }
+
+  private static LimitExceededException.Limit cacheLimit(ExpressionCache cache, String input,
+                                                         ExpressionLimits limits) {
+    try {
+      cache.get(input, limits);
+      fail();
+      return null;
+    } catch (LimitExceededException e) {
+      return e.getLimit();
+    }
+  }
+
+  @Test
+  public void testInvalidInputStillInvalid() {
+    try {
+      new ExpressionTree("a +", ExpressionLimits.UNLIMITED.withMaxTokens(10));
+      fail();
+    } catch (LimitExceededException e) {
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Expression is invalid.", e.getMessage());
+    }
+  }
+
+}
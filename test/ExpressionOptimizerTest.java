@@ -0,0 +1,113 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import expression.ExpressionOptimizer;
+import expression.ExpressionTree;
+import expression.SubexpressionPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * A JUnit test class for the ExpressionOptimizer class.
+ */
+public class ExpressionOptimizerTest {
+
+  private static final String[] INPUTS = {
+    "10.3 5 / -4.5 * b + 22.2 -23 * -", "a 1 *", "1 a *", "a 1 /", "a 0 -", "a -0.0 +",
+    "-0.0 a +", "a 0 +", "0 a +", "a 0 *", "a a -", "a a /", "a b + 1 * 2 3 * /", "6 3.54 + a -"
+  };
+
+  private static final double[] VALUES = {
+    1.5, -2.0, 0.0, -0.0, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY
+  };
+
+  private ExpressionOptimizer optimizer;
+  private Map<String, Double> map;
+
+  @Before
+  public void testsetUp() {
+    optimizer = new ExpressionOptimizer();
+    map = new HashMap<>();
+  }
+
+  @Test
+  public void testFolding() {
+    ExpressionTree tree = new ExpressionTree("10.3 5 / -4.5 * b + 22.2 -23 * -");
+    ExpressionTree optimized = optimizer.optimize(tree);
+    double folded = 10.3 / 5 * -4.5;
+    assertEquals("( ( " + folded + " + b ) - " + (22.2 * -23) + " )", optimized.infix());
+    assertEquals("( ( ( ( 10.3 / 5 ) * -4.5 ) + b ) - ( 22.2 * -23 ) )", tree.infix());
+    assertEquals("(- (+ (* (/ 10.3 5) -4.5) b) (* 22.2 -23))", tree.schemeExpression());
+    assertEquals("7.0", optimizer.optimize(new ExpressionTree("3 4 +")).infix());
+  }
+
+  @Test
+  public void testIdentities() {
+    assertEquals("a", optimizer.optimize(new ExpressionTree("a 1 *")).infix());
+    assertEquals("a", optimizer.optimize(new ExpressionTree("1 a *")).infix());
+    assertEquals("a", optimizer.optimize(new ExpressionTree("a 1.0 /")).infix());
+    assertEquals("a", optimizer.optimize(new ExpressionTree("a 0 -")).infix());
+    assertEquals("a", optimizer.optimize(new ExpressionTree("a -0.0 +")).infix());
+    assertEquals("( a + 0 )", optimizer.optimize(new ExpressionTree("a 0 +")).infix());
+    assertEquals("( a * 0 )", optimizer.optimize(new ExpressionTree("a 0 *")).infix());
+    assertEquals("( 1 / a )", optimizer.optimize(new ExpressionTree("1 a /")).infix());
+    assertEquals("( a + b )", optimizer.optimize(new ExpressionTree("a b + 1 * 2 2 - -")).infix());
+  }
+
+  @Test
+  public void testFastMath() {
+    ExpressionOptimizer fast = new ExpressionOptimizer(true);
+    assertEquals("a", fast.optimize(new ExpressionTree("a 0 +")).infix());
+    assertEquals("a", fast.optimize(new ExpressionTree("0 a +")).infix());
+    assertEquals("0.0", fast.optimize(new ExpressionTree("a 0 *")).infix());
+    assertEquals("0.0", fast.optimize(new ExpressionTree("a a -")).infix());
+    assertEquals("1.0", fast.optimize(new ExpressionTree("a a /")).infix());
+    assertEquals("( b + 1.0 )", fast.optimize(new ExpressionTree("a 0 * b + a a / +")).infix());
+  }
+
+  @Test
+  public void testIdenticalResults() {
+    for (String input : INPUTS) {
+      ExpressionTree tree = new ExpressionTree(input);
+      ExpressionTree optimized = optimizer.optimize(tree);
+      assertArrayEquals(tree.getVariables(), optimized.getVariables());
+      for (double a : VALUES) {
+        for (double b : VALUES) {
+          map.put("a", a);
+          map.put("b", b);
+          assertEquals(input, Double.doubleToLongBits(tree.evaluate(map)),
+                  Double.doubleToLongBits(optimized.evaluate(map)));
+          double[] slots = new double[tree.getVariables().length];
+          for (int i = 0; i < slots.length; i++) {
+            slots[i] = map.get(tree.getVariables()[i]);
+          }
+          assertEquals(input, Double.doubleToLongBits(tree.evaluate(slots)),
+                  Double.doubleToLongBits(optimized.compile().evaluate(slots)));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testSharedTree() {
+    String input = "x";
+    for (int i = 0; i < 40; i++) {
+      input = "x 1 * " + input + " + 2 3 * 1 * /";
+    }
+    ExpressionTree tree = new ExpressionTree(input + " " + input + " +", new SubexpressionPool());
+    ExpressionTree optimized = optimizer.optimize(tree);
+    map.put("x", 0.25);
+    assertEquals(tree.evaluate(map), optimized.evaluate(map), 0.0);
+    assertEquals(tree.slotOf("x"), optimized.slotOf("x"));
+  }
+
+  @Test(expected = ArithmeticException.class)
+  public void testMissingVariable() {
+    optimizer.optimize(new ExpressionTree("a 1 * 2 3 + *")).evaluate(map);
+  }
+
+}
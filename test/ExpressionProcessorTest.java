@@ -0,0 +1,193 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+import expression.ExpressionProcessor;
+import expression.ExpressionTree;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * A JUnit test class for the ExpressionProcessor class.
+ */
+public class ExpressionProcessorTest {
+
+  private ExpressionTree sum;
+  private ExpressionTree product;
+  private List<Runnable> tasks;
+  private List<Long> requested;
+  private Recorder recorder;
+  private ExpressionProcessor processor;
+
+  /**
+   * A Subscriber that records everything it receives and requests on demand.
+   */
+  private static final class Recorder implements Flow.Subscriber<double[]> {
+
+    private final List<double[]> results = new ArrayList<>();
+    private final CountDownLatch done = new CountDownLatch(1);
+    private Flow.Subscription subscription;
+    private Throwable error;
+    private boolean completed;
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      this.subscription = subscription;
+    }
+
+    @Override
+    public void onNext(double[] item) {
+      results.add(item);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      error = throwable;
+      done.countDown();
+    }
+
+    @Override
+    public void onComplete() {
+      completed = true;
+      done.countDown();
+    }
+
+  }
+
+  @Before
+  public void testsetUp() {
+    sum = new ExpressionTree("a b +");
+    product = new ExpressionTree("b c *");
+    tasks = new ArrayList<>();
+    requested = new ArrayList<>();
+    recorder = new Recorder();
+    processor = new ExpressionProcessor(List.of(sum, product), 4, tasks::add);
+    processor.subscribe(recorder);
+    processor.onSubscribe(new Flow.Subscription() {
+      @Override
+      public void request(long n) {
+        requested.add(n);
+      }
+
+      @Override
+      public void cancel() {
+        requested.add(-1L);
+      }
+    });
+  }
+
+  private static Map<String, Double> tick(String variable, double value) {
+    Map<String, Double> update = new HashMap<>();
+    update.put(variable, value);
+    return update;
+  }
+
+  private void runTasks() {
+    while (!tasks.isEmpty()) {
+      tasks.remove(0).run();
+    }
+  }
+
+  @Test
+  public void testMicroBatching() {
+    recorder.subscription.request(Long.MAX_VALUE);
+    processor.onNext(tick("a", 1.0));
+    processor.onNext(tick("b", 2.0));
+    processor.onNext(tick("c", 3.0));
+    processor.onNext(tick("a", 10.0));
+    runTasks();
+    assertEquals(1, recorder.results.size());
+    assertArrayEquals(new double[] {12.0, 6.0}, recorder.results.get(0), 0.0);
+    assertEquals(List.of(4L, 4L), requested);
+
+    processor.onNext(tick("c", -1.0));
+    runTasks();
+    assertArrayEquals(new double[] {12.0, -2.0}, recorder.results.get(1), 0.0);
+  }
+
+  @Test
+  public void testConflation() {
+    processor.onNext(tick("a", 1.0));
+    processor.onNext(tick("b", 2.0));
+    processor.onNext(tick("c", 3.0));
+    runTasks();
+    for (int i = 0; i < 100; i++) {
+      processor.onNext(tick("a", i));
+      runTasks();
+    }
+    assertEquals(0, recorder.results.size());
+    recorder.subscription.request(5);
+    runTasks();
+    assertEquals(1, recorder.results.size());
+    assertArrayEquals(new double[] {101.0, 6.0}, recorder.results.get(0), 0.0);
+  }
+
+  @Test
+  public void testWaitsForAllVariables() {
+    recorder.subscription.request(10);
+    processor.onNext(tick("a", 1.0));
+    processor.onNext(tick("b", 2.0));
+    runTasks();
+    assertEquals(0, recorder.results.size());
+    processor.onComplete();
+    runTasks();
+    assertTrue(recorder.completed);
+  }
+
+  @Test
+  public void testCompleteAfterLastResult() {
+    Map<String, Double> all = tick("a", 1.0);
+    all.put("b", 1.0);
+    all.put("c", 1.0);
+    processor.onNext(all);
+    processor.onComplete();
+    runTasks();
+    assertEquals(false, recorder.completed);
+    recorder.subscription.request(1);
+    runTasks();
+    assertEquals(1, recorder.results.size());
+    assertTrue(recorder.completed);
+  }
+
+  @Test
+  public void testErrors() {
+    Recorder second = new Recorder();
+    processor.subscribe(second);
+    assertTrue(second.error instanceof IllegalStateException);
+
+    recorder.subscription.request(0);
+    runTasks();
+    assertTrue(recorder.error instanceof IllegalArgumentException);
+    assertEquals(-1L, (long) requested.get(requested.size() - 1));
+  }
+
+  @Test
+  public void testPublisher() throws InterruptedException {
+    ExpressionProcessor live = new ExpressionProcessor(new ExpressionTree("x y * x -"));
+    Recorder results = new Recorder();
+    live.subscribe(results);
+    try (SubmissionPublisher<Map<String, Double>> publisher = new SubmissionPublisher<>()) {
+      publisher.subscribe(live);
+      results.subscription.request(Long.MAX_VALUE);
+      publisher.submit(tick("y", 3.0));
+      for (int i = 0; i <= 1000; i++) {
+        publisher.submit(tick("x", i));
+      }
+    }
+    assertTrue(results.done.await(10, TimeUnit.SECONDS));
+    assertTrue(results.completed);
+    assertTrue(results.results.size() >= 1 && results.results.size() <= 1001);
+    assertEquals(2000.0, results.results.get(results.results.size() - 1)[0], 0.0);
+  }
+
+}
@@ -0,0 +1,84 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import expression.ExpressionSet;
+import expression.ExpressionTree;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * A JUnit test class for the ExpressionSet class.
+ */
+public class ExpressionSetTest {
+
+  private static final String[] INPUTS = {
+    "a b +", "a b + c *", "a b + c * d /", "10.3 5 / -4.5 * b + 22.2 -23 * -", "  d  ",
+    "a b + c *", "b a - b c * / b a - b c * / +", "7"
+  };
+
+  private ExpressionSet set;
+  private Map<String, Double> map;
+
+  @Before
+  public void testsetUp() {
+    set = new ExpressionSet(INPUTS);
+    map = new HashMap<>();
+    map.put("a", 100.0);
+    map.put("b", -5.0);
+    map.put("c", 12.5);
+    map.put("d", 0.1);
+  }
+
+  @Test
+  public void testMatchesTrees() {
+    double[] results = set.evaluate(map);
+    assertEquals(INPUTS.length, results.length);
+    assertEquals(INPUTS.length, set.size());
+    for (int i = 0; i < INPUTS.length; i++) {
+      ExpressionTree tree = new ExpressionTree(INPUTS[i]);
+      assertEquals(tree.evaluate(map), results[i], 0.0);
+      assertEquals(tree.infix(), set.get(i).infix());
+      assertEquals(tree.schemeExpression(), set.get(i).schemeExpression());
+    }
+  }
+
+  @Test
+  public void testSlots() {
+    assertArrayEquals(new String[] {"a", "b", "c", "d"}, set.getVariables());
+    assertEquals(3, set.slotOf("d"));
+    assertEquals(-1, set.slotOf("e"));
+    double[] slots = {100.0, -5.0, 12.5, 0.1};
+    assertArrayEquals(set.evaluate(map), set.evaluate(slots), 0.0);
+
+    double[] frame = set.newFrame();
+    double[] results = new double[set.size()];
+    set.evaluate(slots, frame, results);
+    assertArrayEquals(set.evaluate(map), results, 0.0);
+    assertEquals(set.getFrameSize(), frame.length);
+  }
+
+  @Test
+  public void testSharedSubexpressions() {
+    assertEquals(0 + 3 + 5 + 1 + 1 + 5 + 11 + 0, set.getDeduplicatedNodeCount());
+    ExpressionSet distinct = new ExpressionSet("a b +", "c d *");
+    assertEquals(0, distinct.getDeduplicatedNodeCount());
+    assertArrayEquals(new double[] {95.0, 1.25}, distinct.evaluate(map), 0.0);
+    assertEquals(0, new ExpressionSet().evaluate(map).length);
+  }
+
+  @Test(expected = ArithmeticException.class)
+  public void testMissingVariable() {
+    map.remove("d");
+    set.evaluate(map);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidMember() {
+    new ExpressionSet("a b +", "a +");
+  }
+
+}
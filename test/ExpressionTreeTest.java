@@ -119,6 +119,25 @@ public class ExpressionTreeTest {
     assertEquals(11.11, divTree2.evaluate(map2), 0.01);
   }
 
+  @Test
+  public void testEvaluateSlots() {
+    assertEquals(0, abcdTree.slotOf("a"));
+    assertEquals(3, abcdTree.slotOf("d"));
+    assertEquals(-1, abcdTree.slotOf("e"));
+    assertEquals(1, allTree.getVariables().length);
+    assertEquals(0, addTree2.getVariables().length);
+
+    double[] slots = {1.0, 2.0, 3.0, 4.0};
+    assertEquals(21, abcdTree.evaluate(slots), 0.01);
+    assertEquals(-1.0 / 7, abcdTree2.evaluate(slots), 0.01);
+    assertEquals(-2.46, addTree2.evaluate(new double[0]), 0.01);
+    assertEquals(0.5, single.evaluate(new double[] {0.5}), 0.0);
+
+    Expression repeated = new ExpressionTree("x x * x -");
+    assertEquals(1, repeated.getVariables().length);
+    assertEquals(6, repeated.evaluate(new double[] {3.0}), 0.0);
+  }
+
   @Test(expected = IllegalArgumentException.class)
   public void testIllegalConstructorFormat() {
     new ExpressionTree("b 5 + 3 + * e /");
@@ -0,0 +1,199 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import expression.ExpressionTree;
+import expression.GradientEvaluator;
+import expression.Operator;
+import expression.OperatorRegistry;
+import expression.SubexpressionPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * A JUnit test class for the GradientEvaluator class and the derivative method of ExpressionTree.
+ */
+public class GradientEvaluatorTest {
+
+  private OperatorRegistry registry;
+  private Map<String,Double> variables;
+
+  @Before
+  public void testsetUp() {
+    registry = OperatorRegistry.extended()
+            .with(Operator.unary("sin", Math::sin))
+            .with(Operator.binary("hyp", Math::hypot));
+    variables = new HashMap<>();
+    variables.put("x", 1.5);
+    variables.put("y", -2.0);
+  }
+
+  @Test
+  public void testGradient() {
+    ExpressionTree tree = new ExpressionTree("x y * x x * + y /", registry);
+    GradientEvaluator evaluator = new GradientEvaluator(tree);
+    double[] gradient = new double[2];
+    double value = evaluator.evaluate(new double[] {1.5, -2.0}, gradient);
+    assertEquals(tree.evaluate(variables), value, 0.0);
+    assertEquals((-2.0 + 3.0) / -2.0, gradient[tree.slotOf("x")], 1e-12);
+    assertEquals(1.5 / -2.0 - (1.5 * -2.0 + 2.25) / 4.0, gradient[tree.slotOf("y")], 1e-12);
+    evaluator.evaluate(variables, gradient);
+    assertEquals(-0.5, gradient[0], 1e-12);
+  }
+
+  @Test
+  public void testOperators() {
+    double[] slots = {1.5, -2.0};
+    double[] gradient = new double[2];
+    new GradientEvaluator(new ExpressionTree("x 3 ^ y neg -", registry))
+            .evaluate(slots, gradient);
+    assertEquals(3 * 1.5 * 1.5, gradient[0], 1e-12);
+    assertEquals(1, gradient[1], 0.0);
+    new GradientEvaluator(new ExpressionTree("x y min x y max *", registry))
+            .evaluate(slots, gradient);
+    assertEquals(-2.0, gradient[0], 0.0);
+    assertEquals(1.5, gradient[1], 0.0);
+    new GradientEvaluator(new ExpressionTree("x sin y x hyp +", registry))
+            .evaluate(slots, gradient);
+    assertEquals(Math.cos(1.5) + 1.5 / Math.hypot(1.5, 2.0), gradient[0], 1e-8);
+    assertEquals(-2.0 / Math.hypot(1.5, 2.0), gradient[1], 1e-8);
+    new GradientEvaluator(new ExpressionTree("2 x ^", registry)).evaluate(slots, gradient);
+    assertEquals(Math.pow(2, 1.5) * Math.log(2), gradient[0], 1e-12);
+  }
+
+  @Test
+  public void testSharedSubtreesMatchPlainTree() {
+    String input = "x y + x y + * x y + /";
+    ExpressionTree plain = new ExpressionTree(input);
+    ExpressionTree shared = new ExpressionTree(input, new SubexpressionPool());
+    GradientEvaluator sharedEvaluator = new GradientEvaluator(shared);
+    assertEquals(11, new GradientEvaluator(plain).size());
+    assertEquals(5, sharedEvaluator.size());
+    double[] expected = new double[2];
+    double[] actual = new double[shared.getVariables().length];
+    double[] slots = new double[actual.length];
+    slots[shared.slotOf("x")] = 1.5;
+    slots[shared.slotOf("y")] = -2.0;
+    new GradientEvaluator(plain).evaluate(new double[] {1.5, -2.0}, expected);
+    assertEquals(-0.5, sharedEvaluator.evaluate(slots, actual), 1e-12);
+    assertEquals(expected[0], actual[shared.slotOf("x")], 1e-12);
+    assertEquals(expected[1], actual[shared.slotOf("y")], 1e-12);
+  }
+
+  @Test
+  public void testGradientMatchesDerivatives() {
+    ExpressionTree tree = new ExpressionTree("x y * x 2 ^ + x y / - y sin * x y hyp max",
+            registry);
+    ExpressionTree dx = tree.derivative("x");
+    ExpressionTree dy = tree.derivative("y");
+    GradientEvaluator evaluator = new GradientEvaluator(tree);
+    double[] gradient = new double[2];
+    Random random = new Random(7);
+    for (int i = 0; i < 100; i++) {
+      double[] slots = {random.nextDouble() * 4 + 0.5, random.nextDouble() * 4 + 0.5};
+      assertEquals(tree.evaluate(slots), evaluator.evaluate(slots, gradient), 0.0);
+      assertEquals(dx.evaluate(slots), gradient[0], 1e-9);
+      assertEquals(dy.evaluate(slots), gradient[1], 1e-9);
+    }
+  }
+
+  @Test
+  public void testDerivative() {
+    assertEquals("y", new ExpressionTree("x y *").derivative("x").infix());
+    assertEquals("( ( x + x ) + 3 )",
+            new ExpressionTree("x x * 3 x * +").derivative("x").infix());
+    assertEquals("(neg (/ (/ x y) y))",
+            new ExpressionTree("x y /").derivative("y").schemeExpression());
+    assertEquals("( 3 * ( x ^ 2.0 ) )",
+            new ExpressionTree("x 3 ^", registry).derivative("x").infix());
+    assertEquals("( x ^'2 y )",
+            new ExpressionTree("x y ^", registry).derivative("y").infix());
+    assertEquals("( x <= y )", new ExpressionTree("x y min", registry).derivative("x").infix());
+    assertEquals("( sin' x )", new ExpressionTree("x sin", registry).derivative("x").infix());
+    assertEquals("-1.0", new ExpressionTree("x neg y -", registry).derivative("x").infix());
+    assertEquals("0", new ExpressionTree("y 2 +").derivative("x").infix());
+  }
+
+  @Test
+  public void testDerivativeIsExact() {
+    ExpressionTree tree = new ExpressionTree("x y * y /");
+    ExpressionTree dx = tree.derivative("x");
+    assertEquals("( y / y )", dx.infix());
+    double[] gradient = new double[2];
+    GradientEvaluator evaluator = new GradientEvaluator(tree);
+    for (double y : new double[] {0.0, Double.POSITIVE_INFINITY, Double.NaN, 2.0}) {
+      evaluator.evaluate(new double[] {1.5, y}, gradient);
+      assertEquals(gradient[0], dx.evaluate(new double[] {1.5, y}), 0.0);
+    }
+    assertEquals(Double.NaN, dx.evaluate(new double[] {1.5, 0.0}), 0.0);
+    String[] inputs = {"x 0 ^", "x y ^", "0 y ^", "x y /", "x 2 ^ y /", "2 x ^ y ^"};
+    double[][] points = {{0.0, 2.0}, {0.0, 0.0}, {2.0, 0.0}, {Double.POSITIVE_INFINITY, 2.0},
+        {1.5, Double.POSITIVE_INFINITY}, {-0.0, 3.0}, {Double.NaN, 1.0}};
+    for (String input : inputs) {
+      ExpressionTree expression = new ExpressionTree(input, registry);
+      GradientEvaluator gradients = new GradientEvaluator(expression);
+      String[] names = expression.getVariables();
+      for (int k = 0; k < names.length; k++) {
+        ExpressionTree derivative = expression.derivative(names[k]);
+        for (double[] point : points) {
+          double[] slots = Arrays.copyOf(point, names.length);
+          gradients.evaluate(slots, gradient);
+          assertEquals(input + " d" + names[k] + " at " + Arrays.toString(slots), gradient[k],
+                  derivative.evaluate(slots), 0.0);
+        }
+      }
+    }
+    assertEquals("0", new ExpressionTree("x 0 ^", registry).derivative("x").infix());
+  }
+
+  @Test
+  public void testDerivativeKeepsSlots() {
+    ExpressionTree tree = new ExpressionTree("x y * z +");
+    ExpressionTree dy = tree.derivative("y");
+    assertEquals(tree.slotOf("x"), dy.slotOf("x"));
+    assertEquals(1.5, dy.evaluate(new double[] {1.5, 7.0, 9.0}), 0.0);
+    assertEquals(1.5, dy.evaluate(variables), 0.0);
+  }
+
+  @Test
+  public void testDeepTree() {
+    StringBuilder input = new StringBuilder("x");
+    for (int i = 0; i < 100_000; i++) {
+      input.append(i % 2 == 0 ? " y *" : " 1 +");
+    }
+    ExpressionTree tree = new ExpressionTree(input.toString());
+    double[] gradient = new double[2];
+    new GradientEvaluator(tree).evaluate(new double[] {2.0, 1.0}, gradient);
+    assertEquals(1.0, gradient[0], 0.0);
+    assertEquals(tree.derivative("x").evaluate(new double[] {2.0, 1.0}), gradient[0], 0.0);
+  }
+
+  @Test
+  public void testErrors() {
+    GradientEvaluator evaluator = new GradientEvaluator(new ExpressionTree("x y +"));
+    try {
+      evaluator.evaluate(new double[] {1, 2}, new double[1]);
+      fail();
+    } catch (IndexOutOfBoundsException e) {
+      assertEquals("Gradient has 1 elements for 2 slots.", e.getMessage());
+    }
+    try {
+      evaluator.evaluate(new HashMap<>(), new double[2]);
+      fail();
+    } catch (ArithmeticException e) {
+      assertEquals("Cannot evaluate variables in expression.", e.getMessage());
+    }
+    try {
+      new ExpressionTree("x y +").derivative(null);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Variable must not be null.", e.getMessage());
+    }
+  }
+
+}
@@ -0,0 +1,203 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+
+import expression.Expression;
+import expression.ExpressionListener;
+import expression.ExpressionMetrics;
+import expression.ExpressionTree;
+import expression.Instrumentation;
+import expression.LatencyHistogram;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * A JUnit test class for the Instrumentation class.
+ */
+public class InstrumentationTest {
+
+  private Instrumentation instrumentation;
+  private Map<String, Double> map;
+  private List<String> events;
+
+  @Before
+  public void testsetUp() {
+    instrumentation = new Instrumentation(true);
+    map = new HashMap<>();
+    map.put("a", 3.0);
+    map.put("b", 4.0);
+    events = new ArrayList<>();
+    instrumentation.addListener(new ExpressionListener() {
+      @Override
+      public void onParse(String name, long nanos) {
+        events.add("parse " + name);
+      }
+
+      @Override
+      public void onEvaluate(String name, long nanos) {
+        events.add("evaluate " + name);
+      }
+
+      @Override
+      public void onBatch(String name, int rows, long nanos) {
+        events.add("batch " + name + " " + rows);
+      }
+
+      @Override
+      public void onFailure(String name, RuntimeException failure) {
+        events.add("failure " + name + " " + failure.getMessage());
+      }
+    });
+  }
+
+  @Test
+  public void testCounters() {
+    ExpressionTree tree = instrumentation.parse("  a   b + c *");
+    Expression expression = instrumentation.instrument(tree, "a b + c *");
+    map.put("c", 2.0);
+    for (int i = 0; i < 10; i++) {
+      assertEquals(14.0, expression.evaluate(map), 0.0);
+    }
+    double[] out = new double[4];
+    double[][] columns = {{1, 2, 3, 4}, {1, 1, 1, 1}, {2, 2, 2, 2}};
+    expression.evaluate(columns, 0, 4, out, 0);
+    ExpressionMetrics metrics = instrumentation.getMetrics("a b + c *");
+    assertEquals(1, metrics.getParseCount());
+    assertEquals(14, metrics.getEvaluationCount());
+    assertEquals(0, metrics.getFailureCount());
+    assertEquals(10, metrics.getEvaluationLatency().getCount());
+    assertEquals(1, metrics.getBatchLatency().getCount());
+    assertEquals(1, metrics.getBatchCount());
+    assertEquals(5, metrics.getNodeCount());
+    assertEquals(3, metrics.getDepth());
+    assertEquals("parse a b + c *", events.get(0));
+    assertEquals("batch a b + c * 4", events.get(11));
+    assertEquals(12, events.size());
+  }
+
+  @Test
+  public void testFailures() {
+    Expression expression = instrumentation.instrument(new ExpressionTree("a b c + *"), "abc");
+    try {
+      expression.evaluate(map);
+      fail();
+    } catch (ArithmeticException e) {
+      assertEquals("Cannot evaluate variables in expression.", e.getMessage());
+    }
+    try {
+      instrumentation.parse("a +");
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Expression is invalid.", e.getMessage());
+    }
+    assertEquals(1, instrumentation.getMetrics("abc").getFailureCount());
+    assertEquals(0, instrumentation.getMetrics("abc").getEvaluationCount());
+    assertNull(instrumentation.getMetrics("a +"));
+    assertEquals(1, instrumentation.getMetrics(Instrumentation.INVALID).getFailureCount());
+    assertEquals("failure abc Cannot evaluate variables in expression.", events.get(0));
+    assertEquals("failure a + Expression is invalid.", events.get(1));
+  }
+
+  @Test
+  public void testDisabled() {
+    Instrumentation disabled = new Instrumentation(false);
+    ExpressionTree tree = disabled.parse("a b +");
+    assertSame(tree, disabled.instrument(tree, "sum"));
+    assertNull(disabled.getMetrics("a b +"));
+
+    Expression expression = instrumentation.instrument(tree, "sum");
+    instrumentation.setEnabled(false);
+    assertEquals(7.0, expression.evaluate(map), 0.0);
+    assertEquals(0, instrumentation.getMetrics("sum").getEvaluationCount());
+    instrumentation.setEnabled(true);
+    assertEquals(7.0, expression.evaluate(map), 0.0);
+    assertEquals(1, instrumentation.getMetrics("sum").getEvaluationCount());
+    assertEquals(tree.infix(), expression.infix());
+    assertEquals(tree.slotOf("b"), expression.slotOf("b"));
+  }
+
+  @Test
+  public void testNamesAreBounded() throws Exception {
+    Instrumentation bounded = new Instrumentation(true, 3);
+    MBeanServer server = MBeanServerFactory.newMBeanServer();
+    bounded.exportTo(server);
+    Expression kept = bounded.instrument(new ExpressionTree("a b +"), "kept");
+    for (int i = 0; i < 100; i++) {
+      bounded.parse("a " + i + " *");
+      bounded.getMetrics("kept");
+    }
+    assertEquals(3, bounded.getAllMetrics().size());
+    assertNull(bounded.getMetrics("a 0 *"));
+    assertTrue(server.isRegistered(Instrumentation.objectName("kept")));
+    assertTrue(server.isRegistered(Instrumentation.objectName("a 99 *")));
+    assertFalse(server.isRegistered(Instrumentation.objectName("a 0 *")));
+    assertEquals(7.0, kept.evaluate(map), 0.0);
+    assertEquals(1, bounded.getMetrics("kept").getEvaluationCount());
+    try {
+      new Instrumentation(true, 0);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Maximum size must be positive.", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testHistogram() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    assertEquals(0, histogram.getValueAtPercentile(99.0));
+    for (long value = 1; value <= 1000; value++) {
+      histogram.record(value);
+    }
+    histogram.record(1_000_000_000L);
+    assertEquals(1001, histogram.getCount());
+    assertEquals(1_000_000_000L, histogram.getMax());
+    assertEquals(1, histogram.getValueAtPercentile(0.0));
+    long median = histogram.getValueAtPercentile(50.0);
+    assertTrue(median >= 501 && median <= 501 * 33 / 32);
+    long p99 = histogram.getValueAtPercentile(99.0);
+    assertTrue(p99 >= 991 && p99 <= 991 * 33 / 32);
+    assertEquals(1_000_000_000L, histogram.getValueAtPercentile(100.0));
+    assertEquals((500500.0 + 1_000_000_000L) / 1001, histogram.getMean(), 1e-6);
+  }
+
+  @Test
+  public void testMBean() throws Exception {
+    MBeanServer server = MBeanServerFactory.newMBeanServer();
+    instrumentation.parse("a b *");
+    instrumentation.exportTo(server);
+    Expression expression = instrumentation.instrument(new ExpressionTree("a b /"), "ratio");
+    expression.evaluate(map);
+    expression.evaluate(map);
+    assertEquals(1L, server.getAttribute(Instrumentation.objectName("a b *"), "ParseCount"));
+    assertEquals(2L, server.getAttribute(Instrumentation.objectName("ratio"), "EvaluationCount"));
+    assertEquals(2, server.getAttribute(Instrumentation.objectName("ratio"), "Depth"));
+  }
+
+  @Test
+  public void testSharedMBeanServer() throws Exception {
+    MBeanServer server = MBeanServerFactory.newMBeanServer();
+    instrumentation.exportTo(server);
+    instrumentation.parse("a b *");
+    Instrumentation other = new Instrumentation(true, 1);
+    other.exportTo(server);
+    assertEquals(12.0, other.parse("a b *").evaluate(map), 0.0);
+    assertEquals(1, other.getMetrics("a b *").getParseCount());
+    other.parse("a b +");
+    assertTrue(server.isRegistered(Instrumentation.objectName("a b +")));
+    assertEquals(1L, server.getAttribute(Instrumentation.objectName("a b *"), "ParseCount"));
+    instrumentation.parse("a b *");
+    assertEquals(2L, server.getAttribute(Instrumentation.objectName("a b *"), "ParseCount"));
+  }
+
+}
@@ -0,0 +1,232 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import expression.ExpressionTree;
+import expression.Interval;
+import expression.IntervalEvaluator;
+import expression.Operator;
+import expression.OperatorRegistry;
+import expression.SubexpressionPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * A JUnit test class for the IntervalEvaluator and Interval classes.
+ */
+public class IntervalEvaluatorTest {
+
+  private static final double INF = Double.POSITIVE_INFINITY;
+
+  private OperatorRegistry registry;
+  private Map<String,Interval> variables;
+
+  @Before
+  public void testsetUp() {
+    registry = OperatorRegistry.extended().with(Operator.unary("sin", Math::sin));
+    variables = new HashMap<>();
+    variables.put("x", new Interval(-1, 2));
+    variables.put("y", new Interval(3, 4));
+  }
+
+  private Interval bounds(String input, double xl, double xh, double yl, double yh) {
+    ExpressionTree tree = new ExpressionTree(input, registry);
+    Map<String,Interval> intervals = new HashMap<>();
+    intervals.put("x", new Interval(xl, xh));
+    intervals.put("y", new Interval(yl, yh));
+    return new IntervalEvaluator(tree).evaluate(intervals);
+  }
+
+  private static void assertBounds(double lower, double upper, Interval actual) {
+    assertEquals(lower, actual.getLower(), Math.ulp(lower));
+    assertEquals(upper, actual.getUpper(), Math.ulp(upper));
+  }
+
+  @Test
+  public void testArithmetic() {
+    assertBounds(2, 6, new ExpressionTree("x y +").bounds(variables));
+    assertBounds(-5, -1, new ExpressionTree("x y -").bounds(variables));
+    assertBounds(-4, 8, new ExpressionTree("x y *").bounds(variables));
+    assertBounds(-1.0 / 3, 2.0 / 3, new ExpressionTree("x y /").bounds(variables));
+    assertBounds(-3, 3, new ExpressionTree("x x -").bounds(variables));
+    assertBounds(7, 7, new ExpressionTree("3 4 +").bounds(variables));
+    assertBounds(0, INF, bounds("x y *", 0, 1, 1, INF));
+  }
+
+  @Test
+  public void testDivisionByZero() {
+    assertBounds(-INF, INF, bounds("y x /", -1, 2, 3, 4));
+    assertBounds(-INF, INF, bounds("y x /", 0, 2, 3, 4));
+    assertBounds(-INF, INF, bounds("y x /", -2, 0, 3, 4));
+    assertBounds(-INF, INF, bounds("x y /", 1, 1, 0, 1));
+    assertBounds(1.0 / 3, 1, bounds("x y /", 1, 1, 1, 3));
+    assertBounds(-INF, INF, bounds("y x /", 0, 0, 3, 4));
+    assertBounds(-INF, INF, bounds("y x /", 0, 2, -3, 4));
+  }
+
+  @Test
+  public void testExtendedOperators() {
+    assertBounds(-2, 1, bounds("x neg", -1, 2, 0, 0));
+    assertBounds(-1, 2, bounds("x y min", -1, 5, 0, 2));
+    assertBounds(0, 5, bounds("x y max", -1, 5, 0, 2));
+    assertBounds(0, 4, bounds("x 2 ^", -1, 2, 0, 0));
+    assertBounds(-1, 8, bounds("x 3 ^", -1, 2, 0, 0));
+    assertBounds(0.25, INF, bounds("x -2 ^", -1, 2, 0, 0));
+    assertBounds(-INF, INF, bounds("x -1 ^", -1, 2, 0, 0));
+    assertBounds(-INF, INF, bounds("x -1 ^", 0, 2, 0, 0));
+    assertBounds(0.25, INF, bounds("x -2 ^", 0, 2, 0, 0));
+    assertBounds(0, 8, bounds("x 3 ^", 0, 2, 0, 0));
+    assertBounds(-INF, INF, bounds("x y ^", 0, 2, -1.5, -0.5));
+    assertBounds(Math.pow(2, -0.9), INF, bounds("x y ^", 0, 2, -0.9, -0.5));
+    assertBounds(1, 1, bounds("x 0 ^", -1, 2, 0, 0));
+    assertBounds(1.0 / 3, 9, bounds("x y ^", 1, 3, -1, 2));
+    assertBounds(-INF, INF, bounds("x y ^", -1, 3, 0.5, 0.5));
+    assertBounds(-INF, INF, bounds("x sin", -1, 2, 0, 0));
+    assertBounds(Math.sin(2), Math.sin(2), bounds("x sin", 2, 2, 0, 0));
+  }
+
+  @Test
+  public void testBoundsHoldEverywhere() {
+    String[] inputs = {"x y * x y / -", "x x * y - y 2 ^ /", "x y - x y + * 3 -",
+        "x y max x neg y min / 1.5 x ^ +", "x 3 ^ y -3 ^ * x y / y x / + +"};
+    Random random = new Random(11);
+    for (String input : inputs) {
+      ExpressionTree tree = new ExpressionTree(input, registry);
+      IntervalEvaluator evaluator = new IntervalEvaluator(tree);
+      for (int i = 0; i < 200; i++) {
+        double[] lower = {random.nextInt(9) - 4 + random.nextDouble(),
+            random.nextInt(9) - 4 + random.nextDouble()};
+        double[] upper = {lower[0] + random.nextDouble() * 3, lower[1] + random.nextDouble() * 3};
+        Interval bounds = evaluator.evaluate(lower, upper);
+        for (int j = 0; j < 50; j++) {
+          double[] slots = {lower[0] + (upper[0] - lower[0]) * random.nextDouble(),
+              lower[1] + (upper[1] - lower[1]) * random.nextDouble()};
+          double value = tree.evaluate(slots);
+          assertTrue(input + " " + bounds + " " + value,
+                  Double.isNaN(value) || bounds.contains(value));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testNaNLiterals() {
+    assertBounds(-INF, INF, new ExpressionTree("NaN").bounds(variables));
+    assertBounds(-INF, INF, new ExpressionTree("x NaN +").bounds(variables));
+    assertBounds(-INF, 2, bounds("x NaN min", -1, 2, 0, 0));
+    assertBounds(-1, INF, bounds("x NaN max", -1, 2, 0, 0));
+  }
+
+  @Test
+  public void testSignedZeros() {
+    String[] inputs = {"x y /", "y x /", "x y ^", "x -1 ^", "x -3 ^", "1 x y * /", "y x x - /"};
+    double[][] ranges = {{0, 1}, {-1, 0}, {0, 0}, {-2, 2}, {1, 3}, {-1.5, -0.5}};
+    double[] zeros = {0.0, -0.0};
+    for (String input : inputs) {
+      ExpressionTree tree = new ExpressionTree(input, registry);
+      IntervalEvaluator evaluator = new IntervalEvaluator(tree);
+      for (double[] x : ranges) {
+        for (double[] y : ranges) {
+          Map<String,Interval> intervals = new HashMap<>();
+          intervals.put("x", new Interval(x[0], x[1]));
+          intervals.put("y", new Interval(y[0], y[1]));
+          Interval bounds = evaluator.evaluate(intervals);
+          for (double a : new double[] {x[0], x[1], zeros[0], zeros[1]}) {
+            for (double b : new double[] {y[0], y[1], zeros[0], zeros[1]}) {
+              if ((a != 0.0 || x[0] <= 0.0 && x[1] >= 0.0)
+                  && (b != 0.0 || y[0] <= 0.0 && y[1] >= 0.0)) {
+                Map<String,Double> values = new HashMap<>();
+                values.put("x", a);
+                values.put("y", b);
+                double value = tree.evaluate(values);
+                assertTrue(input + " " + bounds + " " + value,
+                        Double.isNaN(value) || bounds.contains(value));
+              }
+            }
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testBatchMatchesScalar() {
+    ExpressionTree tree = new ExpressionTree("x y + x y + * x y - /", new SubexpressionPool());
+    IntervalEvaluator evaluator = new IntervalEvaluator(tree);
+    int rows = 500;
+    double[][] lower = new double[2][rows];
+    double[][] upper = new double[2][rows];
+    Random random = new Random(5);
+    for (int r = 0; r < rows; r++) {
+      for (int slot = 0; slot < 2; slot++) {
+        lower[slot][r] = random.nextInt(9) - 4 + random.nextDouble();
+        upper[slot][r] = lower[slot][r] + random.nextDouble();
+      }
+    }
+    double[] outLower = new double[rows + 1];
+    double[] outUpper = new double[rows + 1];
+    evaluator.evaluate(lower, upper, 0, rows, outLower, outUpper, 1);
+    for (int r = 0; r < rows; r++) {
+      Interval bounds = evaluator.evaluate(new double[] {lower[0][r], lower[1][r]},
+              new double[] {upper[0][r], upper[1][r]});
+      assertEquals(bounds.getLower(), outLower[r + 1], 0.0);
+      assertEquals(bounds.getUpper(), outUpper[r + 1], 0.0);
+    }
+  }
+
+  @Test
+  public void testInterval() {
+    Interval interval = new Interval(-1, 2);
+    assertTrue(interval.contains(-1));
+    assertTrue(interval.contains(2));
+    assertFalse(interval.contains(2.5));
+    assertEquals("[-1.0, 2.0]", interval.toString());
+    assertEquals(3, Interval.of(3).getLower(), 0.0);
+    assertTrue(Interval.ALL.contains(-INF));
+  }
+
+  @Test
+  public void testErrors() {
+    try {
+      new Interval(2, 1);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Interval is invalid.", e.getMessage());
+    }
+    IntervalEvaluator evaluator = new IntervalEvaluator(new ExpressionTree("x y +"));
+    try {
+      evaluator.evaluate(new double[] {1, Double.NaN}, new double[] {2, 3});
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Interval is invalid.", e.getMessage());
+    }
+    variables.remove("y");
+    try {
+      evaluator.evaluate(variables);
+      fail();
+    } catch (ArithmeticException e) {
+      assertEquals("Cannot evaluate variables in expression.", e.getMessage());
+    }
+    try {
+      evaluator.evaluate(new double[][] {{1}}, new double[][] {{2}}, 0, 1, new double[1],
+              new double[1], 0);
+      fail();
+    } catch (ArithmeticException e) {
+      assertEquals("Cannot evaluate variables in expression.", e.getMessage());
+    }
+    try {
+      evaluator.evaluate(new double[][] {{1}, {1}}, new double[][] {{2}, {2}}, 0, 2,
+              new double[2], new double[2], 0);
+      fail();
+    } catch (IndexOutOfBoundsException e) {
+      assertEquals("Rows 0 to 2 are out of bounds.", e.getMessage());
+    }
+  }
+
+}
@@ -0,0 +1,170 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import expression.BytecodeCompiler;
+import expression.CompactExpression;
+import expression.EvaluationSession;
+import expression.ExpressionCodec;
+import expression.ExpressionOptimizer;
+import expression.ExpressionTree;
+import expression.Operator;
+import expression.OperatorRegistry;
+import expression.SymbolTable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * A JUnit test class for the Operator and OperatorRegistry classes.
+ */
+public class OperatorRegistryTest {
+
+  private OperatorRegistry registry;
+  private Map<String, Double> map;
+
+  @Before
+  public void testsetUp() {
+    registry = OperatorRegistry.extended()
+            .with(Operator.unary("abs", Math::abs))
+            .with(Operator.binary("hypot", Math::hypot));
+    map = new HashMap<>();
+    map.put("x", -3.0);
+    map.put("y", 4.0);
+    map.put("min", 2.0);
+  }
+
+  @Test
+  public void testBuiltInOperators() {
+    ExpressionTree tree = new ExpressionTree("x y ^ x neg min y max", registry);
+    assertEquals("( ( ( x ^ y ) min ( neg x ) ) max y )", tree.infix());
+    assertEquals("(max (min (^ x y) (neg x)) y)", tree.schemeExpression());
+    assertEquals(Math.max(Math.min(Math.pow(-3, 4), 3), 4), tree.evaluate(map), 0.0);
+    assertEquals(81.0, new ExpressionTree("x neg y ^", registry).evaluate(map), 0.0);
+    assertEquals(-2.0, new ExpressionTree("8 1 3 / ^ neg", registry).evaluate(map), 1e-15);
+  }
+
+  @Test
+  public void testFunctions() {
+    ExpressionTree tree = new ExpressionTree("x y hypot abs 2 /", registry);
+    assertEquals("( ( abs ( x hypot y ) ) / 2 )", tree.infix());
+    assertEquals(2.5, tree.evaluate(map), 0.0);
+    assertEquals(2.5, tree.evaluate(new double[] {-3, 4}), 0.0);
+    assertEquals(3.0, new ExpressionTree("x abs", registry).evaluate(map), 0.0);
+  }
+
+  @Test
+  public void testStandardParserUnchanged() {
+    ExpressionTree tree = new ExpressionTree("min 1 +");
+    assertEquals("( min + 1 )", tree.infix());
+    assertEquals(3.0, tree.evaluate(map), 0.0);
+    try {
+      new ExpressionTree("x neg");
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Expression is invalid.", e.getMessage());
+    }
+    assertSame(Operator.ADD, OperatorRegistry.standard().get("+"));
+    assertEquals(null, OperatorRegistry.standard().get("^"));
+  }
+
+  @Test
+  public void testInvalid() {
+    String[] inputs = {"neg", "x max", "x y neg", "abs", "1 hypot"};
+    for (String input : inputs) {
+      try {
+        new ExpressionTree(input, registry);
+        fail(input);
+      } catch (IllegalArgumentException e) {
+        assertEquals("Expression is invalid.", e.getMessage());
+      }
+    }
+    try {
+      registry.with(Operator.binary("min", Math::min));
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Operator min is already registered.", e.getMessage());
+    }
+    try {
+      Operator.unary("a b", Math::abs);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Operator symbol must not contain whitespace.", e.getMessage());
+    }
+    try {
+      Operator.MAX.apply(1.0);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Operator max is binary.", e.getMessage());
+    }
+    try {
+      Operator.unary("abs", Math::abs).apply(1.0, 2.0);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Operator abs is unary.", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testEvaluatorsAgree() {
+    String[] inputs = {"x y ^ x neg min y max", "x y hypot abs x neg *", "x neg neg y 1 ^ -",
+      "x y min x y max / neg", "2 3 ^ x hypot"};
+    double[][] columns = {{-3, 0.5, 7, -0.0}, {4, -2, 0.25, 3}};
+    for (String input : inputs) {
+      ExpressionTree tree = new ExpressionTree(input, registry);
+      ExpressionTree optimized = new ExpressionOptimizer().optimize(tree);
+      double[] batch = new double[4];
+      tree.evaluate(columns, 0, 4, batch, 0);
+      for (int row = 0; row < 4; row++) {
+        double[] slots = {columns[0][row], columns[1][row]};
+        double expected = tree.evaluate(slots);
+        assertEquals(input, expected, batch[row], 0.0);
+        assertEquals(input, expected, tree.compile().evaluate(slots), 0.0);
+        assertEquals(input, expected, BytecodeCompiler.compile(tree).apply(slots), 0.0);
+        assertEquals(input, expected, optimized.evaluate(slots), 0.0);
+        EvaluationSession session = new EvaluationSession(tree);
+        session.set("x", slots[0]);
+        session.set("y", slots[1]);
+        assertEquals(input, expected, session.evaluate(), 0.0);
+      }
+    }
+    assertEquals("( ( x ^ y ) + 2.0 )",
+            new ExpressionOptimizer().optimize(new ExpressionTree("x y ^ 2 neg neg +", registry))
+                    .infix());
+  }
+
+  @Test
+  public void testCompactAndCodec() {
+    ExpressionTree tree = new ExpressionTree("x y ^ x neg min y max", registry);
+    CompactExpression compact = new CompactExpression(tree, new SymbolTable());
+    assertEquals(tree.infix(), compact.infix());
+    assertEquals(tree.schemeExpression(), compact.schemeExpression());
+    assertEquals(tree.evaluate(map), compact.evaluate(map), 0.0);
+    try {
+      new CompactExpression(new ExpressionTree("x abs", registry), new SymbolTable());
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Operator abs cannot be stored compactly.", e.getMessage());
+    }
+
+    assertEquals(1, ExpressionCodec.encode(new ExpressionTree("x y +"))[5]);
+    ExpressionTree functions = new ExpressionTree("x y hypot abs y neg ^", registry);
+    byte[] encoded = ExpressionCodec.encode(functions);
+    assertEquals(ExpressionCodec.VERSION, encoded[5]);
+    ExpressionTree decoded = ExpressionCodec.decode(ByteBuffer.wrap(encoded), registry);
+    assertEquals(functions.infix(), decoded.infix());
+    assertEquals(functions.evaluate(map), decoded.evaluate(map), 0.0);
+    assertEquals(tree.infix(), ExpressionCodec.decode(ExpressionCodec.encode(tree)).infix());
+    try {
+      ExpressionCodec.decode(encoded);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Operator hypot is not registered.", e.getMessage());
+    }
+  }
+
+}
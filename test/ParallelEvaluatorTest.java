@@ -0,0 +1,105 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import expression.Expression;
+import expression.ExpressionTree;
+import expression.ParallelEvaluator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * A JUnit test class for the ParallelEvaluator class.
+ */
+public class ParallelEvaluatorTest {
+
+  private static final int ROWS = 100_003;
+
+  private Expression tree;
+  private double[][] columns;
+  private double[] expected;
+  private ExecutorService threads;
+
+  @Before
+  public void testsetUp() {
+    tree = new ExpressionTree("a b - c d + / a * 0.1 c / +");
+    Random random = new Random(7);
+    columns = new double[4][ROWS];
+    for (double[] column : columns) {
+      for (int r = 0; r < ROWS; r++) {
+        column[r] = random.nextGaussian();
+      }
+    }
+    expected = new double[ROWS];
+    tree.evaluate(columns, 0, ROWS, expected, 0);
+    threads = Executors.newFixedThreadPool(4);
+  }
+
+  @After
+  public void testTearDown() {
+    threads.shutdownNow();
+  }
+
+  @Test
+  public void testForkJoinMatchesSequential() {
+    double[] out = new double[ROWS];
+    new ParallelEvaluator(tree, 1000).evaluate(columns, 0, ROWS, out, 0);
+    assertArrayEquals(expected, out, 0.0);
+
+    double[] slice = new double[ROWS];
+    ForkJoinPool pool = new ForkJoinPool(3);
+    new ParallelEvaluator(tree, 777, pool).evaluate(columns, 50, ROWS, slice, 0);
+    pool.shutdown();
+    for (int r = 50; r < ROWS; r++) {
+      assertEquals(expected[r], slice[r - 50], 0.0);
+    }
+  }
+
+  @Test
+  public void testExecutorMatchesSequential() {
+    double[] out = new double[ROWS + 10];
+    new ParallelEvaluator(tree, 4096, threads).evaluate(columns, 0, ROWS, out, 10);
+    for (int r = 0; r < ROWS; r++) {
+      assertEquals(expected[r], out[r + 10], 0.0);
+    }
+  }
+
+  @Test
+  public void testSharedTreeAcrossThreads() throws Exception {
+    List<Future<double[]>> results = new ArrayList<>();
+    for (int t = 0; t < 8; t++) {
+      results.add(threads.submit(() -> {
+        double[] out = new double[ROWS];
+        for (int r = 0; r < ROWS; r++) {
+          out[r] = tree.evaluate(new double[] {columns[0][r], columns[1][r], columns[2][r],
+              columns[3][r]});
+        }
+        return out;
+      }));
+    }
+    for (Future<double[]> result : results) {
+      assertArrayEquals(expected, result.get(), 0.0);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testIllegalGrainSize() {
+    new ParallelEvaluator(tree, 0);
+  }
+
+  @Test(expected = ArithmeticException.class)
+  public void testMissingColumn() {
+    new ParallelEvaluator(tree, 1000, threads)
+            .evaluate(new double[][] {columns[0]}, 0, ROWS, new double[ROWS], 0);
+  }
+
+}
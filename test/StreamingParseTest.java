@@ -0,0 +1,89 @@
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import expression.ExpressionTree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * A JUnit test class for parsing ExpressionTrees from Readers, InputStreams, and files.
+ */
+public class StreamingParseTest {
+
+  private static final String ALL = "10.3 5 / -4.5 * b + 22.2 -23 * -";
+
+  private static ExpressionTree fromBytes(String input) throws IOException {
+    return ExpressionTree.parse(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  private static String longSum(int terms) {
+    StringBuilder input = new StringBuilder("x0");
+    for (int i = 1; i < terms; i++) {
+      input.append(i % 10 == 0 ? "\n" : " ").append("x").append(i % 97).append(" +");
+    }
+    return input.toString();
+  }
+
+  @Test
+  public void testMatchesConstructor() throws IOException {
+    ExpressionTree expected = new ExpressionTree(ALL);
+    assertEquals(expected.infix(), ExpressionTree.parse(new StringReader(ALL)).infix());
+    assertEquals(expected.schemeExpression(), fromBytes("  " + ALL + "\n").schemeExpression());
+    assertEquals("( ( a + b ) * ( c + d ) )",
+            ExpressionTree.parse(new StringReader("a\nb\n+\r\nc\td +\n*\n")).infix());
+    assertEquals("( prix\u20ac * 2 )", fromBytes("prix\u20ac 2 *").infix());
+  }
+
+  @Test
+  public void testTermsAcrossBlocks() throws IOException {
+    String input = longSum(5000);
+    Map<String, Double> map = new HashMap<>();
+    for (int i = 0; i < 97; i++) {
+      map.put("x" + i, (double) i);
+    }
+    double expected = new ExpressionTree(input.replace('\n', ' ')).evaluate(map);
+    assertEquals(expected, ExpressionTree.parse(new StringReader(input)).evaluate(map), 0.0);
+    assertEquals(expected, fromBytes(input).evaluate(map), 0.0);
+
+    Path file = Files.createTempFile("expression", ".txt");
+    try {
+      Files.write(file, input.getBytes(StandardCharsets.UTF_8));
+      ExpressionTree mapped = ExpressionTree.parse(file);
+      assertEquals(expected, mapped.evaluate(map), 0.0);
+      assertEquals(97, mapped.getVariables().length);
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void testErrorOffsets() throws IOException {
+    String[] inputs = {"a b + + c", "a\nb\n*\n7 8", "", "  ", "x\u20ac -"};
+    long[] charOffsets = {6, 9, 0, 2, 3};
+    long[] byteOffsets = {6, 9, 0, 2, 5};
+    for (int i = 0; i < inputs.length; i++) {
+      try {
+        ExpressionTree.parse(new StringReader(inputs[i]));
+        fail(inputs[i]);
+      } catch (IllegalArgumentException e) {
+        assertEquals("Expression is invalid at offset " + charOffsets[i] + ".", e.getMessage());
+      }
+      try {
+        fromBytes(inputs[i]);
+        fail(inputs[i]);
+      } catch (IllegalArgumentException e) {
+        assertEquals("Expression is invalid at offset " + byteOffsets[i] + ".", e.getMessage());
+      }
+    }
+  }
+
+}
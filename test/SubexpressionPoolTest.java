@@ -0,0 +1,142 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import expression.BytecodeCompiler;
+import expression.CompactExpression;
+import expression.ExpressionTree;
+import expression.SubexpressionPool;
+import expression.SymbolTable;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * A JUnit test class for ExpressionTrees built against a SubexpressionPool.
+ */
+public class SubexpressionPoolTest {
+
+  private static final String[] INPUTS = {
+    "a b + a b + *", "a b + c * a b + c * /", "2 2.0 + 2 2.0 + -", "a a a a - - -",
+    "10.3 5 / -4.5 * b + 22.2 -23 * -", "  d  ", "b a - b c * / b a - b c * / +"
+  };
+
+  private SubexpressionPool pool;
+  private Map<String, Double> map;
+
+  @Before
+  public void testsetUp() {
+    pool = new SubexpressionPool();
+    map = new HashMap<>();
+    map.put("a", 100.0);
+    map.put("b", -5.0);
+    map.put("c", 12.5);
+    map.put("d", 0.1);
+  }
+
+  @Test
+  public void testMatchesTree() {
+    for (String input : INPUTS) {
+      ExpressionTree tree = new ExpressionTree(input);
+      ExpressionTree shared = new ExpressionTree(input, pool);
+      assertEquals(tree.infix(), shared.infix());
+      assertEquals(tree.schemeExpression(), shared.schemeExpression());
+      assertEquals(tree.evaluate(map), shared.evaluate(map), 0.0);
+      assertEquals(tree.evaluate(map), shared.compile().evaluate(map), 0.0);
+      assertEquals(tree.evaluate(map), new CompactExpression(shared, new SymbolTable())
+              .evaluate(map), 0.0);
+    }
+  }
+
+  @Test
+  public void testDeduplicatedWithinTree() {
+    ExpressionTree tree = new ExpressionTree("a b + a b + *", pool);
+    assertEquals(3, tree.getDeduplicatedNodeCount());
+    assertEquals(4, pool.size());
+    assertEquals(3, pool.deduplicatedCount());
+    assertEquals(0, new ExpressionTree("a b + a b + *").getDeduplicatedNodeCount());
+
+    ExpressionTree spellings = new ExpressionTree("2 2.0 +", pool);
+    assertEquals(0, spellings.getDeduplicatedNodeCount());
+    assertEquals("( 2 + 2.0 )", spellings.infix());
+  }
+
+  @Test
+  public void testDeduplicatedAcrossTrees() {
+    ExpressionTree first = new ExpressionTree("a b + c *", pool);
+    ExpressionTree second = new ExpressionTree("a b + c * 2 /", pool);
+    assertEquals(0, first.getDeduplicatedNodeCount());
+    assertEquals(5, second.getDeduplicatedNodeCount());
+    assertEquals(7, pool.size());
+    assertEquals(first.evaluate(map) / 2, second.evaluate(map), 0.0);
+  }
+
+  @Test
+  public void testPoolSlots() {
+    new ExpressionTree("a b +", pool);
+    ExpressionTree tree = new ExpressionTree("c b *", pool);
+    assertArrayEquals(new String[] {"a", "b", "c"}, pool.getVariables());
+    assertArrayEquals(new String[] {null, "b", "c"}, tree.getVariables());
+    assertEquals(2, tree.slotOf("c"));
+    assertEquals(-1, tree.slotOf("a"));
+    assertEquals(2, pool.slotOf("c"));
+    assertEquals(-1, pool.slotOf("d"));
+
+    Map<String, Double> partial = new HashMap<>();
+    partial.put("b", 3.0);
+    partial.put("c", 4.0);
+    assertEquals(12.0, tree.evaluate(partial), 0.0);
+    assertEquals(12.0, tree.evaluate(new double[] {0.0, 3.0, 4.0}), 0.0);
+    assertEquals(12.0, BytecodeCompiler.compile(tree).apply(new double[] {0.0, 3.0, 4.0}), 0.0);
+
+    double[][] columns = {null, {1, 2, 3}, {4, 5, 6}};
+    double[] out = new double[3];
+    tree.evaluate(columns, 0, 3, out, 0);
+    assertArrayEquals(new double[] {4, 10, 18}, out, 0.0);
+  }
+
+  @Test(expected = ArithmeticException.class)
+  public void testMissingVariable() {
+    ExpressionTree tree = new ExpressionTree("a b + a b + *", pool);
+    map.remove("b");
+    tree.evaluate(map);
+  }
+
+  @Test
+  public void testSharedBatchAndBytecode() {
+    ExpressionTree tree = new ExpressionTree("a b + c * a b + c * / a b + -", pool);
+    ExpressionTree plain = new ExpressionTree("a b + c * a b + c * / a b + -");
+    int rows = 1500;
+    double[][] columns = new double[3][rows];
+    for (int r = 0; r < rows; r++) {
+      columns[0][r] = r * 0.5;
+      columns[1][r] = 3 - r;
+      columns[2][r] = r % 7 - 3;
+    }
+    double[] expected = new double[rows];
+    double[] actual = new double[rows];
+    plain.evaluate(columns, 0, rows, expected, 0);
+    tree.evaluate(columns, 0, rows, actual, 0);
+    assertArrayEquals(expected, actual, 0.0);
+    for (int r = 0; r < rows; r += 97) {
+      double[] slots = {columns[0][r], columns[1][r], columns[2][r]};
+      assertEquals(expected[r], BytecodeCompiler.compile(tree).apply(slots), 0.0);
+    }
+  }
+
+  @Test
+  public void testExponentialTree() {
+    String input = "x";
+    for (int i = 0; i < 16; i++) {
+      input = input + " " + input + " +";
+    }
+    ExpressionTree tree = new ExpressionTree(input, pool);
+    assertEquals(17, pool.size());
+    assertEquals((1 << 17) - 1 - 17, tree.getDeduplicatedNodeCount());
+    assertEquals(65536 * 1.5, tree.evaluate(new double[] {1.5}), 0.0);
+    assertEquals(new ExpressionTree(input).infix(), tree.infix());
+  }
+
+}
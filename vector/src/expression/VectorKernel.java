@@ -0,0 +1,118 @@
+/**
+ * All source code has been added into the expression package.
+ */
+
+package expression;
+
+/**
+ * Import DoubleVector and VectorSpecies packages.
+ */
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * This class is the ColumnKernel of batch evaluation built on the incubating JDK Vector API. Each
+ * operator is applied to as many rows at a time as the preferred DoubleVector species has lanes,
+ * and the rows left over at the end of a chunk are computed with Program.apply. Lane-wise addition,
+ * subtraction, multiplication, and division are the same IEEE 754 operations as their scalar
+ * forms, so every result, including infinities from division by zero and NaN propagation, is
+ * identical to scalar evaluation.
+ *
+ * <p>Program loads this class by reflection only when the jdk.incubator.vector module is resolved,
+ * so the library itself never links against the Vector API.
+ */
+public final class VectorKernel implements ColumnKernel {
+
+  private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+  /**
+   * Constructs the VectorKernel. Throws an UnsupportedOperationException if the machine cannot
+   * process more than one double at a time, in which case the scalar loops are faster.
+   *
+   * @throws UnsupportedOperationException if the preferred species has a single lane.
+   */
+  public VectorKernel() throws UnsupportedOperationException {
+    if (SPECIES.length() < 2) {
+      throw new UnsupportedOperationException("No vector lanes for doubles.");
+    }
+  }
+
+  /**
+   * This method takes in no arguments and returns the number of rows processed at a time.
+   *
+   * @return the number of lanes of the preferred DoubleVector species.
+   */
+  public static int lanes() {
+    return SPECIES.length();
+  }
+
+  @Override
+  public void applyColumn(byte op, double[] a, double[] b, int start, int n) {
+    int bound = SPECIES.loopBound(n);
+    int step = SPECIES.length();
+    int i = 0;
+    switch (op) {
+      case Program.ADD:
+        for (; i < bound; i += step) {
+          DoubleVector.fromArray(SPECIES, a, i)
+                  .add(DoubleVector.fromArray(SPECIES, b, start + i)).intoArray(a, i);
+        }
+        break;
+      case Program.SUB:
+        for (; i < bound; i += step) {
+          DoubleVector.fromArray(SPECIES, a, i)
+                  .sub(DoubleVector.fromArray(SPECIES, b, start + i)).intoArray(a, i);
+        }
+        break;
+      case Program.MUL:
+        for (; i < bound; i += step) {
+          DoubleVector.fromArray(SPECIES, a, i)
+                  .mul(DoubleVector.fromArray(SPECIES, b, start + i)).intoArray(a, i);
+        }
+        break;
+      default:
+        for (; i < bound; i += step) {
+          DoubleVector.fromArray(SPECIES, a, i)
+                  .div(DoubleVector.fromArray(SPECIES, b, start + i)).intoArray(a, i);
+        }
+        break;
+    }
+    for (; i < n; i++) {
+      a[i] = Program.apply(op, a[i], b[start + i]);
+    }
+  }
+
+  @Override
+  public void applyConstant(byte op, double[] a, double c, int n) {
+    int bound = SPECIES.loopBound(n);
+    int step = SPECIES.length();
+    DoubleVector constant = DoubleVector.broadcast(SPECIES, c);
+    int i = 0;
+    switch (op) {
+      case Program.ADD:
+        for (; i < bound; i += step) {
+          DoubleVector.fromArray(SPECIES, a, i).add(constant).intoArray(a, i);
+        }
+        break;
+      case Program.SUB:
+        for (; i < bound; i += step) {
+          DoubleVector.fromArray(SPECIES, a, i).sub(constant).intoArray(a, i);
+        }
+        break;
+      case Program.MUL:
+        for (; i < bound; i += step) {
+          DoubleVector.fromArray(SPECIES, a, i).mul(constant).intoArray(a, i);
+        }
+        break;
+      default:
+        for (; i < bound; i += step) {
+          DoubleVector.fromArray(SPECIES, a, i).div(constant).intoArray(a, i);
+        }
+        break;
+    }
+    for (; i < n; i++) {
+      a[i] = Program.apply(op, a[i], c);
+    }
+  }
+
+}
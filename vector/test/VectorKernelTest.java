@@ -0,0 +1,99 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.Random;
+
+import expression.CompiledExpression;
+import expression.ExpressionTree;
+import expression.VectorKernel;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * A JUnit test class for the VectorKernel class.
+ */
+public class VectorKernelTest {
+
+  private static final double[] SPECIAL = {
+    0.0, -0.0, 1.0, -1.0, 0.1, 3.0, Double.MIN_VALUE, -Double.MIN_VALUE, Double.MAX_VALUE,
+    -Double.MAX_VALUE, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NaN, 1e-300,
+    1e300, Math.PI
+  };
+
+  private double[][] columns;
+  private int rows;
+
+  @Before
+  public void testsetUp() {
+    rows = SPECIAL.length * SPECIAL.length + 1037;
+    columns = new double[3][rows];
+    Random random = new Random(18);
+    for (int r = 0; r < rows; r++) {
+      if (r < SPECIAL.length * SPECIAL.length) {
+        columns[0][r] = SPECIAL[r / SPECIAL.length];
+        columns[1][r] = SPECIAL[r % SPECIAL.length];
+      }
+      else {
+        columns[0][r] = random.nextGaussian() * 1e3;
+        columns[1][r] = random.nextInt(5) == 0 ? 0.0 : random.nextGaussian();
+      }
+      columns[2][r] = SPECIAL[(r * 7) % SPECIAL.length];
+    }
+  }
+
+  private static void assertSame(double expected, double actual) {
+    assertEquals(Double.doubleToLongBits(expected), Double.doubleToLongBits(actual));
+  }
+
+  @Test
+  public void testLoaded() throws ReflectiveOperationException {
+    assertEquals(true, VectorKernel.lanes() >= 2);
+    Field kernel = Class.forName("expression.Program").getDeclaredField("KERNEL");
+    kernel.setAccessible(true);
+    assertEquals(VectorKernel.class, kernel.get(null).getClass());
+  }
+
+  @Test
+  public void testMatchesScalar() {
+    String[] operators = {"+", "-", "*", "/"};
+    for (String operator : operators) {
+      ExpressionTree tree = new ExpressionTree("a b " + operator);
+      double[] out = new double[rows];
+      tree.evaluate(columns, 0, rows, out, 0);
+      for (int r = 0; r < rows; r++) {
+        assertSame(tree.evaluate(new double[] {columns[0][r], columns[1][r]}), out[r]);
+      }
+    }
+  }
+
+  @Test
+  public void testConstantsMatchScalar() {
+    String[] inputs = {"a 0 /", "a 0.0 - 3 *", "0 a /", "a 1e308 * 10 *", "a b / c + 2 /"};
+    for (String input : inputs) {
+      ExpressionTree tree = new ExpressionTree(input);
+      double[] out = new double[rows + 3];
+      tree.evaluate(columns, 1, rows, out, 3);
+      for (int r = 1; r < rows; r++) {
+        double[] slots = new double[tree.getVariables().length];
+        for (int s = 0; s < slots.length; s++) {
+          slots[s] = columns[s][r];
+        }
+        assertSame(tree.evaluate(slots), out[r + 2]);
+      }
+    }
+  }
+
+  @Test
+  public void testSharedAndCompiled() {
+    ExpressionTree tree = new ExpressionTree("a b - c / a b - *");
+    CompiledExpression compiled = tree.compile();
+    double[] out = new double[rows];
+    compiled.evaluate(columns, 0, rows, out, 0);
+    for (int r = 0; r < rows; r++) {
+      assertSame(tree.evaluate(new double[] {columns[0][r], columns[1][r], columns[2][r]}),
+              out[r]);
+    }
+  }
+
+}